@@ -0,0 +1,50 @@
+package com.motorbesitzen.rolewatcher.bot.command.impl;
+
+import com.motorbesitzen.rolewatcher.data.dao.DiscordBan;
+import com.motorbesitzen.rolewatcher.data.dao.DiscordUser;
+import com.motorbesitzen.rolewatcher.util.JdaFakes;
+import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.entities.User;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the comparison of the ban list of a guild with the bans in the database that {@code syncbans} does. Half
+ * of the guild bans are already saved.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class SyncBansDiffBenchmark {
+
+	@Param({"100", "1000", "5000"})
+	private int banCount;
+
+	private SyncBans syncBans;
+	private List<DiscordBan> dcBans;
+	private List<Guild.Ban> banList;
+
+	@Setup
+	public void setUp() {
+		syncBans = new SyncBans(null, null, null);
+		dcBans = new ArrayList<>();
+		banList = new ArrayList<>();
+		for (int i = 0; i < banCount; i++) {
+			final long userId = 100000000000000000L + i;
+			final User user = JdaFakes.fake(User.class, "user" + i, Map.of("getIdLong", userId));
+			banList.add(new Guild.Ban(user, "Ban " + i));
+			if (i % 2 == 0) {
+				dcBans.add(DiscordBan.createDiscordBan(1L, "Ban " + i, DiscordUser.createDiscordUser(userId)));
+			}
+		}
+	}
+
+	@Benchmark
+	public List<Guild.Ban> bansToAdd() {
+		return syncBans.getBansToAdd(dcBans, banList);
+	}
+}
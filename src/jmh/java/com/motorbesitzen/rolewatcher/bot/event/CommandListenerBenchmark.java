@@ -0,0 +1,143 @@
+package com.motorbesitzen.rolewatcher.bot.event;
+
+import com.motorbesitzen.rolewatcher.bot.command.Command;
+import com.motorbesitzen.rolewatcher.bot.service.EnvSettings;
+import com.motorbesitzen.rolewatcher.bot.service.SyncMetrics;
+import com.motorbesitzen.rolewatcher.data.dao.DiscordGuild;
+import com.motorbesitzen.rolewatcher.data.repo.DiscordGuildRepo;
+import com.motorbesitzen.rolewatcher.util.JdaFakes;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import net.dv8tion.jda.api.JDA;
+import net.dv8tion.jda.api.entities.*;
+import net.dv8tion.jda.api.events.message.guild.GuildMessageReceivedEvent;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.core.env.StandardEnvironment;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the handling of guild messages by the command listener. Most messages are no commands and get rejected
+ * after the prefix check, some use an unknown command and some get dispatched to a command that does nothing.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class CommandListenerBenchmark {
+
+	private static final long GUILD_ID = 100000000000000001L;
+	private static final long CHANNEL_ID = 100000000000000002L;
+
+	private CommandListener commandListener;
+	private GuildMessageReceivedEvent plainMessage;
+	private GuildMessageReceivedEvent unknownCommand;
+	private GuildMessageReceivedEvent knownCommand;
+
+	@Setup
+	public void setUp() {
+		final StandardEnvironment environment = new StandardEnvironment();
+		environment.getPropertySources().addFirst(new MapPropertySource("benchmark", Map.of("CMD_PREFIX", "rw!")));
+		final EnvSettings envSettings = JdaFakes.construct(EnvSettings.class, environment);
+		final DiscordGuild dcGuild = DiscordGuild.createDefault(GUILD_ID);
+		final DiscordGuildRepo guildRepo = JdaFakes.fake(DiscordGuildRepo.class, "guildRepo", Map.of("findById", Optional.of(dcGuild)));
+		final SyncMetrics syncMetrics = JdaFakes.construct(SyncMetrics.class, new SimpleMeterRegistry(), null, null, null, null);
+		final Map<String, Command> commandMap = Map.of("noop", new NoopCommand());
+		commandListener = JdaFakes.construct(
+				CommandListener.class, commandMap, envSettings, guildRepo, null, null, null, syncMetrics
+		);
+
+		final JDA jda = JdaFakes.fake(JDA.class, "jda", Map.of());
+		final Member self = JdaFakes.fake(Member.class, "self", Map.of("getIdLong", 1L));
+		final User author = JdaFakes.fake(User.class, "author", Map.of("getIdLong", 2L));
+		final Member member = JdaFakes.fake(Member.class, "member", Map.of("getIdLong", 2L, "getUser", author));
+		final Guild guild = JdaFakes.fake(Guild.class, "guild", Map.of(
+				"getIdLong", GUILD_ID,
+				"getSelfMember", self,
+				"getMember", member
+		));
+		final TextChannel channel = JdaFakes.fake(TextChannel.class, "channel", Map.of(
+				"getIdLong", CHANNEL_ID,
+				"getGuild", guild,
+				"canTalk", true
+		));
+		plainMessage = createEvent(jda, channel, guild, author, member, "Has anyone seen the new forum update?");
+		unknownCommand = createEvent(jda, channel, guild, author, member, "rw!unknown 123456789");
+		knownCommand = createEvent(jda, channel, guild, author, member, "rw!noop 123456789");
+	}
+
+	@Benchmark
+	public void plainMessage() {
+		commandListener.onGuildMessageReceived(plainMessage);
+	}
+
+	@Benchmark
+	public void unknownCommand() {
+		commandListener.onGuildMessageReceived(unknownCommand);
+	}
+
+	@Benchmark
+	public void knownCommand() {
+		commandListener.onGuildMessageReceived(knownCommand);
+	}
+
+	private static GuildMessageReceivedEvent createEvent(final JDA jda, final TextChannel channel, final Guild guild,
+														 final User author, final Member member, final String content) {
+		final Message message = JdaFakes.fake(Message.class, content, Map.of(
+				"getIdLong", 3L,
+				"getContentRaw", content,
+				"getTextChannel", channel,
+				"getChannel", channel,
+				"getGuild", guild,
+				"getAuthor", author,
+				"getMember", member
+		));
+		return new GuildMessageReceivedEvent(jda, 0, message);
+	}
+
+	/**
+	 * A command anyone can use that does nothing, so only the dispatch gets measured.
+	 */
+	private static class NoopCommand implements Command {
+
+		@Override
+		public String getName() {
+			return "noop";
+		}
+
+		@Override
+		public boolean needsAuthorization() {
+			return false;
+		}
+
+		@Override
+		public boolean needsWritePerms() {
+			return false;
+		}
+
+		@Override
+		public boolean needsReadPerms() {
+			return false;
+		}
+
+		@Override
+		public boolean needsOwnerPerms() {
+			return false;
+		}
+
+		@Override
+		public String getUsage() {
+			return getName();
+		}
+
+		@Override
+		public String getDescription() {
+			return "Does nothing.";
+		}
+
+		@Override
+		public void execute(final GuildMessageReceivedEvent event) {
+		}
+	}
+}
@@ -0,0 +1,66 @@
+package com.motorbesitzen.rolewatcher.bot.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import org.msgpack.jackson.dataformat.MessagePackFactory;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the parsing of a forum role API response in each encoding the forum can answer with. The roles of a
+ * single user are a few IDs, the members of a role can be thousands.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ForumRoleParsingBenchmark {
+
+	@Param({"json", "cbor", "msgpack"})
+	private String encoding;
+
+	@Param({"8", "5000"})
+	private int idCount;
+
+	private JsonFactory factory;
+	private byte[] response;
+	private IdBuffer ids;
+
+	@Setup
+	public void setUp() throws IOException {
+		factory = createFactory(encoding);
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try (JsonGenerator generator = factory.createGenerator(out)) {
+			generator.writeStartArray();
+			for (int i = 0; i < idCount; i++) {
+				generator.writeNumber(1000L + i * 7L);
+			}
+
+			generator.writeEndArray();
+		}
+
+		response = out.toByteArray();
+		ids = new IdBuffer();
+	}
+
+	@Benchmark
+	public int readIds() throws IOException {
+		ForumRoleApiRequest.readIds(new ByteArrayInputStream(response), factory, ids);
+		return ids.size();
+	}
+
+	private static JsonFactory createFactory(final String encoding) {
+		switch (encoding) {
+			case "cbor":
+				return new CBORFactory();
+			case "msgpack":
+				return new MessagePackFactory();
+			default:
+				return new JsonFactory();
+		}
+	}
+}
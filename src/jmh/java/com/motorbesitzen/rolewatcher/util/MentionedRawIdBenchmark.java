@@ -0,0 +1,36 @@
+package com.motorbesitzen.rolewatcher.util;
+
+import net.dv8tion.jda.api.entities.Message;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the search for a raw ID in commands like {@code adduser}, {@code info} or {@code updateperms}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class MentionedRawIdBenchmark {
+
+	@Param({
+			"rw!info 123456789012345678",
+			"rw!adduser \"some user name\" 1234 123456789012345678",
+			"rw!updateperms \"write\" true",
+			"rw!help"
+	})
+	private String content;
+
+	private Message message;
+
+	@Setup
+	public void setUp() {
+		message = JdaFakes.fake(Message.class, "message", Map.of("getContentRaw", content));
+	}
+
+	@Benchmark
+	public long mentionedRawId() {
+		return DiscordMessageUtil.getMentionedRawId(message);
+	}
+}
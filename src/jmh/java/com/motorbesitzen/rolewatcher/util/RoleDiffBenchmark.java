@@ -0,0 +1,43 @@
+package com.motorbesitzen.rolewatcher.util;
+
+import com.motorbesitzen.rolewatcher.data.dao.ForumRole;
+import net.dv8tion.jda.api.entities.Member;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the role diff of a single member which runs for each member in each synchronisation cycle. The guild has
+ * a role for each forum role plus unrelated roles, the member has some forum roles on the forum and some of them
+ * already on Discord.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class RoleDiffBenchmark {
+
+	private static final int OTHER_GUILD_ROLES = 50;
+	private static final int MEMBER_FORUM_ROLES = 5;
+
+	@Param({"10", "50", "200"})
+	private int forumRoleCount;
+
+	private Member member;
+	private List<ForumRole> memberForumRoles;
+	private List<ForumRole> allForumRoles;
+
+	@Setup
+	public void setUp() {
+		allForumRoles = JdaFakes.createForumRoles(forumRoleCount);
+		// the member has the first forum roles on the forum, but only every second of them and two other roles on Discord
+		memberForumRoles = new ArrayList<>(allForumRoles.subList(0, Math.min(MEMBER_FORUM_ROLES, forumRoleCount)));
+		member = JdaFakes.createMemberWithRoles(allForumRoles, OTHER_GUILD_ROLES, i -> i < MEMBER_FORUM_ROLES && i % 2 == 0);
+	}
+
+	@Benchmark
+	public RoleDiff roleDiff() {
+		return RoleUtil.getRoleDiff(member, memberForumRoles, allForumRoles);
+	}
+}
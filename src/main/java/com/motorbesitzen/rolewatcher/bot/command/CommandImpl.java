@@ -1,9 +1,11 @@
 package com.motorbesitzen.rolewatcher.bot.command;
 
+import com.motorbesitzen.rolewatcher.bot.service.HashedTimingWheel;
 import net.dv8tion.jda.api.entities.Message;
 import net.dv8tion.jda.api.entities.MessageEmbed;
 import net.dv8tion.jda.api.entities.TextChannel;
 import net.dv8tion.jda.api.events.message.guild.GuildMessageReceivedEvent;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.util.concurrent.TimeUnit;
@@ -15,6 +17,19 @@ import java.util.concurrent.TimeUnit;
 @Service
 public abstract class CommandImpl implements Command {
 
+	private HashedTimingWheel timingWheel;
+
+	/**
+	 * Sets the timing wheel that deletes temporary messages. Gets set by Spring so commands do not need to pass it
+	 * through their constructors.
+	 *
+	 * @param timingWheel The timing wheel that runs the delayed actions of the bot.
+	 */
+	@Autowired
+	void setTimingWheel(final HashedTimingWheel timingWheel) {
+		this.timingWheel = timingWheel;
+	}
+
 	/**
 	 * {@inheritDoc}
 	 * Default command implementation without command functionality. Declared as 'unknown command'.
@@ -240,7 +255,7 @@ public abstract class CommandImpl implements Command {
 	protected void sendTemporaryMessage(final TextChannel channel, final String message, final int deleteTimerSecs) {
 		if (channel.canTalk()) {
 			channel.sendMessage(message).queue(
-					msg -> msg.delete().queueAfter(deleteTimerSecs, TimeUnit.SECONDS)
+					msg -> timingWheel.schedule(() -> msg.delete().queue(), deleteTimerSecs, TimeUnit.SECONDS)
 			);
 		}
 	}
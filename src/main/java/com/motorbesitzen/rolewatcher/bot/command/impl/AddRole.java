@@ -1,6 +1,7 @@
 package com.motorbesitzen.rolewatcher.bot.command.impl;
 
 import com.motorbesitzen.rolewatcher.bot.command.CommandImpl;
+import com.motorbesitzen.rolewatcher.bot.service.ForumRoleSource;
 import com.motorbesitzen.rolewatcher.data.dao.ForumRole;
 import com.motorbesitzen.rolewatcher.data.repo.ForumRoleRepo;
 import com.motorbesitzen.rolewatcher.util.DiscordMessageUtil;
@@ -18,10 +19,12 @@ import java.util.Optional;
 class AddRole extends CommandImpl {
 
 	private final ForumRoleRepo forumRoleRepo;
+	private final ForumRoleSource forumRoleSource;
 
 	@Autowired
-	private AddRole(final ForumRoleRepo forumRoleRepo) {
+	private AddRole(final ForumRoleRepo forumRoleRepo, final ForumRoleSource forumRoleSource) {
 		this.forumRoleRepo = forumRoleRepo;
+		this.forumRoleSource = forumRoleSource;
 	}
 
 	/**
@@ -130,6 +133,7 @@ class AddRole extends CommandImpl {
 	private void saveRole(final GuildMessageReceivedEvent event, final long roleId, final String roleName) {
 		final ForumRole forumRole = ForumRole.of(roleId, roleName);
 		forumRoleRepo.save(forumRole);
+		forumRoleSource.forgetAppliedRoles();
 		answer(event.getChannel(), "Added role to database.");
 	}
 }
@@ -1,8 +1,12 @@
 package com.motorbesitzen.rolewatcher.bot.command.impl;
 
 import com.motorbesitzen.rolewatcher.bot.command.CommandImpl;
+import com.motorbesitzen.rolewatcher.bot.service.DiscordActionOutbox;
 import com.motorbesitzen.rolewatcher.bot.service.EnvSettings;
-import com.motorbesitzen.rolewatcher.bot.service.ForumRoleApiRequest;
+import com.motorbesitzen.rolewatcher.bot.service.ForumRoleSource;
+import com.motorbesitzen.rolewatcher.bot.service.SyncPriority;
+import com.motorbesitzen.rolewatcher.bot.service.SyncQueue;
+import com.motorbesitzen.rolewatcher.bot.service.SyncStateTracker;
 import com.motorbesitzen.rolewatcher.bot.service.RoleUpdater;
 import com.motorbesitzen.rolewatcher.data.dao.DiscordUser;
 import com.motorbesitzen.rolewatcher.data.dao.ForumRole;
@@ -35,17 +39,24 @@ class AddUser extends CommandImpl {
 	private final DiscordUserRepo discordUserRepo;
 	private final ForumUserRepo forumUserRepo;
 	private final ForumRoleRepo forumRoleRepo;
-	private final ForumRoleApiRequest forumRoleApiRequest;
+	private final ForumRoleSource forumRoleSource;
+	private final SyncStateTracker syncTracker;
+	private final SyncQueue syncQueue;
+	private final DiscordActionOutbox actionOutbox;
 
 	@Autowired
 	private AddUser(final EnvSettings envSettings, final DiscordUserRepo discordUserRepo,
 					final ForumUserRepo forumUserRepo, final ForumRoleRepo forumRoleRepo,
-					final ForumRoleApiRequest forumRoleApiRequest) {
+					final ForumRoleSource forumRoleSource, final SyncStateTracker syncTracker,
+					final SyncQueue syncQueue, final DiscordActionOutbox actionOutbox) {
 		this.envSettings = envSettings;
 		this.discordUserRepo = discordUserRepo;
 		this.forumUserRepo = forumUserRepo;
 		this.forumRoleRepo = forumRoleRepo;
-		this.forumRoleApiRequest = forumRoleApiRequest;
+		this.forumRoleSource = forumRoleSource;
+		this.syncTracker = syncTracker;
+		this.syncQueue = syncQueue;
+		this.actionOutbox = actionOutbox;
 	}
 
 	/**
@@ -158,6 +169,7 @@ class AddUser extends CommandImpl {
 		final Optional<DiscordUser> dcUserOpt = discordUserRepo.findById(discordId);
 		dcUserOpt.ifPresentOrElse(dcUser -> addForumUserLink(dcUser, newForumUser), () -> createDiscordUserLink(discordId, newForumUser));
 
+		syncTracker.forgetUser(discordId);
 		assignUserRoles(channel, newForumUser);
 		doUserAddLog(event, newForumUser);
 	}
@@ -203,7 +215,7 @@ class AddUser extends CommandImpl {
 
 	/**
 	 * Assigns the forum roles to the added user in the guild where the command got triggered if the member is
-	 * in the guild.
+	 * in the guild. The role request gets queued ahead of the periodic role update.
 	 *
 	 * @param channel The channel the command got triggered in.
 	 * @param newUser The user that got added.
@@ -211,7 +223,7 @@ class AddUser extends CommandImpl {
 	private void assignUserRoles(final TextChannel channel, final ForumUser newUser) {
 		final Guild guild = channel.getGuild();
 		guild.retrieveMemberById(newUser.getLinkedDiscordUser().getDiscordId()).queue(
-				member -> assignMemberRoles(channel, newUser, member),
+				member -> syncQueue.submit(SyncPriority.INTERACTIVE, () -> assignMemberRoles(channel, newUser, member)),
 				throwable -> LogUtil.logDebug("Member not found! Can not assign roles.")
 		);
 	}
@@ -228,7 +240,7 @@ class AddUser extends CommandImpl {
 	private void assignMemberRoles(final TextChannel channel, final ForumUser newUser, final Member member) {
 		final List<ForumRole> forumRoles;
 		try {
-			forumRoles = forumRoleApiRequest.getRolesOfForumUser(newUser);
+			forumRoles = forumRoleSource.getRolesOfForumUser(newUser);
 		} catch (IOException e) {
 			sendErrorMessage(channel, "Could not get roles of user!");
 			LogUtil.logError("Could not get roles of " + newUser.toString(), e);
@@ -236,12 +248,13 @@ class AddUser extends CommandImpl {
 		}
 
 		if (RoleUtil.hasBannedRole(envSettings, forumRoles)) {
-			member.ban(0, "User (" + newUser.getForumId() + ") has the banned role on the forum. Might be a temporary ban.").queue();
+			actionOutbox.ban(member, "User (" + newUser.getForumId() + ") has the banned role on the forum. Might be a temporary ban.");
 			sendErrorMessage(channel, "Member has the banned role on the forum and thus has been banned.");
 			return;
 		}
 
-		RoleUtil.updateRoles(member, forumRoles, forumRoleRepo.findAll());
+		syncTracker.recordSync(member, forumRoles);
+		actionOutbox.updateRoles(member, forumRoles, forumRoleRepo.findAll());
 		answer(channel, "Added new user to the database!");
 	}
 
@@ -1,6 +1,7 @@
 package com.motorbesitzen.rolewatcher.bot.command.impl;
 
 import com.motorbesitzen.rolewatcher.bot.command.CommandImpl;
+import com.motorbesitzen.rolewatcher.bot.service.ForumRoleSource;
 import com.motorbesitzen.rolewatcher.data.repo.ForumRoleRepo;
 import com.motorbesitzen.rolewatcher.util.DiscordMessageUtil;
 import net.dv8tion.jda.api.events.message.guild.GuildMessageReceivedEvent;
@@ -14,10 +15,12 @@ import org.springframework.stereotype.Service;
 class DeleteRole extends CommandImpl {
 
 	private final ForumRoleRepo forumRoleRepo;
+	private final ForumRoleSource forumRoleSource;
 
 	@Autowired
-	private DeleteRole(final ForumRoleRepo forumRoleRepo) {
+	private DeleteRole(final ForumRoleRepo forumRoleRepo, final ForumRoleSource forumRoleSource) {
 		this.forumRoleRepo = forumRoleRepo;
+		this.forumRoleSource = forumRoleSource;
 	}
 
 	/**
@@ -95,6 +98,7 @@ class DeleteRole extends CommandImpl {
 		}
 
 		forumRoleRepo.deleteById(roleId);
+		forumRoleSource.forgetAppliedRoles();
 		answer(event.getChannel(), "Deleted role from database.");
 	}
 }
@@ -1,6 +1,8 @@
 package com.motorbesitzen.rolewatcher.bot.command.impl;
 
 import com.motorbesitzen.rolewatcher.bot.command.CommandImpl;
+import com.motorbesitzen.rolewatcher.bot.event.AutokickSweeper;
+import com.motorbesitzen.rolewatcher.bot.service.DiscordActionOutbox;
 import com.motorbesitzen.rolewatcher.bot.service.EnvSettings;
 import com.motorbesitzen.rolewatcher.data.dao.DiscordBan;
 import com.motorbesitzen.rolewatcher.data.dao.DiscordUser;
@@ -10,7 +12,6 @@ import com.motorbesitzen.rolewatcher.data.repo.ForumRoleRepo;
 import com.motorbesitzen.rolewatcher.data.repo.ForumUserRepo;
 import com.motorbesitzen.rolewatcher.util.DiscordMessageUtil;
 import com.motorbesitzen.rolewatcher.util.LogUtil;
-import com.motorbesitzen.rolewatcher.util.RoleUtil;
 import net.dv8tion.jda.api.EmbedBuilder;
 import net.dv8tion.jda.api.entities.Guild;
 import net.dv8tion.jda.api.entities.MessageEmbed;
@@ -32,14 +33,19 @@ class DeleteUser extends CommandImpl {
 	private final ForumUserRepo forumUserRepo;
 	private final DiscordBanRepo banRepo;
 	private final EnvSettings envSettings;
+	private final AutokickSweeper autokickSweeper;
+	private final DiscordActionOutbox actionOutbox;
 
 	@Autowired
 	private DeleteUser(final ForumRoleRepo forumRoleRepo, final ForumUserRepo forumUserRepo,
-					   final DiscordBanRepo banRepo, final EnvSettings envSettings) {
+					   final DiscordBanRepo banRepo, final EnvSettings envSettings,
+					   final AutokickSweeper autokickSweeper, final DiscordActionOutbox actionOutbox) {
 		this.forumRoleRepo = forumRoleRepo;
 		this.forumUserRepo = forumUserRepo;
 		this.banRepo = banRepo;
 		this.envSettings = envSettings;
+		this.autokickSweeper = autokickSweeper;
+		this.actionOutbox = actionOutbox;
 	}
 
 	/**
@@ -202,18 +208,19 @@ class DeleteUser extends CommandImpl {
 
 		if (!dcUser.isWhitelisted()) {
 			removeForumRoles(event.getGuild(), dcUser.getDiscordId());
+			autokickSweeper.track(dcUser.getDiscordId());
 		}
 	}
 
 	/**
-	 * Removes the forum roles of the user on the guild where the command got triggered.
-	 * Every other guild will only update via RoleUpdater.
+	 * Removes the forum roles of the user on the guild where the command got triggered. Every other guild will only
+	 * update via RoleUpdater.
 	 *
 	 * @param guild The guild the user is in.
 	 */
 	private void removeForumRoles(final Guild guild, final long discordId) {
 		guild.retrieveMemberById(discordId).queue(
-				member -> RoleUtil.updateRoles(member, new ArrayList<>(), forumRoleRepo.findAll()),
+				member -> actionOutbox.updateRoles(member, new ArrayList<>(), forumRoleRepo.findAll()),
 				throwable -> LogUtil.logDebug("Can not remove roles from deleted user as user is not in the guild.")
 		);
 	}
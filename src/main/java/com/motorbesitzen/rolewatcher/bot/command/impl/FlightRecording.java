@@ -0,0 +1,141 @@
+package com.motorbesitzen.rolewatcher.bot.command.impl;
+
+import com.motorbesitzen.rolewatcher.bot.command.CommandImpl;
+import com.motorbesitzen.rolewatcher.bot.service.FlightRecorderService;
+import com.motorbesitzen.rolewatcher.util.LogUtil;
+import net.dv8tion.jda.api.entities.TextChannel;
+import net.dv8tion.jda.api.events.message.guild.GuildMessageReceivedEvent;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.util.Optional;
+
+/**
+ * Starts, dumps and stops a flight recording of the bot via command in Discord.
+ */
+@Service("jfr")
+class FlightRecording extends CommandImpl {
+
+	private final FlightRecorderService recorderService;
+
+	@Autowired
+	private FlightRecording(final FlightRecorderService recorderService) {
+		this.recorderService = recorderService;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String getName() {
+		return "jfr";
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean needsAuthorization() {
+		return false;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean needsWritePerms() {
+		// the guild permissions do not matter as only the owner can use it
+		return false;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean needsReadPerms() {
+		// the guild permissions do not matter as only the owner can use it
+		return false;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean needsOwnerPerms() {
+		return true;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String getUsage() {
+		return getName() + " (start|dump|stop)";
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String getDescription() {
+		return "Starts, dumps or stops a flight recording of the bot.";
+	}
+
+	/**
+	 * Starts a flight recording, dumps the running recording to a file or dumps and stops it depending on the
+	 * argument of the command.
+	 *
+	 * @param event The Discord event triggered when a message is received.
+	 */
+	@Override
+	public void execute(final GuildMessageReceivedEvent event) {
+		final TextChannel channel = event.getChannel();
+		final String content = event.getMessage().getContentRaw().toLowerCase();
+		try {
+			if (content.endsWith(" start")) {
+				start(channel);
+			} else if (content.endsWith(" dump")) {
+				answerDump(channel, recorderService.dump(), "Dumped the flight recording to ");
+			} else if (content.endsWith(" stop")) {
+				answerDump(channel, recorderService.stop(), "Stopped the flight recording and dumped it to ");
+			} else {
+				sendErrorMessage(channel, "Please use `" + getUsage() + "`.");
+			}
+		} catch (IOException | ParseException e) {
+			LogUtil.logError("Could not control the flight recording.", e);
+			sendErrorMessage(channel, "Could not control the flight recording: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Starts a flight recording and answers if it got started.
+	 *
+	 * @param channel The channel to answer in.
+	 * @throws IOException    if the recording settings could not be read.
+	 * @throws ParseException if the recording settings could not be parsed.
+	 */
+	private void start(final TextChannel channel) throws IOException, ParseException {
+		if (recorderService.start()) {
+			answer(channel, "Started a flight recording.");
+		} else {
+			sendErrorMessage(channel, "A flight recording is already running.");
+		}
+	}
+
+	/**
+	 * Answers with the path of a dumped recording or that there is no running recording.
+	 *
+	 * @param channel The channel to answer in.
+	 * @param fileOpt The path of the dumped recording if there was a running recording.
+	 * @param text    The text to show in front of the path.
+	 */
+	private void answerDump(final TextChannel channel, final Optional<Path> fileOpt, final String text) {
+		fileOpt.ifPresentOrElse(
+				file -> answer(channel, text + "`" + file + "`."),
+				() -> sendErrorMessage(channel, "There is no running flight recording.")
+		);
+	}
+}
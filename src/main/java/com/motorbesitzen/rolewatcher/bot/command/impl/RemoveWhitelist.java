@@ -1,6 +1,7 @@
 package com.motorbesitzen.rolewatcher.bot.command.impl;
 
 import com.motorbesitzen.rolewatcher.bot.command.CommandImpl;
+import com.motorbesitzen.rolewatcher.bot.event.AutokickSweeper;
 import com.motorbesitzen.rolewatcher.data.dao.DiscordUser;
 import com.motorbesitzen.rolewatcher.data.repo.DiscordUserRepo;
 import com.motorbesitzen.rolewatcher.util.DiscordMessageUtil;
@@ -19,10 +20,12 @@ import java.util.Optional;
 class RemoveWhitelist extends CommandImpl {
 
 	private final DiscordUserRepo dcUserRepo;
+	private final AutokickSweeper autokickSweeper;
 
 	@Autowired
-	private RemoveWhitelist(final DiscordUserRepo dcUserRepo) {
+	private RemoveWhitelist(final DiscordUserRepo dcUserRepo, final AutokickSweeper autokickSweeper) {
 		this.dcUserRepo = dcUserRepo;
+		this.autokickSweeper = autokickSweeper;
 	}
 
 	/**
@@ -102,7 +105,8 @@ class RemoveWhitelist extends CommandImpl {
 	}
 
 	/**
-	 * Sets the whitelist status to false if it is not already false and saves the update to the database.
+	 * Sets the whitelist status to false if it is not already false and saves the update to the database. An unlinked
+	 * user gets tracked for the autokick again.
 	 *
 	 * @param event  The channel to answer in that the user got removed from the whitelisted.
 	 * @param dcUser The {@link DiscordUser} for the given ID.
@@ -115,6 +119,10 @@ class RemoveWhitelist extends CommandImpl {
 
 		dcUser.setWhitelisted(false);
 		dcUserRepo.save(dcUser);
+		if (dcUser.getLinkedForumUser() == null) {
+			autokickSweeper.track(dcUser.getDiscordId());
+		}
+
 		answer(event.getChannel(), "Updated whitelist status of user <@" + dcUser.getDiscordId() + ">.");
 		doRemoveWhitelistLog(event, dcUser);
 	}
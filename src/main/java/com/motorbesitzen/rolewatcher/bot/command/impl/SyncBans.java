@@ -149,7 +149,8 @@ class SyncBans extends CommandImpl {
 	 * @param banList The list of bans of that guild provided by Discord.
 	 * @return The list of bans to add to the database.
 	 */
-	private List<Guild.Ban> getBansToAdd(final List<DiscordBan> dcBans, final List<Guild.Ban> banList) {
+	// package-private for the benchmarks
+	List<Guild.Ban> getBansToAdd(final List<DiscordBan> dcBans, final List<Guild.Ban> banList) {
 		final List<Guild.Ban> toAdd = new ArrayList<>();
 		for (Guild.Ban ban : banList) {
 			final long bannedUserId = ban.getUser().getIdLong();
@@ -1,8 +1,12 @@
 package com.motorbesitzen.rolewatcher.bot.command.impl;
 
 import com.motorbesitzen.rolewatcher.bot.command.CommandImpl;
+import com.motorbesitzen.rolewatcher.bot.service.DiscordActionOutbox;
 import com.motorbesitzen.rolewatcher.bot.service.EnvSettings;
-import com.motorbesitzen.rolewatcher.bot.service.ForumRoleApiRequest;
+import com.motorbesitzen.rolewatcher.bot.service.ForumRoleSource;
+import com.motorbesitzen.rolewatcher.bot.service.SyncPriority;
+import com.motorbesitzen.rolewatcher.bot.service.SyncQueue;
+import com.motorbesitzen.rolewatcher.bot.service.SyncStateTracker;
 import com.motorbesitzen.rolewatcher.data.dao.ForumRole;
 import com.motorbesitzen.rolewatcher.data.dao.ForumUser;
 import com.motorbesitzen.rolewatcher.data.repo.ForumRoleRepo;
@@ -31,15 +35,22 @@ class UpdateUser extends CommandImpl {
 	private final EnvSettings envSettings;
 	private final ForumUserRepo forumUserRepo;
 	private final ForumRoleRepo forumRoleRepo;
-	private final ForumRoleApiRequest forumRoleApiRequest;
+	private final ForumRoleSource forumRoleSource;
+	private final SyncStateTracker syncTracker;
+	private final SyncQueue syncQueue;
+	private final DiscordActionOutbox actionOutbox;
 
 	@Autowired
 	private UpdateUser(final EnvSettings envSettings, final ForumUserRepo forumUserRepo,
-					   final ForumRoleRepo forumRoleRepo, final ForumRoleApiRequest forumRoleApiRequest) {
+					   final ForumRoleRepo forumRoleRepo, final ForumRoleSource forumRoleSource,
+					   final SyncStateTracker syncTracker, final SyncQueue syncQueue, final DiscordActionOutbox actionOutbox) {
 		this.envSettings = envSettings;
 		this.forumUserRepo = forumUserRepo;
 		this.forumRoleRepo = forumRoleRepo;
-		this.forumRoleApiRequest = forumRoleApiRequest;
+		this.forumRoleSource = forumRoleSource;
+		this.syncTracker = syncTracker;
+		this.syncQueue = syncQueue;
+		this.actionOutbox = actionOutbox;
 	}
 
 	/**
@@ -122,7 +133,8 @@ class UpdateUser extends CommandImpl {
 	}
 
 	/**
-	 * Updates the roles of a Discord user if the user is a member of the caller guild.
+	 * Updates the roles of a Discord user if the user is a member of the caller guild. The role request gets queued
+	 * ahead of the periodic role update.
 	 *
 	 * @param channel   The channel the command got triggered in.
 	 * @param forumUser The user with the given ID in the database.
@@ -130,7 +142,7 @@ class UpdateUser extends CommandImpl {
 	private void updateRoles(final TextChannel channel, final ForumUser forumUser) {
 		final Guild guild = channel.getGuild();
 		guild.retrieveMemberById(forumUser.getLinkedDiscordUser().getDiscordId()).queue(
-				member -> updateMemberRoles(channel, forumUser, member),
+				member -> syncQueue.submit(SyncPriority.INTERACTIVE, () -> updateMemberRoles(channel, forumUser, member)),
 				throwable -> sendErrorMessage(channel, "Member not found, make sure the user is in your guild!")
 		);
 	}
@@ -146,7 +158,7 @@ class UpdateUser extends CommandImpl {
 	private void updateMemberRoles(final TextChannel channel, final ForumUser forumUser, final Member member) {
 		final List<ForumRole> forumRoles;
 		try {
-			forumRoles = forumRoleApiRequest.getRolesOfForumUser(forumUser);
+			forumRoles = forumRoleSource.getRolesOfForumUser(forumUser);
 		} catch (IOException e) {
 			sendErrorMessage(channel, "Could not get roles of user!");
 			LogUtil.logError("Could not get roles of " + forumUser.toString(), e);
@@ -154,12 +166,13 @@ class UpdateUser extends CommandImpl {
 		}
 
 		if (RoleUtil.hasBannedRole(envSettings, forumRoles)) {
-			member.ban(0, "User (" + forumUser.getForumId() + ") has the banned role on the forum. Might be a temporary ban.").queue();
+			actionOutbox.ban(member, "User (" + forumUser.getForumId() + ") has the banned role on the forum. Might be a temporary ban.");
 			sendErrorMessage(channel, "Member has the banned role on the forum and thus has been banned.");
 			return;
 		}
 
-		RoleUtil.updateRoles(member, forumRoles, forumRoleRepo.findAll());
+		syncTracker.recordSync(member, forumRoles);
+		actionOutbox.updateRoles(member, forumRoles, forumRoleRepo.findAll());
 		answer(channel, "Updated roles of the mentioned user.");
 	}
 
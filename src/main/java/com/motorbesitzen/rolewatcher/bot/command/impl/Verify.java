@@ -1,8 +1,12 @@
 package com.motorbesitzen.rolewatcher.bot.command.impl;
 
 import com.motorbesitzen.rolewatcher.bot.command.CommandImpl;
+import com.motorbesitzen.rolewatcher.bot.service.DiscordActionOutbox;
 import com.motorbesitzen.rolewatcher.bot.service.EnvSettings;
-import com.motorbesitzen.rolewatcher.bot.service.ForumRoleApiRequest;
+import com.motorbesitzen.rolewatcher.bot.service.ForumRoleSource;
+import com.motorbesitzen.rolewatcher.bot.service.SyncPriority;
+import com.motorbesitzen.rolewatcher.bot.service.SyncQueue;
+import com.motorbesitzen.rolewatcher.bot.service.SyncStateTracker;
 import com.motorbesitzen.rolewatcher.bot.service.RoleUpdater;
 import com.motorbesitzen.rolewatcher.data.dao.*;
 import com.motorbesitzen.rolewatcher.data.repo.*;
@@ -28,23 +32,30 @@ public class Verify extends CommandImpl {
 	private final DiscordGuildRepo guildRepo;
 	private final DiscordUserRepo dcUserRepo;
 	private final ForumUserRepo forumUserRepo;
-	private final ForumRoleApiRequest forumRoleApiRequest;
+	private final ForumRoleSource forumRoleSource;
 	private final ForumRoleRepo forumRoleRepo;
 	private final LinkingInformationRepo infoRepo;
+	private final SyncStateTracker syncTracker;
+	private final SyncQueue syncQueue;
+	private final DiscordActionOutbox actionOutbox;
 
 	private static final int MESSAGE_DELETE_TIMER_SECS = 30;
 
 	@Autowired
 	private Verify(final EnvSettings envSettings, final DiscordGuildRepo guildRepo, final DiscordUserRepo dcUserRepo,
-				   final ForumUserRepo forumUserRepo, final ForumRoleApiRequest forumRoleApiRequest,
-				   final ForumRoleRepo forumRoleRepo, final LinkingInformationRepo infoRepo) {
+				   final ForumUserRepo forumUserRepo, final ForumRoleSource forumRoleSource,
+				   final ForumRoleRepo forumRoleRepo, final LinkingInformationRepo infoRepo,
+				   final SyncStateTracker syncTracker, final SyncQueue syncQueue, final DiscordActionOutbox actionOutbox) {
 		this.envSettings = envSettings;
 		this.guildRepo = guildRepo;
 		this.dcUserRepo = dcUserRepo;
 		this.forumUserRepo = forumUserRepo;
-		this.forumRoleApiRequest = forumRoleApiRequest;
+		this.forumRoleSource = forumRoleSource;
 		this.forumRoleRepo = forumRoleRepo;
 		this.infoRepo = infoRepo;
+		this.syncTracker = syncTracker;
+		this.syncQueue = syncQueue;
+		this.actionOutbox = actionOutbox;
 	}
 
 	/**
@@ -182,6 +193,7 @@ public class Verify extends CommandImpl {
 		final Optional<DiscordUser> dcUserOpt = dcUserRepo.findById(discordId);
 		dcUserOpt.ifPresentOrElse(dcUser -> addForumUserLink(dcUser, newForumUser), () -> createDiscordUserLink(discordId, newForumUser));
 		infoRepo.delete(linkingInformation);
+		syncTracker.forgetUser(discordId);
 		assignUserRoles(channel.getGuild(), newForumUser);
 		LogUtil.logDebug("Linked user: " + newForumUser);
 	}
@@ -212,14 +224,14 @@ public class Verify extends CommandImpl {
 
 	/**
 	 * Assigns the forum roles to the added user in the guild where the command got triggered if the member is
-	 * in the guild.
+	 * in the guild. The role request gets queued ahead of the periodic role update.
 	 *
 	 * @param guild   The guild the command got triggered in.
 	 * @param newUser The user that got added.
 	 */
 	private void assignUserRoles(final Guild guild, final ForumUser newUser) {
 		guild.retrieveMemberById(newUser.getLinkedDiscordUser().getDiscordId()).queue(
-				member -> assignMemberRoles(newUser, member)
+				member -> syncQueue.submit(SyncPriority.INTERACTIVE, () -> assignMemberRoles(newUser, member))
 		);
 	}
 
@@ -234,7 +246,7 @@ public class Verify extends CommandImpl {
 	private void assignMemberRoles(final ForumUser newUser, final Member member) {
 		final List<ForumRole> forumRoles;
 		try {
-			forumRoles = forumRoleApiRequest.getRolesOfForumUser(newUser);
+			forumRoles = forumRoleSource.getRolesOfForumUser(newUser);
 		} catch (SocketTimeoutException e) {
 			LogUtil.logError("Skipping user due to API timeout. Could not get roles of " + newUser);
 			return;
@@ -244,10 +256,11 @@ public class Verify extends CommandImpl {
 		}
 
 		if (RoleUtil.hasBannedRole(envSettings, forumRoles)) {
-			member.ban(0, "User (" + newUser.getForumId() + ") has the banned role on the forum. Might be a temporary ban.").queue();
+			actionOutbox.ban(member, "User (" + newUser.getForumId() + ") has the banned role on the forum. Might be a temporary ban.");
 			return;
 		}
 
-		RoleUtil.updateRoles(member, forumRoles, forumRoleRepo.findAll());
+		syncTracker.recordSync(member, forumRoles);
+		actionOutbox.updateRoles(member, forumRoles, forumRoleRepo.findAll());
 	}
 }
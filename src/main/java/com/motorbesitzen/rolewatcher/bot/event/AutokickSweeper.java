@@ -0,0 +1,412 @@
+package com.motorbesitzen.rolewatcher.bot.event;
+
+import com.motorbesitzen.rolewatcher.bot.service.DiscordActionOutbox;
+import com.motorbesitzen.rolewatcher.bot.service.PartitionLeaseManager;
+import com.motorbesitzen.rolewatcher.data.dao.DiscordGuild;
+import com.motorbesitzen.rolewatcher.data.dao.DiscordUser;
+import com.motorbesitzen.rolewatcher.data.dao.ForumUser;
+import com.motorbesitzen.rolewatcher.data.repo.DiscordGuildRepo;
+import com.motorbesitzen.rolewatcher.data.repo.DiscordUserRepo;
+import com.motorbesitzen.rolewatcher.data.repo.ForumUserRepo;
+import com.motorbesitzen.rolewatcher.util.LogUtil;
+import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.entities.Member;
+import net.dv8tion.jda.api.events.guild.GuildJoinEvent;
+import net.dv8tion.jda.api.events.guild.GuildLeaveEvent;
+import net.dv8tion.jda.api.events.guild.GuildReadyEvent;
+import net.dv8tion.jda.api.events.guild.member.GuildMemberJoinEvent;
+import net.dv8tion.jda.api.events.guild.member.GuildMemberRemoveEvent;
+import net.dv8tion.jda.api.hooks.ListenerAdapter;
+import net.dv8tion.jda.api.sharding.ShardManager;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Kicks unlinked members once they have been in a guild for longer than the autokick delay of the guild. Keeps the
+ * members of each guild ordered by their join time, so each sweep only has to look at the member that joined first.
+ * Each sweep checks at most one member per guild, the guild settings get reloaded once a minute. Members of guilds
+ * whose partition another instance owns stay tracked, so they get kicked if this instance takes over the partition.
+ * Members that can not be kicked yet, e.g. whitelisted ones, get checked again an hour later.
+ */
+@Service
+public class AutokickSweeper extends ListenerAdapter {
+
+	private static final long SWEEP_DELAY_MS = 1000;
+	private static final long SETTINGS_REFRESH_MS = 60000;
+	private static final long RECHECK_DELAY_MS = TimeUnit.HOURS.toMillis(1);
+
+	private final DiscordGuildRepo guildRepo;
+	private final DiscordUserRepo discordUserRepo;
+	private final ForumUserRepo forumUserRepo;
+	private final Map<Long, UnlinkedMembers> unlinkedMembers;
+	private final Map<Long, Long> autokickDelays;
+	private final ScheduledExecutorService scheduler;
+	private final DiscordActionOutbox actionOutbox;
+	private final PartitionLeaseManager leaseManager;
+	private volatile ShardManager shardManager;
+	private long settingsLoadedAt;
+
+	@Autowired
+	AutokickSweeper(final DiscordGuildRepo guildRepo, final DiscordUserRepo discordUserRepo,
+					final ForumUserRepo forumUserRepo, final DiscordActionOutbox actionOutbox,
+					final PartitionLeaseManager leaseManager) {
+		this.guildRepo = guildRepo;
+		this.discordUserRepo = discordUserRepo;
+		this.forumUserRepo = forumUserRepo;
+		this.actionOutbox = actionOutbox;
+		this.leaseManager = leaseManager;
+		this.unlinkedMembers = new ConcurrentHashMap<>();
+		this.autokickDelays = new ConcurrentHashMap<>();
+		this.scheduler = Executors.newSingleThreadScheduledExecutor();
+		this.settingsLoadedAt = 0;
+	}
+
+	/**
+	 * Starts the sweeps once the sweeper got created.
+	 */
+	@PostConstruct
+	private void start() {
+		scheduler.scheduleWithFixedDelay(this::sweep, SWEEP_DELAY_MS, SWEEP_DELAY_MS, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Stops the sweeps when the application shuts down.
+	 */
+	@PreDestroy
+	private void shutdown() {
+		scheduler.shutdownNow();
+	}
+
+	/**
+	 * Loads the unlinked members of a guild when the guild is ready.
+	 *
+	 * @param event The Discord event that a guild is ready.
+	 */
+	@Override
+	public void onGuildReady(final GuildReadyEvent event) {
+		shardManager = event.getJDA().getShardManager();
+		loadGuild(event.getGuild());
+	}
+
+	/**
+	 * Loads the unlinked members of a guild the bot joined.
+	 *
+	 * @param event The Discord event that the bot joined a guild.
+	 */
+	@Override
+	public void onGuildJoin(final GuildJoinEvent event) {
+		shardManager = event.getJDA().getShardManager();
+		loadGuild(event.getGuild());
+	}
+
+	/**
+	 * Forgets the members of a guild the bot left.
+	 *
+	 * @param event The Discord event that the bot left a guild.
+	 */
+	@Override
+	public void onGuildLeave(final GuildLeaveEvent event) {
+		unlinkedMembers.remove(event.getGuild().getIdLong());
+	}
+
+	/**
+	 * Adds a member that joined a guild. Linked members get dropped when their autokick delay ends.
+	 *
+	 * @param event The Discord event that a member joined a guild.
+	 */
+	@Override
+	public void onGuildMemberJoin(final GuildMemberJoinEvent event) {
+		track(event.getMember());
+	}
+
+	/**
+	 * Removes a member that left a guild.
+	 *
+	 * @param event The Discord event that a member left a guild.
+	 */
+	@Override
+	public void onGuildMemberRemove(final GuildMemberRemoveEvent event) {
+		final UnlinkedMembers members = unlinkedMembers.get(event.getGuild().getIdLong());
+		if (members != null) {
+			members.remove(event.getUser().getIdLong());
+		}
+	}
+
+	/**
+	 * Adds a member that is not linked (anymore) so it gets kicked when its autokick delay ends.
+	 *
+	 * @param member The unlinked member.
+	 */
+	public void track(final Member member) {
+		if (member.getUser().isBot() || member.isOwner() || !member.hasTimeJoined()) {
+			return;
+		}
+
+		final long joinTime = member.getTimeJoined().toInstant().toEpochMilli();
+		getGuildMembers(member.getGuild().getIdLong()).add(new UnlinkedMember(member.getIdLong(), joinTime));
+	}
+
+	/**
+	 * Adds a user that is not linked or whitelisted anymore in each guild that can autokick and has the user as a
+	 * member.
+	 *
+	 * @param userId The Discord ID of the user.
+	 */
+	public void track(final long userId) {
+		final ShardManager manager = shardManager;
+		if (manager == null) {
+			return;
+		}
+
+		for (long guildId : autokickDelays.keySet()) {
+			final Guild guild = manager.getGuildById(guildId);
+			if (guild != null) {
+				guild.retrieveMemberById(userId).queue(
+						this::track,
+						throwable -> LogUtil.logDebug("User {} is not a member of \"{}\".", userId, guild.getName())
+				);
+			}
+		}
+	}
+
+	/**
+	 * Loads the members of a guild and adds the ones that are not linked to a forum user.
+	 *
+	 * @param guild The guild to load the members of.
+	 */
+	private void loadGuild(final Guild guild) {
+		guild.loadMembers().onSuccess(members -> scheduler.execute(() -> {
+			final Map<Long, Member> unlinked = new HashMap<>();
+			for (Member member : members) {
+				unlinked.put(member.getIdLong(), member);
+			}
+
+			final List<ForumUser> linkedUsers = forumUserRepo.findAllLinkedTo(unlinked.keySet());
+			for (ForumUser linkedUser : linkedUsers) {
+				unlinked.remove(linkedUser.getLinkedDiscordUser().getDiscordId());
+			}
+
+			unlinkedMembers.remove(guild.getIdLong());
+			unlinked.values().forEach(this::track);
+			LogUtil.logDebug("Tracking {} unlinked members of \"{}\" for autokicks.", unlinked.size(), guild.getName());
+		}));
+	}
+
+	/**
+	 * Gets the unlinked members of a guild.
+	 *
+	 * @param guildId The ID of the guild.
+	 * @return The unlinked members of the guild.
+	 */
+	private UnlinkedMembers getGuildMembers(final long guildId) {
+		return unlinkedMembers.computeIfAbsent(guildId, id -> new UnlinkedMembers());
+	}
+
+	/**
+	 * Checks the member that joined first in each owned guild if its autokick delay ended. A member that has to be
+	 * checked again comes up after the recheck delay unless it got tracked again in the meantime.
+	 */
+	void sweep() {
+		try {
+			refreshAutokickDelays();
+			final long now = System.currentTimeMillis();
+			for (Map.Entry<Long, UnlinkedMembers> entry : unlinkedMembers.entrySet()) {
+				final Long autokickDelay = autokickDelays.get(entry.getKey());
+				if (autokickDelay == null || !leaseManager.ownsGuild(entry.getKey())) {
+					continue;
+				}
+
+				final UnlinkedMember first = entry.getValue().pollJoinedUntil(now - autokickDelay);
+				if (first != null && checkForKick(entry.getKey(), first.getMemberId())) {
+					final long recheckAt = now - autokickDelay + RECHECK_DELAY_MS;
+					entry.getValue().addIfAbsent(new UnlinkedMember(first.getMemberId(), recheckAt));
+				}
+			}
+		} catch (Exception e) {
+			LogUtil.logWarning("Unexpected Exception: " + e);
+		}
+	}
+
+	/**
+	 * Reloads the autokick delay of each guild that can autokick if the last load is older than a minute.
+	 */
+	private void refreshAutokickDelays() {
+		final long now = System.currentTimeMillis();
+		if (now - settingsLoadedAt < SETTINGS_REFRESH_MS) {
+			return;
+		}
+
+		final Map<Long, Long> delays = new HashMap<>();
+		for (DiscordGuild dcGuild : guildRepo.findAll()) {
+			if (dcGuild.canAutokick()) {
+				delays.put(dcGuild.getGuildId(), TimeUnit.HOURS.toMillis(dcGuild.getAutokickHourDelay()));
+			}
+		}
+
+		autokickDelays.keySet().retainAll(delays.keySet());
+		autokickDelays.putAll(delays);
+		settingsLoadedAt = now;
+	}
+
+	/**
+	 * Kicks the member if it is still not linked to a forum user and not whitelisted. The link gets loaded together
+	 * with the Discord user, so each check needs a single query. Members without a Discord user, whitelisted and
+	 * banned members do not get kicked but may lose that status later, so they need to be checked again.
+	 *
+	 * @param guildId  The ID of the guild of the member.
+	 * @param memberId The ID of the member.
+	 * @return {@code true} if the member needs to be checked again later, {@code false} if it got kicked or linked.
+	 */
+	private boolean checkForKick(final long guildId, final long memberId) {
+		final Guild guild = shardManager == null ? null : shardManager.getGuildById(guildId);
+		if (guild == null) {
+			unlinkedMembers.remove(guildId);
+			return false;
+		}
+
+		final Optional<DiscordUser> dcUserOpt = discordUserRepo.findById(memberId);
+		if (dcUserOpt.isEmpty()) {
+			return true;
+		}
+
+		final DiscordUser dcUser = dcUserOpt.get();
+		if (dcUser.getLinkedForumUser() != null) {
+			return false;
+		}
+
+		if (dcUser.isWhitelisted() || dcUser.getBan() != null) {
+			return true;
+		}
+
+		guild.retrieveMemberById(memberId).queue(
+				this::kick,
+				throwable -> LogUtil.logDebug("Member {} left \"{}\" before the autokick.", memberId, guild.getName())
+		);
+		return false;
+	}
+
+	/**
+	 * Kicks the member due to being unlinked.
+	 *
+	 * @param member The member to kick.
+	 */
+	private void kick(final Member member) {
+		final Duration memberTime = Duration.between(member.getTimeJoined(), OffsetDateTime.now());
+		final long days = memberTime.toDays();
+		final long hours = memberTime.toHoursPart();
+		final long minutes = memberTime.toMinutesPart();
+		final String joinedText =
+				"Joined " +
+						(days != 0 ? "**" + days + "**d " : "") +
+						(hours != 0 ? "**" + hours + "**h " : "") +
+						(minutes != 0 ? "**" + minutes + "**m " : "") +
+						"ago";
+
+		actionOutbox.kick(member, "Autokick due to being unlinked. (" + joinedText + ")");
+		LogUtil.logDebug(() ->
+				"Kicking member " + member.getUser().getAsTag() + " (" + member.getId() + ") from " +
+						"\"" + member.getGuild().getName() + "\" (" + member.getGuild().getId() + ") due to being unlinked."
+		);
+	}
+
+	/**
+	 * A member that is not linked to a forum user, ordered by join time.
+	 */
+	private static class UnlinkedMember implements Comparable<UnlinkedMember> {
+
+		private final long memberId;
+		private final long joinTime;
+
+		private UnlinkedMember(final long memberId, final long joinTime) {
+			this.memberId = memberId;
+			this.joinTime = joinTime;
+		}
+
+		private long getMemberId() {
+			return memberId;
+		}
+
+		private long getJoinTime() {
+			return joinTime;
+		}
+
+		@Override
+		public int compareTo(final UnlinkedMember other) {
+			final int byJoinTime = Long.compare(joinTime, other.joinTime);
+			return byJoinTime != 0 ? byJoinTime : Long.compare(memberId, other.memberId);
+		}
+	}
+
+	/**
+	 * The unlinked members of a guild ordered by join time. Also keeps the members by ID, so members that leave can
+	 * be removed without searching the ordered set.
+	 */
+	private static class UnlinkedMembers {
+
+		private final NavigableSet<UnlinkedMember> byJoinTime = new TreeSet<>();
+		private final Map<Long, UnlinkedMember> byMemberId = new HashMap<>();
+
+		/**
+		 * Adds a member. Replaces the entry of the member if it is already tracked.
+		 *
+		 * @param member The unlinked member.
+		 */
+		private synchronized void add(final UnlinkedMember member) {
+			final UnlinkedMember previous = byMemberId.put(member.getMemberId(), member);
+			if (previous != null) {
+				byJoinTime.remove(previous);
+			}
+
+			byJoinTime.add(member);
+		}
+
+		/**
+		 * Adds a member unless it is already tracked, e.g. because it got tracked again while being checked.
+		 *
+		 * @param member The unlinked member.
+		 */
+		private synchronized void addIfAbsent(final UnlinkedMember member) {
+			if (byMemberId.putIfAbsent(member.getMemberId(), member) == null) {
+				byJoinTime.add(member);
+			}
+		}
+
+		/**
+		 * Removes a member if it is tracked.
+		 *
+		 * @param memberId The ID of the member.
+		 */
+		private synchronized void remove(final long memberId) {
+			final UnlinkedMember member = byMemberId.remove(memberId);
+			if (member != null) {
+				byJoinTime.remove(member);
+			}
+		}
+
+		/**
+		 * Removes the member that joined first if it joined until the given time.
+		 *
+		 * @param joinedUntil The latest join time in milliseconds.
+		 * @return The member that joined first or {@code null} if there is no member that joined until then.
+		 */
+		private synchronized UnlinkedMember pollJoinedUntil(final long joinedUntil) {
+			if (byJoinTime.isEmpty() || byJoinTime.first().getJoinTime() > joinedUntil) {
+				return null;
+			}
+
+			final UnlinkedMember first = byJoinTime.pollFirst();
+			byMemberId.remove(first.getMemberId());
+			return first;
+		}
+	}
+}
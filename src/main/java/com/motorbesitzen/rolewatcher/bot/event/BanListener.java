@@ -1,5 +1,7 @@
 package com.motorbesitzen.rolewatcher.bot.event;
 
+import com.motorbesitzen.rolewatcher.bot.service.HashedTimingWheel;
+import com.motorbesitzen.rolewatcher.bot.service.PartitionLeaseManager;
 import com.motorbesitzen.rolewatcher.data.dao.DiscordBan;
 import com.motorbesitzen.rolewatcher.data.dao.DiscordGuild;
 import com.motorbesitzen.rolewatcher.data.dao.DiscordUser;
@@ -30,24 +32,34 @@ public class BanListener extends ListenerAdapter {
 	private final DiscordBanRepo discordBanRepo;
 	private final DiscordGuildRepo discordGuildRepo;
 	private final DiscordUserRepo discordUserRepo;
+	private final HashedTimingWheel timingWheel;
+	private final PartitionLeaseManager leaseManager;
 
 	private static final int RETRIEVAL_DELAY_SECONDS = 5;
 
 	@Autowired
-	private BanListener(final DiscordBanRepo discordBanRepo, final DiscordGuildRepo discordGuildRepo, final DiscordUserRepo discordUserRepo) {
+	private BanListener(final DiscordBanRepo discordBanRepo, final DiscordGuildRepo discordGuildRepo, final DiscordUserRepo discordUserRepo,
+						final HashedTimingWheel timingWheel, final PartitionLeaseManager leaseManager) {
 		this.discordBanRepo = discordBanRepo;
 		this.discordGuildRepo = discordGuildRepo;
 		this.discordUserRepo = discordUserRepo;
+		this.timingWheel = timingWheel;
+		this.leaseManager = leaseManager;
 	}
 
 	/**
-	 * Handles a guild ban event and saves a Discord ban for it in the database.
+	 * Handles a guild ban event and saves a Discord ban for it in the database. Only the instance that owns the
+	 * partition of the guild handles the event.
 	 *
 	 * @param event The ban event triggered by Discord.
 	 */
 	@Override
 	public void onGuildBan(final GuildBanEvent event) {
 		final Guild guild = event.getGuild();
+		if (!leaseManager.ownsGuild(guild.getIdLong())) {
+			return;
+		}
+
 		final Optional<DiscordGuild> dcGuildOpt = discordGuildRepo.findById(guild.getIdLong());
 		if (dcGuildOpt.isEmpty()) {
 			LogUtil.logWarning("Ignoring ban event on unknown guild \"" + guild.getName() + "\" (" + guild.getId() + ").");
@@ -66,10 +78,12 @@ public class BanListener extends ListenerAdapter {
 			return;
 		}
 
-		guild.retrieveBan(bannedUser).queueAfter(
-				RETRIEVAL_DELAY_SECONDS, TimeUnit.SECONDS,
-				ban -> checkAuditLogs(event, ban),
-				throwable -> LogUtil.logWarning("Could not retrieve ban, maybe already unbanned? " + throwable.getMessage())
+		timingWheel.schedule(
+				() -> guild.retrieveBan(bannedUser).queue(
+						ban -> checkAuditLogs(event, ban),
+						throwable -> LogUtil.logWarning("Could not retrieve ban, maybe already unbanned? " + throwable.getMessage())
+				),
+				RETRIEVAL_DELAY_SECONDS, TimeUnit.SECONDS
 		);
 	}
 
@@ -184,13 +198,18 @@ public class BanListener extends ListenerAdapter {
 	}
 
 	/**
-	 * Handles a guild unban event and deletes any matching Discord ban present in the database.
+	 * Handles a guild unban event and deletes any matching Discord ban present in the database. Only the instance
+	 * that owns the partition of the guild handles the event.
 	 *
 	 * @param event The unban event triggered by Discord.
 	 */
 	@Override
 	public void onGuildUnban(final GuildUnbanEvent event) {
 		final Guild guild = event.getGuild();
+		if (!leaseManager.ownsGuild(guild.getIdLong())) {
+			return;
+		}
+
 		final Optional<DiscordGuild> dcGuildOpt = discordGuildRepo.findById(guild.getIdLong());
 		if (dcGuildOpt.isEmpty()) {
 			LogUtil.logWarning("Ignoring unban event on unknown guild \"" + guild.getName() + "\" (" + guild.getId() + ").");
@@ -219,10 +238,13 @@ public class BanListener extends ListenerAdapter {
 	 * @param ban   The Discord ban information saved in the database.
 	 */
 	private void removeBan(final GuildUnbanEvent event, final DiscordBan ban) {
-		event.getGuild()
-				.retrieveAuditLogs()
-				.type(ActionType.UNBAN)            // only keep audit logs about unbans
-				.queueAfter(RETRIEVAL_DELAY_SECONDS, TimeUnit.SECONDS, logEntries -> findUnban(event, ban, logEntries));
+		timingWheel.schedule(
+				() -> event.getGuild()
+						.retrieveAuditLogs()
+						.type(ActionType.UNBAN)            // only keep audit logs about unbans
+						.queue(logEntries -> findUnban(event, ban, logEntries)),
+				RETRIEVAL_DELAY_SECONDS, TimeUnit.SECONDS
+		);
 	}
 
 	/**
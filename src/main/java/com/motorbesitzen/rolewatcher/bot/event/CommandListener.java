@@ -1,7 +1,10 @@
 package com.motorbesitzen.rolewatcher.bot.event;
 
 import com.motorbesitzen.rolewatcher.bot.command.Command;
+import com.motorbesitzen.rolewatcher.bot.jfr.CommandExecutionEvent;
+import com.motorbesitzen.rolewatcher.bot.service.ActivityRefresher;
 import com.motorbesitzen.rolewatcher.bot.service.EnvSettings;
+import com.motorbesitzen.rolewatcher.bot.service.SyncMetrics;
 import com.motorbesitzen.rolewatcher.data.dao.AuthedChannel;
 import com.motorbesitzen.rolewatcher.data.dao.AuthedRole;
 import com.motorbesitzen.rolewatcher.data.dao.DiscordGuild;
@@ -9,6 +12,7 @@ import com.motorbesitzen.rolewatcher.data.repo.AuthedChannelRepo;
 import com.motorbesitzen.rolewatcher.data.repo.AuthedRoleRepo;
 import com.motorbesitzen.rolewatcher.data.repo.DiscordGuildRepo;
 import com.motorbesitzen.rolewatcher.util.LogUtil;
+import io.micrometer.core.instrument.Timer;
 import net.dv8tion.jda.api.JDA;
 import net.dv8tion.jda.api.Permission;
 import net.dv8tion.jda.api.entities.*;
@@ -40,6 +44,8 @@ public class CommandListener extends ListenerAdapter {
 	private final DiscordGuildRepo guildRepo;
 	private final AuthedChannelRepo channelRepo;
 	private final AuthedRoleRepo roleRepo;
+	private final ActivityRefresher activityRefresher;
+	private final SyncMetrics syncMetrics;
 
 	/**
 	 * Private constructor to be used by Spring autowiring.
@@ -51,12 +57,15 @@ public class CommandListener extends ListenerAdapter {
 	@Autowired
 	private CommandListener(final Map<String, Command> commandMap, final EnvSettings envSettings,
 							final DiscordGuildRepo guildRepo, final AuthedChannelRepo channelRepo,
-							final AuthedRoleRepo roleRepo) {
+							final AuthedRoleRepo roleRepo, final ActivityRefresher activityRefresher,
+							final SyncMetrics syncMetrics) {
 		this.commandMap = commandMap;
 		this.envSettings = envSettings;
 		this.guildRepo = guildRepo;
 		this.channelRepo = channelRepo;
 		this.roleRepo = roleRepo;
+		this.activityRefresher = activityRefresher;
+		this.syncMetrics = syncMetrics;
 	}
 
 	/**
@@ -67,7 +76,8 @@ public class CommandListener extends ListenerAdapter {
 	 * <a href="https://ci.dv8tion.net/job/JDA/javadoc/net/dv8tion/jda/api/entities/Member.html">Member</a>
 	 * in an authorized <a href="https://ci.dv8tion.net/job/JDA/javadoc/net/dv8tion/jda/api/entities/TextChannel.html">TextChannel</a>
 	 * in a <a href="https://ci.dv8tion.net/job/JDA/javadoc/net/dv8tion/jda/api/entities/Guild.html">Guild</a> that
-	 * has the needed permissions. Calls the commands method to execute the command on success.
+	 * has the needed permissions. Calls the commands method to execute the command on success. Any message of a member
+	 * counts as activity and may refresh the roles of the member.
 	 *
 	 * @param event The <a href="https://ci.dv8tion.net/job/JDA/javadoc/net/dv8tion/jda/api/events/message/guild/GuildMessageReceivedEvent.html">GuildMessageReceivedEvent</a>
 	 *              provided by JDA.
@@ -78,6 +88,10 @@ public class CommandListener extends ListenerAdapter {
 		final long guildId = event.getGuild().getIdLong();
 		final DiscordGuild dcGuild = getDiscordGuild(guildId);
 		final Message message = event.getMessage();
+		if (event.getMember() != null && dcGuild.hasRoleSyncPerm()) {
+			activityRefresher.onActivity(event.getMember());
+		}
+
 		if (!isValidMessage(message)) {
 			deleteInVerify(dcGuild, message);
 			return;
@@ -294,13 +308,18 @@ public class CommandListener extends ListenerAdapter {
 
 	/**
 	 * Executes a command and handles exception if the bot does not have the needed permissions to
-	 * execute that command in the channel/guild.
+	 * execute that command in the channel/guild. Records the execution time of the command.
 	 *
 	 * @param event   The <a href="https://ci.dv8tion.net/job/JDA/javadoc/net/dv8tion/jda/api/events/message/guild/GuildMessageReceivedEvent.html">GuildMessageReceivedEvent</a>
 	 *                provided by JDA.
 	 * @param command The command to execute.
 	 */
 	private void executeCommand(final GuildMessageReceivedEvent event, final Command command) {
+		final Timer.Sample sample = syncMetrics.startTimer();
+		final CommandExecutionEvent executionEvent = new CommandExecutionEvent();
+		executionEvent.setCommand(command.getName());
+		executionEvent.setGuildId(event.getGuild().getIdLong());
+		executionEvent.begin();
 		try {
 			command.execute(event);
 		} catch (InsufficientPermissionException e) {
@@ -309,6 +328,9 @@ public class CommandListener extends ListenerAdapter {
 		} catch (HierarchyException e) {
 			String message = "Bot can not modify some of this users roles! Please move the bot role above any forum role.";
 			event.getChannel().sendMessage(message).queue();
+		} finally {
+			syncMetrics.recordCommand(sample, command.getName());
+			executionEvent.commit();
 		}
 	}
 
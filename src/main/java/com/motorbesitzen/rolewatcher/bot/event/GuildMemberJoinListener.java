@@ -1,7 +1,12 @@
 package com.motorbesitzen.rolewatcher.bot.event;
 
+import com.motorbesitzen.rolewatcher.bot.service.DiscordActionOutbox;
 import com.motorbesitzen.rolewatcher.bot.service.EnvSettings;
-import com.motorbesitzen.rolewatcher.bot.service.ForumRoleApiRequest;
+import com.motorbesitzen.rolewatcher.bot.service.ForumRoleSource;
+import com.motorbesitzen.rolewatcher.bot.service.PartitionLeaseManager;
+import com.motorbesitzen.rolewatcher.bot.service.SyncPriority;
+import com.motorbesitzen.rolewatcher.bot.service.SyncQueue;
+import com.motorbesitzen.rolewatcher.bot.service.SyncStateTracker;
 import com.motorbesitzen.rolewatcher.data.dao.DiscordBan;
 import com.motorbesitzen.rolewatcher.data.dao.ForumRole;
 import com.motorbesitzen.rolewatcher.data.dao.ForumUser;
@@ -31,33 +36,50 @@ public class GuildMemberJoinListener extends ListenerAdapter {
 	private final ForumUserRepo forumUserRepo;
 	private final ForumRoleRepo forumRoleRepo;
 	private final DiscordBanRepo discordBanRepo;
-	private final ForumRoleApiRequest forumRoleApiRequest;
+	private final ForumRoleSource forumRoleSource;
+	private final SyncStateTracker syncTracker;
+	private final SyncQueue syncQueue;
+	private final DiscordActionOutbox actionOutbox;
+	private final PartitionLeaseManager leaseManager;
 
 	@Autowired
 	public GuildMemberJoinListener(final EnvSettings envSettings, final ForumUserRepo forumUserRepo,
 								   final ForumRoleRepo forumRoleRepo, final DiscordBanRepo discordBanRepo,
-								   final ForumRoleApiRequest forumRoleApiRequest) {
+								   final ForumRoleSource forumRoleSource, final SyncStateTracker syncTracker,
+								   final SyncQueue syncQueue, final DiscordActionOutbox actionOutbox,
+								   final PartitionLeaseManager leaseManager) {
 		this.envSettings = envSettings;
 		this.forumUserRepo = forumUserRepo;
 		this.forumRoleRepo = forumRoleRepo;
 		this.discordBanRepo = discordBanRepo;
-		this.forumRoleApiRequest = forumRoleApiRequest;
+		this.forumRoleSource = forumRoleSource;
+		this.syncTracker = syncTracker;
+		this.syncQueue = syncQueue;
+		this.actionOutbox = actionOutbox;
+		this.leaseManager = leaseManager;
 	}
 
 	/**
 	 * If a member joins a guild with the bot in it the bot assigns roles to the user if the user is linked.
+	 * The role request gets queued ahead of the periodic role update. Only the instance that owns the partition of the
+	 * guild handles the join, every instance forgets the previous sync state of the member.
 	 *
 	 * @param event The Discord event that a member joined a guild.
 	 */
 	@Override
 	public void onGuildMemberJoin(final GuildMemberJoinEvent event) {
 		final Member member = event.getMember();
+		syncTracker.forgetMember(member);
+		if (!leaseManager.ownsGuild(member.getGuild().getIdLong())) {
+			return;
+		}
+
 		final Optional<DiscordBan> banOpt = discordBanRepo.findByBannedUser_DiscordId(member.getIdLong());
 		banOpt.ifPresentOrElse(
-				ban -> member.ban(0, "User found on ban list. Reason: " + ban.getReason()).queue(),
+				ban -> actionOutbox.ban(member, "User found on ban list. Reason: " + ban.getReason()),
 				() -> {
 					Optional<ForumUser> forumUserOpt = forumUserRepo.findByLinkedDiscordUser_DiscordId(member.getIdLong());
-					forumUserOpt.ifPresent(forumUser -> assignForumRoles(member, forumUser));
+					forumUserOpt.ifPresent(forumUser -> syncQueue.submit(SyncPriority.JOIN, () -> assignForumRoles(member, forumUser)));
 				}
 		);
 	}
@@ -71,7 +93,7 @@ public class GuildMemberJoinListener extends ListenerAdapter {
 	private void assignForumRoles(final Member member, final ForumUser forumUser) {
 		final List<ForumRole> forumRoles;
 		try {
-			forumRoles = forumRoleApiRequest.getRolesOfForumUser(forumUser);
+			forumRoles = forumRoleSource.getRolesOfForumUser(forumUser);
 		} catch (SocketTimeoutException e) {
 			LogUtil.logError("Skipping user due to API timeout. Could not get roles of " + forumUser);
 			return;
@@ -81,10 +103,11 @@ public class GuildMemberJoinListener extends ListenerAdapter {
 		}
 
 		if (RoleUtil.hasBannedRole(envSettings, forumRoles)) {
-			member.ban(0, "User (" + forumUser.getForumId() + ") has the banned role on the forum. Might be a temporary ban.").queue();
+			actionOutbox.ban(member, "User (" + forumUser.getForumId() + ") has the banned role on the forum. Might be a temporary ban.");
 			return;
 		}
 
-		RoleUtil.updateRoles(member, forumRoles, forumRoleRepo.findAll());
+		syncTracker.recordSync(member, forumRoles);
+		actionOutbox.updateRoles(member, forumRoles, forumRoleRepo.findAll());
 	}
 }
@@ -0,0 +1,52 @@
+package com.motorbesitzen.rolewatcher.bot.event;
+
+import com.motorbesitzen.rolewatcher.bot.service.ActivityRefresher;
+import com.motorbesitzen.rolewatcher.bot.service.SyncStateTracker;
+import net.dv8tion.jda.api.events.guild.GuildLeaveEvent;
+import net.dv8tion.jda.api.events.guild.member.GuildMemberRemoveEvent;
+import net.dv8tion.jda.api.hooks.ListenerAdapter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+/**
+ * Handles members leaving a guild and the bot leaving a guild. Forgets the synchronisation state and the last activity
+ * check of the members, so the state of members that are gone does not stay in memory.
+ */
+@Service
+public class GuildMemberLeaveListener extends ListenerAdapter {
+
+	private final SyncStateTracker syncTracker;
+	private final ActivityRefresher activityRefresher;
+
+	@Autowired
+	private GuildMemberLeaveListener(final SyncStateTracker syncTracker, final ActivityRefresher activityRefresher) {
+		this.syncTracker = syncTracker;
+		this.activityRefresher = activityRefresher;
+	}
+
+	/**
+	 * Forgets the synchronisation state and the last activity check of a member that left a guild. The member might
+	 * not be cached anymore, so only the IDs of the event get used.
+	 *
+	 * @param event The Discord event that a member left a guild.
+	 */
+	@Override
+	public void onGuildMemberRemove(final GuildMemberRemoveEvent event) {
+		final long guildId = event.getGuild().getIdLong();
+		final long memberId = event.getUser().getIdLong();
+		syncTracker.forgetMember(guildId, memberId);
+		activityRefresher.forgetMember(guildId, memberId);
+	}
+
+	/**
+	 * Forgets the synchronisation states and the last activity checks of all members of a guild the bot left.
+	 *
+	 * @param event The Discord event that the bot left a guild.
+	 */
+	@Override
+	public void onGuildLeave(final GuildLeaveEvent event) {
+		final long guildId = event.getGuild().getIdLong();
+		syncTracker.forgetGuild(guildId);
+		activityRefresher.forgetGuild(guildId);
+	}
+}
@@ -0,0 +1,54 @@
+package com.motorbesitzen.rolewatcher.bot.event;
+
+import com.motorbesitzen.rolewatcher.bot.service.ForumRoleSource;
+import net.dv8tion.jda.api.events.role.RoleCreateEvent;
+import net.dv8tion.jda.api.events.role.RoleDeleteEvent;
+import net.dv8tion.jda.api.events.role.update.RoleUpdateNameEvent;
+import net.dv8tion.jda.api.hooks.ListenerAdapter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+/**
+ * Handles changes of the Discord roles. Forum roles get mapped to Discord roles by name, so the roles of every member
+ * have to be compared in full again after a role got created, deleted or renamed.
+ */
+@Service
+public class RoleMappingListener extends ListenerAdapter {
+
+	private final ForumRoleSource forumRoleSource;
+
+	@Autowired
+	private RoleMappingListener(final ForumRoleSource forumRoleSource) {
+		this.forumRoleSource = forumRoleSource;
+	}
+
+	/**
+	 * Forgets the applied roles on role creation as a forum role might get mapped to the new role.
+	 *
+	 * @param event The creation event triggered by Discord.
+	 */
+	@Override
+	public void onRoleCreate(final RoleCreateEvent event) {
+		forumRoleSource.forgetAppliedRoles();
+	}
+
+	/**
+	 * Forgets the applied roles on role deletion as a forum role might have been mapped to the deleted role.
+	 *
+	 * @param event The deletion event triggered by Discord.
+	 */
+	@Override
+	public void onRoleDelete(final RoleDeleteEvent event) {
+		forumRoleSource.forgetAppliedRoles();
+	}
+
+	/**
+	 * Forgets the applied roles on role renames as the role might be mapped to another forum role now.
+	 *
+	 * @param event The update event triggered by Discord.
+	 */
+	@Override
+	public void onRoleUpdateName(final RoleUpdateNameEvent event) {
+		forumRoleSource.forgetAppliedRoles();
+	}
+}
@@ -0,0 +1,28 @@
+package com.motorbesitzen.rolewatcher.bot.jfr;
+
+import jdk.jfr.*;
+
+/**
+ * The execution of a Discord command.
+ */
+@Name("com.motorbesitzen.rolewatcher.CommandExecution")
+@Label("Command Execution")
+@Category({"RoleWatcher", "Discord"})
+@Description("The execution of a Discord command")
+@StackTrace(false)
+public class CommandExecutionEvent extends Event {
+
+	@Label("Command")
+	private String command;
+
+	@Label("Guild ID")
+	private long guildId;
+
+	public void setCommand(final String command) {
+		this.command = command;
+	}
+
+	public void setGuildId(final long guildId) {
+		this.guildId = guildId;
+	}
+}
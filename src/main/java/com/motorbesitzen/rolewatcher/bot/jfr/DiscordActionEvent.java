@@ -0,0 +1,52 @@
+package com.motorbesitzen.rolewatcher.bot.jfr;
+
+import jdk.jfr.*;
+
+/**
+ * A request to Discord for a role change, kick or ban of the outbox.
+ */
+@Name("com.motorbesitzen.rolewatcher.DiscordAction")
+@Label("Discord Action")
+@Category({"RoleWatcher", "Discord"})
+@Description("A request to Discord for a role change, kick or ban")
+@StackTrace(false)
+public class DiscordActionEvent extends Event {
+
+	@Label("Type")
+	private String type;
+
+	@Label("Route")
+	private String route;
+
+	@Label("Guild ID")
+	private long guildId;
+
+	@Label("Status")
+	@Description("HTTP status of the response, 0 if the request could not be sent")
+	private int status;
+
+	@Label("Queue Wait")
+	@Description("Time the action waited in the outbox after it became due")
+	@Timespan(Timespan.MILLISECONDS)
+	private long queueWait;
+
+	public void setType(final String type) {
+		this.type = type;
+	}
+
+	public void setRoute(final String route) {
+		this.route = route;
+	}
+
+	public void setGuildId(final long guildId) {
+		this.guildId = guildId;
+	}
+
+	public void setStatus(final int status) {
+		this.status = status;
+	}
+
+	public void setQueueWait(final long queueWait) {
+		this.queueWait = queueWait;
+	}
+}
@@ -0,0 +1,37 @@
+package com.motorbesitzen.rolewatcher.bot.jfr;
+
+import jdk.jfr.*;
+
+/**
+ * A request of the roles of a single user to the forum role API.
+ */
+@Name("com.motorbesitzen.rolewatcher.ForumRoleFetch")
+@Label("Forum Role Fetch")
+@Category({"RoleWatcher", "Forum"})
+@Description("A request of the roles of a forum user to the forum role API")
+@StackTrace(false)
+public class ForumRoleFetchEvent extends Event {
+
+	@Label("Forum ID")
+	private long uid;
+
+	@Label("Bytes")
+	@Description("Content length of the response, -1 if unknown")
+	@DataAmount
+	private long bytes;
+
+	@Label("Status")
+	private int status;
+
+	public void setUid(final long uid) {
+		this.uid = uid;
+	}
+
+	public void setBytes(final long bytes) {
+		this.bytes = bytes;
+	}
+
+	public void setStatus(final int status) {
+		this.status = status;
+	}
+}
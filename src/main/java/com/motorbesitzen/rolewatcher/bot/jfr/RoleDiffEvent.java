@@ -0,0 +1,42 @@
+package com.motorbesitzen.rolewatcher.bot.jfr;
+
+import jdk.jfr.*;
+
+/**
+ * The comparison of the Discord roles of a member with the roles of the user on the forum.
+ */
+@Name("com.motorbesitzen.rolewatcher.RoleDiff")
+@Label("Role Diff")
+@Category({"RoleWatcher", "Sync"})
+@Description("The roles a member needs to get added or removed to match the forum")
+@StackTrace(false)
+public class RoleDiffEvent extends Event {
+
+	@Label("Guild ID")
+	private long guildId;
+
+	@Label("Member ID")
+	private long memberId;
+
+	@Label("Adds")
+	private int adds;
+
+	@Label("Removes")
+	private int removes;
+
+	public void setGuildId(final long guildId) {
+		this.guildId = guildId;
+	}
+
+	public void setMemberId(final long memberId) {
+		this.memberId = memberId;
+	}
+
+	public void setAdds(final int adds) {
+		this.adds = adds;
+	}
+
+	public void setRemoves(final int removes) {
+		this.removes = removes;
+	}
+}
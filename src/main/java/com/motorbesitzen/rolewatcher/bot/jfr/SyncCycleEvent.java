@@ -0,0 +1,29 @@
+package com.motorbesitzen.rolewatcher.bot.jfr;
+
+import jdk.jfr.*;
+
+/**
+ * A role synchronisation cycle over all guilds. Begins when the cycle starts and gets committed when the last guild of
+ * the cycle finished.
+ */
+@Name("com.motorbesitzen.rolewatcher.SyncCycle")
+@Label("Sync Cycle")
+@Category({"RoleWatcher", "Sync"})
+@Description("A role synchronisation cycle over all guilds")
+@StackTrace(false)
+public class SyncCycleEvent extends Event {
+
+	@Label("Guilds")
+	private int guilds;
+
+	@Label("Members")
+	private long members;
+
+	public void setGuilds(final int guilds) {
+		this.guilds = guilds;
+	}
+
+	public void setMembers(final long members) {
+		this.members = members;
+	}
+}
@@ -0,0 +1,183 @@
+package com.motorbesitzen.rolewatcher.bot.service;
+
+import com.motorbesitzen.rolewatcher.data.dao.ForumRole;
+import com.motorbesitzen.rolewatcher.data.dao.ForumUser;
+import com.motorbesitzen.rolewatcher.data.repo.ForumRoleRepo;
+import com.motorbesitzen.rolewatcher.data.repo.ForumUserRepo;
+import com.motorbesitzen.rolewatcher.util.LogUtil;
+import com.motorbesitzen.rolewatcher.util.ParseUtil;
+import com.motorbesitzen.rolewatcher.util.RoleUtil;
+import net.dv8tion.jda.api.entities.Member;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Refreshes the roles of active members if their last role update is older than the configured threshold, so active
+ * members get fresh roles without waiting for the periodic role update. Each member gets checked at most once per
+ * threshold and refreshes get queued ahead of the periodic role update in the {@link SyncQueue}. Disabled unless a
+ * threshold is set. Checks older than the threshold get pruned once per threshold and checks of members that left get
+ * forgotten, so only the members active within the threshold stay in memory. Only the instance that owns the
+ * partition of the guild refreshes its members.
+ */
+@Service
+public class ActivityRefresher {
+
+	private static final int MAX_PENDING_REFRESHES = 100;
+
+	private final EnvSettings envSettings;
+	private final ForumUserRepo forumUserRepo;
+	private final ForumRoleRepo forumRoleRepo;
+	private final ForumRoleSource roleSource;
+	private final SyncStateTracker syncTracker;
+	private final SyncQueue syncQueue;
+	private final Map<Long, Map<Long, Long>> lastChecks;
+	private final AtomicInteger pendingRefreshes;
+	private final AtomicLong lastPruneAt;
+	private final long thresholdMs;
+	private final DiscordActionOutbox actionOutbox;
+	private final PartitionLeaseManager leaseManager;
+
+	@Autowired
+	ActivityRefresher(final EnvSettings envSettings, final ForumUserRepo forumUserRepo,
+					  final ForumRoleRepo forumRoleRepo, final ForumRoleSource roleSource,
+					  final SyncStateTracker syncTracker, final SyncQueue syncQueue, final DiscordActionOutbox actionOutbox,
+					  final PartitionLeaseManager leaseManager) {
+		this.envSettings = envSettings;
+		this.forumUserRepo = forumUserRepo;
+		this.forumRoleRepo = forumRoleRepo;
+		this.roleSource = roleSource;
+		this.syncTracker = syncTracker;
+		this.syncQueue = syncQueue;
+		this.lastChecks = new ConcurrentHashMap<>();
+		this.pendingRefreshes = new AtomicInteger(0);
+		this.lastPruneAt = new AtomicLong(System.currentTimeMillis());
+		this.thresholdMs = Math.max(0, ParseUtil.safelyParseStringToLong(envSettings.getActivityRefreshMinutes())) * 60 * 1000;
+		this.actionOutbox = actionOutbox;
+		this.leaseManager = leaseManager;
+	}
+
+	/**
+	 * Queues a refresh of the roles of an active member if the roles of the member did not get updated or checked
+	 * within the threshold. Drops the refresh if too many refreshes are pending, the periodic role update will
+	 * update the member eventually anyway.
+	 *
+	 * @param member The active member.
+	 */
+	public void onActivity(final Member member) {
+		if (thresholdMs == 0 || member.getUser().isBot() || !leaseManager.ownsGuild(member.getGuild().getIdLong())) {
+			return;
+		}
+
+		final long now = System.currentTimeMillis();
+		pruneChecks(now);
+		final Map<Long, Long> guildChecks = lastChecks.computeIfAbsent(member.getGuild().getIdLong(), id -> new ConcurrentHashMap<>());
+		final long lastCheck = Math.max(syncTracker.getLastSync(member), guildChecks.getOrDefault(member.getIdLong(), 0L));
+		if (now - lastCheck < thresholdMs) {
+			return;
+		}
+
+		// only the caller that updates the last check schedules the refresh
+		final Long previousCheck = guildChecks.put(member.getIdLong(), now);
+		if (previousCheck != null && now - previousCheck < thresholdMs) {
+			return;
+		}
+
+		if (pendingRefreshes.incrementAndGet() > MAX_PENDING_REFRESHES) {
+			pendingRefreshes.decrementAndGet();
+			guildChecks.remove(member.getIdLong());
+			return;
+		}
+
+		syncQueue.submit(SyncPriority.ACTIVITY, () -> {
+			try {
+				refreshMember(member);
+			} finally {
+				pendingRefreshes.decrementAndGet();
+			}
+		});
+	}
+
+	/**
+	 * Removes all checks that are older than the threshold. A check older than the threshold does not prevent a
+	 * refresh anymore, so removing it does not change which members get refreshed. Only runs once per threshold and
+	 * only in one thread at a time.
+	 *
+	 * @param now The current time in milliseconds since the epoch.
+	 */
+	private void pruneChecks(final long now) {
+		final long lastPrune = lastPruneAt.get();
+		if (now - lastPrune < thresholdMs || !lastPruneAt.compareAndSet(lastPrune, now)) {
+			return;
+		}
+
+		for (Map<Long, Long> guildChecks : lastChecks.values()) {
+			guildChecks.values().removeIf(lastCheck -> now - lastCheck >= thresholdMs);
+		}
+	}
+
+	/**
+	 * Forgets the last check of a member, e.g. if the member left the guild.
+	 *
+	 * @param guildId  The ID of the guild.
+	 * @param memberId The ID of the member.
+	 */
+	public void forgetMember(final long guildId, final long memberId) {
+		final Map<Long, Long> guildChecks = lastChecks.get(guildId);
+		if (guildChecks != null) {
+			guildChecks.remove(memberId);
+		}
+	}
+
+	/**
+	 * Forgets the last checks of all members of a guild, e.g. if the bot left the guild.
+	 *
+	 * @param guildId The ID of the guild.
+	 */
+	public void forgetGuild(final long guildId) {
+		lastChecks.remove(guildId);
+	}
+
+	/**
+	 * Refreshes the roles of the member if the member is linked and not whitelisted.
+	 *
+	 * @param member The member to refresh the roles of.
+	 */
+	private void refreshMember(final Member member) {
+		final Optional<ForumUser> forumUserOpt = forumUserRepo.findByLinkedDiscordUser_DiscordId(member.getIdLong());
+		if (forumUserOpt.isEmpty() || forumUserOpt.get().getLinkedDiscordUser().isWhitelisted()) {
+			return;
+		}
+
+		final ForumUser forumUser = forumUserOpt.get();
+		final Optional<List<ForumRole>> forumRolesOpt;
+		try {
+			forumRolesOpt = roleSource.getRolesOfForumUserIfChanged(forumUser, member.getGuild().getIdLong());
+		} catch (IOException | IllegalArgumentException e) {
+			LogUtil.logDebug("Could not refresh roles of {}: {}", forumUser, e.getMessage());
+			return;
+		}
+
+		if (forumRolesOpt.isEmpty()) {
+			syncTracker.recordUnchanged(member);
+			return;
+		}
+
+		final List<ForumRole> forumRoles = forumRolesOpt.get();
+		syncTracker.recordSync(member, forumRoles);
+		if (RoleUtil.hasBannedRole(envSettings, forumRoles)) {
+			actionOutbox.ban(member, "User (" + forumUser.getForumId() + ") has the banned role on the forum. Might be a temporary ban.");
+		} else {
+			actionOutbox.updateRoles(member, forumRoles, forumRoleRepo.findAll());
+		}
+
+		roleSource.confirmRolesApplied(forumUser, member.getGuild().getIdLong());
+	}
+}
@@ -14,15 +14,21 @@ import org.springframework.stereotype.Service;
 public class BotBuilder implements ApplicationListener<ApplicationReadyEvent> {
 
 	private final RoleUpdater updater;
+	private final ForumRoleSnapshotImporter snapshotImporter;
+	private final DiscordActionWorker actionWorker;
 
 	@Autowired
-	private BotBuilder(final RoleUpdater updater) {
+	private BotBuilder(final RoleUpdater updater, final ForumRoleSnapshotImporter snapshotImporter,
+					   final DiscordActionWorker actionWorker) {
 		this.updater = updater;
+		this.snapshotImporter = snapshotImporter;
+		this.actionWorker = actionWorker;
 	}
 
 	/**
 	 * Gets called by Spring as late as conceivably possible to indicate that the application is ready.
-	 * Starts the RoleUpdater and by that the underlying bot.
+	 * Starts the RoleUpdater and by that the underlying bot. Also starts checking the local role snapshot if set
+	 * and sending the recorded Discord actions.
 	 *
 	 * @param event Provided by Spring when the Spring application is ready.
 	 */
@@ -30,6 +36,8 @@ public class BotBuilder implements ApplicationListener<ApplicationReadyEvent> {
 	public void onApplicationEvent(final @NotNull ApplicationReadyEvent event) {
 		LogUtil.logInfo("Application ready, starting role updater...");
 		updater.start();
+		snapshotImporter.start();
+		actionWorker.start();
 	}
 
 }
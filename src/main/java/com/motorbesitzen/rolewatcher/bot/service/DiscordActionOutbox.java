@@ -0,0 +1,295 @@
+package com.motorbesitzen.rolewatcher.bot.service;
+
+import com.motorbesitzen.rolewatcher.bot.jfr.RoleDiffEvent;
+import com.motorbesitzen.rolewatcher.data.dao.DiscordAction;
+import com.motorbesitzen.rolewatcher.data.dao.DiscordActionType;
+import com.motorbesitzen.rolewatcher.data.dao.ForumRole;
+import com.motorbesitzen.rolewatcher.data.repo.DiscordActionRepo;
+import com.motorbesitzen.rolewatcher.util.LogUtil;
+import com.motorbesitzen.rolewatcher.util.RoleDiff;
+import com.motorbesitzen.rolewatcher.util.RoleUtil;
+import io.opentelemetry.api.trace.Span;
+import net.dv8tion.jda.api.entities.Member;
+import net.dv8tion.jda.api.entities.Role;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Records role changes, kicks and bans in the database before they get sent to Discord, so they do not get lost on
+ * a restart or on failed requests. Each member has at most one pending action of each type per guild, new role
+ * changes get merged into the pending ones. The {@link DiscordActionWorker} sends the recorded actions to Discord.
+ */
+@Service
+public class DiscordActionOutbox {
+
+	private static final int MAX_REASON_LENGTH = 512;
+
+	private final DiscordActionRepo actionRepo;
+	private final SyncTracer syncTracer;
+
+	@Autowired
+	DiscordActionOutbox(final DiscordActionRepo actionRepo, final SyncTracer syncTracer) {
+		this.actionRepo = actionRepo;
+		this.syncTracer = syncTracer;
+	}
+
+	/**
+	 * Records the role changes needed to update the Discord roles of a member according to the roles the user has
+	 * on the forum. Pending role changes that contradict the forum roles get dropped, e.g. a pending add of a role
+	 * the user lost on the forum in the meantime. Does nothing else if the roles already match. The diff gets traced
+	 * as part of the current span.
+	 *
+	 * @param member           The member to update the roles of.
+	 * @param memberForumRoles The roles the user has on the forum.
+	 * @param allForumRoles    A list of all forum roles.
+	 */
+	public void updateRoles(final Member member, final List<ForumRole> memberForumRoles, final Iterable<ForumRole> allForumRoles) {
+		final Span span = syncTracer.startSpan("role.diff");
+		final RoleDiffEvent diffEvent = new RoleDiffEvent();
+		diffEvent.begin();
+		final RoleDiff targetRoles = RoleUtil.getTargetRoles(member, memberForumRoles, allForumRoles);
+		final RoleDiff roleDiff = RoleUtil.getRoleDiff(member, targetRoles);
+		diffEvent.end();
+		span.setAttribute("roles.add", roleDiff.getRolesToAdd().size());
+		span.setAttribute("roles.remove", roleDiff.getRolesToRemove().size());
+		span.end();
+		if (roleDiff.isEmpty()) {
+			dropContradictingRoles(member, targetRoles);
+			return;
+		}
+
+		if (diffEvent.shouldCommit()) {
+			diffEvent.setGuildId(member.getGuild().getIdLong());
+			diffEvent.setMemberId(member.getIdLong());
+			diffEvent.setAdds(roleDiff.getRolesToAdd().size());
+			diffEvent.setRemoves(roleDiff.getRolesToRemove().size());
+			diffEvent.commit();
+		}
+
+		recordRoles(member, roleDiff.getRolesToAdd(), roleDiff.getRolesToRemove(), targetRoles);
+	}
+
+	/**
+	 * Records that a role should be added to a member.
+	 *
+	 * @param member The member to add the role to.
+	 * @param role   The role to add.
+	 */
+	public void addRole(final Member member, final Role role) {
+		recordRoles(member, List.of(role), List.of(), null);
+	}
+
+	/**
+	 * Records that a role should be removed from a member.
+	 *
+	 * @param member The member to remove the role from.
+	 * @param role   The role to remove.
+	 */
+	public void removeRole(final Member member, final Role role) {
+		recordRoles(member, List.of(), List.of(role), null);
+	}
+
+	/**
+	 * Records that a member should be kicked. Pending role changes of the member get dropped.
+	 *
+	 * @param member The member to kick.
+	 * @param reason The reason of the kick.
+	 */
+	public void kick(final Member member, final String reason) {
+		final long guildId = member.getGuild().getIdLong();
+		final long memberId = member.getIdLong();
+		actionRepo.deleteByActionKeyIn(List.of(DiscordAction.buildActionKey(DiscordActionType.ROLES, guildId, memberId)));
+		record(DiscordAction.createKickAction(guildId, memberId, shortenReason(reason), System.currentTimeMillis()));
+	}
+
+	/**
+	 * Records that a member should be banned. Pending role changes and kicks of the member get dropped.
+	 *
+	 * @param member The member to ban.
+	 * @param reason The reason of the ban.
+	 */
+	public void ban(final Member member, final String reason) {
+		final long guildId = member.getGuild().getIdLong();
+		final long memberId = member.getIdLong();
+		actionRepo.deleteByActionKeyIn(List.of(
+				DiscordAction.buildActionKey(DiscordActionType.ROLES, guildId, memberId),
+				DiscordAction.buildActionKey(DiscordActionType.KICK, guildId, memberId)
+		));
+		record(DiscordAction.createBanAction(guildId, memberId, shortenReason(reason), System.currentTimeMillis()));
+	}
+
+	/**
+	 * Drops the pending role changes of a member that contradict the target roles. Deletes the pending action if no
+	 * role change is left.
+	 *
+	 * @param member      The member.
+	 * @param targetRoles The roles the member should and should not have.
+	 */
+	private void dropContradictingRoles(final Member member, final RoleDiff targetRoles) {
+		final String actionKey = DiscordAction.buildActionKey(DiscordActionType.ROLES, member.getGuild().getIdLong(), member.getIdLong());
+		synchronized (this) {
+			final Optional<DiscordAction> actionOpt = actionRepo.findByActionKey(actionKey);
+			if (actionOpt.isEmpty()) {
+				return;
+			}
+
+			final DiscordAction action = actionOpt.get();
+			final Set<Long> addIds = parseRoleIds(action.getRolesToAdd());
+			final Set<Long> removeIds = parseRoleIds(action.getRolesToRemove());
+			if (!removeContradictingRoles(addIds, removeIds, targetRoles)) {
+				return;
+			}
+
+			try {
+				if (addIds.isEmpty() && removeIds.isEmpty()) {
+					actionRepo.deleteByActionIdAndVersion(action.getActionId(), action.getVersion());
+					return;
+				}
+
+				action.setRolesToAdd(joinRoleIds(addIds));
+				action.setRolesToRemove(joinRoleIds(removeIds));
+				actionRepo.save(action);
+			} catch (ObjectOptimisticLockingFailureException e) {
+				// the worker sent or rescheduled the action in the meantime, the next cycle checks it again
+				LogUtil.logDebug("Pending action {} changed while dropping contradicting roles.", actionKey);
+			}
+		}
+	}
+
+	/**
+	 * Removes the pending adds of roles the member should not have and the pending removes of roles the member
+	 * should have.
+	 *
+	 * @param addIds      The IDs of the roles to add, gets modified.
+	 * @param removeIds   The IDs of the roles to remove, gets modified.
+	 * @param targetRoles The roles the member should and should not have.
+	 * @return {@code true} if any role ID got removed.
+	 */
+	private static boolean removeContradictingRoles(final Set<Long> addIds, final Set<Long> removeIds, final RoleDiff targetRoles) {
+		boolean changed = false;
+		for (Role role : targetRoles.getRolesToRemove()) {
+			changed |= addIds.remove(role.getIdLong());
+		}
+
+		for (Role role : targetRoles.getRolesToAdd()) {
+			changed |= removeIds.remove(role.getIdLong());
+		}
+
+		return changed;
+	}
+
+	/**
+	 * Records role changes of a member. If the member already has pending role changes the new changes get merged
+	 * into them, a role that gets added now is not removed anymore and the other way around. Pending changes that
+	 * contradict the target roles get dropped.
+	 *
+	 * @param member        The member to change the roles of.
+	 * @param rolesToAdd    The roles to add.
+	 * @param rolesToRemove The roles to remove.
+	 * @param targetRoles   The roles the member should and should not have, {@code null} to keep all pending changes.
+	 */
+	private void recordRoles(final Member member, final List<Role> rolesToAdd, final List<Role> rolesToRemove,
+							 final RoleDiff targetRoles) {
+		final long guildId = member.getGuild().getIdLong();
+		final long memberId = member.getIdLong();
+		final String actionKey = DiscordAction.buildActionKey(DiscordActionType.ROLES, guildId, memberId);
+		synchronized (this) {
+			for (int attempt = 0; attempt < 3; attempt++) {
+				final DiscordAction action = actionRepo.findByActionKey(actionKey)
+						.orElseGet(() -> DiscordAction.createRoleAction(guildId, memberId, 0));
+				final Set<Long> addIds = parseRoleIds(action.getRolesToAdd());
+				final Set<Long> removeIds = parseRoleIds(action.getRolesToRemove());
+				if (targetRoles != null) {
+					removeContradictingRoles(addIds, removeIds, targetRoles);
+				}
+
+				for (Role role : rolesToAdd) {
+					removeIds.remove(role.getIdLong());
+					addIds.add(role.getIdLong());
+				}
+
+				for (Role role : rolesToRemove) {
+					addIds.remove(role.getIdLong());
+					removeIds.add(role.getIdLong());
+				}
+
+				action.setRolesToAdd(joinRoleIds(addIds));
+				action.setRolesToRemove(joinRoleIds(removeIds));
+				action.setAttempts(0);
+				action.setNextAttemptAt(System.currentTimeMillis());
+				action.setTraceParent(syncTracer.getTraceParent());
+				try {
+					actionRepo.save(action);
+					return;
+				} catch (ObjectOptimisticLockingFailureException | DataIntegrityViolationException e) {
+					// the worker changed the action in the meantime, merge again
+					LogUtil.logDebug("Pending action {} changed while merging, retrying.", actionKey);
+				}
+			}
+		}
+
+		LogUtil.logWarning("Could not record role changes of member " + memberId + " on guild " + guildId + ".");
+	}
+
+	/**
+	 * Records a kick or ban unless the same action is already pending.
+	 *
+	 * @param action The action to record.
+	 */
+	private synchronized void record(final DiscordAction action) {
+		if (actionRepo.findByActionKey(action.getActionKey()).isPresent()) {
+			return;
+		}
+
+		action.setTraceParent(syncTracer.getTraceParent());
+		try {
+			actionRepo.save(action);
+		} catch (DataIntegrityViolationException e) {
+			LogUtil.logDebug("Action {} is already pending.", action.getActionKey());
+		}
+	}
+
+	/**
+	 * Shortens a reason to the maximum length Discord accepts for audit log reasons.
+	 *
+	 * @param reason The reason.
+	 * @return The reason with at most 512 characters.
+	 */
+	private static String shortenReason(final String reason) {
+		return reason.length() > MAX_REASON_LENGTH ? reason.substring(0, MAX_REASON_LENGTH) : reason;
+	}
+
+	/**
+	 * Parses a comma separated list of role IDs.
+	 *
+	 * @param roleIds The comma separated role IDs.
+	 * @return The role IDs in the order of the list.
+	 */
+	static Set<Long> parseRoleIds(final String roleIds) {
+		final Set<Long> ids = new LinkedHashSet<>();
+		if (roleIds == null || roleIds.isBlank()) {
+			return ids;
+		}
+
+		for (String roleId : roleIds.split(",")) {
+			ids.add(Long.parseLong(roleId.trim()));
+		}
+
+		return ids;
+	}
+
+	/**
+	 * Joins role IDs to a comma separated list.
+	 *
+	 * @param roleIds The role IDs.
+	 * @return The comma separated role IDs.
+	 */
+	static String joinRoleIds(final Collection<Long> roleIds) {
+		return roleIds.stream().map(String::valueOf).collect(Collectors.joining(","));
+	}
+}
@@ -0,0 +1,418 @@
+package com.motorbesitzen.rolewatcher.bot.service;
+
+import com.motorbesitzen.rolewatcher.bot.jfr.DiscordActionEvent;
+import com.motorbesitzen.rolewatcher.data.dao.DiscordAction;
+import com.motorbesitzen.rolewatcher.data.repo.DiscordActionRepo;
+import com.motorbesitzen.rolewatcher.util.LogUtil;
+import com.motorbesitzen.rolewatcher.util.ParseUtil;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.StatusCode;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Sends the actions recorded in the {@link DiscordActionOutbox} to Discord via the {@link DiscordRestDispatcher}. Each
+ * guild has its own budget of actions per minute and gets drained by its own task until the budget is used up, so a
+ * large role update of one guild does not delay the actions of other guilds, and only one action per guild is in
+ * flight at a time. Only actions of guilds whose partition this instance owns get sent. Actions get removed from the
+ * outbox once Discord confirmed them. Actions that hit a rate limit get sent again when the limit resets, other failed actions get retried
+ * with an increasing delay.
+ */
+@Service
+public class DiscordActionWorker {
+
+	private static final long DRAIN_DELAY_MS = 1000;
+	private static final long IN_FLIGHT_TIMEOUT_MS = 60000;
+	private static final long MAX_RETRY_DELAY_MS = 600000;
+	private static final int MAX_ATTEMPTS = 8;
+	private static final int SENDER_THREADS = 4;
+
+	private final DiscordRestDispatcher dispatcher;
+	private final DiscordActionRepo actionRepo;
+	private final PartitionLeaseManager leaseManager;
+	private final SyncMetrics syncMetrics;
+	private final SyncTracer syncTracer;
+	private final ScheduledExecutorService scheduler;
+	private final ExecutorService senders;
+	private final Map<Long, GuildBudget> guildBudgets;
+	private final Set<Long> guildsInFlight;
+	private final double actionsPerMs;
+	private final double maxBurst;
+
+	@Autowired
+	DiscordActionWorker(final DiscordRestDispatcher dispatcher, final EnvSettings envSettings,
+								final DiscordActionRepo actionRepo, final PartitionLeaseManager leaseManager,
+								final SyncMetrics syncMetrics, final SyncTracer syncTracer) {
+		this.dispatcher = dispatcher;
+		this.actionRepo = actionRepo;
+		this.leaseManager = leaseManager;
+		this.syncMetrics = syncMetrics;
+		this.syncTracer = syncTracer;
+		this.scheduler = Executors.newSingleThreadScheduledExecutor();
+		this.senders = Executors.newFixedThreadPool(SENDER_THREADS);
+		this.guildBudgets = new ConcurrentHashMap<>();
+		this.guildsInFlight = ConcurrentHashMap.newKeySet();
+		final long actionsPerMinute = Math.max(1, ParseUtil.safelyParseStringToLong(envSettings.getGuildActionsPerMinute()));
+		this.actionsPerMs = actionsPerMinute / 60000.0;
+		this.maxBurst = Math.max(1, actionsPerMinute / 6.0);
+	}
+
+	/**
+	 * Starts sending the recorded actions, including the ones that were still pending before the last shutdown.
+	 */
+	public void start() {
+		scheduler.scheduleWithFixedDelay(this::drain, 0, DRAIN_DELAY_MS, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Stops sending actions when the application shuts down. Actions that are in flight get retried after the
+	 * next start.
+	 */
+	@PreDestroy
+	private void shutdown() {
+		scheduler.shutdownNow();
+		senders.shutdownNow();
+	}
+
+	/**
+	 * Starts draining each owned guild with due actions that has budget left and is not drained already.
+	 */
+	void drain() {
+		try {
+			final long now = System.currentTimeMillis();
+			for (long guildId : actionRepo.findGuildIdsWithDueActions(now)) {
+				if (!leaseManager.ownsGuild(guildId) || !guildsInFlight.add(guildId)) {
+					continue;
+				}
+
+				if (!hasBudget(guildId, now)) {
+					guildsInFlight.remove(guildId);
+					continue;
+				}
+
+				senders.execute(() -> {
+					try {
+						drainGuild(guildId);
+					} catch (Exception e) {
+						LogUtil.logWarning("Unexpected Exception: " + e);
+					} finally {
+						guildsInFlight.remove(guildId);
+					}
+				});
+			}
+		} catch (Exception e) {
+			LogUtil.logWarning("Unexpected Exception: " + e);
+		}
+	}
+
+	/**
+	 * Sends the due actions of a guild one after another until there are no due actions left or the budget of the
+	 * guild is used up.
+	 *
+	 * @param guildId The ID of the guild.
+	 */
+	private void drainGuild(final long guildId) {
+		while (true) {
+			final List<DiscordAction> dueActions =
+					actionRepo.findTop10ByGuildIdAndNextAttemptAtLessThanEqualOrderByNextAttemptAtAsc(guildId, System.currentTimeMillis());
+			if (dueActions.isEmpty()) {
+				return;
+			}
+
+			for (DiscordAction action : dueActions) {
+				final long now = System.currentTimeMillis();
+				if (!tryAcquire(guildId, now)) {
+					return;
+				}
+
+				final long dueAt = action.getNextAttemptAt();
+				final DiscordAction inFlightAction;
+				try {
+					action.setNextAttemptAt(now + IN_FLIGHT_TIMEOUT_MS);
+					inFlightAction = actionRepo.save(action);
+				} catch (ObjectOptimisticLockingFailureException e) {
+					// changed since it got loaded, gets loaded again with the next batch
+					continue;
+				}
+
+				send(inFlightAction, dueAt);
+			}
+		}
+	}
+
+	/**
+	 * Checks if a guild has at least one action of its budget left.
+	 *
+	 * @param guildId The ID of the guild.
+	 * @param now     The current time in milliseconds since the epoch.
+	 * @return {@code true} if the guild has budget left.
+	 */
+	private boolean hasBudget(final long guildId, final long now) {
+		return refill(guildId, now).tokens >= 1;
+	}
+
+	/**
+	 * Takes one action from the budget of a guild if there is any left.
+	 *
+	 * @param guildId The ID of the guild.
+	 * @param now     The current time in milliseconds since the epoch.
+	 * @return {@code true} if the guild had budget left.
+	 */
+	private boolean tryAcquire(final long guildId, final long now) {
+		final GuildBudget budget = refill(guildId, now);
+		if (budget.tokens < 1) {
+			return false;
+		}
+
+		budget.tokens--;
+		return true;
+	}
+
+	/**
+	 * Adds the actions a guild gained since the last refill to its budget. Only gets called by the task that drains
+	 * the guild or before such a task gets started.
+	 *
+	 * @param guildId The ID of the guild.
+	 * @param now     The current time in milliseconds since the epoch.
+	 * @return The refilled budget of the guild.
+	 */
+	private GuildBudget refill(final long guildId, final long now) {
+		final GuildBudget budget = guildBudgets.computeIfAbsent(guildId, id -> new GuildBudget(maxBurst, now));
+		budget.tokens = Math.min(maxBurst, budget.tokens + (now - budget.refilledAt) * actionsPerMs);
+		budget.refilledAt = now;
+		return budget;
+	}
+
+	/**
+	 * Sends an action to Discord.
+	 *
+	 * @param action The action to send.
+	 * @param dueAt  The time the action became due in milliseconds since the epoch.
+	 */
+	private void send(final DiscordAction action, final long dueAt) {
+		switch (action.getType()) {
+			case BAN:
+				sendMemberAction(action, DiscordRoute.BAN, dueAt);
+				break;
+			case KICK:
+				sendMemberAction(action, DiscordRoute.KICK, dueAt);
+				break;
+			default:
+				sendRoles(action, dueAt);
+		}
+	}
+
+	/**
+	 * Sends a ban or kick to Discord.
+	 *
+	 * @param action The ban or kick action.
+	 * @param route  The route of the action.
+	 * @param dueAt  The time the action became due in milliseconds since the epoch.
+	 */
+	private void sendMemberAction(final DiscordAction action, final DiscordRoute route, final long dueAt) {
+		final DispatchResult result;
+		try {
+			result = dispatch(action, route, 0, action.getReason(), dueAt);
+		} catch (IOException e) {
+			fail(action, e.getMessage());
+			return;
+		}
+
+		if (result.isSuccess()) {
+			LogUtil.logDebug("Sent action {}.", action);
+			complete(action);
+		} else if (result.mustWait()) {
+			retryAfterRateLimit(action, result.getRetryAfterMs());
+		} else if (result.isPermanentFailure()) {
+			LogUtil.logWarning("Dropping action " + action + " due to \"" + result.getMessage() + "\".");
+			complete(action);
+		} else {
+			fail(action, result.getMessage());
+		}
+	}
+
+	/**
+	 * Sends one request for each role that gets added or removed. Roles that do not exist anymore or that the bot can
+	 * not interact with get skipped. If a request hits a rate limit or fails the roles that are left get saved, so
+	 * the roles that already got changed do not get sent again.
+	 *
+	 * @param action The role action.
+	 * @param dueAt  The time the action became due in milliseconds since the epoch.
+	 */
+	private void sendRoles(final DiscordAction action, final long dueAt) {
+		final Set<Long> addIds = DiscordActionOutbox.parseRoleIds(action.getRolesToAdd());
+		final Set<Long> removeIds = DiscordActionOutbox.parseRoleIds(action.getRolesToRemove());
+		DispatchResult result;
+		try {
+			result = sendRoles(action, DiscordRoute.ADD_ROLE, addIds, dueAt);
+			if (result == null) {
+				result = sendRoles(action, DiscordRoute.REMOVE_ROLE, removeIds, dueAt);
+			}
+		} catch (IOException e) {
+			result = new DispatchResult(0, 0, e.getMessage());
+		}
+
+		if (result == null) {
+			LogUtil.logDebug("Sent action {}.", action);
+			complete(action);
+			return;
+		}
+
+		action.setRolesToAdd(DiscordActionOutbox.joinRoleIds(addIds));
+		action.setRolesToRemove(DiscordActionOutbox.joinRoleIds(removeIds));
+		if (result.mustWait()) {
+			retryAfterRateLimit(action, result.getRetryAfterMs());
+		} else {
+			fail(action, result.getMessage());
+		}
+	}
+
+	/**
+	 * Sends the role changes of one route. Each role that got handled gets removed from the given IDs.
+	 *
+	 * @param action  The role action.
+	 * @param route   The route to send the role changes to.
+	 * @param roleIds The IDs of the roles to change.
+	 * @param dueAt   The time the action became due in milliseconds since the epoch.
+	 * @return {@code null} if all roles got handled, otherwise the result of the request that hit a rate limit or
+	 * failed.
+	 * @throws IOException if a request could not be sent.
+	 */
+	private DispatchResult sendRoles(final DiscordAction action, final DiscordRoute route, final Set<Long> roleIds,
+									 final long dueAt) throws IOException {
+		final Iterator<Long> roleIterator = roleIds.iterator();
+		while (roleIterator.hasNext()) {
+			final long roleId = roleIterator.next();
+			final DispatchResult result = dispatch(action, route, roleId, null, dueAt);
+			if (result.isPermanentFailure()) {
+				LogUtil.logDebug("Skipping role {} of action {} due to \"{}\".", roleId, action, result.getMessage());
+			} else if (!result.isSuccess()) {
+				return result;
+			}
+
+			roleIterator.remove();
+		}
+
+		return null;
+	}
+
+	/**
+	 * Sends a single request of an action and records its result in the metrics and as a flight recorder event. The
+	 * request gets traced as part of the synchronisation that recorded the action.
+	 *
+	 * @param action The action.
+	 * @param route  The route to send the request to.
+	 * @param roleId The ID of the role to change, ignored by routes without a role.
+	 * @param reason The reason that gets shown in the audit log, may be {@code null}.
+	 * @param dueAt  The time the action became due in milliseconds since the epoch.
+	 * @return The result of the request.
+	 * @throws IOException if the request could not be sent.
+	 */
+	private DispatchResult dispatch(final DiscordAction action, final DiscordRoute route, final long roleId,
+									final String reason, final long dueAt) throws IOException {
+		final long queueWait = Math.max(0, System.currentTimeMillis() - dueAt);
+		final Span span = syncTracer.startSpan("discord.request", action.getTraceParent());
+		span.setAttribute("discord.route", route.name());
+		span.setAttribute("guild.id", action.getGuildId());
+		span.setAttribute("member.id", action.getMemberId());
+		span.setAttribute("queue.wait.ms", queueWait);
+		final DiscordActionEvent actionEvent = new DiscordActionEvent();
+		actionEvent.setType(action.getType().name());
+		actionEvent.setRoute(route.name());
+		actionEvent.setGuildId(action.getGuildId());
+		actionEvent.setQueueWait(queueWait);
+		actionEvent.begin();
+		try {
+			final DispatchResult result = dispatcher.send(route, action.getGuildId(), action.getMemberId(), roleId, reason);
+			actionEvent.setStatus(result.getStatus());
+			span.setAttribute("http.status_code", result.getStatus());
+			if (!result.isSuccess() && !result.isDeferred()) {
+				span.setStatus(StatusCode.ERROR, result.getMessage());
+			}
+
+			syncMetrics.recordDiscordAction(route, result);
+			return result;
+		} catch (IOException e) {
+			syncMetrics.recordDiscordActionError(route);
+			syncTracer.recordError(span, e);
+			throw e;
+		} finally {
+			actionEvent.commit();
+			span.end();
+		}
+	}
+
+	/**
+	 * Removes a sent action from the outbox unless it got changed while it was in flight.
+	 *
+	 * @param action The sent action.
+	 */
+	private void complete(final DiscordAction action) {
+		actionRepo.deleteByActionIdAndVersion(action.getActionId(), action.getVersion());
+	}
+
+	/**
+	 * Schedules an action that hit a rate limit for the time the limit resets. Does not count as a failed attempt.
+	 *
+	 * @param action       The rate limited action.
+	 * @param retryAfterMs The time until the rate limit resets in milliseconds.
+	 */
+	private void retryAfterRateLimit(final DiscordAction action, final long retryAfterMs) {
+		action.setNextAttemptAt(System.currentTimeMillis() + retryAfterMs);
+		save(action);
+	}
+
+	/**
+	 * Schedules a retry of a failed action or drops it if it failed too often.
+	 *
+	 * @param action The failed action.
+	 * @param reason The cause of the failure.
+	 */
+	private void fail(final DiscordAction action, final String reason) {
+		final int attempts = action.getAttempts() + 1;
+		if (attempts >= MAX_ATTEMPTS) {
+			LogUtil.logWarning("Dropping action " + action + " due to \"" + reason + "\".");
+			complete(action);
+			return;
+		}
+
+		final long retryDelay = Math.min(MAX_RETRY_DELAY_MS, DRAIN_DELAY_MS * 5 * (1L << attempts));
+		action.setAttempts(attempts);
+		action.setNextAttemptAt(System.currentTimeMillis() + retryDelay);
+		save(action);
+	}
+
+	/**
+	 * Saves a rescheduled action unless it got changed while it was in flight.
+	 *
+	 * @param action The rescheduled action.
+	 */
+	private void save(final DiscordAction action) {
+		try {
+			actionRepo.save(action);
+		} catch (ObjectOptimisticLockingFailureException e) {
+			// got merged with new changes in the meantime which get sent anyway
+			LogUtil.logDebug("Action {} changed while in flight.", action.getActionKey());
+		}
+	}
+
+	/**
+	 * The remaining actions a guild can send and the time they got refilled last.
+	 */
+	private static class GuildBudget {
+
+		private double tokens;
+		private long refilledAt;
+
+		private GuildBudget(final double tokens, final long refilledAt) {
+			this.tokens = tokens;
+			this.refilledAt = refilledAt;
+		}
+	}
+}
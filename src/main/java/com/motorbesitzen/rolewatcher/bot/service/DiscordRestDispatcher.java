@@ -0,0 +1,293 @@
+package com.motorbesitzen.rolewatcher.bot.service;
+
+import com.motorbesitzen.rolewatcher.util.LogUtil;
+import com.motorbesitzen.rolewatcher.util.ParseUtil;
+import org.apache.http.Header;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.RequestBuilder;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.util.EntityUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Sends member role updates, bans and kicks directly to the Discord REST API. Learns the rate limit buckets of the
+ * routes from the response headers and does not send requests to a bucket that has no requests left, so the rate
+ * limit gets spent on requests that succeed instead of on 429 responses. Records the time requests had to wait for
+ * a rate limit per route, separately for 429 responses and for requests that got held back before being sent.
+ * <p>
+ * The requests use the same bot token as JDA but not its rate limiter. Both count towards the same global rate
+ * limit of the bot, yet this client only learns about a global rate limit from the responses to its own requests.
+ * A global rate limit that JDA ran into still costs one 429 here before the requests get held back.
+ */
+@Service
+public class DiscordRestDispatcher {
+
+	private static final String API_URL = "https://discord.com/api/v9";
+	private static final int TIMEOUT_MS = 10000;
+	private static final int MAX_CONNECTIONS = 10;
+
+	private final EnvSettings envSettings;
+	private final String apiUrl;
+	private final CloseableHttpClient httpClient;
+	private final Map<DiscordRoute, String> routeBuckets;
+	private final Map<String, Bucket> buckets;
+	private final Map<DiscordRoute, LongAdder> waitTimes;
+	private final Map<DiscordRoute, LongAdder> deferTimes;
+	private volatile long globalResetAt;
+
+	@Autowired
+	private DiscordRestDispatcher(final EnvSettings envSettings) {
+		this(envSettings, API_URL);
+	}
+
+	DiscordRestDispatcher(final EnvSettings envSettings, final String apiUrl) {
+		this.envSettings = envSettings;
+		this.apiUrl = apiUrl;
+		this.httpClient = buildHttpClient();
+		this.routeBuckets = new ConcurrentHashMap<>();
+		this.buckets = new ConcurrentHashMap<>();
+		this.waitTimes = new EnumMap<>(DiscordRoute.class);
+		this.deferTimes = new EnumMap<>(DiscordRoute.class);
+		for (DiscordRoute route : DiscordRoute.values()) {
+			waitTimes.put(route, new LongAdder());
+			deferTimes.put(route, new LongAdder());
+		}
+
+		this.globalResetAt = 0;
+	}
+
+	/**
+	 * Builds the HTTP client that gets shared by all requests, so connections to Discord can be reused.
+	 *
+	 * @return The HTTP client.
+	 */
+	private CloseableHttpClient buildHttpClient() {
+		final RequestConfig config = RequestConfig.custom()
+				.setConnectTimeout(TIMEOUT_MS)
+				.setConnectionRequestTimeout(TIMEOUT_MS)
+				.setSocketTimeout(TIMEOUT_MS)
+				.build();
+		return HttpClientBuilder.create()
+				.setDefaultRequestConfig(config)
+				.setMaxConnPerRoute(MAX_CONNECTIONS)
+				.setMaxConnTotal(MAX_CONNECTIONS)
+				.build();
+	}
+
+	/**
+	 * Closes the HTTP client and its pooled connections when the application shuts down.
+	 */
+	@PreDestroy
+	private void closeHttpClient() {
+		try {
+			httpClient.close();
+		} catch (IOException e) {
+			LogUtil.logDebug("Could not close Discord REST client.", e);
+		}
+	}
+
+	/**
+	 * Sends a request to a route unless the rate limit of the route in the guild is exhausted.
+	 *
+	 * @param route    The route to send the request to.
+	 * @param guildId  The ID of the guild.
+	 * @param memberId The ID of the member.
+	 * @param roleId   The ID of the role, ignored by routes without a role.
+	 * @param reason   The reason that gets shown in the audit log, may be {@code null}.
+	 * @return The result of the request. A deferred result if the request did not get sent, a rate limited result if
+	 * Discord answered with a 429.
+	 * @throws IOException if the request could not be sent or the response could not be read.
+	 */
+	public DispatchResult send(final DiscordRoute route, final long guildId, final long memberId, final long roleId,
+							   final String reason) throws IOException {
+		final long waitMs = reserve(route, guildId);
+		if (waitMs > 0) {
+			deferTimes.get(route).add(waitMs);
+			return DispatchResult.deferred(waitMs);
+		}
+
+		final RequestBuilder requestBuilder = RequestBuilder.create(route.getMethod())
+				.setUri(apiUrl + route.buildPath(guildId, memberId, roleId))
+				.setHeader(HttpHeaders.AUTHORIZATION, "Bot " + envSettings.getToken());
+		if (reason != null && !reason.isBlank()) {
+			requestBuilder.setHeader("X-Audit-Log-Reason", URLEncoder.encode(reason, StandardCharsets.UTF_8).replace("+", "%20"));
+		}
+
+		if (route == DiscordRoute.BAN) {
+			requestBuilder.setEntity(new StringEntity("{\"delete_message_days\":0}", ContentType.APPLICATION_JSON));
+		}
+
+		try (CloseableHttpResponse response = httpClient.execute(requestBuilder.build())) {
+			final int status = response.getStatusLine().getStatusCode();
+			updateBucket(route, guildId, response);
+			final String body = response.getEntity() == null ? "" : EntityUtils.toString(response.getEntity());
+			if (status == 429) {
+				final long retryAfterMs = getRetryAfterMs(response);
+				if (Boolean.parseBoolean(getHeader(response, "X-RateLimit-Global"))) {
+					globalResetAt = System.currentTimeMillis() + retryAfterMs;
+				}
+
+				waitTimes.get(route).add(retryAfterMs);
+				LogUtil.logDebug("Hit rate limit of {} on guild {}, retry after {}ms.", route, guildId, retryAfterMs);
+				return new DispatchResult(status, retryAfterMs, body);
+			}
+
+			return new DispatchResult(status, 0, body);
+		}
+	}
+
+	/**
+	 * Gets the total time requests had to wait after Discord answered with a 429 per route since the start.
+	 *
+	 * @return The wait time in milliseconds per route.
+	 */
+	public Map<DiscordRoute, Long> getWaitTimes() {
+		return sum(waitTimes);
+	}
+
+	/**
+	 * Gets the total time requests got held back for an exhausted rate limit per route since the start.
+	 *
+	 * @return The deferred time in milliseconds per route.
+	 */
+	public Map<DiscordRoute, Long> getDeferTimes() {
+		return sum(deferTimes);
+	}
+
+	/**
+	 * Sums up the times per route.
+	 *
+	 * @param times The times per route.
+	 * @return The total time in milliseconds per route.
+	 */
+	private static Map<DiscordRoute, Long> sum(final Map<DiscordRoute, LongAdder> times) {
+		final Map<DiscordRoute, Long> totals = new EnumMap<>(DiscordRoute.class);
+		times.forEach((route, time) -> totals.put(route, time.sum()));
+		return totals;
+	}
+
+	/**
+	 * Reserves a request in the rate limit bucket of the route in the guild.
+	 *
+	 * @param route   The route.
+	 * @param guildId The ID of the guild.
+	 * @return 0 if the request can be sent, otherwise the time in milliseconds until the rate limit resets.
+	 */
+	private long reserve(final DiscordRoute route, final long guildId) {
+		final long now = System.currentTimeMillis();
+		if (globalResetAt > now) {
+			return globalResetAt - now;
+		}
+
+		final Bucket bucket = buckets.get(getBucketKey(route, guildId));
+		if (bucket == null) {
+			return 0;
+		}
+
+		synchronized (bucket) {
+			if (bucket.resetAt <= now) {
+				bucket.remaining = bucket.limit;
+				bucket.resetAt = Long.MAX_VALUE;
+			}
+
+			if (bucket.remaining <= 0) {
+				return bucket.resetAt == Long.MAX_VALUE ? 1000 : bucket.resetAt - now;
+			}
+
+			bucket.remaining--;
+			return 0;
+		}
+	}
+
+	/**
+	 * Updates the rate limit bucket of the route in the guild with the rate limit headers of a response. Responses
+	 * with missing or invalid rate limit headers do not change the bucket.
+	 *
+	 * @param route    The route of the request.
+	 * @param guildId  The ID of the guild.
+	 * @param response The response.
+	 */
+	private void updateBucket(final DiscordRoute route, final long guildId, final HttpResponse response) {
+		final String bucketHash = getHeader(response, "X-RateLimit-Bucket");
+		if (bucketHash == null || bucketHash.isBlank()) {
+			return;
+		}
+
+		final int limit = ParseUtil.safelyParseStringToInt(getHeader(response, "X-RateLimit-Limit"));
+		final int remaining = ParseUtil.safelyParseStringToInt(getHeader(response, "X-RateLimit-Remaining"));
+		final long resetAfterMs = ParseUtil.safelyParseSecondsToMillis(getHeader(response, "X-RateLimit-Reset-After"));
+		if (limit < 1 || remaining < 0 || resetAfterMs < 0) {
+			LogUtil.logDebug("Ignoring invalid rate limit headers of {} on guild {}.", route, guildId);
+			return;
+		}
+
+		routeBuckets.put(route, bucketHash);
+		final Bucket bucket = buckets.computeIfAbsent(getBucketKey(route, guildId), key -> new Bucket());
+		synchronized (bucket) {
+			bucket.limit = limit;
+			bucket.remaining = Math.min(bucket.remaining, remaining);
+			bucket.resetAt = System.currentTimeMillis() + resetAfterMs;
+		}
+	}
+
+	/**
+	 * Gets the key of the rate limit bucket of a route in a guild. Routes that share a bucket hash share a bucket,
+	 * routes whose bucket is not known yet have their own.
+	 *
+	 * @param route   The route.
+	 * @param guildId The ID of the guild.
+	 * @return The key of the bucket.
+	 */
+	private String getBucketKey(final DiscordRoute route, final long guildId) {
+		return routeBuckets.getOrDefault(route, route.name()) + ":" + guildId;
+	}
+
+	/**
+	 * Gets the time to wait after a 429 response.
+	 *
+	 * @param response The 429 response.
+	 * @return The time to wait in milliseconds, one second if the response has no valid {@code Retry-After} header.
+	 */
+	private long getRetryAfterMs(final HttpResponse response) {
+		final long retryAfterMs = ParseUtil.safelyParseSecondsToMillis(getHeader(response, HttpHeaders.RETRY_AFTER));
+		return retryAfterMs < 0 ? 1000 : retryAfterMs;
+	}
+
+	/**
+	 * Gets the value of a response header.
+	 *
+	 * @param response The response.
+	 * @param name     The name of the header.
+	 * @return The value of the header or {@code null} if the response does not contain the header.
+	 */
+	private String getHeader(final HttpResponse response, final String name) {
+		final Header header = response.getFirstHeader(name);
+		return header == null ? null : header.getValue();
+	}
+
+	/**
+	 * The rate limit state of a bucket in a guild.
+	 */
+	private static class Bucket {
+
+		private int limit = Integer.MAX_VALUE;
+		private int remaining = Integer.MAX_VALUE;
+		private long resetAt = Long.MAX_VALUE;
+	}
+}
@@ -0,0 +1,52 @@
+package com.motorbesitzen.rolewatcher.bot.service;
+
+/**
+ * The Discord REST routes the {@link DiscordRestDispatcher} sends member updates to. Each route has its own rate limit
+ * bucket per guild.
+ */
+public enum DiscordRoute {
+
+	/**
+	 * Adds a role to a member.
+	 */
+	ADD_ROLE("PUT", "/guilds/%d/members/%d/roles/%d"),
+
+	/**
+	 * Removes a role from a member.
+	 */
+	REMOVE_ROLE("DELETE", "/guilds/%d/members/%d/roles/%d"),
+
+	/**
+	 * Bans a member.
+	 */
+	BAN("PUT", "/guilds/%d/bans/%d"),
+
+	/**
+	 * Kicks a member.
+	 */
+	KICK("DELETE", "/guilds/%d/members/%d");
+
+	private final String method;
+	private final String path;
+
+	DiscordRoute(final String method, final String path) {
+		this.method = method;
+		this.path = path;
+	}
+
+	public String getMethod() {
+		return method;
+	}
+
+	/**
+	 * Builds the path of a request to this route.
+	 *
+	 * @param guildId  The ID of the guild.
+	 * @param memberId The ID of the member.
+	 * @param roleId   The ID of the role, ignored by routes without a role.
+	 * @return The path relative to the Discord API base URL.
+	 */
+	public String buildPath(final long guildId, final long memberId, final long roleId) {
+		return String.format(path, guildId, memberId, roleId);
+	}
+}
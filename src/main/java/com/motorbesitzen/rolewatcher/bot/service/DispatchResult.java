@@ -0,0 +1,94 @@
+package com.motorbesitzen.rolewatcher.bot.service;
+
+/**
+ * The result of a request sent by the {@link DiscordRestDispatcher}.
+ */
+public final class DispatchResult {
+
+	private final int status;
+	private final long retryAfterMs;
+	private final String message;
+	private final boolean deferred;
+
+	DispatchResult(final int status, final long retryAfterMs, final String message) {
+		this(status, retryAfterMs, message, false);
+	}
+
+	private DispatchResult(final int status, final long retryAfterMs, final String message, final boolean deferred) {
+		this.status = status;
+		this.retryAfterMs = retryAfterMs;
+		this.message = message;
+		this.deferred = deferred;
+	}
+
+	/**
+	 * Creates the result of a request that did not get sent as the known rate limit of its route is exhausted.
+	 * Discord did not answer it, so it has no status.
+	 *
+	 * @param waitMs The time until the rate limit resets in milliseconds.
+	 * @return The result.
+	 */
+	static DispatchResult deferred(final long waitMs) {
+		return new DispatchResult(0, waitMs, "Rate limit of route exhausted.", true);
+	}
+
+	public int getStatus() {
+		return status;
+	}
+
+	public long getRetryAfterMs() {
+		return retryAfterMs;
+	}
+
+	public String getMessage() {
+		return message;
+	}
+
+	/**
+	 * Checks if Discord accepted the request.
+	 *
+	 * @return {@code true} if the request succeeded.
+	 */
+	public boolean isSuccess() {
+		return status >= 200 && status < 300;
+	}
+
+	/**
+	 * Checks if Discord answered the request with a 429 and it can be sent again after {@link #getRetryAfterMs()}.
+	 *
+	 * @return {@code true} if the request got rate limited.
+	 */
+	public boolean isRateLimited() {
+		return status == 429;
+	}
+
+	/**
+	 * Checks if the request did not get sent as the known rate limit is exhausted. It can be sent after
+	 * {@link #getRetryAfterMs()}.
+	 *
+	 * @return {@code true} if the request got held back.
+	 */
+	public boolean isDeferred() {
+		return deferred;
+	}
+
+	/**
+	 * Checks if the request has to wait for a rate limit, either because Discord answered with a 429 or because it
+	 * did not get sent at all.
+	 *
+	 * @return {@code true} if the request has to be sent again after {@link #getRetryAfterMs()}.
+	 */
+	public boolean mustWait() {
+		return deferred || isRateLimited();
+	}
+
+	/**
+	 * Checks if sending the same request again can not succeed, e.g. if the member left or the bot misses
+	 * permissions.
+	 *
+	 * @return {@code true} if the request failed permanently.
+	 */
+	public boolean isPermanentFailure() {
+		return status >= 400 && status < 500 && status != 429;
+	}
+}
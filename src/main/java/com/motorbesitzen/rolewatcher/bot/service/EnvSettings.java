@@ -29,6 +29,25 @@ public class EnvSettings {
 		return environment.getProperty("DC_TOKEN");
 	}
 
+	/**
+	 * Defines the total amount of shards the bot uses to connect to Discord.
+	 *
+	 * @return The total amount of shards if set. If there is none set it returns -1 to use the amount Discord
+	 * recommends.
+	 */
+	public String getShardTotal() {
+		return environment.getProperty("DC_SHARD_TOTAL", "-1");
+	}
+
+	/**
+	 * Defines the range of shards this instance of the bot connects, e.g. {@code 0-3}.
+	 *
+	 * @return The shard range if there is one set, {@code null} if there is none set.
+	 */
+	public String getShardRange() {
+		return environment.getProperty("DC_SHARD_RANGE");
+	}
+
 	/**
 	 * Defines the activity the bot shows when online.
 	 *
@@ -85,6 +104,26 @@ public class EnvSettings {
 		return environment.getProperty("FORUM_ROLE_API_URL", "");
 	}
 
+	/**
+	 * Defines the forum role members API URL that gets used to request the IDs of all forum users that have a
+	 * specific role. If set the periodic role update requests the members of each forum role instead of requesting
+	 * the roles of each member.
+	 *
+	 * @return The set forum role members API URL if there is one. If there is none set it returns an empty String.
+	 */
+	public String getForumRoleMembersApiUrl() {
+		return environment.getProperty("FORUM_ROLE_MEMBERS_API_URL", "");
+	}
+
+	/**
+	 * Defines the path of a local gzip compressed forum role snapshot that gets imported whenever it changes.
+	 *
+	 * @return The set snapshot path if there is one. If there is none set it returns an empty String.
+	 */
+	public String getForumRoleSnapshotPath() {
+		return environment.getProperty("FORUM_ROLE_SNAPSHOT_PATH", "");
+	}
+
 	/**
 	 * Defines the forum role API cooldown between requests that gets used to periodically update the Discord roles
 	 * of linked Discord users with the matching forum roles.
@@ -96,6 +135,140 @@ public class EnvSettings {
 		return environment.getProperty("FORUM_ROLE_API_DELAY_MS", "5000");
 	}
 
+	/**
+	 * Defines the maximum time in hours the roles of a member may stay unchecked. Members whose roles did not change
+	 * for a long time get checked less often, but at least once in this time.
+	 *
+	 * @return The maximum staleness in hours if set. If there is none set it returns "0" which checks every member
+	 * in every run.
+	 */
+	public String getForumRoleMaxStalenessHours() {
+		return environment.getProperty("FORUM_ROLE_MAX_STALENESS_HOURS", "0");
+	}
+
+	/**
+	 * Defines after how many minutes without a role update the roles of a member get refreshed when the member is
+	 * active (e.g. sends a message).
+	 *
+	 * @return The threshold in minutes if set. If there is none set it returns "0" which disables activity refreshes.
+	 */
+	public String getActivityRefreshMinutes() {
+		return environment.getProperty("FORUM_ROLE_ACTIVITY_REFRESH_MINUTES", "0");
+	}
+
+	/**
+	 * Defines where the roles of forum users get read from. Either {@code http} for the forum role API or
+	 * {@code jdbc} for a direct connection to the forum database.
+	 *
+	 * @return The set forum role source if there is one. If there is none set it returns {@code http}.
+	 */
+	public String getForumRoleSource() {
+		return environment.getProperty("FORUM_ROLE_SOURCE", "http");
+	}
+
+	/**
+	 * Defines the JDBC URL of the (read only) forum database if it is used as forum role source.
+	 *
+	 * @return The set forum database URL if there is one. If there is none set it returns an empty String.
+	 */
+	public String getForumDbUrl() {
+		return environment.getProperty("FORUM_DB_URL", "");
+	}
+
+	/**
+	 * Defines the user of the forum database.
+	 *
+	 * @return The set forum database user if there is one, {@code null} if there is none set.
+	 */
+	public String getForumDbUser() {
+		return environment.getProperty("FORUM_DB_USER");
+	}
+
+	/**
+	 * Defines the password of the forum database user.
+	 *
+	 * @return The set forum database password if there is one, {@code null} if there is none set.
+	 */
+	public String getForumDbPassword() {
+		return environment.getProperty("FORUM_DB_PASSWORD");
+	}
+
+	/**
+	 * Defines the SQL query that selects the forum ID and role ID of every role the users in {@code :ids} have.
+	 *
+	 * @return The set role query if there is one. If there is none set it returns an empty String.
+	 */
+	public String getForumDbRoleQuery() {
+		return environment.getProperty("FORUM_DB_ROLE_QUERY", "");
+	}
+
+	/**
+	 * Defines the SQL query that selects the forum IDs of all users with the role {@code :roleId}.
+	 *
+	 * @return The set role members query if there is one. If there is none set it returns an empty String.
+	 */
+	public String getForumDbRoleMembersQuery() {
+		return environment.getProperty("FORUM_DB_ROLE_MEMBERS_QUERY", "");
+	}
+
+	/**
+	 * Defines how many role changes, kicks and bans the bot may send to Discord per minute and guild. Actions above
+	 * this budget stay in the outbox until the guild has budget left.
+	 *
+	 * @return The amount of actions per minute and guild if set. If there is none set it returns the default of 60.
+	 */
+	public String getGuildActionsPerMinute() {
+		return environment.getProperty("DC_GUILD_ACTIONS_PER_MINUTE", "60");
+	}
+
+	/**
+	 * Defines the tick duration of the timing wheel that runs delayed actions of the bot. Delayed actions run at most
+	 * one tick late.
+	 *
+	 * @return The tick duration in milliseconds if set. If there is none set it returns the default of 100ms.
+	 */
+	public String getTimingWheelTickMs() {
+		return environment.getProperty("TIMING_WHEEL_TICK_MS", "100");
+	}
+
+	/**
+	 * Defines the file the tracing spans of the role synchronisation get written to, one JSON object per line.
+	 *
+	 * @return The path of the trace file if set or an empty String if none is set which disables tracing.
+	 */
+	public String getTraceFile() {
+		return environment.getProperty("TRACE_FILE", "");
+	}
+
+	/**
+	 * Defines the share of traces that get recorded, e.g. 0.1 records every tenth synchronisation.
+	 *
+	 * @return The share of recorded traces if set. If there is none set it returns the default of 1.
+	 */
+	public String getTraceSampleRatio() {
+		return environment.getProperty("TRACE_SAMPLE_RATIO", "1");
+	}
+
+	/**
+	 * Defines the amount of partitions the guilds get split into when several instances of the bot share a database.
+	 * Each instance only handles the guilds of the partitions it holds a lease for.
+	 *
+	 * @return The amount of partitions if set. If there is none set it returns the default of 1.
+	 */
+	public String getPartitionCount() {
+		return environment.getProperty("PARTITION_COUNT", "1");
+	}
+
+	/**
+	 * Defines the name this instance of the bot uses for its partition leases. Restarting an instance with the same
+	 * name lets it keep its partitions.
+	 *
+	 * @return The instance name if there is one set, {@code null} if there is none set.
+	 */
+	public String getInstanceId() {
+		return environment.getProperty("INSTANCE_ID");
+	}
+
 	/**
 	 * Defines the key that has to be used when trying to add a user via the bots' API.
 	 *
@@ -0,0 +1,107 @@
+package com.motorbesitzen.rolewatcher.bot.service;
+
+import com.motorbesitzen.rolewatcher.util.LogUtil;
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Optional;
+
+/**
+ * Controls a flight recording of the bot. The recording uses the default JDK settings and contains the events of the
+ * {@code com.motorbesitzen.rolewatcher.bot.jfr} package, so slow synchronisation cycles, forum requests, Discord
+ * actions and commands can be analysed in JDK Mission Control. Recordings get dumped to the {@code recordings}
+ * directory next to the bot.
+ */
+@Service
+public class FlightRecorderService {
+
+	private static final Path RECORDING_DIRECTORY = Paths.get("recordings");
+	private static final Duration MAX_AGE = Duration.ofHours(1);
+	private static final DateTimeFormatter FILE_TIME_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+	private Recording recording;
+
+	/**
+	 * Starts a new flight recording unless one is already running. The recording keeps the events of the last hour.
+	 *
+	 * @return {@code true} if a new recording got started, {@code false} if one is already running.
+	 * @throws IOException    if the default recording settings could not be read.
+	 * @throws ParseException if the default recording settings could not be parsed.
+	 */
+	public synchronized boolean start() throws IOException, ParseException {
+		if (isRecording()) {
+			return false;
+		}
+
+		recording = new Recording(Configuration.getConfiguration("default"));
+		recording.setName("RoleWatcher");
+		recording.setMaxAge(MAX_AGE);
+		recording.setToDisk(true);
+		recording.start();
+		LogUtil.logInfo("Started flight recording.");
+		return true;
+	}
+
+	/**
+	 * Dumps the events of the running recording to a file. The recording keeps running.
+	 *
+	 * @return The path of the dumped recording or an empty {@code Optional} if there is no running recording.
+	 * @throws IOException if the recording could not be written.
+	 */
+	public synchronized Optional<Path> dump() throws IOException {
+		if (!isRecording()) {
+			return Optional.empty();
+		}
+
+		Files.createDirectories(RECORDING_DIRECTORY);
+		final Path file = RECORDING_DIRECTORY.resolve("rolewatcher-" + LocalDateTime.now().format(FILE_TIME_FORMAT) + ".jfr");
+		recording.dump(file);
+		LogUtil.logInfo("Dumped flight recording to " + file.toAbsolutePath() + ".");
+		return Optional.of(file.toAbsolutePath());
+	}
+
+	/**
+	 * Dumps the running recording to a file and stops it.
+	 *
+	 * @return The path of the dumped recording or an empty {@code Optional} if there is no running recording.
+	 * @throws IOException if the recording could not be written.
+	 */
+	public synchronized Optional<Path> stop() throws IOException {
+		try {
+			return dump();
+		} finally {
+			close();
+		}
+	}
+
+	/**
+	 * Closes the recording when the application shuts down.
+	 */
+	@PreDestroy
+	synchronized void close() {
+		if (recording != null) {
+			recording.close();
+			recording = null;
+		}
+	}
+
+	/**
+	 * Checks if a recording is running.
+	 *
+	 * @return {@code true} if a recording is running.
+	 */
+	private boolean isRecording() {
+		return recording != null && recording.getState() == RecordingState.RUNNING;
+	}
+}
@@ -1,139 +1,640 @@
 package com.motorbesitzen.rolewatcher.bot.service;
 
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.motorbesitzen.rolewatcher.bot.jfr.ForumRoleFetchEvent;
+import com.motorbesitzen.rolewatcher.data.dao.DiscordUser;
 import com.motorbesitzen.rolewatcher.data.dao.ForumRole;
 import com.motorbesitzen.rolewatcher.data.dao.ForumUser;
 import com.motorbesitzen.rolewatcher.data.repo.ForumRoleRepo;
+import com.motorbesitzen.rolewatcher.util.LogUtil;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.context.Scope;
+import org.apache.http.Header;
 import org.apache.http.HttpEntity;
+import org.apache.http.HttpHeaders;
 import org.apache.http.HttpResponse;
-import org.apache.http.client.HttpClient;
+import org.apache.http.HttpStatus;
 import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpGet;
+import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.message.BasicHeader;
+import org.apache.http.util.EntityUtils;
+import org.msgpack.jackson.dataformat.MessagePackFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
-import java.io.BufferedReader;
+import javax.annotation.PreDestroy;
 import java.io.IOException;
-import java.io.InputStreamReader;
+import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
 
 /**
- * Class to perform forum API requests.
+ * Class to perform forum API requests. Concurrent requests for the roles of the same forum user get coalesced,
+ * so only the first caller sends a request to the forum and every other caller waits for its result.
  */
 @Service
-public class ForumRoleApiRequest {
+public class ForumRoleApiRequest implements ForumRoleSource {
 
 	private final EnvSettings envSettings;
 	private final ForumRoleRepo forumRoleRepo;
+	private final Map<Long, CompletableFuture<RoleResponse>> runningRequests;
+	private final Map<String, ResponseValidators> responseValidators;
+	private final AtomicLong validatorGeneration;
+	private final CloseableHttpClient httpClient;
+	private final SyncTracer syncTracer;
 
 	private static final int TIMEOUT_MS = 10000;
+	private static final int AWAIT_TIMEOUT_MS = 3 * TIMEOUT_MS;
+	private static final int MAX_CONNECTIONS = 10;
+	private static final int MAX_VALIDATORS = 100000;
+	private static final JsonFactory JSON_FACTORY = new JsonFactory();
+	private static final JsonFactory CBOR_FACTORY = new CBORFactory();
+	private static final JsonFactory MSGPACK_FACTORY = new MessagePackFactory();
+	private static final String ACCEPTED_TYPES = "application/cbor, application/x-msgpack;q=0.9, application/json;q=0.8";
+	private static final ThreadLocal<IdBuffer> ROLE_ID_BUFFER = ThreadLocal.withInitial(IdBuffer::new);
 
 	@Autowired
-	private ForumRoleApiRequest(final EnvSettings envSettings, final ForumRoleRepo forumRoleRepo) {
+	ForumRoleApiRequest(final EnvSettings envSettings, final ForumRoleRepo forumRoleRepo, final SyncTracer syncTracer) {
 		this.envSettings = envSettings;
 		this.forumRoleRepo = forumRoleRepo;
+		this.syncTracer = syncTracer;
+		this.runningRequests = new ConcurrentHashMap<>();
+		this.responseValidators = createValidatorCache();
+		this.validatorGeneration = new AtomicLong();
+		this.httpClient = buildHttpClient();
 	}
 
 	/**
-	 * Gets the forum roles for a specific user.
+	 * Creates the map of the validators of the last responses. The validators of the users that did not get
+	 * requested for the longest time get dropped once the map is full, those users just get their roles compared in
+	 * full again the next time.
+	 *
+	 * @return The synchronized map of the validators.
+	 */
+	private static Map<String, ResponseValidators> createValidatorCache() {
+		return Collections.synchronizedMap(new LinkedHashMap<String, ResponseValidators>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(final Map.Entry<String, ResponseValidators> eldest) {
+				return size() > MAX_VALIDATORS;
+			}
+		});
+	}
+
+	/**
+	 * Builds the HTTP client that gets shared by all requests, so connections to the forum can be reused.
+	 * The client asks for compact binary encodings (CBOR, MessagePack) before JSON and accepts gzip and deflate
+	 * compressed responses which it decompresses transparently.
+	 *
+	 * @return The HTTP client.
+	 */
+	private CloseableHttpClient buildHttpClient() {
+		final RequestConfig config = RequestConfig.custom()
+				.setConnectTimeout(TIMEOUT_MS)
+				.setConnectionRequestTimeout(TIMEOUT_MS)
+				.setSocketTimeout(TIMEOUT_MS)
+				.setContentCompressionEnabled(true)
+				.build();
+		return HttpClientBuilder.create()
+				.setDefaultRequestConfig(config)
+				.setDefaultHeaders(List.of(new BasicHeader(HttpHeaders.ACCEPT, ACCEPTED_TYPES)))
+				.setMaxConnPerRoute(MAX_CONNECTIONS)
+				.setMaxConnTotal(MAX_CONNECTIONS)
+				.build();
+	}
+
+	/**
+	 * Closes the HTTP client and its pooled connections when the application shuts down.
+	 */
+	@PreDestroy
+	private void closeHttpClient() {
+		try {
+			httpClient.close();
+		} catch (IOException e) {
+			LogUtil.logDebug("Could not close forum role API client.", e);
+		}
+	}
+
+	/**
+	 * Gets the forum roles for a specific user. If there already is a running request for the same user the
+	 * result of that request gets used instead of sending another request to the forum.
 	 *
 	 * @param forumUser The forum user to get the roles of.
 	 * @return The list of forum roles the user has.
 	 * @throws IOException If the roles can not be requested.
 	 */
+	@Override
 	public List<ForumRole> getRolesOfForumUser(final ForumUser forumUser) throws IOException {
+		return requestCoalesced(forumUser.getForumId(), null).getRoles();
+	}
+
+	/**
+	 * Requests the forum roles of a user unless there already is a running request for the same user, in that case
+	 * the result of that request gets used. A running conditional request that did not return any roles does not
+	 * tell anything about the roles of another caller, so the caller sends its own request afterwards.
+	 *
+	 * @param uid        The forum ID of the user.
+	 * @param validators The validators to send with the request or {@code null} to request the roles in any case.
+	 * @return The response of the forum.
+	 * @throws IOException If the roles can not be requested.
+	 */
+	private RoleResponse requestCoalesced(final long uid, final ResponseValidators validators) throws IOException {
+		while (true) {
+			final CompletableFuture<RoleResponse> newRequest = new CompletableFuture<>();
+			final CompletableFuture<RoleResponse> runningRequest = runningRequests.putIfAbsent(uid, newRequest);
+			if (runningRequest == null) {
+				return sendRequest(uid, validators, newRequest);
+			}
+
+			final RoleResponse runningResponse = awaitRunningRequest(runningRequest);
+			if (!runningResponse.isNotModified()) {
+				return runningResponse;
+			}
+
+			runningRequests.remove(uid, runningRequest);
+		}
+	}
+
+	/**
+	 * Sends the request of the roles of a user and passes the result to every caller that waits for it. The future
+	 * gets completed on any failure, even an {@code Error}, so no caller waits for a request that already ended.
+	 *
+	 * @param uid        The forum ID of the user.
+	 * @param validators The validators to send with the request or {@code null} to request the roles in any case.
+	 * @param newRequest The future the other callers wait for.
+	 * @return The response of the forum.
+	 * @throws IOException If the roles can not be requested.
+	 */
+	private RoleResponse sendRequest(final long uid, final ResponseValidators validators,
+									 final CompletableFuture<RoleResponse> newRequest) throws IOException {
+		try {
+			final RoleResponse response = requestRolesOfForumUser(uid, validators);
+			newRequest.complete(response.copy());
+			return response;
+		} catch (Throwable t) {
+			newRequest.completeExceptionally(t);
+			throw t;
+		} finally {
+			runningRequests.remove(uid, newRequest);
+		}
+	}
+
+	/**
+	 * Waits for the result of a request another caller already started for the same user. Every caller gets
+	 * its own copy of the roles as the callers may modify their list afterwards. Waits at most as long as the
+	 * timeouts of a single request add up to.
+	 *
+	 * @param runningRequest The request of the first caller.
+	 * @return The response of the forum.
+	 * @throws IOException If the running request failed or did not finish in time.
+	 */
+	private RoleResponse awaitRunningRequest(final CompletableFuture<RoleResponse> runningRequest) throws IOException {
+		try {
+			return runningRequest.get(AWAIT_TIMEOUT_MS, TimeUnit.MILLISECONDS).copy();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while waiting for the running role request.", e);
+		} catch (TimeoutException e) {
+			throw new IOException("Timed out waiting for the running role request.", e);
+		} catch (ExecutionException e) {
+			final Throwable cause = e.getCause();
+			if (cause instanceof IOException) {
+				throw (IOException) cause;
+			}
+
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+
+			throw new IOException("Running role request failed.", cause);
+		}
+	}
+
+	/**
+	 * Requests the forum roles of a user from the forum role API. If validators are given the forum may answer with
+	 * {@code 304 Not Modified}, the response does not get parsed at all in that case.
+	 *
+	 * @param uid        The forum ID of the user.
+	 * @param validators The validators to send with the request or {@code null} to request the roles in any case.
+	 * @return The response of the forum.
+	 * @throws IOException If the roles can not be requested.
+	 */
+	private RoleResponse requestRolesOfForumUser(final long uid, final ResponseValidators validators) throws IOException {
+		final long generation = validatorGeneration.get();
+		final HttpGet request = new HttpGet(getRoleApiUrl(uid));
+		if (validators != null) {
+			validators.addTo(request);
+		}
+
+		final Span span = startFetchSpan(uid);
+		final ForumRoleFetchEvent fetchEvent = new ForumRoleFetchEvent();
+		fetchEvent.begin();
+		try (Scope ignored = span.makeCurrent(); CloseableHttpResponse response = httpClient.execute(request)) {
+			recordResponse(fetchEvent, span, uid, response);
+			if (response.getStatusLine().getStatusCode() == HttpStatus.SC_NOT_MODIFIED) {
+				EntityUtils.consume(response.getEntity());
+				return RoleResponse.NOT_MODIFIED;
+			}
+
+			final IdBuffer roleIds = ROLE_ID_BUFFER.get();
+			readResponse(response, roleIds);
+			return new RoleResponse(convertRoleIdsToForumRoles(roleIds), ResponseValidators.of(response, generation));
+		} catch (IOException | RuntimeException e) {
+			syncTracer.recordError(span, e);
+			throw e;
+		} finally {
+			fetchEvent.commit();
+			span.end();
+		}
+	}
+
+	/**
+	 * Starts the tracing span of a request of the roles of a user.
+	 *
+	 * @param uid The forum ID of the user.
+	 * @return The started span.
+	 */
+	private Span startFetchSpan(final long uid) {
+		final Span span = syncTracer.startSpan("forum.fetch");
+		span.setAttribute("forum.id", uid);
+		return span;
+	}
+
+	/**
+	 * Adds the information about the response of the forum to the flight recorder event and the tracing span of the
+	 * request.
+	 *
+	 * @param fetchEvent The flight recorder event of the request.
+	 * @param span       The tracing span of the request.
+	 * @param uid        The forum ID of the user whose roles got requested.
+	 * @param response   The response of the forum.
+	 */
+	private void recordResponse(final ForumRoleFetchEvent fetchEvent, final Span span, final long uid,
+								final HttpResponse response) {
+		final int status = response.getStatusLine().getStatusCode();
+		final long bytes = response.getEntity() == null ? 0 : response.getEntity().getContentLength();
+		fetchEvent.setUid(uid);
+		fetchEvent.setStatus(status);
+		fetchEvent.setBytes(bytes);
+		span.setAttribute("http.status_code", status);
+		span.setAttribute("http.response_content_length", bytes);
+	}
+
+	/**
+	 * Builds the forum role API URL for a user.
+	 *
+	 * @param uid The forum ID of the user.
+	 * @return The URL to request the roles of the user from.
+	 */
+	private String getRoleApiUrl(final long uid) {
 		final String roleApi = envSettings.getForumRoleApiUrl();
 		if (roleApi.isBlank()) {
 			throw new IllegalStateException("Forum role API URL not set. Not able to receive forum roles!");
 		}
 
-		final long uid = forumUser.getForumId();
-		final String roleApiUrl = roleApi + "=" + uid;
-		final String roleIdsJson = getRoleIdsJson(roleApiUrl);
-		return convertJsonToForumRoles(roleIdsJson);
+		return roleApi + "=" + uid;
 	}
 
 	/**
-	 * Gets the raw JSON of the forum role API for a user.
+	 * Sends a conditional request with the {@code ETag}/{@code Last-Modified} value of the last response whose roles
+	 * got applied to the same member. If the forum answers with {@code 304 Not Modified} the response does not get
+	 * parsed at all. The validators of a new response only get used after the caller confirmed that it applied the
+	 * roles via {@link #confirmRolesApplied(ForumUser, long)}.
 	 *
-	 * @param userApiUrl The URL to request the users forum roles from.
-	 * @return The raw JSON representation of the roles.
-	 * @throws IOException if the roles can not be requested.
+	 * @param forumUser The forum user to get the roles of.
+	 * @param scopeId   The ID of the scope the roles get applied to, e.g. the ID of a guild.
+	 * @return The list of forum roles the user has or an empty {@code Optional} if the roles did not change.
+	 * @throws IOException If the roles can not be requested.
 	 */
-	private String getRoleIdsJson(String userApiUrl) throws IOException {
-		final RequestConfig config = RequestConfig.custom()
-				.setConnectTimeout(TIMEOUT_MS)
-				.setConnectionRequestTimeout(TIMEOUT_MS)
-				.setSocketTimeout(TIMEOUT_MS)
-				.build();
-		final HttpClient httpClient = HttpClientBuilder.create().setDefaultRequestConfig(config).build();
-		final HttpGet request = new HttpGet(userApiUrl);
-		final HttpResponse response = httpClient.execute(request);
+	@Override
+	public Optional<List<ForumRole>> getRolesOfForumUserIfChanged(final ForumUser forumUser, final long scopeId) throws IOException {
+		final String validatorKey = getValidatorKey(forumUser, scopeId);
+		final ResponseValidators validators = responseValidators.get(validatorKey);
+		final boolean usable = validators != null && validators.isUsable(validatorGeneration.get());
+		final RoleResponse response = requestCoalesced(forumUser.getForumId(), usable ? validators : null);
+		if (response.isNotModified()) {
+			return Optional.empty();
+		}
+
+		if (response.getValidators() != null) {
+			responseValidators.put(validatorKey, response.getValidators());
+		} else {
+			responseValidators.remove(validatorKey);
+		}
+
+		return Optional.of(response.getRoles());
+	}
+
+	/**
+	 * Marks the validators of the last response for the member as applied, so the next request for the member can
+	 * be answered with {@code 304 Not Modified}. Validators of a response that got requested before the forum roles
+	 * or the role mappings changed do not get applied.
+	 *
+	 * @param forumUser The forum user whose roles got applied.
+	 * @param scopeId   The ID of the scope the roles got applied to, e.g. the ID of a guild.
+	 */
+	@Override
+	public void confirmRolesApplied(final ForumUser forumUser, final long scopeId) {
+		final long generation = validatorGeneration.get();
+		responseValidators.computeIfPresent(
+				getValidatorKey(forumUser, scopeId),
+				(key, validators) -> validators.getGeneration() == generation ? validators.toApplied() : null
+		);
+	}
+
+	/**
+	 * Drops the validators of all responses, so the roles of every member get compared in full the next time.
+	 */
+	@Override
+	public void forgetAppliedRoles() {
+		validatorGeneration.incrementAndGet();
+		responseValidators.clear();
+	}
+
+	/**
+	 * The validators belong to the member the roles got applied to, a forum user that gets linked to another Discord
+	 * user needs its roles applied to the new Discord user even if the roles did not change.
+	 *
+	 * @param forumUser The forum user to get the roles of.
+	 * @param scopeId   The ID of the scope the roles get applied to, e.g. the ID of a guild.
+	 * @return The key of the validators of the member.
+	 */
+	private String getValidatorKey(final ForumUser forumUser, final long scopeId) {
+		final DiscordUser discordUser = forumUser.getLinkedDiscordUser();
+		final long discordId = discordUser == null ? 0 : discordUser.getDiscordId();
+		return forumUser.getForumId() + ":" + discordId + ":" + scopeId;
+	}
+
+	/**
+	 * Requests the forum roles of the users one by one as the forum role API only handles single users.
+	 *
+	 * @param forumIds The forum IDs of the users.
+	 * @param consumer Gets called with the forum ID and the forum roles of each user.
+	 */
+	@Override
+	public void streamRolesOfForumUsers(final List<Long> forumIds, final BiConsumer<Long, List<ForumRole>> consumer) {
+		for (long forumId : forumIds) {
+			try {
+				consumer.accept(forumId, requestRolesOfForumUser(forumId, null).getRoles());
+			} catch (IOException | IllegalArgumentException e) {
+				LogUtil.logError("Skipping user. Could not get roles of forum user " + forumId, e);
+			}
+		}
+	}
+
+	/**
+	 * Gets the forum IDs of all users that have a specific role on the forum. Needs the forum role members API
+	 * which answers with a JSON array of user IDs for a role ID.
+	 *
+	 * @param roleId The ID of the forum role.
+	 * @return The sorted forum IDs of all users with that role.
+	 * @throws IOException If the users can not be requested.
+	 */
+	@Override
+	public long[] getForumIdsWithRole(final long roleId) throws IOException {
+		final String roleMembersApi = envSettings.getForumRoleMembersApiUrl();
+		if (roleMembersApi.isBlank()) {
+			throw new IllegalStateException("Forum role members API URL not set. Not able to receive role members!");
+		}
+
+		final IdBuffer forumIds = new IdBuffer();
+		requestIds(roleMembersApi + "=" + roleId, forumIds);
+		final long[] sortedForumIds = forumIds.toArray();
+		Arrays.sort(sortedForumIds);
+		return sortedForumIds;
+	}
+
+	/**
+	 * @return {@code true} if the forum role members API URL is set.
+	 */
+	@Override
+	public boolean canRequestRoleMembers() {
+		return !envSettings.getForumRoleMembersApiUrl().isBlank();
+	}
+
+	/**
+	 * Requests a JSON array of IDs from the forum and reads it into the buffer.
+	 *
+	 * @param apiUrl The URL to request the IDs from.
+	 * @param ids    The buffer to fill with the IDs, gets cleared before reading.
+	 * @throws IOException if the IDs can not be requested.
+	 */
+	private void requestIds(final String apiUrl, final IdBuffer ids) throws IOException {
+		final HttpGet request = new HttpGet(apiUrl);
+		try (CloseableHttpResponse response = httpClient.execute(request)) {
+			readResponse(response, ids);
+		}
+	}
+
+	/**
+	 * Reads the array of IDs in the response into the buffer, encoded as JSON, CBOR or MessagePack.
+	 *
+	 * @param response The response of the forum.
+	 * @param ids      The buffer to fill with the IDs, gets cleared before reading.
+	 * @throws IOException if the response can not be read.
+	 */
+	private void readResponse(final HttpResponse response, final IdBuffer ids) throws IOException {
 		final HttpEntity entity = response.getEntity();
-		return readEntity(entity);
+		if (entity == null) {
+			throw new IllegalArgumentException("Could not convert IDs to long array! Response has no content.");
+		}
+
+		readIds(entity.getContent(), getParserFactory(entity), ids);
 	}
 
-	private String readEntity(final HttpEntity entity) throws IOException {
-		final BufferedReader reader = new BufferedReader(new InputStreamReader(entity.getContent()));
-		final StringBuilder sb = new StringBuilder();
-		String line;
-		while ((line = reader.readLine()) != null) {
-			sb.append(line);
+	/**
+	 * Chooses the parser for the encoding the forum answered with. Responses without a content type get parsed as
+	 * JSON. Checks that the forum did not answer with an HTML page (e.g. an error page of the web server) instead.
+	 *
+	 * @param entity The response entity.
+	 * @return The factory of the parser for the response.
+	 * @throws IllegalArgumentException if the response is HTML.
+	 */
+	private JsonFactory getParserFactory(final HttpEntity entity) throws IllegalArgumentException {
+		final Header contentType = entity.getContentType();
+		if (contentType == null) {
+			return JSON_FACTORY;
+		}
+
+		final String mimeType = contentType.getValue().toLowerCase();
+		if (mimeType.contains("html")) {
+			throw new IllegalArgumentException("Received \"" + contentType.getValue() + "\" instead of CBOR, MessagePack or JSON.");
 		}
-		reader.close();
-		return sb.toString();
+
+		if (mimeType.contains("cbor")) {
+			return CBOR_FACTORY;
+		}
+
+		if (mimeType.contains("msgpack")) {
+			return MSGPACK_FACTORY;
+		}
+
+		return JSON_FACTORY;
 	}
 
 	/**
-	 * Converts the JSON of the forum role API to {@link ForumRole} objects.
+	 * Reads the IDs of a JSON array like {@code [1, 4, 9]} directly from the response stream into the buffer.
+	 * IDs given as strings like {@code ["1", "4"]} get accepted as well. Closes the stream afterwards.
 	 *
-	 * @param roleIdsJson The raw JSON representation of the roles.
-	 * @return A list of {@link ForumRole}s the user has.
+	 * @param content The response stream.
+	 * @param ids     The buffer to fill with the IDs, gets cleared before reading.
+	 * @throws IOException              if the stream can not be read.
 	 * @throws IllegalArgumentException if the JSON is invalid.
 	 */
-	private List<ForumRole> convertJsonToForumRoles(final String roleIdsJson) throws IllegalArgumentException {
-		if (roleIdsJson == null) {
-			throw new IllegalArgumentException("Could not convert role ID JSON to integer array! JSON is null.");
+	static void readIds(final InputStream content, final IdBuffer ids) throws IOException {
+		readIds(content, JSON_FACTORY, ids);
+	}
+
+	/**
+	 * Reads the IDs of an array encoded in any format the factory can parse (JSON, CBOR or MessagePack) directly from
+	 * the response stream into the buffer. Error messages name the format of the factory. Closes the stream afterwards.
+	 *
+	 * @param content       The response stream.
+	 * @param parserFactory The factory of the parser for the encoding of the response.
+	 * @param ids           The buffer to fill with the IDs, gets cleared before reading.
+	 * @throws IOException              if the stream can not be read.
+	 * @throws IllegalArgumentException if the array is invalid.
+	 */
+	static void readIds(final InputStream content, final JsonFactory parserFactory, final IdBuffer ids) throws IOException {
+		ids.clear();
+		final String formatName = getFormatName(parserFactory);
+		try (JsonParser parser = parserFactory.createParser(content)) {
+			final JsonToken firstToken = parser.nextToken();
+			if (firstToken == null) {
+				throw new IllegalArgumentException("Could not convert ID " + formatName + " to long array! " + formatName + " is blank.");
+			}
+
+			if (firstToken != JsonToken.START_ARRAY) {
+				throw new IllegalArgumentException("Could not convert ID " + formatName + " to long array! " + formatName + " is not an array.");
+			}
+
+			readIdArray(parser, formatName, ids);
+		} catch (JsonProcessingException e) {
+			throw new IllegalArgumentException("Could not convert ID " + formatName + " to long array!", e);
 		}
+	}
 
-		if (roleIdsJson.isBlank()) {
-			throw new IllegalArgumentException("Could not convert role ID JSON to integer array! JSON is blank.");
+	/**
+	 * Gets the name of the format a parser factory reads for error messages.
+	 *
+	 * @param parserFactory The factory of the parser.
+	 * @return "CBOR", "MessagePack" or "JSON".
+	 */
+	private static String getFormatName(final JsonFactory parserFactory) {
+		if (parserFactory instanceof CBORFactory) {
+			return "CBOR";
 		}
 
-		if (roleIdsJson.startsWith("<html>")) {
-			throw new IllegalArgumentException("Received HTML instead of JSON.");
+		if (parserFactory instanceof MessagePackFactory) {
+			return "MessagePack";
 		}
 
-		try {
-			final ObjectMapper mapper = new ObjectMapper();
-			final long[] roleIds = mapper.readValue(roleIdsJson, long[].class);
-			return convertRoleIdsToForumRoles(roleIds);
-		} catch (JsonProcessingException e) {
-			throw new IllegalArgumentException("Could not convert role ID JSON to integer array! JSON: \"" + roleIdsJson + "\"", e);
+		return "JSON";
+	}
+
+	/**
+	 * Reads the IDs of an array into the buffer. The parser has to point at the start of the array and points at the
+	 * end of the array afterwards.
+	 *
+	 * @param parser     The parser pointing at the start of the array.
+	 * @param formatName The name of the format the parser reads, used in error messages.
+	 * @param ids        The buffer to add the IDs to.
+	 * @throws IOException              if the array can not be read.
+	 * @throws IllegalArgumentException if the array is not closed or contains an invalid ID.
+	 */
+	static void readIdArray(final JsonParser parser, final String formatName, final IdBuffer ids) throws IOException {
+		JsonToken token;
+		while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+			if (token == null) {
+				throw new IllegalArgumentException("Could not convert ID " + formatName + " to long array! Array is not closed.");
+			}
+
+			final long id = token == JsonToken.VALUE_NUMBER_INT || token == JsonToken.VALUE_STRING ?
+					parser.getValueAsLong(-1) : -1;
+			if (id == -1) {
+				throw new IllegalArgumentException("Could not convert ID " + formatName + " to long array! Invalid ID: \"" + parser.getText() + "\"");
+			}
+
+			ids.add(id);
 		}
 	}
 
 	/**
 	 * Finds the fitting {@link ForumRole}s for the given IDs.
 	 *
-	 * @param roleIds The {@code int[]} of role IDs.
+	 * @param roleIds The buffer of role IDs.
 	 * @return A list of {@link ForumRole}s.
 	 */
-	private List<ForumRole> convertRoleIdsToForumRoles(long[] roleIds) {
-		final List<ForumRole> matchingRoles = new ArrayList<>();
-		for (long roleId : roleIds) {
-			final Optional<ForumRole> roleOpt = forumRoleRepo.findById(roleId);
-			if (roleOpt.isEmpty()) {
-				continue;
+	private List<ForumRole> convertRoleIdsToForumRoles(final IdBuffer roleIds) {
+		final Span span = syncTracer.startSpan("forum.roles.resolve");
+		span.setAttribute("roles", roleIds.size());
+		try {
+			final List<ForumRole> matchingRoles = new ArrayList<>(roleIds.size());
+			for (int i = 0; i < roleIds.size(); i++) {
+				final Optional<ForumRole> roleOpt = forumRoleRepo.findById(roleIds.get(i));
+				if (roleOpt.isEmpty()) {
+					continue;
+				}
+
+				matchingRoles.add(roleOpt.get());
 			}
 
-			matchingRoles.add(roleOpt.get());
+			return matchingRoles;
+		} finally {
+			span.end();
 		}
+	}
+
+	/**
+	 * The roles and the validators of a forum response. A {@code 304 Not Modified} response has neither.
+	 */
+	private static final class RoleResponse {
 
-		return matchingRoles;
+		private static final RoleResponse NOT_MODIFIED = new RoleResponse(null, null);
+
+		private final List<ForumRole> roles;
+		private final ResponseValidators validators;
+
+		private RoleResponse(final List<ForumRole> roles, final ResponseValidators validators) {
+			this.roles = roles;
+			this.validators = validators;
+		}
+
+		/**
+		 * @return A response with its own copy of the roles as every caller may modify its list.
+		 */
+		private RoleResponse copy() {
+			return isNotModified() ? this : new RoleResponse(new ArrayList<>(roles), validators);
+		}
+
+		private boolean isNotModified() {
+			return roles == null;
+		}
+
+		private List<ForumRole> getRoles() {
+			return roles;
+		}
+
+		private ResponseValidators getValidators() {
+			return validators;
+		}
 	}
 }
@@ -0,0 +1,158 @@
+package com.motorbesitzen.rolewatcher.bot.service;
+
+import com.motorbesitzen.rolewatcher.data.dao.DiscordGuild;
+import com.motorbesitzen.rolewatcher.data.dao.DiscordUser;
+import com.motorbesitzen.rolewatcher.data.dao.ForumRole;
+import com.motorbesitzen.rolewatcher.data.dao.ForumUser;
+import com.motorbesitzen.rolewatcher.data.repo.DiscordGuildRepo;
+import com.motorbesitzen.rolewatcher.data.repo.ForumRoleRepo;
+import com.motorbesitzen.rolewatcher.data.repo.ForumUserRepo;
+import com.motorbesitzen.rolewatcher.util.LogUtil;
+import com.motorbesitzen.rolewatcher.util.RoleUtil;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.context.Scope;
+import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.entities.Member;
+import net.dv8tion.jda.api.sharding.ShardManager;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Applies role changes the forum reports for a single user to all guilds with the role sync permission, so the roles
+ * do not have to wait for the next periodic role update.
+ */
+@Service
+public class ForumRoleChangeHandler {
+
+	private final ShardManager shardManager;
+	private final EnvSettings envSettings;
+	private final ForumUserRepo forumUserRepo;
+	private final ForumRoleRepo forumRoleRepo;
+	private final DiscordGuildRepo guildRepo;
+	private final DiscordActionOutbox actionOutbox;
+	private final SyncTracer syncTracer;
+
+	@Autowired
+	private ForumRoleChangeHandler(final ShardManager shardManager, final EnvSettings envSettings, final ForumUserRepo forumUserRepo,
+								   final ForumRoleRepo forumRoleRepo, final DiscordGuildRepo guildRepo,
+								   final DiscordActionOutbox actionOutbox, final SyncTracer syncTracer) {
+		this.shardManager = shardManager;
+		this.envSettings = envSettings;
+		this.forumUserRepo = forumUserRepo;
+		this.forumRoleRepo = forumRoleRepo;
+		this.guildRepo = guildRepo;
+		this.actionOutbox = actionOutbox;
+		this.syncTracer = syncTracer;
+	}
+
+	/**
+	 * Applies the new forum roles of a forum user to the linked Discord user in all guilds with the role sync
+	 * permission. Bans the user if the new roles contain the banned role. Role IDs that do not belong to a known
+	 * forum role get ignored. The change gets traced until the role changes got recorded in each guild.
+	 *
+	 * @param forumId The forum ID of the user.
+	 * @param roleIds The IDs of all roles the user has on the forum now.
+	 * @return {@code true} if the user is linked and the change got applied, {@code false} if the user is unknown.
+	 */
+	public boolean applyRoleChange(final long forumId, final List<Long> roleIds) {
+		final Span span = syncTracer.startSpan("forum.role.change");
+		span.setAttribute("forum.id", forumId);
+		try (Scope ignored = span.makeCurrent()) {
+			final boolean linked = applyRoleChangeToGuilds(forumId, roleIds);
+			span.setAttribute("linked", linked);
+			return linked;
+		} finally {
+			span.end();
+		}
+	}
+
+	/**
+	 * Applies the new forum roles of a forum user to the linked Discord user in all guilds with the role sync
+	 * permission.
+	 *
+	 * @param forumId The forum ID of the user.
+	 * @param roleIds The IDs of all roles the user has on the forum now.
+	 * @return {@code true} if the user is linked and the change got applied, {@code false} if the user is unknown.
+	 */
+	private boolean applyRoleChangeToGuilds(final long forumId, final List<Long> roleIds) {
+		final Optional<ForumUser> forumUserOpt = forumUserRepo.findById(forumId);
+		if (forumUserOpt.isEmpty()) {
+			return false;
+		}
+
+		final ForumUser forumUser = forumUserOpt.get();
+		final DiscordUser dcUser = forumUser.getLinkedDiscordUser();
+		if (dcUser == null) {
+			return false;
+		}
+
+		if (dcUser.isWhitelisted()) {
+			return true;
+		}
+
+		final boolean banned = roleIds.contains(RoleUtil.getBannedRoleId(envSettings));
+		final List<ForumRole> forumRoles = getForumRoles(roleIds);
+		final Context context = Context.current();
+		for (DiscordGuild dcGuild : guildRepo.findAll()) {
+			if (!dcGuild.hasRoleSyncPerm()) {
+				continue;
+			}
+
+			final Guild guild = shardManager.getGuildById(dcGuild.getGuildId());
+			if (guild == null) {
+				continue;
+			}
+
+			guild.retrieveMemberById(dcUser.getDiscordId()).queue(
+					member -> {
+						try (Scope ignored = context.makeCurrent()) {
+							applyToMember(forumUser, member, forumRoles, banned);
+						}
+					},
+					throwable -> LogUtil.logDebug("User {} is not a member of \"{}\".", forumUser, guild.getName())
+			);
+		}
+
+		return true;
+	}
+
+	/**
+	 * Gets the known forum roles for the given role IDs.
+	 *
+	 * @param roleIds The IDs of the roles.
+	 * @return A list of the known forum roles.
+	 */
+	private List<ForumRole> getForumRoles(final List<Long> roleIds) {
+		final List<ForumRole> forumRoles = new ArrayList<>();
+		for (long roleId : roleIds) {
+			forumRoleRepo.findById(roleId).ifPresent(forumRoles::add);
+		}
+
+		return forumRoles;
+	}
+
+	/**
+	 * Bans the member if the user has the banned role, otherwise updates the roles of the member.
+	 *
+	 * @param forumUser  The matching forum user to the member.
+	 * @param member     The member to update.
+	 * @param forumRoles The forum roles of the user.
+	 * @param banned     If the user has the banned role on the forum.
+	 */
+	private void applyToMember(final ForumUser forumUser, final Member member, final List<ForumRole> forumRoles,
+							   final boolean banned) {
+		if (banned) {
+			LogUtil.logDebug(() -> "Banning member " + member.getUser().getAsTag() + " (" + member.getId() + ") from \"" +
+					member.getGuild().getName() + "\" due to a role change on the forum.");
+			actionOutbox.ban(member, "User (" + forumUser.getForumId() + ") has the banned role on the forum. Might be a temporary ban.");
+			return;
+		}
+
+		actionOutbox.updateRoles(member, forumRoles, forumRoleRepo.findAll());
+	}
+}
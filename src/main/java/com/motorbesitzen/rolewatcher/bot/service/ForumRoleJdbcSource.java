@@ -0,0 +1,167 @@
+package com.motorbesitzen.rolewatcher.bot.service;
+
+import com.motorbesitzen.rolewatcher.data.dao.ForumRole;
+import com.motorbesitzen.rolewatcher.data.dao.ForumUser;
+import com.motorbesitzen.rolewatcher.data.repo.ForumRoleRepo;
+import com.motorbesitzen.rolewatcher.util.LogUtil;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.util.*;
+import java.util.function.BiConsumer;
+
+/**
+ * Reads the roles of forum users directly from the (read only) database of the forum or a replica of it. The roles
+ * of many users get read with a single query per batch instead of one request per user.
+ * <p>
+ * The role query has to return the forum ID of the user in the first and the ID of a role in the second column
+ * for every role of the users in {@code :ids}, e.g.
+ * {@code SELECT user_id, role_id FROM user_roles WHERE user_id IN (:ids)}. The role members query has to return the
+ * forum IDs of all users with the role {@code :roleId} in the first column, e.g.
+ * {@code SELECT user_id FROM user_roles WHERE role_id = :roleId}.
+ */
+public class ForumRoleJdbcSource implements ForumRoleSource, AutoCloseable {
+
+	private static final int BATCH_SIZE = 500;
+	private static final int FETCH_SIZE = 1000;
+
+	private final DataSource dataSource;
+	private final NamedParameterJdbcTemplate jdbcTemplate;
+	private final String roleQuery;
+	private final String roleMembersQuery;
+	private final ForumRoleRepo forumRoleRepo;
+
+	/**
+	 * Creates a source that reads the roles from the given database.
+	 *
+	 * @param dataSource       The database of the forum.
+	 * @param roleQuery        The query for the roles of the users in {@code :ids}.
+	 * @param roleMembersQuery The query for the members of the role {@code :roleId}, may be blank.
+	 * @param forumRoleRepo    The repository of the known forum roles.
+	 */
+	public ForumRoleJdbcSource(final DataSource dataSource, final String roleQuery, final String roleMembersQuery,
+							   final ForumRoleRepo forumRoleRepo) {
+		this.dataSource = dataSource;
+		this.jdbcTemplate = new NamedParameterJdbcTemplate(dataSource);
+		this.jdbcTemplate.getJdbcTemplate().setFetchSize(FETCH_SIZE);
+		this.roleQuery = roleQuery;
+		this.roleMembersQuery = roleMembersQuery;
+		this.forumRoleRepo = forumRoleRepo;
+	}
+
+	@Override
+	public List<ForumRole> getRolesOfForumUser(final ForumUser forumUser) throws IOException {
+		final List<ForumRole> forumRoles = new ArrayList<>();
+		streamRolesOfForumUsers(List.of(forumUser.getForumId()), (forumId, roles) -> forumRoles.addAll(roles));
+		return forumRoles;
+	}
+
+	/**
+	 * Reads the forum roles of the users in batches of {@value BATCH_SIZE} users per query. Users without any row
+	 * get passed without roles.
+	 *
+	 * @param forumIds The forum IDs of the users.
+	 * @param consumer Gets called with the forum ID and the forum roles of each user.
+	 * @throws IOException If the database can not be queried.
+	 */
+	@Override
+	public void streamRolesOfForumUsers(final List<Long> forumIds, final BiConsumer<Long, List<ForumRole>> consumer) throws IOException {
+		final Map<Long, ForumRole> knownRoles = getKnownRoles();
+		for (int i = 0; i < forumIds.size(); i += BATCH_SIZE) {
+			final List<Long> batch = forumIds.subList(i, Math.min(i + BATCH_SIZE, forumIds.size()));
+			final Map<Long, List<ForumRole>> batchRoles = queryRoles(batch, knownRoles);
+			for (long forumId : batch) {
+				consumer.accept(forumId, batchRoles.getOrDefault(forumId, new ArrayList<>()));
+			}
+		}
+	}
+
+	/**
+	 * Gets all known forum roles by their ID. Role IDs of the forum that do not belong to a known role get ignored.
+	 *
+	 * @return A map of role IDs to the known forum roles.
+	 */
+	private Map<Long, ForumRole> getKnownRoles() {
+		final Map<Long, ForumRole> knownRoles = new HashMap<>();
+		for (ForumRole forumRole : forumRoleRepo.findAll()) {
+			knownRoles.put(forumRole.getRoleId(), forumRole);
+		}
+
+		return knownRoles;
+	}
+
+	/**
+	 * Queries the roles of a batch of users.
+	 *
+	 * @param batch      The forum IDs of the users in the batch.
+	 * @param knownRoles The known forum roles by ID.
+	 * @return The known forum roles of the users by forum ID.
+	 * @throws IOException If the database can not be queried.
+	 */
+	private Map<Long, List<ForumRole>> queryRoles(final List<Long> batch, final Map<Long, ForumRole> knownRoles) throws IOException {
+		final Map<Long, List<ForumRole>> batchRoles = new HashMap<>();
+		try {
+			jdbcTemplate.query(roleQuery, Map.of("ids", batch), resultSet -> {
+				final ForumRole forumRole = knownRoles.get(resultSet.getLong(2));
+				if (forumRole != null) {
+					batchRoles.computeIfAbsent(resultSet.getLong(1), forumId -> new ArrayList<>()).add(forumRole);
+				}
+			});
+		} catch (DataAccessException e) {
+			throw new IOException("Could not query the roles of " + batch.size() + " forum users.", e);
+		}
+
+		return batchRoles;
+	}
+
+	@Override
+	public long[] getForumIdsWithRole(final long roleId) throws IOException {
+		if (!canRequestRoleMembers()) {
+			throw new IllegalStateException("Forum role members query not set. Not able to receive role members!");
+		}
+
+		final IdBuffer forumIds = new IdBuffer();
+		try {
+			jdbcTemplate.query(roleMembersQuery, Map.of("roleId", roleId), resultSet -> {
+				forumIds.add(resultSet.getLong(1));
+			});
+		} catch (DataAccessException e) {
+			throw new IOException("Could not query the members of role " + roleId + ".", e);
+		}
+
+		final long[] sortedForumIds = forumIds.toArray();
+		Arrays.sort(sortedForumIds);
+		return sortedForumIds;
+	}
+
+	/**
+	 * @return {@code true} if the role members query is set.
+	 */
+	@Override
+	public boolean canRequestRoleMembers() {
+		return roleMembersQuery != null && !roleMembersQuery.isBlank();
+	}
+
+	@Override
+	public boolean prefersBatches() {
+		return true;
+	}
+
+	/**
+	 * Closes the connections to the forum database when the application shuts down.
+	 */
+	@Override
+	public void close() {
+		if (!(dataSource instanceof AutoCloseable)) {
+			return;
+		}
+
+		try {
+			((AutoCloseable) dataSource).close();
+		} catch (Exception e) {
+			LogUtil.logDebug("Could not close forum database connections.", e);
+		}
+	}
+}
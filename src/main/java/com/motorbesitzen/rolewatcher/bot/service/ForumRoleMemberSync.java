@@ -0,0 +1,272 @@
+package com.motorbesitzen.rolewatcher.bot.service;
+
+import com.motorbesitzen.rolewatcher.data.dao.ForumRole;
+import com.motorbesitzen.rolewatcher.data.dao.ForumUser;
+import com.motorbesitzen.rolewatcher.data.repo.ForumRoleRepo;
+import com.motorbesitzen.rolewatcher.data.repo.ForumUserRepo;
+import com.motorbesitzen.rolewatcher.util.LogUtil;
+import com.motorbesitzen.rolewatcher.util.RoleUtil;
+import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.entities.Member;
+import net.dv8tion.jda.api.entities.Role;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Synchronises the roles role by role instead of member by member. The members of each forum role get requested once
+ * per cycle and get compared to the members of each guild, so a cycle needs one request per forum role instead of one
+ * request per member.
+ */
+@Service
+public class ForumRoleMemberSync {
+
+	private final EnvSettings envSettings;
+	private final ForumUserRepo forumUserRepo;
+	private final ForumRoleRepo forumRoleRepo;
+	private final ForumRoleSource roleSource;
+	private final DiscordActionOutbox actionOutbox;
+	private final HashedTimingWheel timingWheel;
+
+	@Autowired
+	ForumRoleMemberSync(final EnvSettings envSettings, final ForumUserRepo forumUserRepo,
+						final ForumRoleRepo forumRoleRepo, final ForumRoleSource roleSource,
+						final DiscordActionOutbox actionOutbox, final HashedTimingWheel timingWheel) {
+		this.envSettings = envSettings;
+		this.forumUserRepo = forumUserRepo;
+		this.forumRoleRepo = forumRoleRepo;
+		this.roleSource = roleSource;
+		this.actionOutbox = actionOutbox;
+		this.timingWheel = timingWheel;
+	}
+
+	/**
+	 * Checks if the forum role source can provide the members of a role, so roles can be synchronised role by role.
+	 *
+	 * @return {@code true} if the members of a role can be requested.
+	 */
+	public boolean isEnabled() {
+		return roleSource.canRequestRoleMembers();
+	}
+
+	/**
+	 * Requests the members of all forum roles and of the banned role. Waits the given delay between the requests
+	 * without blocking a thread, each request runs on the executor once the timing wheel expired the delay. If the
+	 * members of a role can not be requested the role does not get synchronised in this cycle, so no member loses a
+	 * role due to an unavailable forum.
+	 *
+	 * @param delayMs  The delay between requests in milliseconds.
+	 * @param executor The executor to send the requests on.
+	 * @return The members of all forum roles that could be requested once all requests finished.
+	 */
+	public CompletableFuture<ForumRoleMembers> requestRoleMembers(final long delayMs, final Executor executor) {
+		final RoleMembersRequest request = new RoleMembersRequest(delayMs, executor);
+		executor.execute(request::start);
+		return request.result;
+	}
+
+	/**
+	 * Requests the forum IDs of all users with the banned role if there is a banned role set.
+	 *
+	 * @return The sorted forum IDs of all banned users, an empty array if there is no banned role or if the request fails.
+	 */
+	private long[] requestBannedForumIds() {
+		final long bannedRoleId = RoleUtil.getBannedRoleId(envSettings);
+		if (bannedRoleId == -1) {
+			return new long[0];
+		}
+
+		try {
+			return roleSource.getForumIdsWithRole(bannedRoleId);
+		} catch (IOException | IllegalArgumentException e) {
+			LogUtil.logError("Could not get members of the banned role (" + bannedRoleId + ").", e);
+			return new long[0];
+		}
+	}
+
+	/**
+	 * Gets all linked forum users by the ID of their Discord account.
+	 *
+	 * @return A map of Discord IDs to the linked forum users.
+	 */
+	public Map<Long, ForumUser> getLinkedUsers() {
+		final Map<Long, ForumUser> linkedUsers = new HashMap<>();
+		for (ForumUser forumUser : forumUserRepo.findAll()) {
+			if (forumUser.getLinkedDiscordUser() == null) {
+				continue;
+			}
+
+			linkedUsers.put(forumUser.getLinkedDiscordUser().getDiscordId(), forumUser);
+		}
+
+		return linkedUsers;
+	}
+
+	/**
+	 * Updates the roles of all linked members of a guild role by role and bans linked members that have the banned
+	 * role on the forum. Whitelisted members do not get changed.
+	 *
+	 * @param guild       The guild to update.
+	 * @param members     The members of the guild.
+	 * @param roleMembers The members of all forum roles.
+	 * @param linkedUsers All linked forum users by the ID of their Discord account.
+	 * @return The members of the guild that are not linked to a forum account.
+	 */
+	public List<Member> syncGuild(final Guild guild, final List<Member> members, final ForumRoleMembers roleMembers,
+								  final Map<Long, ForumUser> linkedUsers) {
+		final List<Member> unlinkedMembers = new ArrayList<>();
+		final List<Member> linkedMembers = new ArrayList<>();
+		final List<ForumUser> linkedForumUsers = new ArrayList<>();
+		for (Member member : members) {
+			final ForumUser forumUser = linkedUsers.get(member.getIdLong());
+			if (forumUser == null) {
+				unlinkedMembers.add(member);
+				continue;
+			}
+
+			if (forumUser.getLinkedDiscordUser().isWhitelisted()) {
+				continue;
+			}
+
+			if (roleMembers.isBanned(forumUser.getForumId())) {
+				banMember(forumUser, member);
+				continue;
+			}
+
+			linkedMembers.add(member);
+			linkedForumUsers.add(forumUser);
+		}
+
+		for (String roleName : roleMembers.getRoleNames()) {
+			final List<Role> matchingRoles = guild.getRolesByName(roleName, true);
+			if (matchingRoles.size() == 0) {
+				continue;
+			}
+
+			final Role matchingRole = matchingRoles.get(0);
+			if (!guild.getSelfMember().canInteract(matchingRole)) {
+				LogUtil.logDebug("Can not assign role \"{}\" to members. Move bot role above that role!", matchingRole.getName());
+				continue;
+			}
+
+			syncRole(matchingRole, roleName, linkedMembers, linkedForumUsers, roleMembers);
+		}
+
+		return unlinkedMembers;
+	}
+
+	/**
+	 * Adds the Discord role to all linked members that have the forum role and removes it from all linked members
+	 * that do not have the forum role.
+	 *
+	 * @param role             The Discord role matching the forum role.
+	 * @param roleName         The (lower case) name of the forum role.
+	 * @param linkedMembers    The linked members of the guild.
+	 * @param linkedForumUsers The forum users of the linked members in the same order.
+	 * @param roleMembers      The members of all forum roles.
+	 */
+	private void syncRole(final Role role, final String roleName, final List<Member> linkedMembers,
+						  final List<ForumUser> linkedForumUsers, final ForumRoleMembers roleMembers) {
+		for (int i = 0; i < linkedMembers.size(); i++) {
+			final Member member = linkedMembers.get(i);
+			final boolean hasForumRole = roleMembers.hasRole(roleName, linkedForumUsers.get(i).getForumId());
+			final boolean hasDiscordRole = member.getRoles().contains(role);
+			if (hasForumRole && !hasDiscordRole) {
+				actionOutbox.addRole(member, role);
+			} else if (!hasForumRole && hasDiscordRole) {
+				actionOutbox.removeRole(member, role);
+			}
+		}
+	}
+
+	/**
+	 * Records the ban of the member in the outbox and logs it.
+	 *
+	 * @param forumUser The matching forum user to the member.
+	 * @param member    The member to ban.
+	 */
+	private void banMember(final ForumUser forumUser, final Member member) {
+		LogUtil.logDebug(() ->
+				"Banning member " + member.getUser().getAsTag() + " (" + member.getId() + ") from \"" +
+						member.getGuild().getName() + "\" (" + member.getGuild().getId() + ") " +
+						"due to having the banned role. User is linked to " + forumUser + "."
+		);
+		actionOutbox.ban(member, "User (" + forumUser.getForumId() + ") has the banned role on the forum. Might be a temporary ban.");
+	}
+
+	/**
+	 * The state of the requests of the members of all forum roles in a cycle. Only one request runs at a time, the
+	 * next one gets scheduled on the timing wheel when the previous one finished.
+	 */
+	private final class RoleMembersRequest {
+
+		private final long delayMs;
+		private final Executor executor;
+		private final Map<String, List<long[]>> forumIdsByRoleName;
+		private final Set<String> failedRoleNames;
+		private final CompletableFuture<ForumRoleMembers> result;
+		private Iterator<ForumRole> forumRoles;
+
+		private RoleMembersRequest(final long delayMs, final Executor executor) {
+			this.delayMs = delayMs;
+			this.executor = executor;
+			this.forumIdsByRoleName = new HashMap<>();
+			this.failedRoleNames = new HashSet<>();
+			this.result = new CompletableFuture<>();
+		}
+
+		/**
+		 * Loads the forum roles and requests the members of the first one.
+		 */
+		private void start() {
+			try {
+				forumRoles = forumRoleRepo.findAll().iterator();
+			} catch (RuntimeException e) {
+				result.completeExceptionally(e);
+				return;
+			}
+
+			requestNext();
+		}
+
+		/**
+		 * Requests the members of the next forum role and schedules the request after it. Requests the members of the
+		 * banned role and completes the result once the members of all forum roles got requested.
+		 */
+		private void requestNext() {
+			try {
+				if (!forumRoles.hasNext()) {
+					forumIdsByRoleName.keySet().removeAll(failedRoleNames);
+					result.complete(new ForumRoleMembers(forumIdsByRoleName, requestBannedForumIds()));
+					return;
+				}
+
+				requestMembers(forumRoles.next());
+				timingWheel.schedule(() -> executor.execute(this::requestNext), delayMs, TimeUnit.MILLISECONDS);
+			} catch (RuntimeException e) {
+				result.completeExceptionally(e);
+			}
+		}
+
+		/**
+		 * Requests the members of a forum role. Remembers the name of the role if the request fails.
+		 *
+		 * @param forumRole The forum role.
+		 */
+		private void requestMembers(final ForumRole forumRole) {
+			final String roleName = forumRole.getRoleName().toLowerCase();
+			try {
+				final long[] forumIds = roleSource.getForumIdsWithRole(forumRole.getRoleId());
+				forumIdsByRoleName.computeIfAbsent(roleName, name -> new ArrayList<>()).add(forumIds);
+			} catch (IOException | IllegalArgumentException e) {
+				LogUtil.logError("Skipping role \"" + forumRole.getRoleName() + "\" (" + forumRole.getRoleId() + "). Could not get members of role.", e);
+				failedRoleNames.add(roleName);
+			}
+		}
+	}
+}
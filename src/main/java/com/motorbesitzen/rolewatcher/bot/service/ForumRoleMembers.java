@@ -0,0 +1,57 @@
+package com.motorbesitzen.rolewatcher.bot.service;
+
+import java.util.*;
+
+/**
+ * The forum IDs of all users that have a specific forum role, grouped by the name of the forum role as forum roles
+ * get matched to Discord roles by their name. Forum roles with the same name get merged.
+ */
+public final class ForumRoleMembers {
+
+	private final Map<String, List<long[]>> forumIdsByRoleName;
+	private final long[] bannedForumIds;
+
+	ForumRoleMembers(final Map<String, List<long[]>> forumIdsByRoleName, final long[] bannedForumIds) {
+		this.forumIdsByRoleName = forumIdsByRoleName;
+		this.bannedForumIds = bannedForumIds;
+	}
+
+	/**
+	 * @return The (lower case) names of all forum roles whose members are known.
+	 */
+	public Set<String> getRoleNames() {
+		return Collections.unmodifiableSet(forumIdsByRoleName.keySet());
+	}
+
+	/**
+	 * Checks if a forum user has a forum role with the given name.
+	 *
+	 * @param roleName The (lower case) name of the forum role.
+	 * @param forumId  The forum ID of the user.
+	 * @return {@code true} if the user has any forum role with that name.
+	 */
+	public boolean hasRole(final String roleName, final long forumId) {
+		final List<long[]> forumIdLists = forumIdsByRoleName.get(roleName);
+		if (forumIdLists == null) {
+			return false;
+		}
+
+		for (long[] forumIds : forumIdLists) {
+			if (Arrays.binarySearch(forumIds, forumId) >= 0) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * Checks if a forum user has the banned role on the forum.
+	 *
+	 * @param forumId The forum ID of the user.
+	 * @return {@code true} if the user has the banned role, {@code false} if not or if there is no banned role set.
+	 */
+	public boolean isBanned(final long forumId) {
+		return Arrays.binarySearch(bannedForumIds, forumId) >= 0;
+	}
+}
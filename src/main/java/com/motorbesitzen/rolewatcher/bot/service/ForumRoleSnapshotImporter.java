@@ -0,0 +1,308 @@
+package com.motorbesitzen.rolewatcher.bot.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.motorbesitzen.rolewatcher.util.LogUtil;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Imports gzip compressed forum role snapshots (one {@code {"uid": 1234, "roleids": [1, 4]}} object per line, sorted
+ * by {@code uid}) and compares them to the previous snapshot. Only users whose roles changed get their roles updated.
+ * Snapshots get streamed, so memory usage does not depend on the size of the snapshot. The changed users get collected
+ * in a temporary file and only get updated once the whole snapshot is valid.
+ */
+@Service
+public class ForumRoleSnapshotImporter {
+
+	private static final long LOCAL_CHECK_INTERVAL_MINUTES = 10;
+	private static final int CHANGE_QUEUE_SIZE = 1000;
+	private static final int BUFFER_SIZE = 65536;
+	private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+	private final Path previousSnapshot;
+	private final EnvSettings envSettings;
+	private final ForumRoleChangeHandler changeHandler;
+	private final ScheduledExecutorService scheduler;
+	private final ExecutorService changeExecutor;
+	private final ReentrantLock importLock;
+	private long lastLocalModified;
+
+	@Autowired
+	private ForumRoleSnapshotImporter(final EnvSettings envSettings, final ForumRoleChangeHandler changeHandler) {
+		this(Paths.get("data", "role_snapshot.ndjson.gz"), envSettings, changeHandler);
+	}
+
+	ForumRoleSnapshotImporter(final Path previousSnapshot, final EnvSettings envSettings, final ForumRoleChangeHandler changeHandler) {
+		this.previousSnapshot = previousSnapshot;
+		this.envSettings = envSettings;
+		this.changeHandler = changeHandler;
+		this.scheduler = Executors.newSingleThreadScheduledExecutor();
+		// a full queue makes the import apply the change itself, so a big diff can not fill the memory
+		this.changeExecutor = new ThreadPoolExecutor(
+				1, 1, 0L, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<>(CHANGE_QUEUE_SIZE), new ThreadPoolExecutor.CallerRunsPolicy()
+		);
+		this.importLock = new ReentrantLock();
+		this.lastLocalModified = 0;
+	}
+
+	/**
+	 * Starts checking the local snapshot file for changes if a local snapshot path is set.
+	 */
+	public void start() {
+		final String localPath = envSettings.getForumRoleSnapshotPath();
+		if (localPath.isBlank()) {
+			return;
+		}
+
+		LogUtil.logDebug("Checking local role snapshot \"" + localPath + "\" every " + LOCAL_CHECK_INTERVAL_MINUTES + " minutes...");
+		scheduler.scheduleWithFixedDelay(() -> importLocalSnapshot(Paths.get(localPath)), 0, LOCAL_CHECK_INTERVAL_MINUTES, TimeUnit.MINUTES);
+	}
+
+	/**
+	 * Stops the local snapshot checks and the role updates of changed users when the application shuts down.
+	 */
+	@PreDestroy
+	private void shutdown() {
+		scheduler.shutdownNow();
+		changeExecutor.shutdownNow();
+	}
+
+	/**
+	 * Imports the local snapshot if it changed since the last import.
+	 *
+	 * @param localSnapshot The path of the local snapshot.
+	 */
+	private void importLocalSnapshot(final Path localSnapshot) {
+		try {
+			if (!Files.isRegularFile(localSnapshot)) {
+				return;
+			}
+
+			final long lastModified = Files.getLastModifiedTime(localSnapshot).toMillis();
+			if (lastModified == lastLocalModified) {
+				return;
+			}
+
+			try (InputStream content = Files.newInputStream(localSnapshot)) {
+				final RoleSnapshotDiff diff = importSnapshot(content);
+				LogUtil.logInfo("Imported local role snapshot with " + diff.getUserCount() + " users, " + diff.getChangedCount() + " changed.");
+			}
+
+			lastLocalModified = lastModified;
+		} catch (IOException | RuntimeException e) {
+			LogUtil.logError("Could not import local role snapshot \"" + localSnapshot + "\".", e);
+		}
+	}
+
+	/**
+	 * Imports a gzip compressed snapshot and updates the roles of all users whose roles changed since the previous
+	 * snapshot. Users that are not in the snapshot anymore get treated as users without roles. The snapshot only
+	 * replaces the previous one if it could be read completely, an invalid snapshot thus gets compared to the same
+	 * previous snapshot again on the next import. No roles get updated for an invalid snapshot.
+	 *
+	 * @param gzipContent The gzip compressed snapshot.
+	 * @return The amount of users and changed users.
+	 * @throws IOException                    if the snapshot can not be read or stored.
+	 * @throws IllegalArgumentException       if the snapshot is invalid or not sorted by {@code uid}.
+	 * @throws SnapshotImportRunningException if another snapshot import is running.
+	 */
+	public RoleSnapshotDiff importSnapshot(final InputStream gzipContent) throws IOException {
+		if (!importLock.tryLock()) {
+			throw new SnapshotImportRunningException();
+		}
+
+		try {
+			return doImport(gzipContent);
+		} finally {
+			importLock.unlock();
+		}
+	}
+
+	/**
+	 * Writes the snapshot and the changed users to temporary files while comparing it to the previous snapshot.
+	 * Replaces the previous snapshot with it afterwards and only then queues the role updates of the changed users.
+	 *
+	 * @param gzipContent The gzip compressed snapshot.
+	 * @return The amount of users and changed users.
+	 * @throws IOException if the snapshot can not be read or stored.
+	 */
+	private RoleSnapshotDiff doImport(final InputStream gzipContent) throws IOException {
+		final Path directory = previousSnapshot.toAbsolutePath().getParent();
+		Files.createDirectories(directory);
+		final Path newSnapshot = Files.createTempFile(directory, "role_snapshot", ".tmp");
+		final Path changes = Files.createTempFile(directory, "role_changes", ".tmp");
+		try {
+			final RoleSnapshotDiff diff;
+			try (RoleSnapshotReader current = new RoleSnapshotReader(new GZIPInputStream(gzipContent, BUFFER_SIZE));
+				 RoleSnapshotReader previous = openPreviousSnapshot();
+				 JsonGenerator generator = createSnapshotGenerator(newSnapshot);
+				 JsonGenerator changeGenerator = createSnapshotGenerator(changes)) {
+				diff = diffSnapshots(previous, current, generator, entry -> writeEntry(changeGenerator, entry));
+			} catch (IOException | RuntimeException e) {
+				Files.deleteIfExists(newSnapshot);
+				throw e;
+			}
+
+			Files.move(newSnapshot, previousSnapshot, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			queueChanges(changes);
+			return diff;
+		} finally {
+			Files.deleteIfExists(changes);
+		}
+	}
+
+	/**
+	 * Creates a generator that writes a gzip compressed snapshot with one user per line.
+	 *
+	 * @param file The file to write the snapshot to.
+	 * @return The generator.
+	 * @throws IOException if the file can not be opened.
+	 */
+	private JsonGenerator createSnapshotGenerator(final Path file) throws IOException {
+		final JsonGenerator generator = JSON_FACTORY.createGenerator(new GZIPOutputStream(Files.newOutputStream(file), BUFFER_SIZE));
+		generator.setRootValueSeparator(new SerializedString("\n"));
+		return generator;
+	}
+
+	/**
+	 * Opens the previous snapshot or an empty snapshot if there was no import yet.
+	 *
+	 * @return A reader for the previous snapshot.
+	 * @throws IOException if the previous snapshot can not be read.
+	 */
+	private RoleSnapshotReader openPreviousSnapshot() throws IOException {
+		if (!Files.isRegularFile(previousSnapshot)) {
+			return new RoleSnapshotReader(InputStream.nullInputStream());
+		}
+
+		return new RoleSnapshotReader(new GZIPInputStream(Files.newInputStream(previousSnapshot), BUFFER_SIZE));
+	}
+
+	/**
+	 * Merges two snapshots that are sorted by {@code uid}. Writes every user of the current snapshot to the output and
+	 * passes every user whose roles differ from the previous snapshot to {@code onChange}. Users that are only in the
+	 * previous snapshot get passed without roles.
+	 *
+	 * @param previous The previous snapshot.
+	 * @param current  The current snapshot.
+	 * @param output   The output for the current snapshot.
+	 * @param onChange Gets called for every user whose roles changed.
+	 * @return The amount of users in the current snapshot and the amount of changed users.
+	 * @throws IOException if a snapshot can not be read or written.
+	 */
+	static RoleSnapshotDiff diffSnapshots(final RoleSnapshotReader previous, final RoleSnapshotReader current,
+										  final JsonGenerator output, final ChangeConsumer onChange) throws IOException {
+		int userCount = 0;
+		int changedCount = 0;
+		RoleSnapshotEntry previousEntry = previous.next();
+		RoleSnapshotEntry currentEntry = current.next();
+		while (previousEntry != null || currentEntry != null) {
+			if (currentEntry == null || (previousEntry != null && previousEntry.getUid() < currentEntry.getUid())) {
+				onChange.accept(new RoleSnapshotEntry(previousEntry.getUid(), new long[0]));
+				changedCount++;
+				previousEntry = previous.next();
+				continue;
+			}
+
+			writeEntry(output, currentEntry);
+			userCount++;
+			if (previousEntry == null || currentEntry.getUid() < previousEntry.getUid()) {
+				onChange.accept(currentEntry);
+				changedCount++;
+			} else {
+				if (!currentEntry.hasSameRoles(previousEntry)) {
+					onChange.accept(currentEntry);
+					changedCount++;
+				}
+
+				previousEntry = previous.next();
+			}
+
+			currentEntry = current.next();
+		}
+
+		return new RoleSnapshotDiff(userCount, changedCount);
+	}
+
+	/**
+	 * Writes a user as a snapshot line.
+	 *
+	 * @param output The output of the snapshot.
+	 * @param entry  The user to write.
+	 * @throws IOException if the snapshot can not be written.
+	 */
+	private static void writeEntry(final JsonGenerator output, final RoleSnapshotEntry entry) throws IOException {
+		output.writeStartObject();
+		output.writeNumberField("uid", entry.getUid());
+		output.writeFieldName("roleids");
+		output.writeArray(entry.getRoleIds(), 0, entry.getRoleIds().length);
+		output.writeEndObject();
+	}
+
+	/**
+	 * Queues the role updates of the changed users in the order of the snapshot.
+	 *
+	 * @param changes The gzip compressed file of the changed users.
+	 * @throws IOException if the file can not be read.
+	 */
+	private void queueChanges(final Path changes) throws IOException {
+		try (RoleSnapshotReader reader = new RoleSnapshotReader(new GZIPInputStream(Files.newInputStream(changes), BUFFER_SIZE))) {
+			RoleSnapshotEntry entry;
+			while ((entry = reader.next()) != null) {
+				queueChange(entry);
+			}
+		}
+	}
+
+	/**
+	 * Queues the role update of a changed user.
+	 *
+	 * @param entry The changed user.
+	 */
+	private void queueChange(final RoleSnapshotEntry entry) {
+		final List<Long> roleIds = new ArrayList<>(entry.getRoleIds().length);
+		for (long roleId : entry.getRoleIds()) {
+			roleIds.add(roleId);
+		}
+
+		changeExecutor.execute(() -> {
+			try {
+				changeHandler.applyRoleChange(entry.getUid(), roleIds);
+			} catch (RuntimeException e) {
+				LogUtil.logError("Could not apply role change of forum user " + entry.getUid() + ".", e);
+			}
+		});
+	}
+
+	/**
+	 * Receives the users whose roles changed while comparing two snapshots.
+	 */
+	@FunctionalInterface
+	interface ChangeConsumer {
+
+		/**
+		 * Receives a changed user.
+		 *
+		 * @param entry The changed user with the new roles.
+		 * @throws IOException if the change can not be stored.
+		 */
+		void accept(RoleSnapshotEntry entry) throws IOException;
+	}
+}
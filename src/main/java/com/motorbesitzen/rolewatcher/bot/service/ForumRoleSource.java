@@ -0,0 +1,103 @@
+package com.motorbesitzen.rolewatcher.bot.service;
+
+import com.motorbesitzen.rolewatcher.data.dao.ForumRole;
+import com.motorbesitzen.rolewatcher.data.dao.ForumUser;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.BiConsumer;
+
+/**
+ * A source of the roles forum users have, e.g. the forum role API or the database of the forum.
+ */
+public interface ForumRoleSource {
+
+	/**
+	 * Gets the forum roles of a single user.
+	 *
+	 * @param forumUser The forum user to get the roles of.
+	 * @return The list of forum roles the user has.
+	 * @throws IOException If the roles can not be requested.
+	 */
+	List<ForumRole> getRolesOfForumUser(ForumUser forumUser) throws IOException;
+
+	/**
+	 * Gets the forum roles of a single user if they changed since the last call for the same user and scope. Sources
+	 * that can not tell if the roles changed always return the roles.
+	 *
+	 * @param forumUser The forum user to get the roles of.
+	 * @param scopeId   The ID of the scope the roles get applied to, e.g. the ID of a guild.
+	 * @return The list of forum roles the user has or an empty {@code Optional} if the roles did not change.
+	 * @throws IOException If the roles can not be requested.
+	 */
+	default Optional<List<ForumRole>> getRolesOfForumUserIfChanged(final ForumUser forumUser, final long scopeId) throws IOException {
+		return Optional.of(getRolesOfForumUser(forumUser));
+	}
+
+	/**
+	 * Confirms that the roles {@link #getRolesOfForumUserIfChanged(ForumUser, long)} returned for the user and scope
+	 * got applied, so the next call can report the roles as unchanged. Needs to be called after the role changes got
+	 * recorded, otherwise roles that never got applied could be reported as unchanged.
+	 *
+	 * @param forumUser The forum user whose roles got applied.
+	 * @param scopeId   The ID of the scope the roles got applied to, e.g. the ID of a guild.
+	 */
+	default void confirmRolesApplied(final ForumUser forumUser, final long scopeId) {
+	}
+
+	/**
+	 * Forgets which roles got applied, so {@link #getRolesOfForumUserIfChanged(ForumUser, long)} returns the roles
+	 * of every user again. Needs to be called if the forum roles or their mapping to Discord roles change as the
+	 * same forum roles lead to other Discord roles afterwards.
+	 */
+	default void forgetAppliedRoles() {
+	}
+
+	/**
+	 * Gets the forum roles of multiple users and passes them to the consumer as soon as they are available, so the
+	 * roles of all users do not have to be kept in memory at once. Users whose roles can not be requested do not get
+	 * passed to the consumer.
+	 *
+	 * @param forumIds The forum IDs of the users.
+	 * @param consumer Gets called with the forum ID and the forum roles of each user.
+	 * @throws IOException If the roles can not be requested at all.
+	 */
+	void streamRolesOfForumUsers(List<Long> forumIds, BiConsumer<Long, List<ForumRole>> consumer) throws IOException;
+
+	/**
+	 * Gets the forum roles of multiple users.
+	 *
+	 * @param forumIds The forum IDs of the users.
+	 * @return The forum roles of each user by forum ID. Users whose roles can not be requested are missing.
+	 * @throws IOException If the roles can not be requested at all.
+	 */
+	default Map<Long, List<ForumRole>> getRolesOfForumUsers(final List<Long> forumIds) throws IOException {
+		final Map<Long, List<ForumRole>> rolesOfUsers = new HashMap<>();
+		streamRolesOfForumUsers(forumIds, rolesOfUsers::put);
+		return rolesOfUsers;
+	}
+
+	/**
+	 * Gets the forum IDs of all users that have a specific role on the forum.
+	 *
+	 * @param roleId The ID of the forum role.
+	 * @return The sorted forum IDs of all users with that role.
+	 * @throws IOException If the users can not be requested.
+	 */
+	long[] getForumIdsWithRole(long roleId) throws IOException;
+
+	/**
+	 * @return {@code true} if the source can provide the members of a role via {@link #getForumIdsWithRole(long)}.
+	 */
+	boolean canRequestRoleMembers();
+
+	/**
+	 * @return {@code true} if requesting the roles of many users at once is cheaper than requesting them one by one.
+	 */
+	default boolean prefersBatches() {
+		return false;
+	}
+}
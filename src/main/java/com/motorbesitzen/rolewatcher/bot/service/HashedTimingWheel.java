@@ -0,0 +1,319 @@
+package com.motorbesitzen.rolewatcher.bot.service;
+
+import com.motorbesitzen.rolewatcher.util.LogUtil;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs delayed actions of the bot with a hashed timing wheel. Scheduling and cancelling an action is O(1) regardless
+ * of the amount of pending actions, actions run on the tick they are due in, so they run at most one tick late.
+ * Actions run on the thread of the wheel and should only hand off work (e.g. queue a JDA request).
+ */
+public class HashedTimingWheel {
+
+	private final long tickMs;
+	private final Bucket[] buckets;
+	private final int mask;
+	private final Queue<Timeout> addedTimeouts;
+	private final Queue<Timeout> cancelledTimeouts;
+	private final AtomicInteger pendingCount;
+	private final Thread worker;
+	private final long startTime;
+	private volatile boolean running;
+	private long tick;
+
+	/**
+	 * Creates and starts a timing wheel.
+	 *
+	 * @param tickMs    The duration of one tick in milliseconds, at least 1.
+	 * @param wheelSize The amount of buckets of the wheel, gets rounded up to the next power of two.
+	 */
+	public HashedTimingWheel(final long tickMs, final int wheelSize) {
+		this.tickMs = Math.max(1, tickMs);
+		this.buckets = new Bucket[roundUpToPowerOfTwo(wheelSize)];
+		for (int i = 0; i < buckets.length; i++) {
+			buckets[i] = new Bucket();
+		}
+
+		this.mask = buckets.length - 1;
+		this.addedTimeouts = new ConcurrentLinkedQueue<>();
+		this.cancelledTimeouts = new ConcurrentLinkedQueue<>();
+		this.pendingCount = new AtomicInteger(0);
+		this.startTime = System.nanoTime();
+		this.running = true;
+		this.tick = 0;
+		this.worker = new Thread(this::work, "timing-wheel");
+		this.worker.setDaemon(true);
+		this.worker.start();
+	}
+
+	/**
+	 * Rounds a number up to the next power of two.
+	 *
+	 * @param value The number to round, at least 1.
+	 * @return The smallest power of two that is not below the number.
+	 */
+	private static int roundUpToPowerOfTwo(final int value) {
+		int size = 1;
+		while (size < value && size < (1 << 30)) {
+			size <<= 1;
+		}
+
+		return size;
+	}
+
+	/**
+	 * Schedules an action to run after a delay.
+	 *
+	 * @param action The action to run.
+	 * @param delay  The delay until the action should run.
+	 * @param unit   The unit of the delay.
+	 * @return The scheduled action which can be used to cancel it.
+	 */
+	public Timeout schedule(final Runnable action, final long delay, final TimeUnit unit) {
+		final long deadline = System.nanoTime() - startTime + unit.toNanos(Math.max(0, delay));
+		final Timeout timeout = new Timeout(this, action, deadline);
+		pendingCount.incrementAndGet();
+		addedTimeouts.add(timeout);
+		return timeout;
+	}
+
+	/**
+	 * Gets the amount of actions that did not run yet.
+	 *
+	 * @return The amount of pending actions.
+	 */
+	public int getPendingCount() {
+		return pendingCount.get();
+	}
+
+	/**
+	 * Stops the wheel. Pending actions do not run anymore.
+	 */
+	public void stop() {
+		running = false;
+		worker.interrupt();
+	}
+
+	/**
+	 * Advances the wheel tick by tick and runs the actions that are due.
+	 */
+	private void work() {
+		while (running) {
+			if (!waitForNextTick()) {
+				return;
+			}
+
+			removeCancelledTimeouts();
+			addNewTimeouts();
+			buckets[(int) (tick & mask)].expireTimeouts(tickDeadline());
+			tick++;
+		}
+	}
+
+	/**
+	 * Gets the end of the current tick relative to the start of the wheel.
+	 *
+	 * @return The end of the current tick in nanoseconds.
+	 */
+	private long tickDeadline() {
+		return TimeUnit.MILLISECONDS.toNanos(tickMs * (tick + 1));
+	}
+
+	/**
+	 * Sleeps until the current tick ended.
+	 *
+	 * @return {@code true} if the tick ended, {@code false} if the wheel got stopped.
+	 */
+	private boolean waitForNextTick() {
+		final long deadline = tickDeadline();
+		while (running) {
+			final long sleepMs = TimeUnit.NANOSECONDS.toMillis(deadline - (System.nanoTime() - startTime) + 999999);
+			if (sleepMs <= 0) {
+				return true;
+			}
+
+			try {
+				Thread.sleep(sleepMs);
+			} catch (InterruptedException e) {
+				if (!running) {
+					return false;
+				}
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * Moves the newly scheduled actions into the buckets they are due in.
+	 */
+	private void addNewTimeouts() {
+		Timeout timeout;
+		while ((timeout = addedTimeouts.poll()) != null) {
+			if (timeout.isCancelled()) {
+				continue;
+			}
+
+			final long dueTick = Math.max(tick, timeout.deadline / TimeUnit.MILLISECONDS.toNanos(tickMs));
+			timeout.remainingRounds = (dueTick - tick) / buckets.length;
+			buckets[(int) (dueTick & mask)].add(timeout);
+		}
+	}
+
+	/**
+	 * Removes cancelled actions from their buckets.
+	 */
+	private void removeCancelledTimeouts() {
+		Timeout timeout;
+		while ((timeout = cancelledTimeouts.poll()) != null) {
+			if (timeout.bucket != null) {
+				timeout.bucket.remove(timeout);
+			}
+		}
+	}
+
+	/**
+	 * A scheduled action that can be cancelled before it runs.
+	 */
+	public static final class Timeout {
+
+		private static final int STATE_PENDING = 0;
+		private static final int STATE_CANCELLED = 1;
+		private static final int STATE_EXPIRED = 2;
+
+		private final HashedTimingWheel wheel;
+		private final Runnable action;
+		private final long deadline;
+		private final AtomicInteger state;
+		private long remainingRounds;
+		private Bucket bucket;
+		private Timeout previous;
+		private Timeout next;
+
+		private Timeout(final HashedTimingWheel wheel, final Runnable action, final long deadline) {
+			this.wheel = wheel;
+			this.action = action;
+			this.deadline = deadline;
+			this.state = new AtomicInteger(STATE_PENDING);
+		}
+
+		/**
+		 * Cancels the action if it did not run yet.
+		 *
+		 * @return {@code true} if the action got cancelled, {@code false} if it already ran or got cancelled.
+		 */
+		public boolean cancel() {
+			if (!state.compareAndSet(STATE_PENDING, STATE_CANCELLED)) {
+				return false;
+			}
+
+			wheel.pendingCount.decrementAndGet();
+			wheel.cancelledTimeouts.add(this);
+			return true;
+		}
+
+		/**
+		 * Checks if the action got cancelled.
+		 *
+		 * @return {@code true} if the action got cancelled.
+		 */
+		public boolean isCancelled() {
+			return state.get() == STATE_CANCELLED;
+		}
+
+		/**
+		 * Runs the action unless it got cancelled.
+		 */
+		private void expire() {
+			if (!state.compareAndSet(STATE_PENDING, STATE_EXPIRED)) {
+				return;
+			}
+
+			wheel.pendingCount.decrementAndGet();
+			try {
+				action.run();
+			} catch (Exception e) {
+				LogUtil.logError("Delayed action failed.", e);
+			}
+		}
+	}
+
+	/**
+	 * A doubly linked list of the actions that end up in the same slot of the wheel. Only used by the wheel thread.
+	 */
+	private static final class Bucket {
+
+		private Timeout head;
+		private Timeout tail;
+
+		/**
+		 * Appends an action to the bucket.
+		 *
+		 * @param timeout The action.
+		 */
+		private void add(final Timeout timeout) {
+			timeout.bucket = this;
+			if (head == null) {
+				head = timeout;
+			} else {
+				tail.next = timeout;
+				timeout.previous = tail;
+			}
+
+			tail = timeout;
+		}
+
+		/**
+		 * Runs all actions of this bucket that are due in the current round.
+		 *
+		 * @param deadline The end of the current tick in nanoseconds.
+		 */
+		private void expireTimeouts(final long deadline) {
+			Timeout timeout = head;
+			while (timeout != null) {
+				final Timeout next = timeout.next;
+				if (timeout.remainingRounds <= 0 && timeout.deadline <= deadline) {
+					remove(timeout);
+					timeout.expire();
+				} else if (timeout.isCancelled()) {
+					remove(timeout);
+				} else {
+					timeout.remainingRounds--;
+				}
+
+				timeout = next;
+			}
+		}
+
+		/**
+		 * Removes an action from the bucket.
+		 *
+		 * @param timeout The action.
+		 */
+		private void remove(final Timeout timeout) {
+			if (timeout.bucket != this) {
+				return;
+			}
+
+			if (timeout.previous != null) {
+				timeout.previous.next = timeout.next;
+			} else {
+				head = timeout.next;
+			}
+
+			if (timeout.next != null) {
+				timeout.next.previous = timeout.previous;
+			} else {
+				tail = timeout.previous;
+			}
+
+			timeout.previous = null;
+			timeout.next = null;
+			timeout.bucket = null;
+		}
+	}
+}
@@ -0,0 +1,71 @@
+package com.motorbesitzen.rolewatcher.bot.service;
+
+import java.util.Arrays;
+
+/**
+ * A growing buffer of primitive (role or user) IDs. The role ID buffer gets reused between forum role requests of the
+ * same thread, so parsing a response neither boxes the IDs nor allocates a new array for each request.
+ */
+final class IdBuffer {
+
+	private static final int INITIAL_CAPACITY = 16;
+
+	private long[] ids;
+	private int size;
+
+	IdBuffer() {
+		this.ids = new long[INITIAL_CAPACITY];
+		this.size = 0;
+	}
+
+	/**
+	 * Adds an ID to the end of the buffer. Grows the buffer if it is full.
+	 *
+	 * @param id The ID to add.
+	 */
+	void add(final long id) {
+		if (size == ids.length) {
+			ids = Arrays.copyOf(ids, size * 2);
+		}
+
+		ids[size++] = id;
+	}
+
+	/**
+	 * Gets the ID at the given position.
+	 *
+	 * @param index The position of the ID in the buffer.
+	 * @return The ID.
+	 * @throws IndexOutOfBoundsException if the index is not inside the filled part of the buffer.
+	 */
+	long get(final int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + size);
+		}
+
+		return ids[index];
+	}
+
+	/**
+	 * @return The amount of IDs in the buffer.
+	 */
+	int size() {
+		return size;
+	}
+
+	/**
+	 * Copies the IDs in the buffer to a new array.
+	 *
+	 * @return An array of all IDs in the buffer.
+	 */
+	long[] toArray() {
+		return Arrays.copyOf(ids, size);
+	}
+
+	/**
+	 * Empties the buffer without shrinking it.
+	 */
+	void clear() {
+		size = 0;
+	}
+}
@@ -0,0 +1,144 @@
+package com.motorbesitzen.rolewatcher.bot.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.motorbesitzen.rolewatcher.util.LogUtil;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.trace.data.EventData;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Writes finished spans to a file, one JSON object per line. The format is OTLP-like: the field names follow the OTLP
+ * JSON encoding, but each line is a single span without the resource and scope wrappers of an OTLP export request and
+ * attributes are written as a plain object. The file is meant for offline analysis, an OpenTelemetry collector does
+ * not accept it without converting it first.
+ */
+class JsonLinesSpanExporter implements SpanExporter {
+
+	private static final JsonFactory JSON_FACTORY = new JsonFactory().disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+	private final Writer writer;
+
+	JsonLinesSpanExporter(final Path file) throws IOException {
+		final Path directory = file.toAbsolutePath().getParent();
+		if (directory != null) {
+			Files.createDirectories(directory);
+		}
+
+		this.writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+	}
+
+	@Override
+	public synchronized CompletableResultCode export(final Collection<SpanData> spans) {
+		try {
+			for (SpanData span : spans) {
+				writeSpan(span);
+				writer.write('\n');
+			}
+
+			writer.flush();
+			return CompletableResultCode.ofSuccess();
+		} catch (IOException e) {
+			LogUtil.logWarning("Could not write " + spans.size() + " spans to the trace file: " + e.getMessage());
+			return CompletableResultCode.ofFailure();
+		}
+	}
+
+	@Override
+	public synchronized CompletableResultCode flush() {
+		try {
+			writer.flush();
+			return CompletableResultCode.ofSuccess();
+		} catch (IOException e) {
+			return CompletableResultCode.ofFailure();
+		}
+	}
+
+	@Override
+	public synchronized CompletableResultCode shutdown() {
+		try {
+			writer.close();
+			return CompletableResultCode.ofSuccess();
+		} catch (IOException e) {
+			return CompletableResultCode.ofFailure();
+		}
+	}
+
+	/**
+	 * Writes a span as a single JSON object without a line break.
+	 *
+	 * @param span The finished span.
+	 * @throws IOException if the span could not be written.
+	 */
+	private void writeSpan(final SpanData span) throws IOException {
+		try (JsonGenerator generator = JSON_FACTORY.createGenerator(writer)) {
+			generator.writeStartObject();
+			generator.writeStringField("traceId", span.getTraceId());
+			generator.writeStringField("spanId", span.getSpanId());
+			if (span.getParentSpanContext().isValid()) {
+				generator.writeStringField("parentSpanId", span.getParentSpanId());
+			}
+
+			generator.writeStringField("name", span.getName());
+			generator.writeStringField("kind", span.getKind().name());
+			generator.writeNumberField("startTimeUnixNano", span.getStartEpochNanos());
+			generator.writeNumberField("endTimeUnixNano", span.getEndEpochNanos());
+			generator.writeFieldName("attributes");
+			writeAttributes(generator, span.getAttributes());
+			generator.writeArrayFieldStart("events");
+			for (EventData event : span.getEvents()) {
+				generator.writeStartObject();
+				generator.writeStringField("name", event.getName());
+				generator.writeNumberField("timeUnixNano", event.getEpochNanos());
+				generator.writeFieldName("attributes");
+				writeAttributes(generator, event.getAttributes());
+				generator.writeEndObject();
+			}
+
+			generator.writeEndArray();
+			generator.writeObjectFieldStart("status");
+			generator.writeStringField("code", span.getStatus().getStatusCode().name());
+			generator.writeStringField("message", span.getStatus().getDescription());
+			generator.writeEndObject();
+			generator.writeEndObject();
+		}
+	}
+
+	/**
+	 * Writes attributes as a JSON object of their keys and values.
+	 *
+	 * @param generator  The generator to write with.
+	 * @param attributes The attributes of a span or an event.
+	 * @throws IOException if the attributes could not be written.
+	 */
+	private void writeAttributes(final JsonGenerator generator, final Attributes attributes) throws IOException {
+		generator.writeStartObject();
+		for (Map.Entry<AttributeKey<?>, Object> attribute : attributes.asMap().entrySet()) {
+			final String key = attribute.getKey().getKey();
+			final Object value = attribute.getValue();
+			if (value instanceof Boolean) {
+				generator.writeBooleanField(key, (Boolean) value);
+			} else if (value instanceof Long) {
+				generator.writeNumberField(key, (Long) value);
+			} else if (value instanceof Double) {
+				generator.writeNumberField(key, (Double) value);
+			} else {
+				generator.writeStringField(key, String.valueOf(value));
+			}
+		}
+
+		generator.writeEndObject();
+	}
+}
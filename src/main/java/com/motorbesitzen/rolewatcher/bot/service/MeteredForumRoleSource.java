@@ -0,0 +1,124 @@
+package com.motorbesitzen.rolewatcher.bot.service;
+
+import com.motorbesitzen.rolewatcher.data.dao.ForumRole;
+import com.motorbesitzen.rolewatcher.data.dao.ForumUser;
+import io.micrometer.core.instrument.Timer;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+
+/**
+ * Records the latency and the errors of each request to another forum role source.
+ */
+public class MeteredForumRoleSource implements ForumRoleSource, AutoCloseable {
+
+	private final ForumRoleSource source;
+	private final SyncMetrics syncMetrics;
+
+	public MeteredForumRoleSource(final ForumRoleSource source, final SyncMetrics syncMetrics) {
+		this.source = source;
+		this.syncMetrics = syncMetrics;
+	}
+
+	@Override
+	public List<ForumRole> getRolesOfForumUser(final ForumUser forumUser) throws IOException {
+		final Timer.Sample sample = syncMetrics.startTimer();
+		try {
+			final List<ForumRole> forumRoles = source.getRolesOfForumUser(forumUser);
+			syncMetrics.recordForumRequest(sample, "user", null);
+			return forumRoles;
+		} catch (IOException | RuntimeException e) {
+			syncMetrics.recordForumRequest(sample, "user", e);
+			throw e;
+		}
+	}
+
+	@Override
+	public Optional<List<ForumRole>> getRolesOfForumUserIfChanged(final ForumUser forumUser, final long scopeId) throws IOException {
+		final Timer.Sample sample = syncMetrics.startTimer();
+		try {
+			final Optional<List<ForumRole>> forumRolesOpt = source.getRolesOfForumUserIfChanged(forumUser, scopeId);
+			syncMetrics.recordForumRequest(sample, "user", null);
+			return forumRolesOpt;
+		} catch (IOException | RuntimeException e) {
+			syncMetrics.recordForumRequest(sample, "user", e);
+			throw e;
+		}
+	}
+
+	@Override
+	public void confirmRolesApplied(final ForumUser forumUser, final long scopeId) {
+		source.confirmRolesApplied(forumUser, scopeId);
+	}
+
+	@Override
+	public void forgetAppliedRoles() {
+		source.forgetAppliedRoles();
+	}
+
+	/**
+	 * Streams the roles of the forum users from the wrapped source. The time the consumer needs to handle the roles
+	 * does not count towards the latency of the request.
+	 *
+	 * @param forumIds The forum IDs of the users.
+	 * @param consumer Gets called with the forum ID and the roles of each user.
+	 * @throws IOException if the wrapped source can not get the roles.
+	 */
+	@Override
+	public void streamRolesOfForumUsers(final List<Long> forumIds, final BiConsumer<Long, List<ForumRole>> consumer) throws IOException {
+		final long startedAt = System.nanoTime();
+		final AtomicLong consumerNanos = new AtomicLong(0);
+		try {
+			source.streamRolesOfForumUsers(forumIds, (forumId, forumRoles) -> {
+				final long consumerStartedAt = System.nanoTime();
+				try {
+					consumer.accept(forumId, forumRoles);
+				} finally {
+					consumerNanos.addAndGet(System.nanoTime() - consumerStartedAt);
+				}
+			});
+			syncMetrics.recordForumRequest(System.nanoTime() - startedAt - consumerNanos.get(), "users", null);
+		} catch (IOException | RuntimeException e) {
+			syncMetrics.recordForumRequest(System.nanoTime() - startedAt - consumerNanos.get(), "users", e);
+			throw e;
+		}
+	}
+
+	@Override
+	public long[] getForumIdsWithRole(final long roleId) throws IOException {
+		final Timer.Sample sample = syncMetrics.startTimer();
+		try {
+			final long[] forumIds = source.getForumIdsWithRole(roleId);
+			syncMetrics.recordForumRequest(sample, "role_members", null);
+			return forumIds;
+		} catch (IOException | RuntimeException e) {
+			syncMetrics.recordForumRequest(sample, "role_members", e);
+			throw e;
+		}
+	}
+
+	@Override
+	public boolean canRequestRoleMembers() {
+		return source.canRequestRoleMembers();
+	}
+
+	@Override
+	public boolean prefersBatches() {
+		return source.prefersBatches();
+	}
+
+	/**
+	 * Closes the wrapped source if it holds any resources.
+	 *
+	 * @throws Exception if the wrapped source can not be closed.
+	 */
+	@Override
+	public void close() throws Exception {
+		if (source instanceof AutoCloseable) {
+			((AutoCloseable) source).close();
+		}
+	}
+}
@@ -0,0 +1,283 @@
+package com.motorbesitzen.rolewatcher.bot.service;
+
+import com.motorbesitzen.rolewatcher.data.dao.BotInstance;
+import com.motorbesitzen.rolewatcher.data.dao.PartitionLease;
+import com.motorbesitzen.rolewatcher.data.repo.BotInstanceRepo;
+import com.motorbesitzen.rolewatcher.data.repo.PartitionLeaseRepo;
+import com.motorbesitzen.rolewatcher.util.LogUtil;
+import com.motorbesitzen.rolewatcher.util.ParseUtil;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.math.BigInteger;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Splits the guilds into partitions so several instances of the bot can share one database. Each instance sends a
+ * heartbeat to the database and holds leases on its partitions which it renews with each heartbeat. Leases of
+ * instances that stop sending heartbeats expire and get taken over by the remaining instances. Each instance holds
+ * at most its fair share of the partitions, so a new instance gets partitions from the existing ones. If this instance
+ * only connects a range of shards it only claims the partitions whose guilds are all on its shards, but claims all of
+ * them. Instances with the same shard range then take over for each other but do not split the partitions.
+ */
+@Service
+public class PartitionLeaseManager {
+
+	private static final long HEARTBEAT_MS = 10000;
+	private static final long LEASE_DURATION_MS = 30000;
+
+	private final PartitionLeaseRepo leaseRepo;
+	private final BotInstanceRepo instanceRepo;
+	private final String instanceId;
+	private final int partitionCount;
+	private final Set<Integer> localPartitions;
+	private final Map<Integer, Long> ownedUntil;
+	private final ScheduledExecutorService scheduler;
+
+	@Autowired
+	PartitionLeaseManager(final PartitionLeaseRepo leaseRepo, final BotInstanceRepo instanceRepo,
+						  final EnvSettings envSettings) {
+		this.leaseRepo = leaseRepo;
+		this.instanceRepo = instanceRepo;
+		final String configuredId = envSettings.getInstanceId();
+		this.instanceId = configuredId == null || configuredId.isBlank() ? UUID.randomUUID().toString() : configuredId;
+		this.partitionCount = Math.max(1, ParseUtil.safelyParseStringToInt(envSettings.getPartitionCount()));
+		this.localPartitions = getLocalPartitions(envSettings, partitionCount);
+		this.ownedUntil = new ConcurrentHashMap<>();
+		this.scheduler = Executors.newSingleThreadScheduledExecutor();
+	}
+
+	/**
+	 * Gets the partitions whose guilds are all on the shards this instance connects. A partition contains the guilds
+	 * of every shard with the same remainder divided by the greatest common divisor of the amount of partitions and
+	 * shards, so with as many partitions as shards (or a multiple of it) each partition is on a single shard.
+	 *
+	 * @param envSettings    The class that handles the environment variables.
+	 * @param partitionCount The amount of partitions.
+	 * @return The IDs of the partitions this instance can handle or {@code null} if it can handle all partitions.
+	 * @throws IllegalStateException if this instance can not handle any partition with its shard range.
+	 */
+	static Set<Integer> getLocalPartitions(final EnvSettings envSettings, final int partitionCount) {
+		final int shardTotal = ParseUtil.safelyParseStringToInt(envSettings.getShardTotal());
+		final int[] shardRange = shardTotal > 0 ? ParseUtil.safelyParseShardRange(envSettings.getShardRange(), shardTotal) : null;
+		if (shardRange == null) {
+			return null;
+		}
+
+		final int divisor = BigInteger.valueOf(partitionCount).gcd(BigInteger.valueOf(shardTotal)).intValue();
+		final Set<Integer> localPartitions = new TreeSet<>();
+		for (int partitionId = 0; partitionId < partitionCount; partitionId++) {
+			boolean local = true;
+			for (int shardId = partitionId % divisor; shardId < shardTotal; shardId += divisor) {
+				local &= shardId >= shardRange[0] && shardId <= shardRange[1];
+			}
+
+			if (local) {
+				localPartitions.add(partitionId);
+			}
+		}
+
+		if (localPartitions.isEmpty()) {
+			throw new IllegalStateException("No partition only contains guilds of the shards " + shardRange[0] + "-" +
+					shardRange[1] + "! Use a multiple of DC_SHARD_TOTAL as PARTITION_COUNT.");
+		}
+
+		return localPartitions.size() == partitionCount ? null : localPartitions;
+	}
+
+	/**
+	 * Claims the first partitions before the bot starts and starts the heartbeats.
+	 */
+	@PostConstruct
+	void start() {
+		heartbeat();
+		scheduler.scheduleWithFixedDelay(this::heartbeat, HEARTBEAT_MS, HEARTBEAT_MS, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Stops the heartbeats and releases the leases when the application shuts down, so other instances can take
+	 * over the partitions without waiting for the leases to expire.
+	 */
+	@PreDestroy
+	void shutdown() {
+		scheduler.shutdownNow();
+		for (PartitionLease lease : leaseRepo.findAll()) {
+			if (!lease.isOwnedBy(instanceId)) {
+				continue;
+			}
+
+			lease.release();
+			saveLease(lease);
+		}
+
+		instanceRepo.deleteById(instanceId);
+		ownedUntil.clear();
+	}
+
+	/**
+	 * Checks if this instance currently holds the lease of the partition of a guild.
+	 *
+	 * @param guildId The ID of the guild.
+	 * @return {@code true} if this instance handles the guild.
+	 */
+	public boolean ownsGuild(final long guildId) {
+		return ownedUntil.getOrDefault(getPartition(guildId, partitionCount), 0L) > System.currentTimeMillis();
+	}
+
+	/**
+	 * Gets the partitions this instance currently holds the lease of.
+	 *
+	 * @return The IDs of the owned partitions.
+	 */
+	public Set<Integer> getOwnedPartitions() {
+		final long now = System.currentTimeMillis();
+		final Set<Integer> owned = new TreeSet<>();
+		ownedUntil.forEach((partitionId, until) -> {
+			if (until > now) {
+				owned.add(partitionId);
+			}
+		});
+
+		return owned;
+	}
+
+	/**
+	 * Gets the partition of a guild. Uses the same formula Discord uses to assign guilds to shards, so with as many
+	 * partitions as shards each partition matches one shard.
+	 *
+	 * @param guildId        The ID of the guild.
+	 * @param partitionCount The amount of partitions.
+	 * @return The ID of the partition of the guild.
+	 */
+	static int getPartition(final long guildId, final int partitionCount) {
+		return (int) ((guildId >>> 22) % partitionCount);
+	}
+
+	/**
+	 * Renews the leases of this instance, releases partitions above the fair share and claims expired partitions up
+	 * to the fair share. The fair share gets calculated from the instances that sent a heartbeat recently. If this
+	 * instance only connects a range of shards it holds all expired partitions of its shards instead.
+	 */
+	void heartbeat() {
+		try {
+			final long now = System.currentTimeMillis();
+			instanceRepo.save(BotInstance.createBotInstance(instanceId, now));
+			instanceRepo.deleteByHeartbeatAtLessThanEqual(now - LEASE_DURATION_MS);
+			final int liveInstances = Math.max(1, instanceRepo.findAllByHeartbeatAtGreaterThan(now - LEASE_DURATION_MS).size());
+			final int fairShare = localPartitions == null ? (partitionCount + liveInstances - 1) / liveInstances : partitionCount;
+			final List<PartitionLease> leases = loadLeases();
+			int ownedCount = 0;
+			for (PartitionLease lease : leases) {
+				if (!lease.isOwnedBy(instanceId)) {
+					continue;
+				}
+
+				if (ownedCount >= fairShare || !isLocal(lease)) {
+					lease.release();
+					saveLease(lease);
+					ownedUntil.remove(lease.getPartitionId());
+					LogUtil.logInfo("Released partition " + lease.getPartitionId() + " for another instance.");
+					continue;
+				}
+
+				if (renew(lease, now)) {
+					ownedCount++;
+				}
+			}
+
+			for (PartitionLease lease : leases) {
+				if (ownedCount >= fairShare) {
+					break;
+				}
+
+				if (!lease.isOwnedBy(instanceId) && lease.isExpired(now) && isLocal(lease) && renew(lease, now)) {
+					LogUtil.logInfo("Claimed partition " + lease.getPartitionId() + " of " + partitionCount + ".");
+					ownedCount++;
+				}
+			}
+		} catch (Exception e) {
+			LogUtil.logWarning("Unexpected Exception: " + e);
+		}
+	}
+
+	/**
+	 * Checks if this instance connects the shards of all guilds of a partition.
+	 *
+	 * @param lease The lease of the partition.
+	 * @return {@code true} if this instance can handle the partition.
+	 */
+	private boolean isLocal(final PartitionLease lease) {
+		return localPartitions == null || localPartitions.contains(lease.getPartitionId());
+	}
+
+	/**
+	 * Loads the leases of all partitions and creates the missing ones.
+	 *
+	 * @return The leases ordered by partition ID.
+	 */
+	private List<PartitionLease> loadLeases() {
+		final Map<Integer, PartitionLease> leases = new TreeMap<>();
+		for (PartitionLease lease : leaseRepo.findAll()) {
+			if (lease.getPartitionId() < partitionCount) {
+				leases.put(lease.getPartitionId(), lease);
+			}
+		}
+
+		for (int partitionId = 0; partitionId < partitionCount; partitionId++) {
+			if (leases.containsKey(partitionId)) {
+				continue;
+			}
+
+			try {
+				leases.put(partitionId, leaseRepo.save(PartitionLease.createPartitionLease(partitionId)));
+			} catch (DataIntegrityViolationException e) {
+				// another instance created it in the meantime, gets loaded in the next heartbeat
+				LogUtil.logDebug("Lease of partition " + partitionId + " got created by another instance.");
+			}
+		}
+
+		return new ArrayList<>(leases.values());
+	}
+
+	/**
+	 * Claims or renews the lease of a partition for this instance.
+	 *
+	 * @param lease The lease to claim or renew.
+	 * @param now   The current time in milliseconds since the epoch.
+	 * @return {@code true} if this instance holds the lease now.
+	 */
+	private boolean renew(final PartitionLease lease, final long now) {
+		lease.claim(instanceId, now + LEASE_DURATION_MS);
+		if (!saveLease(lease)) {
+			ownedUntil.remove(lease.getPartitionId());
+			return false;
+		}
+
+		ownedUntil.put(lease.getPartitionId(), now + LEASE_DURATION_MS);
+		return true;
+	}
+
+	/**
+	 * Saves a lease unless another instance changed it since it got loaded.
+	 *
+	 * @param lease The lease to save.
+	 * @return {@code true} if the lease got saved.
+	 */
+	private boolean saveLease(final PartitionLease lease) {
+		try {
+			leaseRepo.save(lease);
+			return true;
+		} catch (ObjectOptimisticLockingFailureException e) {
+			LogUtil.logDebug("Lease of partition " + lease.getPartitionId() + " got changed by another instance.");
+			return false;
+		}
+	}
+}
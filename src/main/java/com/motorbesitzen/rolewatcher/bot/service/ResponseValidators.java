@@ -0,0 +1,93 @@
+package com.motorbesitzen.rolewatcher.bot.service;
+
+import org.apache.http.Header;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpHeaders;
+
+/**
+ * The {@code ETag} and {@code Last-Modified} values of a forum response that get sent with the next request for the
+ * same data, so the forum can answer with {@code 304 Not Modified} if nothing changed. Validators expire after a while
+ * so the roles get fully compared from time to time even if the forum never reports a change.
+ * <p>
+ * Validators only get sent after the roles of the response got applied. Validators of a response whose roles did not
+ * get applied yet are pending, the forum could otherwise report roles as unchanged that never got applied.
+ */
+final class ResponseValidators {
+
+	private static final long MAX_AGE_MS = 24 * 60 * 60 * 1000;
+
+	private final String eTag;
+	private final String lastModified;
+	private final long createdAt;
+	private final long generation;
+	private final boolean applied;
+
+	private ResponseValidators(final String eTag, final String lastModified, final long createdAt,
+							   final long generation, final boolean applied) {
+		this.eTag = eTag;
+		this.lastModified = lastModified;
+		this.createdAt = createdAt;
+		this.generation = generation;
+		this.applied = applied;
+	}
+
+	/**
+	 * Gets the pending validators of a response.
+	 *
+	 * @param response   The response of the forum.
+	 * @param generation The generation of the validators when the request got sent. Validators of an older generation
+	 *                   can not be applied anymore.
+	 * @return The validators or {@code null} if the response has neither an {@code ETag} nor a {@code Last-Modified} header.
+	 */
+	static ResponseValidators of(final HttpResponse response, final long generation) {
+		final Header eTagHeader = response.getFirstHeader(HttpHeaders.ETAG);
+		final Header lastModifiedHeader = response.getFirstHeader(HttpHeaders.LAST_MODIFIED);
+		if (eTagHeader == null && lastModifiedHeader == null) {
+			return null;
+		}
+
+		return new ResponseValidators(
+				eTagHeader != null ? eTagHeader.getValue() : null,
+				lastModifiedHeader != null ? lastModifiedHeader.getValue() : null,
+				System.currentTimeMillis(), generation, false
+		);
+	}
+
+	/**
+	 * Adds the conditional headers to a request.
+	 *
+	 * @param request The request to the forum.
+	 */
+	void addTo(final HttpRequest request) {
+		if (eTag != null) {
+			request.addHeader(HttpHeaders.IF_NONE_MATCH, eTag);
+		}
+
+		if (lastModified != null) {
+			request.addHeader(HttpHeaders.IF_MODIFIED_SINCE, lastModified);
+		}
+	}
+
+	/**
+	 * @return The same validators marked as applied.
+	 */
+	ResponseValidators toApplied() {
+		return new ResponseValidators(eTag, lastModified, createdAt, generation, true);
+	}
+
+	/**
+	 * @param currentGeneration The current generation of the validators.
+	 * @return {@code true} if the roles of the response got applied and the validators can be sent with the next request.
+	 */
+	boolean isUsable(final long currentGeneration) {
+		return applied && generation == currentGeneration && System.currentTimeMillis() - createdAt <= MAX_AGE_MS;
+	}
+
+	/**
+	 * @return The generation of the validators when the request got sent.
+	 */
+	long getGeneration() {
+		return generation;
+	}
+}
@@ -0,0 +1,29 @@
+package com.motorbesitzen.rolewatcher.bot.service;
+
+/**
+ * The result of comparing a forum role snapshot to the previous one.
+ */
+public final class RoleSnapshotDiff {
+
+	private final int userCount;
+	private final int changedCount;
+
+	RoleSnapshotDiff(final int userCount, final int changedCount) {
+		this.userCount = userCount;
+		this.changedCount = changedCount;
+	}
+
+	/**
+	 * @return The amount of users in the new snapshot.
+	 */
+	public int getUserCount() {
+		return userCount;
+	}
+
+	/**
+	 * @return The amount of users whose roles changed, including users that are not in the new snapshot anymore.
+	 */
+	public int getChangedCount() {
+		return changedCount;
+	}
+}
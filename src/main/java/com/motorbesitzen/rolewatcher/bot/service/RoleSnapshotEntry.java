@@ -0,0 +1,35 @@
+package com.motorbesitzen.rolewatcher.bot.service;
+
+import java.util.Arrays;
+
+/**
+ * A single user of a forum role snapshot with the sorted IDs of all roles the user has.
+ */
+final class RoleSnapshotEntry {
+
+	private final long uid;
+	private final long[] roleIds;
+
+	RoleSnapshotEntry(final long uid, final long[] roleIds) {
+		this.uid = uid;
+		this.roleIds = roleIds;
+	}
+
+	long getUid() {
+		return uid;
+	}
+
+	long[] getRoleIds() {
+		return roleIds;
+	}
+
+	/**
+	 * Checks if another entry has the same roles. Both role ID arrays are sorted so the order does not matter.
+	 *
+	 * @param other The other entry.
+	 * @return {@code true} if both entries have the same role IDs.
+	 */
+	boolean hasSameRoles(final RoleSnapshotEntry other) {
+		return Arrays.equals(roleIds, other.roleIds);
+	}
+}
@@ -0,0 +1,108 @@
+package com.motorbesitzen.rolewatcher.bot.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * Reads a forum role snapshot entry by entry, so a snapshot of any size can be read with bounded memory. A snapshot
+ * consists of one JSON object per line like {@code {"uid": 1234, "roleids": [1, 4, 9]}} and has to be sorted by
+ * the {@code uid} in ascending order.
+ */
+final class RoleSnapshotReader implements Closeable {
+
+	private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+	private final JsonParser parser;
+	private final IdBuffer roleIds;
+	private long lastUid;
+
+	/**
+	 * Creates a reader for a decompressed snapshot stream. Closing the reader closes the stream.
+	 *
+	 * @param content The snapshot stream.
+	 * @throws IOException if the stream can not be read.
+	 */
+	RoleSnapshotReader(final InputStream content) throws IOException {
+		this.parser = JSON_FACTORY.createParser(content);
+		this.roleIds = new IdBuffer();
+		this.lastUid = 0;
+	}
+
+	/**
+	 * Reads the next user of the snapshot.
+	 *
+	 * @return The next user or {@code null} if the end of the snapshot is reached.
+	 * @throws IOException              if the stream can not be read.
+	 * @throws IllegalArgumentException if an entry is invalid or the entries are not sorted by {@code uid}.
+	 */
+	RoleSnapshotEntry next() throws IOException {
+		try {
+			final JsonToken token = parser.nextToken();
+			if (token == null) {
+				return null;
+			}
+
+			if (token != JsonToken.START_OBJECT) {
+				throw new IllegalArgumentException("Invalid snapshot entry after uid " + lastUid + "! Entry is not an object.");
+			}
+
+			return readEntry();
+		} catch (JsonProcessingException e) {
+			throw new IllegalArgumentException("Invalid snapshot entry after uid " + lastUid + "!", e);
+		}
+	}
+
+	/**
+	 * Reads the fields of an entry. Unknown fields get skipped.
+	 *
+	 * @return The user of the entry.
+	 * @throws IOException if the stream can not be read.
+	 */
+	private RoleSnapshotEntry readEntry() throws IOException {
+		long uid = -1;
+		boolean hasRoleIds = false;
+		roleIds.clear();
+		JsonToken token;
+		while ((token = parser.nextToken()) != JsonToken.END_OBJECT) {
+			if (token == null) {
+				throw new IllegalArgumentException("Invalid snapshot entry after uid " + lastUid + "! Object is not closed.");
+			}
+
+			final String fieldName = parser.getCurrentName().toLowerCase();
+			final JsonToken valueToken = parser.nextToken();
+			if (fieldName.equals("uid")) {
+				uid = parser.getValueAsLong(-1);
+			} else if (fieldName.equals("roleids") && valueToken == JsonToken.START_ARRAY) {
+				ForumRoleApiRequest.readIdArray(parser, "JSON", roleIds);
+				hasRoleIds = true;
+			} else {
+				parser.skipChildren();
+			}
+		}
+
+		if (uid < 1 || !hasRoleIds) {
+			throw new IllegalArgumentException("Invalid snapshot entry after uid " + lastUid + "! Missing uid or roleids.");
+		}
+
+		if (uid <= lastUid) {
+			throw new IllegalArgumentException("Snapshot is not sorted by uid! " + uid + " follows " + lastUid + ".");
+		}
+
+		lastUid = uid;
+		final long[] sortedRoleIds = roleIds.toArray();
+		Arrays.sort(sortedRoleIds);
+		return new RoleSnapshotEntry(uid, sortedRoleIds);
+	}
+
+	@Override
+	public void close() throws IOException {
+		parser.close();
+	}
+}
@@ -1,31 +1,32 @@
 package com.motorbesitzen.rolewatcher.bot.service;
 
 import com.motorbesitzen.rolewatcher.data.dao.*;
+import com.motorbesitzen.rolewatcher.data.repo.DiscordBanRepo;
 import com.motorbesitzen.rolewatcher.data.repo.DiscordGuildRepo;
-import com.motorbesitzen.rolewatcher.data.repo.DiscordUserRepo;
 import com.motorbesitzen.rolewatcher.data.repo.ForumRoleRepo;
 import com.motorbesitzen.rolewatcher.data.repo.ForumUserRepo;
 import com.motorbesitzen.rolewatcher.util.LogUtil;
 import com.motorbesitzen.rolewatcher.util.ParseUtil;
 import com.motorbesitzen.rolewatcher.util.RoleUtil;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.context.Scope;
 import net.dv8tion.jda.api.JDA;
 import net.dv8tion.jda.api.entities.Guild;
 import net.dv8tion.jda.api.entities.Member;
-import net.dv8tion.jda.api.exceptions.HierarchyException;
-import net.dv8tion.jda.api.exceptions.InsufficientPermissionException;
+import net.dv8tion.jda.api.sharding.ShardManager;
 import org.apache.http.conn.ConnectTimeoutException;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
 import java.net.SocketTimeoutException;
-import java.time.Duration;
-import java.time.OffsetDateTime;
-import java.util.List;
-import java.util.Optional;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
 /**
  * Updates the roles of all members of all guilds the bot is in (if not whitelisted and if the guild has the needed permission).
@@ -33,28 +34,48 @@ import java.util.concurrent.TimeUnit;
 @Service
 public class RoleUpdater {
 
-	private final JDA jda;
+	private final ShardManager shardManager;
 	private final EnvSettings envSettings;
-	private final DiscordUserRepo discordUserRepo;
+	private final DiscordBanRepo discordBanRepo;
 	private final ForumUserRepo forumUserRepo;
 	private final ForumRoleRepo forumRoleRepo;
 	private final DiscordGuildRepo guildRepo;
-	private final ScheduledExecutorService scheduler;
-	private final ForumRoleApiRequest apiRequest;
+	private final ExecutorService scheduler;
+	private final HashedTimingWheel timingWheel;
+	private final ForumRoleSource roleSource;
+	private final ForumRoleMemberSync roleMemberSync;
+	private final SyncStateTracker syncTracker;
+	private final SyncQueue syncQueue;
+	private final DiscordActionOutbox actionOutbox;
+	private final PartitionLeaseManager leaseManager;
+	private final SyncMetrics syncMetrics;
+	private final SyncTracer syncTracer;
 	private final int delayMs;
 
 	@Autowired
-	private RoleUpdater(final JDA jda, final EnvSettings envSettings, final DiscordUserRepo discordUserRepo,
+	private RoleUpdater(final ShardManager shardManager, final EnvSettings envSettings, final DiscordBanRepo discordBanRepo,
 						final ForumUserRepo forumUserRepo, final ForumRoleRepo forumRoleRepo,
-						final DiscordGuildRepo guildRepo, final ForumRoleApiRequest apiRequest) {
-		this.jda = jda;
+						final DiscordGuildRepo guildRepo, final ForumRoleSource roleSource,
+						final ForumRoleMemberSync roleMemberSync, final SyncStateTracker syncTracker,
+						final SyncQueue syncQueue, final HashedTimingWheel timingWheel,
+						final DiscordActionOutbox actionOutbox, final PartitionLeaseManager leaseManager,
+						final SyncMetrics syncMetrics, final SyncTracer syncTracer) {
+		this.shardManager = shardManager;
 		this.envSettings = envSettings;
-		this.discordUserRepo = discordUserRepo;
+		this.discordBanRepo = discordBanRepo;
 		this.forumUserRepo = forumUserRepo;
 		this.forumRoleRepo = forumRoleRepo;
 		this.guildRepo = guildRepo;
-		this.scheduler = Executors.newScheduledThreadPool(3);
-		this.apiRequest = apiRequest;
+		this.scheduler = Executors.newFixedThreadPool(3);
+		this.timingWheel = timingWheel;
+		this.roleSource = roleSource;
+		this.roleMemberSync = roleMemberSync;
+		this.syncTracker = syncTracker;
+		this.syncQueue = syncQueue;
+		this.actionOutbox = actionOutbox;
+		this.leaseManager = leaseManager;
+		this.syncMetrics = syncMetrics;
+		this.syncTracer = syncTracer;
 		this.delayMs = getDelay();
 	}
 
@@ -95,28 +116,131 @@ public class RoleUpdater {
 	/**
 	 * Schedules all guilds by settings the delay between guilds based on the member count and the set base delay.
 	 * If there are no guilds the bot is a member of or there are no members increase the delay to 60 seconds
-	 * until the next run.
+	 * until the next run. If the forum role members API is set the roles get updated role by role instead. If the
+	 * forum role source prefers batches each guild only counts as one request.
 	 */
 	private void doRoleUpdates() {
-		final List<Guild> guilds = jda.getGuilds();
+		if (roleMemberSync.isEnabled()) {
+			doRoleMemberUpdates();
+			return;
+		}
+
+		final List<Guild> guilds = getSyncGuilds();
+		final SyncMetrics.Cycle cycle = syncMetrics.recordCycleStart(guilds.size());
 		int memberQueueCount = 0;
 		for (Guild guild : guilds) {
-			if (!hasRoleSyncPerms(guild)) {
+			final long guildDelay = (long) memberQueueCount * delayMs + delayMs;
+			LogUtil.logDebug("Scheduling guild \"{}\"... ({} -> {})", guild.getName(), guild.getMemberCount(), guildDelay);
+			schedule(updateGuildMembers(guild, cycle), guildDelay);
+			memberQueueCount += roleSource.prefersBatches() ? 1 : guild.getMemberCount();
+		}
+
+		long nextRunDelay = (long) memberQueueCount * delayMs + delayMs;
+		if (nextRunDelay == delayMs || roleSource.prefersBatches()) {
+			nextRunDelay = Math.max(60000, nextRunDelay);
+		}
+
+		schedule(this::run, nextRunDelay);
+	}
+
+	/**
+	 * Requests the members of each forum role once and updates the roles of all guilds role by role. Needs one request
+	 * per forum role instead of one request per member. The requests get paced by the timing wheel, so no thread of
+	 * the scheduler waits between them. The next run waits at least until all roles got requested.
+	 */
+	private void doRoleMemberUpdates() {
+		final List<Guild> guilds = getSyncGuilds();
+		final SyncMetrics.Cycle cycle = syncMetrics.recordCycleStart(guilds.size());
+		final long roleRequestCount = forumRoleRepo.count() + 1;
+		roleMemberSync.requestRoleMembers(delayMs, scheduler).whenComplete((roleMembers, throwable) -> {
+			if (throwable != null) {
+				LogUtil.logWarning("Unexpected Exception: " + throwable);
+				cycle.abort();
+				return;
+			}
+
+			updateGuildsRoleByRole(guilds, roleMembers, cycle);
+		});
+
+		final long nextRunDelay = Math.max(60000, (roleRequestCount + 1) * delayMs);
+		schedule(this::run, nextRunDelay);
+	}
+
+	/**
+	 * Updates the roles of all guilds role by role once the members of the forum roles are known.
+	 *
+	 * @param guilds      The guilds to update.
+	 * @param roleMembers The members of all forum roles.
+	 * @param cycle       The synchronisation cycle the guilds belong to.
+	 */
+	private void updateGuildsRoleByRole(final List<Guild> guilds, final ForumRoleMembers roleMembers,
+										final SyncMetrics.Cycle cycle) {
+		try {
+			final Map<Long, ForumUser> linkedUsers = roleMemberSync.getLinkedUsers();
+			for (Guild guild : guilds) {
+				LogUtil.logDebug("Updating guild \"{}\" role by role...", guild.getName());
+				loadMembers(guild, cycle, members -> {
+					try {
+						final List<Member> unlinkedMembers = roleMemberSync.syncGuild(guild, members, roleMembers, linkedUsers);
+						syncMetrics.recordMemberSyncs(members.size() - unlinkedMembers.size());
+						unlinkedMembers.forEach(this::checkForBan);
+					} finally {
+						cycle.finishGuild();
+					}
+				});
+			}
+		} catch (Exception e) {
+			LogUtil.logWarning("Unexpected Exception: " + e);
+			cycle.abort();
+		}
+	}
+
+	/**
+	 * Gets the guilds with the role sync permission of all connected shards whose partition this instance owns. The
+	 * guilds of the shards alternate, so loading the members of consecutive guilds spreads across the gateway
+	 * connections of the shards. Guilds of shards that are not connected get skipped until the next run.
+	 *
+	 * @return The guilds to update the roles in.
+	 */
+	private List<Guild> getSyncGuilds() {
+		final List<Iterator<Guild>> shardGuilds = new ArrayList<>();
+		for (JDA shard : shardManager.getShards()) {
+			if (shard.getStatus() != JDA.Status.CONNECTED) {
+				LogUtil.logDebug("Skipping shard {} as it is not connected.", shard.getShardInfo());
 				continue;
 			}
 
-			final long guildDelay = (long) memberQueueCount * delayMs + delayMs;
-			LogUtil.logDebug("Scheduling guild \"" + guild.getName() + "\"... (" + guild.getMemberCount() + " -> " + guildDelay + ")");
-			scheduler.schedule(updateGuildMembers(guild), guildDelay, TimeUnit.MILLISECONDS);
-			memberQueueCount += guild.getMemberCount();
+			shardGuilds.add(shard.getGuilds().iterator());
 		}
 
-		long nextRunDelay = (long) memberQueueCount * delayMs + delayMs;
-		if (nextRunDelay == delayMs) {
-			nextRunDelay = 60000;
+		final List<Guild> guilds = new ArrayList<>();
+		while (!shardGuilds.isEmpty()) {
+			final Iterator<Iterator<Guild>> shardIterator = shardGuilds.iterator();
+			while (shardIterator.hasNext()) {
+				final Iterator<Guild> guildIterator = shardIterator.next();
+				if (!guildIterator.hasNext()) {
+					shardIterator.remove();
+					continue;
+				}
+
+				final Guild guild = guildIterator.next();
+				if (leaseManager.ownsGuild(guild.getIdLong()) && hasRoleSyncPerms(guild)) {
+					guilds.add(guild);
+				}
+			}
 		}
 
-		scheduler.schedule(this::run, nextRunDelay, TimeUnit.MILLISECONDS);
+		return guilds;
+	}
+
+	/**
+	 * Runs a task on the scheduler of the role updater after a delay.
+	 *
+	 * @param task  The task to run.
+	 * @param delay The delay in milliseconds.
+	 */
+	private void schedule(final Runnable task, final long delay) {
+		timingWheel.schedule(() -> scheduler.execute(task), delay, TimeUnit.MILLISECONDS);
 	}
 
 	/**
@@ -136,41 +260,180 @@ public class RoleUpdater {
 	}
 
 	/**
-	 * Schedules all members of a guild for their role update.
+	 * Queues all members of a guild for their role update. Members whose roles are not due for an update
+	 * or who are still queued from the last run do not get queued. The queue keeps the delay between the members.
 	 *
 	 * @param guild The guild to update the member roles of.
+	 * @param cycle The synchronisation cycle the guild belongs to, the guild finishes once all queued members got
+	 *              updated.
 	 * @return A {@code Runnable} for the summarised task.
 	 */
-	private Runnable updateGuildMembers(final Guild guild) {
-		LogUtil.logDebug("Updating guild \"" + guild.getName() + "\"...");
-		return () -> guild.loadMembers().onSuccess(members -> scheduler.execute(() -> {
+	private Runnable updateGuildMembers(final Guild guild, final SyncMetrics.Cycle cycle) {
+		LogUtil.logDebug("Updating guild \"{}\"...", guild.getName());
+		if (roleSource.prefersBatches()) {
+			return () -> loadMembers(guild, cycle, members -> {
+				try {
+					updateMembersInBatch(guild, members);
+				} finally {
+					cycle.finishGuild();
+				}
+			});
+		}
+
+		return () -> loadMembers(guild, cycle, members -> {
+			// starts at one so the guild can not finish while its members still get queued
+			final AtomicInteger pendingMembers = new AtomicInteger(1);
+			final Runnable finishMember = () -> {
+				if (pendingMembers.decrementAndGet() == 0) {
+					cycle.finishGuild();
+				}
+			};
+
 			for (int i = 0; i < members.size(); i++) {
-				LogUtil.logDebug("Scheduling member \"" + members.get(i).getUser().getAsTag() + "\" (" + members.get(i).getId() + ") on \"" + guild.getName() + "\"... (" + (i + 1) + "/" + guild.getMemberCount() + " -> " + (i * delayMs) + ")");
-				scheduler.schedule(updateMember(members.get(i)), (long) i * delayMs, TimeUnit.MILLISECONDS);
+				final Member member = members.get(i);
+				if (!syncTracker.isDue(member)) {
+					continue;
+				}
+
+				final int position = i + 1;
+				LogUtil.logDebug(() -> "Queueing member \"" + member.getUser().getAsTag() + "\" (" + member.getId() + ") on \"" + guild.getName() + "\"... (" + position + "/" + guild.getMemberCount() + ")");
+				pendingMembers.incrementAndGet();
+				if (!syncQueue.submitBackground(guild.getIdLong(), member.getIdLong(), syncTracker.getLastSync(member), updateMember(member, finishMember))) {
+					pendingMembers.decrementAndGet();
+				}
 			}
-		}));
+
+			finishMember.run();
+		});
 	}
 
 	/**
-	 * Updates the roles of a member.
+	 * Loads the members of a guild and handles them on the scheduler of the role updater. The loading gets traced
+	 * and the handling of the members continues the trace, so the member updates belong to the trace of the guild.
 	 *
-	 * @param member The member to update the roles of.
+	 * @param guild   The guild to load the members of.
+	 * @param cycle   The synchronisation cycle the guild belongs to, the guild finishes if its members can not be
+	 *                loaded.
+	 * @param handler Handles the loaded members.
+	 */
+	private void loadMembers(final Guild guild, final SyncMetrics.Cycle cycle, final Consumer<List<Member>> handler) {
+		final Span span = syncTracer.startSpan("guild.members.load");
+		span.setAttribute("guild.id", guild.getIdLong());
+		final Context context = Context.current().with(span);
+		guild.loadMembers()
+				.onSuccess(members -> {
+					span.setAttribute("members", members.size());
+					span.end();
+					scheduler.execute(context.wrap(() -> handler.accept(members)));
+				})
+				.onError(throwable -> {
+					LogUtil.logError("Could not load the members of \"" + guild.getName() + "\".", throwable);
+					syncTracer.recordError(span, throwable);
+					span.end();
+					cycle.finishGuild();
+				});
+	}
+
+	/**
+	 * Updates the roles of all members of a guild with as few requests to the forum role source as possible.
+	 * Unlinked members get checked for a ban.
+	 *
+	 * @param guild   The guild to update the member roles of.
+	 * @param members The members of the guild.
+	 */
+	private void updateMembersInBatch(final Guild guild, final List<Member> members) {
+		final Map<Long, Member> unlinkedMembers = new HashMap<>();
+		for (Member member : members) {
+			unlinkedMembers.put(member.getIdLong(), member);
+		}
+
+		final Map<Long, ForumUser> forumUsers = new HashMap<>();
+		final Map<Long, Member> linkedMembers = new HashMap<>();
+		for (ForumUser forumUser : forumUserRepo.findAllLinkedTo(unlinkedMembers.keySet())) {
+			final DiscordUser dcUser = forumUser.getLinkedDiscordUser();
+			final Member member = unlinkedMembers.remove(dcUser.getDiscordId());
+			if (member == null || dcUser.isWhitelisted() || !syncTracker.isDue(member)) {
+				continue;
+			}
+
+			forumUsers.put(forumUser.getForumId(), forumUser);
+			linkedMembers.put(forumUser.getForumId(), member);
+		}
+
+		LogUtil.logDebug("Updating {} linked members of \"{}\" in batches...", linkedMembers.size(), guild.getName());
+		final Span span = syncTracer.startSpan("guild.batch.sync");
+		span.setAttribute("guild.id", guild.getIdLong());
+		span.setAttribute("members", linkedMembers.size());
+		try (Scope ignored = span.makeCurrent()) {
+			roleSource.streamRolesOfForumUsers(
+					new ArrayList<>(forumUsers.keySet()),
+					(forumId, forumRoles) -> {
+						syncMetrics.recordMemberSyncs(1);
+						syncTracker.recordSync(linkedMembers.get(forumId), forumRoles);
+						applyForumRoles(forumUsers.get(forumId), linkedMembers.get(forumId), forumRoles);
+					}
+			);
+		} catch (IOException e) {
+			syncTracer.recordError(span, e);
+			LogUtil.logError("Skipping guild \"" + guild.getName() + "\". Could not get roles of its members.", e);
+		} finally {
+			span.end();
+		}
+
+		unlinkedMembers.values().forEach(this::checkForBan);
+	}
+
+	/**
+	 * Updates the roles of a member. The update gets traced including the time it waited in the queue.
+	 *
+	 * @param member   The member to update the roles of.
+	 * @param finished Runs after the update, even if it failed.
 	 * @return A {@code Runnable} for the summarised task.
 	 */
-	private Runnable updateMember(final Member member) {
+	private Runnable updateMember(final Member member, final Runnable finished) {
+		final long queuedAt = System.currentTimeMillis();
 		return () -> {
-			LogUtil.logDebug("Updating member \"" + member.getUser().getAsTag() + "\" (" + member.getId() + ") on \"" + member.getGuild().getName() + "\"...");
-			final long discordId = member.getIdLong();
-			final Optional<ForumUser> forumUserOpt = forumUserRepo.findByLinkedDiscordUser_DiscordId(discordId);
-			forumUserOpt.ifPresentOrElse(
-					forumUser -> updateMemberRoles(forumUser, member),
-					() -> checkForKick(member)
-			);
+			final Span span = syncTracer.startSpan("member.sync");
+			span.setAttribute("guild.id", member.getGuild().getIdLong());
+			span.setAttribute("member.id", member.getIdLong());
+			span.setAttribute("queue.wait.ms", System.currentTimeMillis() - queuedAt);
+			try (Scope ignored = span.makeCurrent()) {
+				LogUtil.logDebug(() -> "Updating member \"" + member.getUser().getAsTag() + "\" (" + member.getId() + ") on \"" + member.getGuild().getName() + "\"...");
+				final Optional<ForumUser> forumUserOpt = findForumUser(member.getIdLong());
+				forumUserOpt.ifPresentOrElse(
+						forumUser -> updateMemberRoles(forumUser, member),
+						() -> checkForBan(member)
+				);
+			} catch (RuntimeException e) {
+				syncTracer.recordError(span, e);
+				throw e;
+			} finally {
+				span.end();
+				finished.run();
+			}
 		};
 	}
 
 	/**
-	 * Update the roles of the member and bans the member if it has the banned role on the forum.
+	 * Finds the forum user a Discord user is linked to. The lookup gets traced.
+	 *
+	 * @param discordId The ID of the Discord user.
+	 * @return The linked forum user or an empty {@code Optional} if the Discord user is not linked.
+	 */
+	private Optional<ForumUser> findForumUser(final long discordId) {
+		final Span span = syncTracer.startSpan("forum.user.lookup");
+		try {
+			final Optional<ForumUser> forumUserOpt = forumUserRepo.findByLinkedDiscordUser_DiscordId(discordId);
+			span.setAttribute("linked", forumUserOpt.isPresent());
+			return forumUserOpt;
+		} finally {
+			span.end();
+		}
+	}
+
+	/**
+	 * Update the roles of the member and bans the member if it has the banned role on the forum. Does nothing if the
+	 * forum reports that the roles did not change since the last update of the member in this guild.
 	 *
 	 * @param forumUser The matching forum user to the member.
 	 * @param member    The member to update the roles of.
@@ -180,9 +443,9 @@ public class RoleUpdater {
 			return;
 		}
 
-		final List<ForumRole> forumRoles;
+		final Optional<List<ForumRole>> forumRolesOpt;
 		try {
-			forumRoles = apiRequest.getRolesOfForumUser(forumUser);
+			forumRolesOpt = roleSource.getRolesOfForumUserIfChanged(forumUser, member.getGuild().getIdLong());
 		} catch (ConnectTimeoutException | SocketTimeoutException e) {
 			LogUtil.logError("Skipping user due to API timeout. Could not get roles of " + forumUser);
 			return;
@@ -191,6 +454,28 @@ public class RoleUpdater {
 			return;
 		}
 
+		syncMetrics.recordMemberSyncs(1);
+		forumRolesOpt.ifPresentOrElse(
+				forumRoles -> {
+					syncTracker.recordSync(member, forumRoles);
+					applyForumRoles(forumUser, member, forumRoles);
+					roleSource.confirmRolesApplied(forumUser, member.getGuild().getIdLong());
+				},
+				() -> {
+					syncTracker.recordUnchanged(member);
+					LogUtil.logDebug("Roles of {} did not change.", forumUser);
+				}
+		);
+	}
+
+	/**
+	 * Bans the member if it has the banned role on the forum, otherwise updates the roles of the member.
+	 *
+	 * @param forumUser  The matching forum user to the member.
+	 * @param member     The member to update the roles of.
+	 * @param forumRoles The list of roles the member has on the forum.
+	 */
+	private void applyForumRoles(final ForumUser forumUser, final Member member, final List<ForumRole> forumRoles) {
 		if (RoleUtil.hasBannedRole(envSettings, forumRoles)) {
 			banMember(forumUser, member);
 			return;
@@ -200,106 +485,40 @@ public class RoleUpdater {
 	}
 
 	/**
-	 * Bans the member if possible and logs the result.
+	 * Records the ban of the member in the outbox and logs it.
 	 *
 	 * @param forumUser The matching forum user to the member.
 	 * @param member    The member to ban.
 	 */
 	private void banMember(final ForumUser forumUser, final Member member) {
-		member.ban(0, "User (" + forumUser.getForumId() + ") has the banned role on the forum. Might be a temporary ban.").queue(
-				(ban) -> LogUtil.logDebug(
-						"Banned member " + member.getUser().getAsTag() + " (" + member.getId() + ")  from \"" +
-								member.getGuild().getName() + "\" (" + member.getGuild().getId() + ") " +
-								"due to having the banned role. User is linked to " + forumUser + "."
-				),
-				throwable -> LogUtil.logError("Could not ban " + forumUser + " on \"" + member.getGuild().getName() + "\".", throwable)
+		LogUtil.logDebug(() ->
+				"Banning member " + member.getUser().getAsTag() + " (" + member.getId() + ") from \"" +
+						member.getGuild().getName() + "\" (" + member.getGuild().getId() + ") " +
+						"due to having the banned role. User is linked to " + forumUser + "."
 		);
+		actionOutbox.ban(member, "User (" + forumUser.getForumId() + ") has the banned role on the forum. Might be a temporary ban.");
 	}
 
 	/**
-	 * Updates the roles of the member if possible.
+	 * Records the role changes of the member in the outbox.
 	 *
 	 * @param member     The member to update the roles of.
 	 * @param forumRoles The list of roles the member has on the forum.
 	 */
 	private void updateRoles(final Member member, final List<ForumRole> forumRoles) {
-		try {
-			RoleUtil.updateRoles(member, forumRoles, forumRoleRepo.findAll());
-		} catch (InsufficientPermissionException e) {
-			LogUtil.logWarning("Bot does not have the needed permission " + e.getPermission() + " in \"" + member.getGuild().getName() + "\" to update roles.");
-		} catch (HierarchyException e) {
-			LogUtil.logWarning("Bot can not modify some forum roles in \"" + member.getGuild().getName() + "\"! Please move the bot role above any forum role.");
-		}
+		actionOutbox.updateRoles(member, forumRoles, forumRoleRepo.findAll());
 	}
 
 	/**
-	 * Checks if the user should be kicked and kicks the user accordingly.
+	 * Bans the unlinked member if the database contains a ban for the user. Unlinked members get kicked by the
+	 * {@link com.motorbesitzen.rolewatcher.bot.event.AutokickSweeper}.
 	 *
 	 * @param member The member to check.
 	 */
-	private void checkForKick(final Member member) {
-		final Optional<DiscordUser> dcUserOpt = discordUserRepo.findById(member.getIdLong());
-		if (dcUserOpt.isEmpty()) {
-			return;
-		}
-
-		final DiscordUser dcUser = dcUserOpt.get();
-		final DiscordBan dcBan = dcUser.getBan();
-		if (dcBan != null) {
-			member.ban(0, "Database contains a ban for this user, reason: \"" + dcBan.getReason() + "\".").queue();
-			return;
-		}
-
-		if (shouldKick(member, dcUser)) {
-			final Duration memberTime = Duration.between(member.getTimeJoined(), OffsetDateTime.now());
-			final long days = memberTime.toDays();
-			final long hours = memberTime.toHoursPart();
-			final long minutes = memberTime.toMinutesPart();
-			final String joinedText =
-					"Joined " +
-							(days != 0 ? "**" + days + "**d " : "") +
-							(hours != 0 ? "**" + hours + "**h " : "") +
-							(minutes != 0 ? "**" + minutes + "**m " : "") +
-							"ago";
-
-			member.kick("Autokick due to being unlinked. (" + joinedText + ")").queue();
-			LogUtil.logDebug(
-					"Kicked member " + member.getUser().getAsTag() + " (" + member.getId() + ") from " +
-							"\"" + member.getGuild().getName() + "\" (" + member.getGuild().getId() + ") due to being unlinked."
-			);
-		}
-	}
-
-	/**
-	 * Determines if a member should be kicked automatically.
-	 *
-	 * @param member The member to check.
-	 * @return {@code true} if the guild has autokick permissions, the member isn't a bot or the owner and if the user
-	 * joined x hours ago, {@code false} otherwise.
-	 */
-	private boolean shouldKick(final Member member, final DiscordUser dcUser) {
-		final Optional<DiscordGuild> dcGuildOpt = guildRepo.findById(member.getGuild().getIdLong());
-		if (dcGuildOpt.isEmpty()) {
-			return false;
-		}
-
-		final DiscordGuild dcGuild = dcGuildOpt.get();
-		if (!dcGuild.canAutokick()) {
-			return false;
-		}
-
-		if (dcUser.isWhitelisted()) {
-			return false;
-		}
-
-		if (member.getUser().isBot()) {
-			return false;
-		}
-
-		if (member.isOwner()) {
-			return false;
-		}
-
-		return member.getTimeJoined().isBefore(OffsetDateTime.now().minusHours(dcGuild.getAutokickHourDelay()));
+	private void checkForBan(final Member member) {
+		final Optional<DiscordBan> dcBanOpt = discordBanRepo.findByBannedUser_DiscordId(member.getIdLong());
+		dcBanOpt.ifPresent(
+				dcBan -> actionOutbox.ban(member, "Database contains a ban for this user, reason: \"" + dcBan.getReason() + "\".")
+		);
 	}
 }
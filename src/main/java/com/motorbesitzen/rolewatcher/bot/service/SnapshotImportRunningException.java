@@ -0,0 +1,11 @@
+package com.motorbesitzen.rolewatcher.bot.service;
+
+/**
+ * Gets thrown if a role snapshot should get imported while another import is still running.
+ */
+public class SnapshotImportRunningException extends RuntimeException {
+
+	SnapshotImportRunningException() {
+		super("Another role snapshot import is running.");
+	}
+}
@@ -42,6 +42,7 @@ public class StartUpChecker implements ApplicationListener<ApplicationStartedEve
 	 */
 	private void checkCriticalEnvs() {
 		checkApiKeyEnv();
+		checkForumRoleSourceEnv();
 	}
 
 	/**
@@ -76,6 +77,20 @@ public class StartUpChecker implements ApplicationListener<ApplicationStartedEve
 		}
 	}
 
+	/**
+	 * Checks that the forum database URL and role query are set if the forum database is used as forum role source.
+	 */
+	private void checkForumRoleSourceEnv() {
+		if (!envSettings.getForumRoleSource().equalsIgnoreCase("jdbc")) {
+			return;
+		}
+
+		if (envSettings.getForumDbUrl().isBlank() || envSettings.getForumDbRoleQuery().isBlank()) {
+			LogUtil.logError("Please set FORUM_DB_URL and FORUM_DB_ROLE_QUERY in the .env file to use the forum database as role source!");
+			shutdown();
+		}
+	}
+
 	/**
 	 * Gracefully stops the Spring application and the JVM afterwards.
 	 */
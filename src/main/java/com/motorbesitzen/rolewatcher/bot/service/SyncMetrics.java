@@ -0,0 +1,305 @@
+package com.motorbesitzen.rolewatcher.bot.service;
+
+import com.motorbesitzen.rolewatcher.bot.jfr.SyncCycleEvent;
+import com.motorbesitzen.rolewatcher.data.repo.DiscordActionRepo;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Records the metrics of the role synchronisation, the Discord actions, the commands and the link requests of the web
+ * API. The metrics get exposed in the Prometheus format by the actuator. Each synchronisation cycle also gets recorded
+ * as a flight recorder event.
+ * Timings of the database repositories get recorded by Spring itself as {@code spring.data.repository.invocations}.
+ */
+@Service
+public class SyncMetrics {
+
+	private static final long OUTBOX_SIZE_TTL_MS = 30000;
+
+	private final MeterRegistry registry;
+	private final DiscordActionRepo actionRepo;
+	private final Counter membersSynced;
+	private final Timer cycleTimer;
+	private final AtomicLong membersPerSecond;
+	private volatile Cycle currentCycle;
+	private long outboxSize;
+	private long outboxSizeLoadedAt;
+
+	@Autowired
+	SyncMetrics(final MeterRegistry registry, final SyncQueue syncQueue, final DiscordActionRepo actionRepo,
+				final HashedTimingWheel timingWheel, final DiscordRestDispatcher dispatcher) {
+		this.registry = registry;
+		this.actionRepo = actionRepo;
+		this.membersSynced = Counter.builder("rolewatcher.sync.members")
+				.description("Members whose roles got synchronised")
+				.register(registry);
+		this.cycleTimer = Timer.builder("rolewatcher.sync.cycle")
+				.description("Duration of a role synchronisation cycle over all guilds")
+				.register(registry);
+		this.membersPerSecond = new AtomicLong(0);
+
+		Gauge.builder("rolewatcher.sync.members.per.second", membersPerSecond, AtomicLong::get)
+				.description("Members synchronised per second in the last cycle")
+				.register(registry);
+		Gauge.builder("rolewatcher.sync.queue.size", syncQueue, SyncQueue::size)
+				.description("Queued role synchronisations")
+				.register(registry);
+		Gauge.builder("rolewatcher.discord.outbox.size", this, SyncMetrics::getOutboxSize)
+				.description("Discord actions waiting in the outbox")
+				.register(registry);
+		Gauge.builder("rolewatcher.timing.wheel.size", timingWheel, HashedTimingWheel::getPendingCount)
+				.description("Delayed actions waiting in the timing wheel")
+				.register(registry);
+		for (DiscordRoute route : DiscordRoute.values()) {
+			FunctionCounter.builder("rolewatcher.discord.ratelimit.wait", dispatcher, d -> d.getWaitTimes().get(route))
+					.description("Milliseconds Discord requests waited after Discord answered with a 429")
+					.baseUnit("milliseconds")
+					.tag("route", route.name())
+					.register(registry);
+			FunctionCounter.builder("rolewatcher.discord.ratelimit.deferred", dispatcher, d -> d.getDeferTimes().get(route))
+					.description("Milliseconds Discord requests got held back for an exhausted rate limit")
+					.baseUnit("milliseconds")
+					.tag("route", route.name())
+					.register(registry);
+		}
+	}
+
+	/**
+	 * Gets the amount of actions in the outbox. Counting them needs a query, so the count gets reused for 30 seconds
+	 * no matter how often the metrics get scraped.
+	 *
+	 * @return The amount of actions in the outbox.
+	 */
+	private synchronized double getOutboxSize() {
+		final long now = System.currentTimeMillis();
+		if (outboxSizeLoadedAt == 0 || now - outboxSizeLoadedAt >= OUTBOX_SIZE_TTL_MS) {
+			outboxSize = actionRepo.count();
+			outboxSizeLoadedAt = now;
+		}
+
+		return outboxSize;
+	}
+
+	/**
+	 * Starts timing an operation.
+	 *
+	 * @return The started timer sample.
+	 */
+	public Timer.Sample startTimer() {
+		return Timer.start(registry);
+	}
+
+	/**
+	 * Records a request to the forum role source.
+	 *
+	 * @param sample    The sample started before the request.
+	 * @param operation The name of the requested operation.
+	 * @param error     The exception the request failed with or {@code null} if it succeeded.
+	 */
+	public void recordForumRequest(final Timer.Sample sample, final String operation, final Throwable error) {
+		sample.stop(getForumRequestTimer(operation, error));
+		recordForumError(operation, error);
+	}
+
+	/**
+	 * Records a request to the forum role source whose duration got measured by the caller, e.g. to leave out the
+	 * time spent handling a streamed response.
+	 *
+	 * @param durationNanos The duration of the request in nanoseconds.
+	 * @param operation     The name of the requested operation.
+	 * @param error         The exception the request failed with or {@code null} if it succeeded.
+	 */
+	public void recordForumRequest(final long durationNanos, final String operation, final Throwable error) {
+		getForumRequestTimer(operation, error).record(Math.max(0, durationNanos), TimeUnit.NANOSECONDS);
+		recordForumError(operation, error);
+	}
+
+	/**
+	 * Gets the timer of the requests to the forum role source with the given operation and outcome.
+	 *
+	 * @param operation The name of the requested operation.
+	 * @param error     The exception the request failed with or {@code null} if it succeeded.
+	 * @return The timer of the requests.
+	 */
+	private Timer getForumRequestTimer(final String operation, final Throwable error) {
+		return Timer.builder("rolewatcher.forum.requests")
+				.description("Requests to the forum role source")
+				.tag("operation", operation)
+				.tag("outcome", error == null ? "success" : error.getClass().getSimpleName())
+				.publishPercentileHistogram()
+				.register(registry);
+	}
+
+	/**
+	 * Counts a failed request to the forum role source.
+	 *
+	 * @param operation The name of the requested operation.
+	 * @param error     The exception the request failed with or {@code null} if it succeeded.
+	 */
+	private void recordForumError(final String operation, final Throwable error) {
+		if (error != null) {
+			registry.counter("rolewatcher.forum.errors", "operation", operation, "type", error.getClass().getSimpleName()).increment();
+		}
+	}
+
+	/**
+	 * Records the start of a role synchronisation cycle. The cycle ends when the last of its guilds finished, only
+	 * then its duration and the synchronised members per second get recorded. A cycle without guilds does not get
+	 * timed.
+	 *
+	 * @param guilds The amount of guilds the cycle updates.
+	 * @return The started cycle.
+	 */
+	Cycle recordCycleStart(final int guilds) {
+		final Cycle cycle = new Cycle(guilds);
+		currentCycle = cycle;
+		if (guilds == 0) {
+			cycle.abort();
+		}
+
+		return cycle;
+	}
+
+	/**
+	 * Records that the roles of members got synchronised with the forum.
+	 *
+	 * @param count The amount of synchronised members.
+	 */
+	public void recordMemberSyncs(final long count) {
+		membersSynced.increment(count);
+		final Cycle cycle = currentCycle;
+		if (cycle != null) {
+			cycle.members.addAndGet(count);
+		}
+	}
+
+	/**
+	 * Records the result of a request to Discord for an action of the outbox. A request that got held back for an
+	 * exhausted rate limit counts as deferred, only 429 responses of Discord count as rate limited.
+	 *
+	 * @param route  The route of the request.
+	 * @param result The result of the request.
+	 */
+	public void recordDiscordAction(final DiscordRoute route, final DispatchResult result) {
+		final String outcome;
+		if (result.isSuccess()) {
+			outcome = "success";
+		} else if (result.isDeferred()) {
+			outcome = "deferred";
+		} else if (result.isRateLimited()) {
+			outcome = "rate_limited";
+		} else {
+			outcome = "failure";
+		}
+
+		registry.counter("rolewatcher.discord.actions", "route", route.name(), "outcome", outcome).increment();
+	}
+
+	/**
+	 * Records a request to Discord that could not be sent.
+	 *
+	 * @param route The route of the request.
+	 */
+	public void recordDiscordActionError(final DiscordRoute route) {
+		registry.counter("rolewatcher.discord.actions", "route", route.name(), "outcome", "error").increment();
+	}
+
+	/**
+	 * Records the execution of a command.
+	 *
+	 * @param sample      The sample started before the command got executed.
+	 * @param commandName The name of the command.
+	 */
+	public void recordCommand(final Timer.Sample sample, final String commandName) {
+		sample.stop(Timer.builder("rolewatcher.commands")
+				.description("Execution of Discord commands")
+				.tag("command", commandName)
+				.publishPercentileHistogram()
+				.register(registry));
+	}
+
+	/**
+	 * Records a conflict between simultaneous link requests of the same forum user.
+	 *
+	 * @param resolved {@code true} if the saved linking information got updated, {@code false} if the conflicting
+	 *                 entry could not be found.
+	 */
+	public void recordLinkConflict(final boolean resolved) {
+		registry.counter("rolewatcher.web.link.conflicts", "outcome", resolved ? "updated" : "unknown").increment();
+	}
+
+	/**
+	 * A role synchronisation cycle over all guilds. Gets timed from its start until the last of its guilds finished
+	 * and gets recorded as a flight recorder event.
+	 */
+	final class Cycle {
+
+		private final long startedAt;
+		private final AtomicInteger pendingGuilds;
+		private final AtomicLong members;
+		private final SyncCycleEvent event;
+		private final AtomicBoolean ended;
+
+		private Cycle(final int guilds) {
+			this.startedAt = System.nanoTime();
+			this.pendingGuilds = new AtomicInteger(guilds);
+			this.members = new AtomicLong(0);
+			this.event = new SyncCycleEvent();
+			this.event.setGuilds(guilds);
+			this.event.begin();
+			this.ended = new AtomicBoolean(false);
+		}
+
+		/**
+		 * Records that a guild of the cycle finished, either because the roles of all its members got synchronised
+		 * or because it got skipped. Ends the cycle once the last guild finished.
+		 */
+		void finishGuild() {
+			if (pendingGuilds.decrementAndGet() == 0) {
+				end(true);
+			}
+		}
+
+		/**
+		 * Ends the cycle without recording its duration, e.g. if the roles of its guilds could not be requested.
+		 */
+		void abort() {
+			end(false);
+		}
+
+		/**
+		 * Ends the cycle and commits its flight recorder event. Does nothing if the cycle already ended.
+		 *
+		 * @param timed {@code true} if the duration of the cycle should be recorded.
+		 */
+		private void end(final boolean timed) {
+			if (!ended.compareAndSet(false, true)) {
+				return;
+			}
+
+			final long members = this.members.get();
+			event.setMembers(members);
+			event.commit();
+			if (!timed) {
+				return;
+			}
+
+			final long durationNanos = System.nanoTime() - startedAt;
+			cycleTimer.record(durationNanos, TimeUnit.NANOSECONDS);
+			final long durationMs = TimeUnit.NANOSECONDS.toMillis(durationNanos);
+			if (durationMs > 0) {
+				membersPerSecond.set(members * 1000 / durationMs);
+			}
+		}
+	}
+}
@@ -0,0 +1,30 @@
+package com.motorbesitzen.rolewatcher.bot.service;
+
+/**
+ * The priority of a role synchronisation in the {@link SyncQueue}, from highest to lowest.
+ */
+public enum SyncPriority {
+	/**
+	 * Someone waits for the result, e.g. a verification or a manual update.
+	 */
+	INTERACTIVE,
+	/**
+	 * A member just joined a guild.
+	 */
+	JOIN,
+	/**
+	 * An active member whose roles are outdated.
+	 */
+	ACTIVITY,
+	/**
+	 * The periodic role update.
+	 */
+	BACKGROUND;
+
+	/**
+	 * @return {@code true} if synchronisations of this priority have to keep the delay between forum requests.
+	 */
+	boolean isPaced() {
+		return this == ACTIVITY || this == BACKGROUND;
+	}
+}
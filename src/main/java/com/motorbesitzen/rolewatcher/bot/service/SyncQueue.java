@@ -0,0 +1,201 @@
+package com.motorbesitzen.rolewatcher.bot.service;
+
+import com.motorbesitzen.rolewatcher.util.LogUtil;
+import com.motorbesitzen.rolewatcher.util.ParseUtil;
+import io.opentelemetry.context.Context;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Runs all role synchronisations one after another by priority. Interactive synchronisations and new members run
+ * right away, ahead of any queued background work. Activity and background synchronisations keep the delay between
+ * forum requests, background synchronisations of the members that did not get synchronised the longest go first.
+ * Synchronisations run in the trace context they got queued in.
+ */
+@Service
+public class SyncQueue {
+
+	private final PriorityQueue<SyncTask> queue;
+	private final Set<String> queuedBackgroundKeys;
+	private final ReentrantLock lock;
+	private final Condition taskAdded;
+	private final ExecutorService worker;
+	private final long delayMs;
+	private long sequence;
+	private long nextPacedAt;
+
+	@Autowired
+	private SyncQueue(final EnvSettings envSettings) {
+		this.queue = new PriorityQueue<>();
+		this.queuedBackgroundKeys = new HashSet<>();
+		this.lock = new ReentrantLock();
+		this.taskAdded = lock.newCondition();
+		this.worker = Executors.newSingleThreadExecutor();
+		this.delayMs = Math.max(100, ParseUtil.safelyParseStringToInt(envSettings.getForumRoleApiDelay()));
+		this.sequence = 0;
+		this.nextPacedAt = 0;
+		this.worker.execute(this::work);
+	}
+
+	/**
+	 * Stops the worker when the application shuts down.
+	 */
+	@PreDestroy
+	private void shutdown() {
+		worker.shutdownNow();
+	}
+
+	/**
+	 * Queues a synchronisation. Synchronisations of the same priority run in the order they got queued.
+	 *
+	 * @param priority The priority of the synchronisation.
+	 * @param sync     The synchronisation.
+	 */
+	public void submit(final SyncPriority priority, final Runnable sync) {
+		lock.lock();
+		try {
+			queue.add(new SyncTask(priority, sequence, sequence++, null, Context.current().wrap(sync)));
+			taskAdded.signal();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Queues a background synchronisation of a member unless the member is already queued for one.
+	 *
+	 * @param guildId  The ID of the guild of the member.
+	 * @param memberId The ID of the member.
+	 * @param lastSync The time of the last synchronisation of the member, older ones run first.
+	 * @param sync     The synchronisation.
+	 * @return {@code true} if the synchronisation got queued, {@code false} if the member is already queued.
+	 */
+	public boolean submitBackground(final long guildId, final long memberId, final long lastSync, final Runnable sync) {
+		final String key = guildId + ":" + memberId;
+		lock.lock();
+		try {
+			if (!queuedBackgroundKeys.add(key)) {
+				return false;
+			}
+
+			queue.add(new SyncTask(SyncPriority.BACKGROUND, lastSync, sequence++, key, Context.current().wrap(sync)));
+			taskAdded.signal();
+			return true;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * @return The amount of queued synchronisations.
+	 */
+	public int size() {
+		lock.lock();
+		try {
+			return queue.size();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Runs the queued synchronisations until the application shuts down.
+	 */
+	private void work() {
+		while (!Thread.currentThread().isInterrupted()) {
+			final SyncTask task;
+			try {
+				task = takeNextTask();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+
+			try {
+				task.sync.run();
+			} catch (Throwable t) {
+				// the worker is the only thread that runs synchronisations, it has to survive a failed one
+				LogUtil.logError("Unexpected error during role synchronisation.", t);
+			}
+
+			nextPacedAt = System.currentTimeMillis() + delayMs;
+		}
+	}
+
+	/**
+	 * Waits for the next synchronisation that may run. Unpaced synchronisations run right away, paced ones wait
+	 * until the delay since the last synchronisation passed.
+	 *
+	 * @return The next synchronisation.
+	 * @throws InterruptedException if the worker gets interrupted while waiting.
+	 */
+	private SyncTask takeNextTask() throws InterruptedException {
+		lock.lock();
+		try {
+			while (true) {
+				final SyncTask head = queue.peek();
+				if (head == null) {
+					taskAdded.await();
+					continue;
+				}
+
+				final long waitMs = nextPacedAt - System.currentTimeMillis();
+				if (!head.priority.isPaced() || waitMs <= 0) {
+					queue.poll();
+					if (head.key != null) {
+						queuedBackgroundKeys.remove(head.key);
+					}
+
+					return head;
+				}
+
+				// a new task might be unpaced and has to run before the wait is over
+				taskAdded.await(waitMs, TimeUnit.MILLISECONDS);
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * A queued synchronisation.
+	 */
+	private static final class SyncTask implements Comparable<SyncTask> {
+
+		private final SyncPriority priority;
+		private final long order;
+		private final long sequence;
+		private final String key;
+		private final Runnable sync;
+
+		private SyncTask(final SyncPriority priority, final long order, final long sequence, final String key,
+						 final Runnable sync) {
+			this.priority = priority;
+			this.order = order;
+			this.sequence = sequence;
+			this.key = key;
+			this.sync = sync;
+		}
+
+		@Override
+		public int compareTo(final SyncTask other) {
+			if (priority != other.priority) {
+				return priority.compareTo(other.priority);
+			}
+
+			if (order != other.order) {
+				return Long.compare(order, other.order);
+			}
+
+			return Long.compare(sequence, other.sequence);
+		}
+	}
+}
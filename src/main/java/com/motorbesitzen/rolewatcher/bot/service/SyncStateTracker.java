@@ -0,0 +1,173 @@
+package com.motorbesitzen.rolewatcher.bot.service;
+
+import com.motorbesitzen.rolewatcher.data.dao.ForumRole;
+import com.motorbesitzen.rolewatcher.util.ParseUtil;
+import net.dv8tion.jda.api.entities.Member;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Tracks when the roles of each member got synchronised and when they changed the last time. Members whose roles
+ * did not change for a long time get synchronised less often, up to the configured maximum staleness. Members whose
+ * roles changed recently, who just got linked or who are not tracked yet get synchronised in every run.
+ * The state is only kept in memory, so after a restart every member starts as recently changed.
+ */
+@Service
+public class SyncStateTracker {
+
+	// a member that did not change for x hours gets synchronised every x / STABILITY_DIVISOR hours
+	private static final long STABILITY_DIVISOR = 4;
+
+	private final long maxStalenessMs;
+	private final Map<Long, Map<Long, SyncState>> guildStates;
+
+	@Autowired
+	private SyncStateTracker(final EnvSettings envSettings) {
+		this.maxStalenessMs = Math.max(0, ParseUtil.safelyParseStringToLong(envSettings.getForumRoleMaxStalenessHours())) * 60 * 60 * 1000;
+		this.guildStates = new ConcurrentHashMap<>();
+	}
+
+	/**
+	 * Checks if the roles of the member should get synchronised in this run. Always {@code true} if no maximum
+	 * staleness is set.
+	 *
+	 * @param member The member to check.
+	 * @return {@code true} if the member should get synchronised.
+	 */
+	public boolean isDue(final Member member) {
+		if (maxStalenessMs == 0) {
+			return true;
+		}
+
+		final SyncState state = getState(member);
+		if (state == null) {
+			return true;
+		}
+
+		final long now = System.currentTimeMillis();
+		final long stableForMs = now - state.lastChange;
+		final long intervalMs = Math.min(maxStalenessMs, stableForMs / STABILITY_DIVISOR);
+		return now - state.lastSync >= intervalMs;
+	}
+
+	/**
+	 * Records that the roles of the member got synchronised and if they changed since the last synchronisation.
+	 *
+	 * @param member     The synchronised member.
+	 * @param forumRoles The forum roles the member has.
+	 */
+	public void recordSync(final Member member, final List<ForumRole> forumRoles) {
+		final long[] roleIds = forumRoles.stream().mapToLong(ForumRole::getRoleId).sorted().toArray();
+		final long now = System.currentTimeMillis();
+		final Map<Long, SyncState> states = guildStates.computeIfAbsent(member.getGuild().getIdLong(), id -> new ConcurrentHashMap<>());
+		states.compute(member.getIdLong(), (id, state) -> {
+			if (state == null || !Arrays.equals(state.roleIds, roleIds)) {
+				return new SyncState(now, now, roleIds);
+			}
+
+			return new SyncState(now, state.lastChange, roleIds);
+		});
+	}
+
+	/**
+	 * Records that the forum reported that the roles of the member did not change.
+	 *
+	 * @param member The synchronised member.
+	 */
+	public void recordUnchanged(final Member member) {
+		final Map<Long, SyncState> states = guildStates.get(member.getGuild().getIdLong());
+		if (states == null) {
+			return;
+		}
+
+		final long now = System.currentTimeMillis();
+		states.computeIfPresent(member.getIdLong(), (id, state) -> new SyncState(now, state.lastChange, state.roleIds));
+	}
+
+	/**
+	 * Forgets the state of a user in all guilds, e.g. if the user just got linked. The user gets synchronised in
+	 * the next run of every guild.
+	 *
+	 * @param discordId The Discord ID of the user.
+	 */
+	public void forgetUser(final long discordId) {
+		for (Map<Long, SyncState> states : guildStates.values()) {
+			states.remove(discordId);
+		}
+	}
+
+	/**
+	 * Forgets the state of a member, e.g. if the member rejoined the guild.
+	 *
+	 * @param member The member.
+	 */
+	public void forgetMember(final Member member) {
+		forgetMember(member.getGuild().getIdLong(), member.getIdLong());
+	}
+
+	/**
+	 * Forgets the state of a member by its IDs, e.g. if the member left the guild and is not cached anymore.
+	 *
+	 * @param guildId  The ID of the guild.
+	 * @param memberId The ID of the member.
+	 */
+	public void forgetMember(final long guildId, final long memberId) {
+		final Map<Long, SyncState> states = guildStates.get(guildId);
+		if (states != null) {
+			states.remove(memberId);
+		}
+	}
+
+	/**
+	 * Forgets the states of all members of a guild, e.g. if the bot left the guild.
+	 *
+	 * @param guildId The ID of the guild.
+	 */
+	public void forgetGuild(final long guildId) {
+		guildStates.remove(guildId);
+	}
+
+	/**
+	 * Gets the time of the last synchronisation of the member.
+	 *
+	 * @param member The member.
+	 * @return The time of the last synchronisation in milliseconds since the epoch or 0 if the member did not get
+	 * synchronised yet.
+	 */
+	public long getLastSync(final Member member) {
+		final SyncState state = getState(member);
+		return state == null ? 0 : state.lastSync;
+	}
+
+	/**
+	 * Gets the state of a member.
+	 *
+	 * @param member The member.
+	 * @return The state of the member or {@code null} if the member is not tracked.
+	 */
+	private SyncState getState(final Member member) {
+		final Map<Long, SyncState> states = guildStates.get(member.getGuild().getIdLong());
+		return states == null ? null : states.get(member.getIdLong());
+	}
+
+	/**
+	 * The synchronisation state of a single member.
+	 */
+	private static final class SyncState {
+
+		private final long lastSync;
+		private final long lastChange;
+		private final long[] roleIds;
+
+		private SyncState(final long lastSync, final long lastChange, final long[] roleIds) {
+			this.lastSync = lastSync;
+			this.lastChange = lastChange;
+			this.roleIds = roleIds;
+		}
+	}
+}
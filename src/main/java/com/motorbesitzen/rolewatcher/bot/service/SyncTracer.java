@@ -0,0 +1,172 @@
+package com.motorbesitzen.rolewatcher.bot.service;
+
+import com.motorbesitzen.rolewatcher.util.LogUtil;
+import io.opentelemetry.api.OpenTelemetry;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.api.trace.propagation.W3CTraceContextPropagator;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.context.propagation.ContextPropagators;
+import io.opentelemetry.context.propagation.TextMapGetter;
+import io.opentelemetry.sdk.OpenTelemetrySdk;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.export.BatchSpanProcessor;
+import io.opentelemetry.sdk.trace.samplers.Sampler;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Creates the tracing spans of the role synchronisation, so the time of a synchronisation can be split into the
+ * lookup of the forum user, the request to the forum, the role diff and the requests to Discord. The spans get written
+ * to the {@link JsonLinesSpanExporter trace file} if one is set, otherwise tracing is disabled and all spans are no-ops.
+ * The trace context of a synchronisation gets saved with its Discord actions, so the requests to Discord that the
+ * {@link DiscordActionWorker} sends later on belong to the same trace.
+ */
+@Service
+public class SyncTracer {
+
+	private static final String INSTRUMENTATION_NAME = "com.motorbesitzen.rolewatcher";
+	private static final String TRACE_PARENT = "traceparent";
+	private static final TextMapGetter<Map<String, String>> MAP_GETTER = new TextMapGetter<>() {
+		@Override
+		public Iterable<String> keys(final Map<String, String> carrier) {
+			return carrier.keySet();
+		}
+
+		@Override
+		public String get(final Map<String, String> carrier, final String key) {
+			return carrier == null ? null : carrier.get(key);
+		}
+	};
+
+	private final SdkTracerProvider tracerProvider;
+	private final OpenTelemetry openTelemetry;
+	private final Tracer tracer;
+
+	@Autowired
+	private SyncTracer(final EnvSettings envSettings) {
+		this.tracerProvider = buildTracerProvider(envSettings);
+		this.openTelemetry = tracerProvider == null ? OpenTelemetry.noop() : OpenTelemetrySdk.builder()
+				.setTracerProvider(tracerProvider)
+				.setPropagators(ContextPropagators.create(W3CTraceContextPropagator.getInstance()))
+				.build();
+		this.tracer = openTelemetry.getTracer(INSTRUMENTATION_NAME);
+	}
+
+	SyncTracer(final OpenTelemetry openTelemetry) {
+		this.tracerProvider = null;
+		this.openTelemetry = openTelemetry;
+		this.tracer = openTelemetry.getTracer(INSTRUMENTATION_NAME);
+	}
+
+	/**
+	 * Builds the tracer provider that writes the spans to the trace file.
+	 *
+	 * @param envSettings The class that handles the environment variables.
+	 * @return The tracer provider or {@code null} if there is no trace file set or it can not be opened.
+	 */
+	private static SdkTracerProvider buildTracerProvider(final EnvSettings envSettings) {
+		final String traceFile = envSettings.getTraceFile();
+		if (traceFile.isBlank()) {
+			return null;
+		}
+
+		final JsonLinesSpanExporter exporter;
+		try {
+			exporter = new JsonLinesSpanExporter(Paths.get(traceFile));
+		} catch (IOException e) {
+			LogUtil.logError("Could not open trace file \"" + traceFile + "\", tracing is disabled.", e);
+			return null;
+		}
+
+		LogUtil.logInfo("Writing traces to \"" + traceFile + "\".");
+		return SdkTracerProvider.builder()
+				.setSampler(Sampler.parentBased(Sampler.traceIdRatioBased(getSampleRatio(envSettings))))
+				.addSpanProcessor(BatchSpanProcessor.builder(exporter).build())
+				.build();
+	}
+
+	/**
+	 * Gets the share of traces that get recorded.
+	 *
+	 * @param envSettings The class that handles the environment variables.
+	 * @return The share between 0 and 1, 1 if the setting is invalid.
+	 */
+	private static double getSampleRatio(final EnvSettings envSettings) {
+		try {
+			final double ratio = Double.parseDouble(envSettings.getTraceSampleRatio());
+			return Math.max(0, Math.min(1, ratio));
+		} catch (NumberFormatException e) {
+			LogUtil.logWarning("Invalid trace sample ratio, tracing every synchronisation.");
+			return 1;
+		}
+	}
+
+	/**
+	 * Writes the remaining spans to the trace file when the application shuts down.
+	 */
+	@PreDestroy
+	private void shutdown() {
+		if (tracerProvider != null) {
+			tracerProvider.shutdown().join(10, TimeUnit.SECONDS);
+		}
+	}
+
+	/**
+	 * Starts a span as child of the current span, if there is any.
+	 *
+	 * @param name The name of the span.
+	 * @return The started span.
+	 */
+	public Span startSpan(final String name) {
+		return tracer.spanBuilder(name).startSpan();
+	}
+
+	/**
+	 * Starts a span as child of a span of another thread or an earlier run.
+	 *
+	 * @param name        The name of the span.
+	 * @param traceParent The trace context of the parent span as returned by {@link #getTraceParent()}.
+	 * @return The started span, a span without parent if the trace context is empty.
+	 */
+	public Span startSpan(final String name, final String traceParent) {
+		if (traceParent == null || traceParent.isBlank()) {
+			return tracer.spanBuilder(name).setNoParent().startSpan();
+		}
+
+		final Map<String, String> carrier = Map.of(TRACE_PARENT, traceParent);
+		final Context parent = openTelemetry.getPropagators().getTextMapPropagator().extract(Context.root(), carrier, MAP_GETTER);
+		return tracer.spanBuilder(name).setParent(parent).startSpan();
+	}
+
+	/**
+	 * Gets the trace context of the current span in the W3C {@code traceparent} format, so it can be saved and used as
+	 * parent in another thread or later on.
+	 *
+	 * @return The trace context or an empty String if there is no recorded span.
+	 */
+	public String getTraceParent() {
+		final Map<String, String> carrier = new HashMap<>();
+		openTelemetry.getPropagators().getTextMapPropagator().inject(Context.current(), carrier, Map::put);
+		return carrier.getOrDefault(TRACE_PARENT, "");
+	}
+
+	/**
+	 * Marks a span as failed.
+	 *
+	 * @param span  The failed span.
+	 * @param error The cause of the failure.
+	 */
+	public void recordError(final Span span, final Throwable error) {
+		span.recordException(error);
+		span.setStatus(StatusCode.ERROR, String.valueOf(error.getMessage()));
+	}
+}
@@ -0,0 +1,72 @@
+package com.motorbesitzen.rolewatcher.config;
+
+import com.motorbesitzen.rolewatcher.bot.service.EnvSettings;
+import com.motorbesitzen.rolewatcher.bot.service.ForumRoleApiRequest;
+import com.motorbesitzen.rolewatcher.bot.service.ForumRoleJdbcSource;
+import com.motorbesitzen.rolewatcher.bot.service.ForumRoleSource;
+import com.motorbesitzen.rolewatcher.bot.service.MeteredForumRoleSource;
+import com.motorbesitzen.rolewatcher.bot.service.SyncMetrics;
+import com.motorbesitzen.rolewatcher.data.repo.ForumRoleRepo;
+import com.motorbesitzen.rolewatcher.util.LogUtil;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+/**
+ * Provides the source of the forum roles.
+ */
+@Configuration
+public class ForumRoleSourceConfig {
+
+	private static final int MAX_CONNECTIONS = 3;
+
+	/**
+	 * Provides the source of the forum roles depending on the environment variables. Uses the forum role API unless
+	 * the forum database is selected as source. Records the latency and errors of the requests to the source.
+	 *
+	 * @param envSettings   The class that handles the environment variables.
+	 * @param apiRequest    The forum role API.
+	 * @param forumRoleRepo The repository of the known forum roles.
+	 * @param syncMetrics   The metrics of the role synchronisation.
+	 * @return The source of the forum roles.
+	 */
+	@Bean
+	@Primary
+	ForumRoleSource forumRoleSource(final EnvSettings envSettings, final ForumRoleApiRequest apiRequest,
+									final ForumRoleRepo forumRoleRepo, final SyncMetrics syncMetrics) {
+		if (!envSettings.getForumRoleSource().equalsIgnoreCase("jdbc")) {
+			return new MeteredForumRoleSource(apiRequest, syncMetrics);
+		}
+
+		LogUtil.logInfo("Using the forum database as forum role source.");
+		final ForumRoleJdbcSource jdbcSource = new ForumRoleJdbcSource(
+				buildForumDataSource(envSettings),
+				envSettings.getForumDbRoleQuery(),
+				envSettings.getForumDbRoleMembersQuery(),
+				forumRoleRepo
+		);
+		return new MeteredForumRoleSource(jdbcSource, syncMetrics);
+	}
+
+	/**
+	 * Builds a read only connection pool to the forum database. The pool does not get exposed as a bean so it does not
+	 * replace the database of the bot.
+	 *
+	 * @param envSettings The class that handles the environment variables.
+	 * @return The connection pool.
+	 */
+	private HikariDataSource buildForumDataSource(final EnvSettings envSettings) {
+		final HikariConfig config = new HikariConfig();
+		config.setPoolName("forum-db");
+		config.setJdbcUrl(envSettings.getForumDbUrl());
+		config.setUsername(envSettings.getForumDbUser());
+		config.setPassword(envSettings.getForumDbPassword());
+		config.setReadOnly(true);
+		config.setMaximumPoolSize(MAX_CONNECTIONS);
+		// do not fail the start if the forum database is not reachable yet
+		config.setInitializationFailTimeout(-1);
+		return new HikariDataSource(config);
+	}
+}
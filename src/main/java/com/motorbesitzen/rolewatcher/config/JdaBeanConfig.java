@@ -2,12 +2,14 @@ package com.motorbesitzen.rolewatcher.config;
 
 import com.motorbesitzen.rolewatcher.bot.service.EnvSettings;
 import com.motorbesitzen.rolewatcher.util.LogUtil;
-import net.dv8tion.jda.api.JDA;
-import net.dv8tion.jda.api.JDABuilder;
+import com.motorbesitzen.rolewatcher.util.ParseUtil;
 import net.dv8tion.jda.api.OnlineStatus;
 import net.dv8tion.jda.api.entities.Activity;
 import net.dv8tion.jda.api.hooks.ListenerAdapter;
 import net.dv8tion.jda.api.requests.GatewayIntent;
+import net.dv8tion.jda.api.sharding.DefaultShardManagerBuilder;
+import net.dv8tion.jda.api.sharding.ShardManager;
+import net.dv8tion.jda.api.utils.ConcurrentSessionController;
 import org.springframework.boot.SpringApplication;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.annotation.Bean;
@@ -24,25 +26,26 @@ import java.util.Map;
 public class JdaBeanConfig {
 
 	/**
-	 * Provides the JDA object by starting the bot. If the bot can not be started the application gets stopped.
+	 * Provides the shard manager by starting the shards of the bot. Each shard is its own JDA session that handles
+	 * the events of its guilds. If the bot can not be started the application gets stopped.
 	 *
 	 * @param envSettings        The class that handles the environment variables.
 	 * @param eventListeners     A list of event listeners.
 	 * @param applicationContext The Spring application context.
-	 * @return The 'core object' of the bot, the JDA.
+	 * @return The shard manager that manages the JDA sessions of the bot.
 	 */
 	@Bean
-	JDA startBot(final EnvSettings envSettings, final Map<String, ? extends ListenerAdapter> eventListeners,
-				 final ApplicationContext applicationContext) {
+	ShardManager startBot(final EnvSettings envSettings, final Map<String, ? extends ListenerAdapter> eventListeners,
+						  final ApplicationContext applicationContext) {
 		final String discordToken = getToken(envSettings, applicationContext);
-		final JDABuilder jdaBuilder = buildBot(envSettings, discordToken, eventListeners);
-		final JDA jda = botLogin(jdaBuilder);
-		if (jda == null) {
+		final DefaultShardManagerBuilder shardBuilder = buildBot(envSettings, discordToken, eventListeners);
+		final ShardManager shardManager = botLogin(shardBuilder);
+		if (shardManager == null) {
 			shutdown(applicationContext);
 			return null;
 		}
 
-		return jda;
+		return shardManager;
 	}
 
 	/**
@@ -70,22 +73,25 @@ public class JdaBeanConfig {
 	}
 
 	/**
-	 * Initializes the bot with the needed information.
+	 * Initializes the bot with the needed information. Shards log in concurrently as far as the session start limit
+	 * of the bot allows it.
 	 *
 	 * @param envSettings    The class that handles the environment variables.
 	 * @param discordToken   The Discord token of the bot.
 	 * @param eventListeners A list of event listeners.
-	 * @return A <a href="https://ci.dv8tion.net/job/JDA/javadoc/net/dv8tion/jda/api/JDA.html">JDA instance</a> of the bot.
+	 * @return A builder for the <a href="https://ci.dv8tion.net/job/JDA/javadoc/net/dv8tion/jda/api/sharding/ShardManager.html">ShardManager</a> of the bot.
 	 */
-	private JDABuilder buildBot(final EnvSettings envSettings, final String discordToken,
-								final Map<String, ? extends ListenerAdapter> eventListeners) {
+	private DefaultShardManagerBuilder buildBot(final EnvSettings envSettings, final String discordToken,
+												final Map<String, ? extends ListenerAdapter> eventListeners) {
 		final Activity activity = getBotActivity(envSettings);
-		final JDABuilder builder =
-				JDABuilder.createLight(
+		final DefaultShardManagerBuilder builder =
+				DefaultShardManagerBuilder.createLight(
 						discordToken,
 						EnumSet.of(GatewayIntent.GUILD_MEMBERS, GatewayIntent.GUILD_BANS, GatewayIntent.GUILD_MESSAGES)
-				).setStatus(OnlineStatus.ONLINE).setActivity(activity);
+				).setStatus(OnlineStatus.ONLINE).setActivity(activity)
+						.setSessionController(new ConcurrentSessionController());
 
+		setShards(envSettings, builder);
 		for (Map.Entry<String, ? extends ListenerAdapter> eventListener : eventListeners.entrySet()) {
 			builder.addEventListeners(eventListener.getValue());
 		}
@@ -93,6 +99,38 @@ public class JdaBeanConfig {
 		return builder;
 	}
 
+	/**
+	 * Sets the total amount of shards and the range of shards this instance connects according to the environment
+	 * variables. Without a total amount of shards Discord's recommended amount gets used and all shards get connected.
+	 *
+	 * @param envSettings The class that handles the environment variables.
+	 * @param builder     The builder of the shard manager.
+	 */
+	private void setShards(final EnvSettings envSettings, final DefaultShardManagerBuilder builder) {
+		final int shardTotal = ParseUtil.safelyParseStringToInt(envSettings.getShardTotal());
+		if (shardTotal <= 0) {
+			if (envSettings.getShardRange() != null) {
+				LogUtil.logWarning("Shard range needs a total amount of shards, ignoring shard range.");
+			}
+
+			return;
+		}
+
+		builder.setShardsTotal(shardTotal);
+		final String shardRange = envSettings.getShardRange();
+		if (shardRange == null || shardRange.isBlank()) {
+			return;
+		}
+
+		final int[] shardIds = ParseUtil.safelyParseShardRange(shardRange, shardTotal);
+		if (shardIds == null) {
+			LogUtil.logWarning("Shard range \"" + shardRange + "\" is invalid, connecting all shards.");
+			return;
+		}
+
+		builder.setShards(shardIds[0], shardIds[1]);
+	}
+
 	/**
 	 * Generates the activity for the bot to display in the Discord member list according
 	 * to information in the environment variables. Can be turned off by not including
@@ -150,12 +188,12 @@ public class JdaBeanConfig {
 	}
 
 	/**
-	 * Logs in the bot to the API.
+	 * Logs in the shards of the bot to the API.
 	 *
-	 * @param builder The builder that is supposed to generate the JDA instance.
-	 * @return The JDA instance, the 'core' of the API/the bot.
+	 * @param builder The builder that is supposed to generate the shard manager.
+	 * @return The shard manager, the 'core' of the API/the bot.
 	 */
-	private JDA botLogin(final JDABuilder builder) {
+	private ShardManager botLogin(final DefaultShardManagerBuilder builder) {
 		try {
 			return builder.build();
 		} catch (LoginException e) {
@@ -0,0 +1,29 @@
+package com.motorbesitzen.rolewatcher.config;
+
+import com.motorbesitzen.rolewatcher.bot.service.EnvSettings;
+import com.motorbesitzen.rolewatcher.bot.service.HashedTimingWheel;
+import com.motorbesitzen.rolewatcher.util.ParseUtil;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Provides the timing wheel that runs the delayed actions of the bot.
+ */
+@Configuration
+public class TimingWheelConfig {
+
+	private static final int WHEEL_SIZE = 512;
+
+	/**
+	 * Provides the timing wheel with the tick duration set in the environment variables. Tick durations below 10ms
+	 * get raised to 10ms.
+	 *
+	 * @param envSettings The class that handles the environment variables.
+	 * @return The timing wheel.
+	 */
+	@Bean(destroyMethod = "stop")
+	HashedTimingWheel timingWheel(final EnvSettings envSettings) {
+		final long tickMs = Math.max(10, ParseUtil.safelyParseStringToLong(envSettings.getTimingWheelTickMs()));
+		return new HashedTimingWheel(tickMs, WHEEL_SIZE);
+	}
+}
@@ -0,0 +1,37 @@
+package com.motorbesitzen.rolewatcher.data.dao;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.NotNull;
+
+@Entity
+public class BotInstance {
+
+	@Id
+	@NotNull
+	@NotBlank
+	private String instanceId;
+
+	private long heartbeatAt;
+
+	protected BotInstance() {
+	}
+
+	private BotInstance(String instanceId, long heartbeatAt) {
+		this.instanceId = instanceId;
+		this.heartbeatAt = heartbeatAt;
+	}
+
+	public static BotInstance createBotInstance(String instanceId, long heartbeatAt) {
+		return new BotInstance(instanceId, heartbeatAt);
+	}
+
+	public String getInstanceId() {
+		return instanceId;
+	}
+
+	public long getHeartbeatAt() {
+		return heartbeatAt;
+	}
+}
@@ -0,0 +1,172 @@
+package com.motorbesitzen.rolewatcher.data.dao;
+
+import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.validator.constraints.Length;
+
+import javax.persistence.*;
+import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.NotNull;
+
+@Entity
+@Table(indexes = {@Index(columnList = "nextAttemptAt"), @Index(columnList = "guildId, nextAttemptAt")})
+public class DiscordAction {
+
+	@Id
+	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	private long actionId;
+
+	@Version
+	private int version;
+
+	@NotNull
+	@NotBlank
+	@Column(unique = true)
+	private String actionKey;
+
+	@NotNull
+	@Enumerated(EnumType.STRING)
+	private DiscordActionType type;
+
+	private long guildId;
+
+	private long memberId;
+
+	@Lob
+	@NotNull
+	@ColumnDefault("''")
+	private String rolesToAdd;
+
+	@Lob
+	@NotNull
+	@ColumnDefault("''")
+	private String rolesToRemove;
+
+	@NotNull
+	@ColumnDefault("''")
+	@Length(max = 512)
+	private String reason;
+
+	@ColumnDefault("0")
+	private int attempts;
+
+	private long nextAttemptAt;
+
+	@NotNull
+	@ColumnDefault("''")
+	@Length(max = 64)
+	private String traceParent;
+
+	protected DiscordAction() {
+	}
+
+	private DiscordAction(DiscordActionType type, long guildId, long memberId, String reason, long nextAttemptAt) {
+		this.actionKey = buildActionKey(type, guildId, memberId);
+		this.type = type;
+		this.guildId = guildId;
+		this.memberId = memberId;
+		this.rolesToAdd = "";
+		this.rolesToRemove = "";
+		this.reason = reason;
+		this.attempts = 0;
+		this.nextAttemptAt = nextAttemptAt;
+		this.traceParent = "";
+	}
+
+	public static DiscordAction createRoleAction(long guildId, long memberId, long nextAttemptAt) {
+		return new DiscordAction(DiscordActionType.ROLES, guildId, memberId, "", nextAttemptAt);
+	}
+
+	public static DiscordAction createKickAction(long guildId, long memberId, String reason, long nextAttemptAt) {
+		return new DiscordAction(DiscordActionType.KICK, guildId, memberId, reason, nextAttemptAt);
+	}
+
+	public static DiscordAction createBanAction(long guildId, long memberId, String reason, long nextAttemptAt) {
+		return new DiscordAction(DiscordActionType.BAN, guildId, memberId, reason, nextAttemptAt);
+	}
+
+	public static String buildActionKey(DiscordActionType type, long guildId, long memberId) {
+		return type.name() + ":" + guildId + ":" + memberId;
+	}
+
+	public long getActionId() {
+		return actionId;
+	}
+
+	public int getVersion() {
+		return version;
+	}
+
+	public String getActionKey() {
+		return actionKey;
+	}
+
+	public DiscordActionType getType() {
+		return type;
+	}
+
+	public long getGuildId() {
+		return guildId;
+	}
+
+	public long getMemberId() {
+		return memberId;
+	}
+
+	public String getRolesToAdd() {
+		return rolesToAdd;
+	}
+
+	public void setRolesToAdd(String rolesToAdd) {
+		this.rolesToAdd = rolesToAdd;
+	}
+
+	public String getRolesToRemove() {
+		return rolesToRemove;
+	}
+
+	public void setRolesToRemove(String rolesToRemove) {
+		this.rolesToRemove = rolesToRemove;
+	}
+
+	public String getReason() {
+		return reason;
+	}
+
+	public void setReason(String reason) {
+		this.reason = reason;
+	}
+
+	public int getAttempts() {
+		return attempts;
+	}
+
+	public void setAttempts(int attempts) {
+		this.attempts = attempts;
+	}
+
+	public long getNextAttemptAt() {
+		return nextAttemptAt;
+	}
+
+	public void setNextAttemptAt(long nextAttemptAt) {
+		this.nextAttemptAt = nextAttemptAt;
+	}
+
+	public String getTraceParent() {
+		return traceParent;
+	}
+
+	public void setTraceParent(String traceParent) {
+		this.traceParent = traceParent;
+	}
+
+	@Override
+	public String toString() {
+		return '{' +
+				"actionKey='" + actionKey + '\'' +
+				", rolesToAdd='" + rolesToAdd + '\'' +
+				", rolesToRemove='" + rolesToRemove + '\'' +
+				", attempts=" + attempts +
+				'}';
+	}
+}
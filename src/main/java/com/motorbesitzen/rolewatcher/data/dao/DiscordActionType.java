@@ -0,0 +1,5 @@
+package com.motorbesitzen.rolewatcher.data.dao;
+
+public enum DiscordActionType {
+	ROLES, KICK, BAN
+}
@@ -0,0 +1,81 @@
+package com.motorbesitzen.rolewatcher.data.dao;
+
+import org.hibernate.annotations.ColumnDefault;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Version;
+import javax.validation.constraints.NotNull;
+
+@Entity
+public class PartitionLease {
+
+	@Id
+	private int partitionId;
+
+	// a wrapper, so Spring Data detects new leases by the missing version instead of the partition ID 0
+	@Version
+	private Integer version;
+
+	@NotNull
+	@ColumnDefault("''")
+	private String ownerId;
+
+	private long expiresAt;
+
+	protected PartitionLease() {
+	}
+
+	private PartitionLease(int partitionId) {
+		this.partitionId = partitionId;
+		this.ownerId = "";
+		this.expiresAt = 0;
+	}
+
+	public static PartitionLease createPartitionLease(int partitionId) {
+		return new PartitionLease(partitionId);
+	}
+
+	public int getPartitionId() {
+		return partitionId;
+	}
+
+	public Integer getVersion() {
+		return version;
+	}
+
+	public String getOwnerId() {
+		return ownerId;
+	}
+
+	public long getExpiresAt() {
+		return expiresAt;
+	}
+
+	public boolean isOwnedBy(String instanceId) {
+		return ownerId.equals(instanceId);
+	}
+
+	public boolean isExpired(long now) {
+		return ownerId.isEmpty() || expiresAt <= now;
+	}
+
+	public void claim(String instanceId, long expiresAt) {
+		this.ownerId = instanceId;
+		this.expiresAt = expiresAt;
+	}
+
+	public void release() {
+		this.ownerId = "";
+		this.expiresAt = 0;
+	}
+
+	@Override
+	public String toString() {
+		return '{' +
+				"partitionId=" + partitionId +
+				", ownerId='" + ownerId + '\'' +
+				", expiresAt=" + expiresAt +
+				'}';
+	}
+}
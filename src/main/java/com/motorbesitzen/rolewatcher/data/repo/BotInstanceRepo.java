@@ -0,0 +1,14 @@
+package com.motorbesitzen.rolewatcher.data.repo;
+
+import com.motorbesitzen.rolewatcher.data.dao.BotInstance;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+public interface BotInstanceRepo extends CrudRepository<BotInstance, String> {
+	List<BotInstance> findAllByHeartbeatAtGreaterThan(long time);
+
+	@Transactional
+	long deleteByHeartbeatAtLessThanEqual(long time);
+}
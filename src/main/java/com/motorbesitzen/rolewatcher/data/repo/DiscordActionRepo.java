@@ -0,0 +1,24 @@
+package com.motorbesitzen.rolewatcher.data.repo;
+
+import com.motorbesitzen.rolewatcher.data.dao.DiscordAction;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Optional;
+
+public interface DiscordActionRepo extends CrudRepository<DiscordAction, Long> {
+	Optional<DiscordAction> findByActionKey(String actionKey);
+
+	@Query("SELECT DISTINCT a.guildId FROM DiscordAction a WHERE a.nextAttemptAt <= ?1")
+	List<Long> findGuildIdsWithDueActions(long time);
+
+	List<DiscordAction> findTop10ByGuildIdAndNextAttemptAtLessThanEqualOrderByNextAttemptAtAsc(long guildId, long time);
+
+	@Transactional
+	long deleteByActionIdAndVersion(long actionId, int version);
+
+	@Transactional
+	long deleteByActionKeyIn(List<String> actionKeys);
+}
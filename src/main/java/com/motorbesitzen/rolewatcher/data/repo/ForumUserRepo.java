@@ -3,10 +3,36 @@ package com.motorbesitzen.rolewatcher.data.repo;
 import com.motorbesitzen.rolewatcher.data.dao.ForumUser;
 import org.springframework.data.repository.CrudRepository;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 public interface ForumUserRepo extends CrudRepository<ForumUser, Long> {
+
+	int DISCORD_ID_BATCH_SIZE = 1000;
+
 	Optional<ForumUser> findByForumIdOrLinkedDiscordUser_DiscordId(long forumId, long discordId);
 
 	Optional<ForumUser> findByLinkedDiscordUser_DiscordId(long discordId);
+
+	List<ForumUser> findAllByLinkedDiscordUser_DiscordIdIn(Collection<Long> discordIds);
+
+	/**
+	 * Finds the forum users linked to the Discord users with {@value DISCORD_ID_BATCH_SIZE} Discord IDs per query,
+	 * so the {@code IN} clause does not grow with the size of a guild.
+	 *
+	 * @param discordIds The IDs of the Discord users.
+	 * @return The forum users linked to any of the Discord users.
+	 */
+	default List<ForumUser> findAllLinkedTo(final Collection<Long> discordIds) {
+		final List<Long> ids = new ArrayList<>(discordIds);
+		final List<ForumUser> linkedUsers = new ArrayList<>();
+		for (int i = 0; i < ids.size(); i += DISCORD_ID_BATCH_SIZE) {
+			final List<Long> batch = ids.subList(i, Math.min(i + DISCORD_ID_BATCH_SIZE, ids.size()));
+			linkedUsers.addAll(findAllByLinkedDiscordUser_DiscordIdIn(batch));
+		}
+
+		return linkedUsers;
+	}
 }
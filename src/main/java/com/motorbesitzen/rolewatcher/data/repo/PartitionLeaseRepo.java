@@ -0,0 +1,8 @@
+package com.motorbesitzen.rolewatcher.data.repo;
+
+import com.motorbesitzen.rolewatcher.data.dao.PartitionLease;
+import org.springframework.data.repository.CrudRepository;
+
+public interface PartitionLeaseRepo extends CrudRepository<PartitionLease, Integer> {
+
+}
@@ -3,8 +3,11 @@ package com.motorbesitzen.rolewatcher.util;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.function.Supplier;
+
 /**
- * Helper functions for logging.
+ * Helper functions for logging. Messages that need to be built from several values should use the overloads with
+ * {@code {}} placeholders or a {@code Supplier}, so the message only gets built if the level is enabled.
  */
 public final class LogUtil {
 
@@ -19,6 +22,16 @@ public final class LogUtil {
 		LOGGER.info(message);
 	}
 
+	/**
+	 * Used to log an information. The message only gets built if the info level is enabled.
+	 *
+	 * @param format The message with a {@code {}} placeholder for each argument.
+	 * @param args   The arguments to replace the placeholders with.
+	 */
+	public static void logInfo(String format, Object... args) {
+		LOGGER.info(format, args);
+	}
+
 	/**
 	 * Used to log a warning due to some weird behaviour. Uses Spring (slf4j) info logger ({@code Logger.warn(...)}).
 	 *
@@ -28,6 +41,16 @@ public final class LogUtil {
 		LOGGER.warn(message);
 	}
 
+	/**
+	 * Used to log a warning due to some weird behaviour. The message only gets built if the warn level is enabled.
+	 *
+	 * @param format The message with a {@code {}} placeholder for each argument.
+	 * @param args   The arguments to replace the placeholders with.
+	 */
+	public static void logWarning(String format, Object... args) {
+		LOGGER.warn(format, args);
+	}
+
 	/**
 	 * Used to log debug information. Uses Spring (slf4j) debug logger ({@code Logger.debug(...)}).
 	 *
@@ -37,6 +60,59 @@ public final class LogUtil {
 		LOGGER.debug(message);
 	}
 
+	/**
+	 * Used to log debug information. The message only gets built if the debug level is enabled.
+	 *
+	 * @param format The message with a {@code {}} placeholder for the argument.
+	 * @param arg    The argument to replace the placeholder with.
+	 */
+	public static void logDebug(String format, Object arg) {
+		LOGGER.debug(format, arg);
+	}
+
+	/**
+	 * Used to log debug information. The message only gets built if the debug level is enabled.
+	 *
+	 * @param format The message with a {@code {}} placeholder for each argument.
+	 * @param arg1   The argument to replace the first placeholder with.
+	 * @param arg2   The argument to replace the second placeholder with.
+	 */
+	public static void logDebug(String format, Object arg1, Object arg2) {
+		LOGGER.debug(format, arg1, arg2);
+	}
+
+	/**
+	 * Used to log debug information. The message only gets built if the debug level is enabled. Prefer the overloads
+	 * with one or two arguments as this one creates an array for the arguments even if debug is disabled.
+	 *
+	 * @param format The message with a {@code {}} placeholder for each argument.
+	 * @param args   The arguments to replace the placeholders with.
+	 */
+	public static void logDebug(String format, Object... args) {
+		LOGGER.debug(format, args);
+	}
+
+	/**
+	 * Used to log debug information that is expensive to compute, e.g. if it needs to call methods that create new
+	 * objects. The supplier only gets called if the debug level is enabled.
+	 *
+	 * @param message Supplies the message to print as debug information.
+	 */
+	public static void logDebug(Supplier<String> message) {
+		if (LOGGER.isDebugEnabled()) {
+			LOGGER.debug(message.get());
+		}
+	}
+
+	/**
+	 * Checks if debug information gets logged.
+	 *
+	 * @return {@code true} if the debug level is enabled.
+	 */
+	public static boolean isDebugEnabled() {
+		return LOGGER.isDebugEnabled();
+	}
+
 	/**
 	 * Used to log errors. Uses Spring (slf4j) debug logger ({@code Logger.debug(...)}).
 	 *
@@ -41,4 +41,53 @@ public final class ParseUtil {
 			return -1;
 		}
 	}
+
+	/**
+	 * Tries to parse a {@code String} of seconds with an optional fraction like {@code 1.25} to milliseconds. Rounds
+	 * up to full milliseconds.
+	 *
+	 * @param secondsString The {@code String} representation of the seconds.
+	 * @return The milliseconds or -1 if the {@code String} can not be parsed or is negative, infinite or too large.
+	 */
+	public static long safelyParseSecondsToMillis(final String secondsString) {
+		if (secondsString == null) {
+			return -1;
+		}
+
+		final double seconds;
+		try {
+			seconds = Double.parseDouble(secondsString.trim());
+		} catch (NumberFormatException e) {
+			return -1;
+		}
+
+		if (!(seconds >= 0) || seconds >= Long.MAX_VALUE / 1000.0) {
+			return -1;
+		}
+
+		return (long) Math.ceil(seconds * 1000);
+	}
+
+	/**
+	 * Tries to parse a range of shard IDs like {@code 0-3} or a single shard ID like {@code 2}.
+	 *
+	 * @param shardRange The {@code String} representation of the range.
+	 * @param shardTotal The total amount of shards.
+	 * @return The first and the last shard ID of the range or {@code null} if the range can not be parsed or is not
+	 * inside the shards.
+	 */
+	public static int[] safelyParseShardRange(final String shardRange, final int shardTotal) {
+		if (shardRange == null) {
+			return null;
+		}
+
+		final String[] rangeParts = shardRange.split("-");
+		final int minShardId = safelyParseStringToInt(rangeParts[0]);
+		final int maxShardId = rangeParts.length == 2 ? safelyParseStringToInt(rangeParts[1]) : minShardId;
+		if (rangeParts.length > 2 || minShardId < 0 || maxShardId < minShardId || maxShardId >= shardTotal) {
+			return null;
+		}
+
+		return new int[]{minShardId, maxShardId};
+	}
 }
@@ -0,0 +1,36 @@
+package com.motorbesitzen.rolewatcher.util;
+
+import net.dv8tion.jda.api.entities.Role;
+
+import java.util.List;
+
+/**
+ * The Discord roles that need to be added to and removed from a member to match the forum roles of the user.
+ */
+public final class RoleDiff {
+
+	private final List<Role> rolesToAdd;
+	private final List<Role> rolesToRemove;
+
+	RoleDiff(final List<Role> rolesToAdd, final List<Role> rolesToRemove) {
+		this.rolesToAdd = rolesToAdd;
+		this.rolesToRemove = rolesToRemove;
+	}
+
+	public List<Role> getRolesToAdd() {
+		return rolesToAdd;
+	}
+
+	public List<Role> getRolesToRemove() {
+		return rolesToRemove;
+	}
+
+	/**
+	 * Checks if the roles of the member already match the forum roles.
+	 *
+	 * @return {@code true} if no role has to be added or removed.
+	 */
+	public boolean isEmpty() {
+		return rolesToAdd.isEmpty() && rolesToRemove.isEmpty();
+	}
+}
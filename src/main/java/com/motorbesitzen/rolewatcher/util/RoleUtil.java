@@ -7,25 +7,59 @@ import net.dv8tion.jda.api.entities.Member;
 import net.dv8tion.jda.api.entities.Role;
 
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
 
 public final class RoleUtil {
 
 	/**
-	 * Updates the Discord roles of a member according to the roles the user has on the forum.
-	 * Removes forum roles the user does not have assigned anymore and adds forum roles that are missing.
+	 * Computes the changes needed to update the Discord roles of a member according to the roles the user has on
+	 * the forum. Forum roles the user does not have assigned anymore get removed and forum roles that are missing
+	 * get added. Does not change any roles, the changes get applied by the
+	 * {@link com.motorbesitzen.rolewatcher.bot.service.DiscordActionOutbox}.
 	 *
 	 * @param member           The member to update the roles of.
 	 * @param memberForumRoles The roles the user has on the forum.
 	 * @param allForumRoles    A list of all forum roles.
+	 * @return The roles to add to and to remove from the member.
 	 */
-	public static void updateRoles(Member member, List<ForumRole> memberForumRoles, Iterable<ForumRole> allForumRoles) {
+	public static RoleDiff getRoleDiff(Member member, List<ForumRole> memberForumRoles, Iterable<ForumRole> allForumRoles) {
+		RoleDiff targetRoles = getTargetRoles(member, memberForumRoles, allForumRoles);
+		// the lists of the target roles do not get used anywhere else, so they can be reduced to the diff directly
+		removeAppliedRoles(member, targetRoles.getRolesToAdd(), targetRoles.getRolesToRemove());
+		return targetRoles;
+	}
+
+	/**
+	 * Computes the changes needed to give a member the target roles. Does not modify the target roles.
+	 *
+	 * @param member      The member to update the roles of.
+	 * @param targetRoles The roles the member should and should not have, see {@link #getTargetRoles(Member, List, Iterable)}.
+	 * @return The roles to add to and to remove from the member.
+	 */
+	public static RoleDiff getRoleDiff(Member member, RoleDiff targetRoles) {
+		List<Role> rolesToAdd = new ArrayList<>(targetRoles.getRolesToAdd());
+		List<Role> rolesToRemove = new ArrayList<>(targetRoles.getRolesToRemove());
+		removeAppliedRoles(member, rolesToAdd, rolesToRemove);
+		return new RoleDiff(rolesToAdd, rolesToRemove);
+	}
+
+	/**
+	 * Computes the Discord roles of the forum roles a member should have and should not have according to the roles
+	 * the user has on the forum, regardless of the roles the member currently has. Roles the bot can not interact
+	 * with are left out.
+	 *
+	 * @param member           The member to get the target roles of.
+	 * @param memberForumRoles The roles the user has on the forum.
+	 * @param allForumRoles    A list of all forum roles.
+	 * @return The roles the member should have as roles to add and the roles the member should not have as roles to
+	 * remove.
+	 */
+	public static RoleDiff getTargetRoles(Member member, List<ForumRole> memberForumRoles, Iterable<ForumRole> allForumRoles) {
 		Guild guild = member.getGuild();
 		Member me = guild.getSelfMember();
 		List<Role> rolesToAdd = new ArrayList<>();
 		List<Role> rolesToRemove = new ArrayList<>();
-		handleDuplicateNamedRoles(memberForumRoles, allForumRoles);
+		List<ForumRole> syncedForumRoles = withDuplicateNamedRoles(memberForumRoles, allForumRoles);
 
 		for (ForumRole forumRole : allForumRoles) {
 			List<Role> matchingRoles = guild.getRolesByName(forumRole.getRoleName(), true);
@@ -35,44 +69,65 @@ public final class RoleUtil {
 
 			Role matchingRole = matchingRoles.get(0);
 			if (!me.canInteract(matchingRole)) {
-				LogUtil.logDebug("Can not assign role \"" + matchingRole.getName() + "\" to members. Move bot role above that role!");
+				LogUtil.logDebug("Can not assign role \"{}\" to members. Move bot role above that role!", matchingRole.getName());
 				continue;
 			}
 
-			if (memberForumRoles.contains(forumRole)) {
+			if (syncedForumRoles.contains(forumRole)) {
 				rolesToAdd.add(matchingRole);
 			} else {
 				rolesToRemove.add(matchingRole);
 			}
 		}
 
-		LogUtil.logDebug("CurrentRoles: " + Arrays.toString(member.getRoles().toArray()));
-		LogUtil.logDebug("RolesAdd: " + Arrays.toString(rolesToAdd.toArray()));
-		LogUtil.logDebug("RolesRemove: " + Arrays.toString(rolesToRemove.toArray()));
+		return new RoleDiff(rolesToAdd, rolesToRemove);
+	}
 
-		addRoles(member, rolesToAdd);
-		removeRoles(member, rolesToRemove);
+	/**
+	 * Removes the roles the member already has from the roles to add and the roles the member does not have from the
+	 * roles to remove.
+	 *
+	 * @param member        The member.
+	 * @param rolesToAdd    The roles to add, gets modified.
+	 * @param rolesToRemove The roles to remove, gets modified.
+	 */
+	private static void removeAppliedRoles(Member member, List<Role> rolesToAdd, List<Role> rolesToRemove) {
+		// JDA copies the roles on each call
+		List<Role> currentRoles = member.getRoles();
+		LogUtil.logDebug("CurrentRoles: {}", currentRoles);
+		LogUtil.logDebug("RolesAdd: {}", rolesToAdd);
+		LogUtil.logDebug("RolesRemove: {}", rolesToRemove);
+
+		rolesToAdd.removeIf(currentRoles::contains);
+		rolesToRemove.removeIf(role -> !currentRoles.contains(role));
 	}
 
 	/**
 	 * If there are two roles with the same name but different IDs then just add that role to the users' roles.
 	 * So the role does not get removed in Discord as {@code guild.modifyMemberRoles(...)} removes the role
-	 * if it is present in the add and remove list.
+	 * if it is present in the add and remove list. The roles of the member do not get modified as the same list may
+	 * get used for the member in several guilds at the same time.
 	 *
 	 * @param memberForumRoles The roles of the member.
 	 * @param allForumRoles    A list of all forum roles.
+	 * @return The roles of the member if there are no duplicate named roles, otherwise a new list with the roles of
+	 * the member and the duplicate named roles.
 	 */
-	private static void handleDuplicateNamedRoles(List<ForumRole> memberForumRoles, Iterable<ForumRole> allForumRoles) {
-		List<ForumRole> dupRoles = new ArrayList<>();
+	private static List<ForumRole> withDuplicateNamedRoles(List<ForumRole> memberForumRoles, Iterable<ForumRole> allForumRoles) {
+		List<ForumRole> dupRoles = null;
 		for (ForumRole memberRole : memberForumRoles) {
 			for (ForumRole forumRole : allForumRoles) {
 				if (isDuplicateRoleName(memberForumRoles, memberRole, forumRole)) {
+					if (dupRoles == null) {
+						dupRoles = new ArrayList<>(memberForumRoles);
+					}
+
 					dupRoles.add(forumRole);
 				}
 			}
 		}
 
-		memberForumRoles.addAll(dupRoles);
+		return dupRoles == null ? memberForumRoles : dupRoles;
 	}
 
 	/**
@@ -93,83 +148,46 @@ public final class RoleUtil {
 	}
 
 	/**
-	 * Adds roles to a Discord member if he does not have it already.
+	 * Checks if the user has a role with the same ID as the banned role. Returns false if no role ID is
+	 * set in the environment variables.
 	 *
-	 * @param member The member to update the roles of.
-	 * @param roles  The roles to add to the member.
+	 * @param envSettings The class that handles the environment variables.
+	 * @param forumRoles  The list of forum roles the user has.
+	 * @return {@code true} if the user has the banned role on the forum, {@code false} if there is no
+	 * banned role ID set, the user does not have the banned role or if the ID exceeds Integer range.
 	 */
-	private static void addRoles(final Member member, final List<Role> roles) {
-		Guild guild = member.getGuild();
-		for (Role role : roles) {
-			if (member.getRoles().contains(role)) {
-				continue;
-			}
-
-			guild.addRoleToMember(member, role).queue(
-					v -> LogUtil.logDebug(
-							"Added role \"" + role.getName() + "\" to member \"" +
-									member.getUser().getAsTag() + "\" (" + member.getId() + ")."
-					),
-					throwable -> LogUtil.logWarning(
-							"Could not add role \"" + role.getName() + "\" to member \"" +
-									member.getUser().getAsTag() + "\" (" + member.getId() + ")  due to \"" + throwable.getMessage() + "\"."
-					)
-			);
+	public static boolean hasBannedRole(final EnvSettings envSettings, final List<ForumRole> forumRoles) {
+		final long bannedRoleId = getBannedRoleId(envSettings);
+		if (bannedRoleId == -1) {
+			return false;
 		}
-	}
 
-	/**
-	 * Removes roles from a Discord member if he has it assigned.
-	 *
-	 * @param member The member to update the roles of.
-	 * @param roles  The roles to remove from the member.
-	 */
-	private static void removeRoles(final Member member, final List<Role> roles) {
-		Guild guild = member.getGuild();
-		for (Role role : roles) {
-			if (!member.getRoles().contains(role)) {
-				continue;
+		for (ForumRole forumRole : forumRoles) {
+			if (forumRole.getRoleId() == bannedRoleId) {
+				return true;
 			}
-
-			guild.removeRoleFromMember(member, role).queue(
-					v -> LogUtil.logDebug("Removed role \"" + role.getName() + "\" from member \"" +
-							member.getUser().getAsTag() + "\" (" + member.getId() + ")."
-					),
-					throwable -> LogUtil.logWarning(
-							"Could not remove role \"" + role.getName() + "\" from member \"" +
-									member.getUser().getAsTag() + "\" (" + member.getId() + ")  due to \"" + throwable.getMessage() + "\"."
-					)
-			);
 		}
+
+		return false;
 	}
 
 	/**
-	 * Checks if the user has a role with the same ID as the banned role. Returns false if no role ID is
-	 * set in the environment variables.
+	 * Gets the ID of the forum role that indicates a ban.
 	 *
 	 * @param envSettings The class that handles the environment variables.
-	 * @param forumRoles  The list of forum roles the user has.
-	 * @return {@code true} if the user has the banned role on the forum, {@code false} if there is no
-	 * banned role ID set, the user does not have the banned role or if the ID exceeds Integer range.
+	 * @return The ID of the banned role or -1 if there is no (valid) banned role ID set.
 	 */
-	public static boolean hasBannedRole(final EnvSettings envSettings, final List<ForumRole> forumRoles) {
+	public static long getBannedRoleId(final EnvSettings envSettings) {
 		final String bannedRoleIdStr = envSettings.getForumBannedRoleId();
 		if (bannedRoleIdStr.isBlank()) {
-			return false;
+			return -1;
 		}
 
 		final long bannedRoleId = ParseUtil.safelyParseStringToLong(bannedRoleIdStr);
 		if (bannedRoleId == -1) {
 			LogUtil.logWarning("Invalid banned role ID! Please set a valid ID or remove the environment variable completely.");
-			return false;
 		}
 
-		for (ForumRole forumRole : forumRoles) {
-			if (forumRole.getRoleId() == bannedRoleId) {
-				return true;
-			}
-		}
-
-		return false;
+		return bannedRoleId;
 	}
 }
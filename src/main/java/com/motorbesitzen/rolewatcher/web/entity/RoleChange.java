@@ -0,0 +1,39 @@
+package com.motorbesitzen.rolewatcher.web.entity;
+
+import com.fasterxml.jackson.annotation.JsonAlias;
+
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+import java.util.List;
+
+public class RoleChange {
+
+	@NotNull
+	@Min(value = 1)
+	private Long uid;
+
+	@NotNull
+	@JsonAlias("roleids")    // for jackson in web API
+	private List<@NotNull Long> roleIds;
+
+	// Jackson
+	private RoleChange() {
+
+	}
+
+	public long getUid() {
+		return uid;
+	}
+
+	public void setUid(long uid) {
+		this.uid = uid;
+	}
+
+	public List<Long> getRoleIds() {
+		return roleIds;
+	}
+
+	public void setRoleIds(List<Long> roleIds) {
+		this.roleIds = roleIds;
+	}
+}
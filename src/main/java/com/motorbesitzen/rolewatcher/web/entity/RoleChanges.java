@@ -0,0 +1,26 @@
+package com.motorbesitzen.rolewatcher.web.entity;
+
+import javax.validation.Valid;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Size;
+import java.util.List;
+
+public class RoleChanges {
+
+	@NotNull
+	@Size(max = 1000)
+	private List<@Valid @NotNull RoleChange> changes;
+
+	// Jackson
+	private RoleChanges() {
+
+	}
+
+	public List<RoleChange> getChanges() {
+		return changes;
+	}
+
+	public void setChanges(List<RoleChange> changes) {
+		this.changes = changes;
+	}
+}
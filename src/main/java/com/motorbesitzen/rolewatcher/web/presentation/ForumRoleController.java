@@ -0,0 +1,109 @@
+package com.motorbesitzen.rolewatcher.web.presentation;
+
+import com.motorbesitzen.rolewatcher.bot.service.ForumRoleChangeHandler;
+import com.motorbesitzen.rolewatcher.bot.service.ForumRoleSnapshotImporter;
+import com.motorbesitzen.rolewatcher.bot.service.RoleSnapshotDiff;
+import com.motorbesitzen.rolewatcher.bot.service.SnapshotImportRunningException;
+import com.motorbesitzen.rolewatcher.util.LogUtil;
+import com.motorbesitzen.rolewatcher.web.entity.RoleChange;
+import com.motorbesitzen.rolewatcher.web.entity.RoleChanges;
+import com.motorbesitzen.rolewatcher.web.entity.validation.ValidApiKey;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.BindingResult;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.*;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.validation.Valid;
+import java.io.IOException;
+import java.util.zip.ZipException;
+
+/**
+ * Handles role related requests.
+ */
+@RestController
+@Validated
+public class ForumRoleController {
+
+	private final ForumRoleChangeHandler changeHandler;
+	private final ForumRoleSnapshotImporter snapshotImporter;
+
+	@Autowired
+	public ForumRoleController(final ForumRoleChangeHandler changeHandler,
+							   final ForumRoleSnapshotImporter snapshotImporter) {
+		this.changeHandler = changeHandler;
+		this.snapshotImporter = snapshotImporter;
+	}
+
+	/**
+	 * Validates the {@param key} and if it is valid applies the role changes of the forum users to the linked Discord
+	 * users in all guilds with the role sync permission.
+	 *
+	 * @param key           The API key used.
+	 * @param roleChanges   The users whose roles changed and their new role IDs.
+	 * @param bindingResult The results of binding the JSON in the body to the {@link RoleChanges} object.
+	 * @return A response with the status code representing the result of the request (200 = success, 422 = Invalid
+	 * entity, 500 = some internal error) and the amount of applied and unknown users in the body on success.
+	 */
+	@RequestMapping(value = "/roles/changes", method = RequestMethod.POST, consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+	public ResponseEntity<?> applyRoleChanges(@ValidApiKey @RequestParam(value = "key", required = false) final String key,
+											  @Valid @RequestBody final RoleChanges roleChanges,
+											  final BindingResult bindingResult) {
+		// key does not get used as it gets validated before any of this code below even starts, DO NOT REMOVE KEY
+		if (bindingResult.hasErrors()) {
+			return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY).body(
+					"{\"error\": \"Invalid/corrupted data!\"}"
+			);
+		}
+
+		int applied = 0;
+		int unknown = 0;
+		for (RoleChange roleChange : roleChanges.getChanges()) {
+			if (changeHandler.applyRoleChange(roleChange.getUid(), roleChange.getRoleIds())) {
+				applied++;
+			} else {
+				unknown++;
+			}
+		}
+
+		return ResponseEntity.status(HttpStatus.OK).body(
+				"{\"applied\": " + applied + ", \"unknown\": " + unknown + "}"
+		);
+	}
+
+	/**
+	 * Validates the {@param key} and if it is valid imports the gzip compressed role snapshot in the body and updates
+	 * the roles of all users whose roles changed since the previous snapshot.
+	 *
+	 * @param key     The API key used.
+	 * @param request Information about the HTTP request, the body gets streamed from it.
+	 * @return A response with the status code representing the result of the import (200 = success, 409 = another
+	 * import is running, 422 = invalid snapshot, 500 = some internal error) and the amount of users and changed
+	 * users in the body on success.
+	 * @throws IOException if the snapshot can not be read or stored.
+	 */
+	@RequestMapping(value = "/roles/snapshot", method = RequestMethod.POST, produces = MediaType.APPLICATION_JSON_VALUE)
+	public ResponseEntity<?> importRoleSnapshot(@ValidApiKey @RequestParam(value = "key", required = false) final String key,
+												final HttpServletRequest request) throws IOException {
+		final RoleSnapshotDiff diff;
+		try {
+			diff = snapshotImporter.importSnapshot(request.getInputStream());
+		} catch (SnapshotImportRunningException e) {
+			return ResponseEntity.status(HttpStatus.CONFLICT).body(
+					"{\"error\": \"Another snapshot import is running!\"}"
+			);
+		} catch (IllegalArgumentException | ZipException e) {
+			LogUtil.logDebug("Received invalid role snapshot: " + e.getMessage());
+			return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY).body(
+					"{\"error\": \"Invalid/corrupted snapshot!\"}"
+			);
+		}
+
+		return ResponseEntity.status(HttpStatus.OK).body(
+				"{\"users\": " + diff.getUserCount() + ", \"changed\": " + diff.getChangedCount() + "}"
+		);
+	}
+}
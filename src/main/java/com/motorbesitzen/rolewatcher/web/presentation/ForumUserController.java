@@ -3,13 +3,15 @@ package com.motorbesitzen.rolewatcher.web.presentation;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.motorbesitzen.rolewatcher.bot.event.AutokickSweeper;
+import com.motorbesitzen.rolewatcher.bot.service.DiscordActionOutbox;
+import com.motorbesitzen.rolewatcher.bot.service.SyncMetrics;
 import com.motorbesitzen.rolewatcher.data.dao.*;
 import com.motorbesitzen.rolewatcher.data.repo.*;
 import com.motorbesitzen.rolewatcher.util.LogUtil;
-import com.motorbesitzen.rolewatcher.util.RoleUtil;
 import com.motorbesitzen.rolewatcher.web.entity.validation.ValidApiKey;
-import net.dv8tion.jda.api.JDA;
 import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.sharding.ShardManager;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.HttpStatus;
@@ -36,18 +38,25 @@ public class ForumUserController {
 	private final DiscordBanRepo banRepo;
 	private final DiscordGuildRepo guildRepo;
 	private final ForumRoleRepo forumRoleRepo;
-	private final JDA jda;
+	private final ShardManager shardManager;
+	private final DiscordActionOutbox actionOutbox;
+	private final SyncMetrics syncMetrics;
+	private final AutokickSweeper autokickSweeper;
 
 	@Autowired
 	public ForumUserController(final ForumUserRepo forumUserRepo, final LinkingInformationRepo linkingRepo,
 							   final DiscordBanRepo banRepo, final DiscordGuildRepo guildRepo,
-							   final ForumRoleRepo forumRoleRepo, final JDA jda) {
+							   final ForumRoleRepo forumRoleRepo, final ShardManager shardManager, final DiscordActionOutbox actionOutbox,
+							   final SyncMetrics syncMetrics, final AutokickSweeper autokickSweeper) {
 		this.forumUserRepo = forumUserRepo;
 		this.linkingRepo = linkingRepo;
 		this.banRepo = banRepo;
 		this.guildRepo = guildRepo;
 		this.forumRoleRepo = forumRoleRepo;
-		this.jda = jda;
+		this.shardManager = shardManager;
+		this.actionOutbox = actionOutbox;
+		this.syncMetrics = syncMetrics;
+		this.autokickSweeper = autokickSweeper;
 	}
 
 	/**
@@ -113,7 +122,8 @@ public class ForumUserController {
 	/**
 	 * Handles a DataIntegrityViolationException that may occur if there are multiple simultaneous requests
 	 * for a user that produce a race condition on inserting the user.
-	 * Tries to update the user entry with the newest information available.
+	 * Tries to update the user entry with the newest information available. Each conflict gets counted, so load
+	 * tests and the metrics show how often simultaneous requests collide.
 	 *
 	 * @param e                  The exception.
 	 * @param linkingInformation The linking information for the user.
@@ -121,10 +131,14 @@ public class ForumUserController {
 	private void handleDataIntegrityViolationException(final DataIntegrityViolationException e, final LinkingInformation linkingInformation) {
 		linkingRepo.findById(linkingInformation.getUid()).ifPresentOrElse(
 				oldLinkingInformation -> {
+					syncMetrics.recordLinkConflict(true);
 					oldLinkingInformation.setVerificationCode(linkingInformation.getVerificationCode());
 					linkingRepo.save(oldLinkingInformation);
 				},
-				() -> LogUtil.logError("Received DataIntegrityViolationException for unknown user " + linkingInformation, e)
+				() -> {
+					syncMetrics.recordLinkConflict(false);
+					LogUtil.logError("Received DataIntegrityViolationException for unknown user " + linkingInformation, e);
+				}
 		);
 	}
 
@@ -165,32 +179,33 @@ public class ForumUserController {
 		forumUser.setLinkedDiscordUser(null);
 		forumUserRepo.save(forumUser);    // unlinking from discord user, otherwise won't delete entry
 		forumUserRepo.delete(forumUser);
-		removeUserRoles(forumUser);
+		removeUserRoles(dcUser);
 		return ResponseEntity.status(HttpStatus.NO_CONTENT).body(null);
 	}
 
 	/**
-	 * Removes forum roles from an unlinked user.
+	 * Removes forum roles from an unlinked user and tracks the user for the autokick.
 	 *
-	 * @param forumUser The unlinked user.
+	 * @param dcUser The Discord user that got unlinked.
 	 */
-	private void removeUserRoles(final ForumUser forumUser) {
-		final DiscordUser dcUser = forumUser.getLinkedDiscordUser();
+	private void removeUserRoles(final DiscordUser dcUser) {
 		if (dcUser.isWhitelisted()) {
 			return;
 		}
 
+		autokickSweeper.track(dcUser.getDiscordId());
+
 		final Iterable<DiscordGuild> dcGuilds = guildRepo.findAll();
 		for (DiscordGuild dcGuild : dcGuilds) {
 			if (!dcGuild.hasRoleSyncPerm()) {
 				continue;
 			}
 
-			final Guild guild = jda.getGuildById(dcGuild.getGuildId());
+			final Guild guild = shardManager.getGuildById(dcGuild.getGuildId());
 			if (guild != null) {
 				final long discordId = dcUser.getDiscordId();
 				guild.retrieveMemberById(discordId).queue(
-						member -> RoleUtil.updateRoles(member, new ArrayList<>(), forumRoleRepo.findAll()),
+						member -> actionOutbox.updateRoles(member, new ArrayList<>(), forumRoleRepo.findAll()),
 						throwable -> LogUtil.logDebug("Could not remove roles from user with ID " + discordId + ".")
 				);
 			}
@@ -0,0 +1,95 @@
+package com.motorbesitzen.rolewatcher.simulation;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+/**
+ * Base of the synthetic JDA entities. Each entity is a dynamic proxy of the JDA interface that answers the methods
+ * the bot calls during a synchronisation from a few fields instead of a map of answers, so hundreds of thousands of
+ * members fit into the heap. Methods an entity does not answer return {@code null}, {@code 0} or {@code false},
+ * {@code equals} and {@code hashCode} use the identity of the proxy and {@code toString} the one of the entity.
+ */
+abstract class FakeEntity implements InvocationHandler {
+
+	/**
+	 * Creates the proxy of the entity.
+	 *
+	 * @param type   The JDA interface of the entity.
+	 * @param entity The entity that answers the calls.
+	 * @param <T>    The type of the interface.
+	 * @return The proxy.
+	 */
+	@SuppressWarnings("unchecked")
+	static <T> T proxy(final Class<T> type, final FakeEntity entity) {
+		return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, entity);
+	}
+
+	@Override
+	public Object invoke(final Object proxy, final Method method, final Object[] args) {
+		switch (method.getName()) {
+			case "equals":
+				return proxy == args[0];
+			case "hashCode":
+				return System.identityHashCode(proxy);
+			case "toString":
+				return toString();
+			default:
+				break;
+		}
+
+		final Object answer = answer(method.getName(), args);
+		return answer != null ? answer : getDefault(method.getReturnType());
+	}
+
+	/**
+	 * Answers a call of the entity.
+	 *
+	 * @param method The name of the called method.
+	 * @param args   The arguments of the call, {@code null} if there are none.
+	 * @return The answer or {@code null} to return the default value of the return type.
+	 */
+	abstract Object answer(String method, Object[] args);
+
+	/**
+	 * Gets the default value of a return type.
+	 *
+	 * @param returnType The return type of a method.
+	 * @return {@code null} for objects, {@code 0} or {@code false} for primitives.
+	 */
+	private static Object getDefault(final Class<?> returnType) {
+		if (!returnType.isPrimitive() || returnType == void.class) {
+			return null;
+		}
+
+		if (returnType == boolean.class) {
+			return false;
+		}
+
+		if (returnType == long.class) {
+			return 0L;
+		}
+
+		if (returnType == int.class) {
+			return 0;
+		}
+
+		if (returnType == double.class) {
+			return 0.0;
+		}
+
+		if (returnType == float.class) {
+			return 0f;
+		}
+
+		if (returnType == short.class) {
+			return (short) 0;
+		}
+
+		if (returnType == byte.class) {
+			return (byte) 0;
+		}
+
+		return (char) 0;
+	}
+}
@@ -0,0 +1,60 @@
+package com.motorbesitzen.rolewatcher.simulation;
+
+/**
+ * Describes how the forum API stub answers. The latency gets applied to every request, failed requests answer with
+ * an HTML error page like a web server in front of the forum does and throttled requests answer with
+ * {@code 429 Too Many Requests}.
+ */
+enum ForumApiProfile {
+
+	/**
+	 * A forum on the same network.
+	 */
+	FAST(5, 0, 0),
+
+	/**
+	 * A forum under load that answers slowly but reliably.
+	 */
+	SLOW(200, 0, 0),
+
+	/**
+	 * A forum that fails some requests.
+	 */
+	FLAKY(50, 5, 0),
+
+	/**
+	 * A forum behind a rate limit that rejects some requests.
+	 */
+	THROTTLED(20, 0, 10);
+
+	private final int latencyMs;
+	private final int errorPercent;
+	private final int throttlePercent;
+
+	ForumApiProfile(final int latencyMs, final int errorPercent, final int throttlePercent) {
+		this.latencyMs = latencyMs;
+		this.errorPercent = errorPercent;
+		this.throttlePercent = throttlePercent;
+	}
+
+	/**
+	 * @return The average latency of a response in milliseconds.
+	 */
+	int getLatencyMs() {
+		return latencyMs;
+	}
+
+	/**
+	 * @return The percentage of requests that fail with a server error.
+	 */
+	int getErrorPercent() {
+		return errorPercent;
+	}
+
+	/**
+	 * @return The percentage of requests that get rejected by the rate limit.
+	 */
+	int getThrottlePercent() {
+		return throttlePercent;
+	}
+}
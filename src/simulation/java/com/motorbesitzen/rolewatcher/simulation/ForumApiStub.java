@@ -0,0 +1,285 @@
+package com.motorbesitzen.rolewatcher.simulation;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * An embedded stand-in for the forum role API and the forum role members API on a random local port. Answers like
+ * the forum would for the users of the {@link SyntheticForum}, with the latency and failure rates of the configured
+ * profile. Counts the requests by outcome.
+ */
+final class ForumApiStub implements AutoCloseable {
+
+	private final SyntheticForum forum;
+	private final int latencyMs;
+	private final int errorPercent;
+	private final int throttlePercent;
+	private final HttpServer server;
+	private final ExecutorService executor;
+	private final LongAdder successes;
+	private final LongAdder errors;
+	private final LongAdder throttled;
+
+	private ForumApiStub(final SyntheticForum forum, final SimulationSettings settings) throws IOException {
+		this.forum = forum;
+		this.latencyMs = settings.getLatencyMs();
+		this.errorPercent = settings.getErrorPercent();
+		this.throttlePercent = settings.getThrottlePercent();
+		this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+		this.executor = Executors.newCachedThreadPool();
+		this.successes = new LongAdder();
+		this.errors = new LongAdder();
+		this.throttled = new LongAdder();
+		server.setExecutor(executor);
+		server.createContext("/roles", exchange -> handle(exchange, "uid", this::writeRolesOfUser));
+		server.createContext("/members", exchange -> handle(exchange, "role", this::writeMembersOfRole));
+	}
+
+	/**
+	 * Starts the stub.
+	 *
+	 * @param forum    The synthetic community to answer for.
+	 * @param settings The settings of the simulation with the latency and failure rates.
+	 * @return The running stub.
+	 * @throws IOException if the stub can not listen on a local port.
+	 */
+	static ForumApiStub start(final SyntheticForum forum, final SimulationSettings settings) throws IOException {
+		final ForumApiStub stub = new ForumApiStub(forum, settings);
+		stub.server.start();
+		return stub;
+	}
+
+	/**
+	 * @return The URL to use as {@code FORUM_ROLE_API_URL}, the bot appends {@code =<uid>}.
+	 */
+	String getRoleApiUrl() {
+		return getBaseUrl() + "/roles?uid";
+	}
+
+	/**
+	 * @return The URL to use as {@code FORUM_ROLE_MEMBERS_API_URL}, the bot appends {@code =<roleId>}.
+	 */
+	String getRoleMembersApiUrl() {
+		return getBaseUrl() + "/members?role";
+	}
+
+	/**
+	 * @return The URL of the stub.
+	 */
+	private String getBaseUrl() {
+		final InetSocketAddress address = server.getAddress();
+		return "http://" + address.getHostString() + ":" + address.getPort();
+	}
+
+	/**
+	 * @return The amount of requests the stub answered with the requested IDs.
+	 */
+	long getSuccesses() {
+		return successes.sum();
+	}
+
+	/**
+	 * @return The amount of requests the stub answered with a server error.
+	 */
+	long getErrors() {
+		return errors.sum();
+	}
+
+	/**
+	 * @return The amount of requests the stub rejected due to the rate limit.
+	 */
+	long getThrottled() {
+		return throttled.sum();
+	}
+
+	/**
+	 * @return The amount of requests the stub received.
+	 */
+	long getRequests() {
+		return getSuccesses() + getErrors() + getThrottled();
+	}
+
+	/**
+	 * Stops the stub without waiting for running requests.
+	 */
+	@Override
+	public void close() {
+		server.stop(0);
+		executor.shutdownNow();
+	}
+
+	/**
+	 * Answers a request after the latency of the profile. Fails or rejects the request by the rates of the profile,
+	 * otherwise answers with the JSON array the writer creates for the ID in the query.
+	 *
+	 * @param exchange  The request and its response.
+	 * @param parameter The name of the query parameter with the ID.
+	 * @param writer    Creates the JSON array for the ID.
+	 * @throws IOException if the response can not be sent.
+	 */
+	private void handle(final HttpExchange exchange, final String parameter, final IdArrayWriter writer) throws IOException {
+		try {
+			simulateLatency();
+			final int outcome = ThreadLocalRandom.current().nextInt(100);
+			if (outcome < errorPercent) {
+				errors.increment();
+				send(exchange, 503, "text/html", "<html><body><h1>503 Service Unavailable</h1></body></html>");
+				return;
+			}
+
+			if (outcome < errorPercent + throttlePercent) {
+				throttled.increment();
+				exchange.getResponseHeaders().add("Retry-After", "1");
+				send(exchange, 429, "application/json", "{\"message\": \"Too many requests.\"}");
+				return;
+			}
+
+			final long id = getQueryId(exchange.getRequestURI(), parameter);
+			if (id == -1) {
+				send(exchange, 400, "application/json", "{\"message\": \"Missing " + parameter + ".\"}");
+				return;
+			}
+
+			final StringBuilder json = new StringBuilder("[");
+			writer.write(id, json);
+			json.append(']');
+			successes.increment();
+			send(exchange, 200, "application/json", json.toString());
+		} finally {
+			exchange.close();
+		}
+	}
+
+	/**
+	 * Waits for the latency of the profile with a jitter of up to half the latency in both directions.
+	 */
+	private void simulateLatency() {
+		if (latencyMs == 0) {
+			return;
+		}
+
+		final int jitter = latencyMs / 2;
+		final int latency = latencyMs + (jitter == 0 ? 0 : ThreadLocalRandom.current().nextInt(-jitter, jitter + 1));
+		try {
+			Thread.sleep(latency);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Gets the ID of a query like {@code uid=123}.
+	 *
+	 * @param uri       The requested URI.
+	 * @param parameter The name of the query parameter.
+	 * @return The ID or -1 if the query does not contain a valid ID.
+	 */
+	private static long getQueryId(final URI uri, final String parameter) {
+		final String query = uri.getQuery();
+		if (query == null || !query.startsWith(parameter + "=")) {
+			return -1;
+		}
+
+		try {
+			return Long.parseLong(query.substring(parameter.length() + 1));
+		} catch (NumberFormatException e) {
+			return -1;
+		}
+	}
+
+	/**
+	 * Sends a response.
+	 *
+	 * @param exchange    The request and its response.
+	 * @param status      The HTTP status.
+	 * @param contentType The content type of the body.
+	 * @param body        The body.
+	 * @throws IOException if the response can not be sent.
+	 */
+	private static void send(final HttpExchange exchange, final int status, final String contentType,
+							 final String body) throws IOException {
+		final byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().add("Content-Type", contentType);
+		exchange.sendResponseHeaders(status, bytes.length);
+		try (OutputStream out = exchange.getResponseBody()) {
+			out.write(bytes);
+		}
+	}
+
+	/**
+	 * Writes the role IDs of a forum user. Unknown users have no roles.
+	 *
+	 * @param forumId The forum ID of the user.
+	 * @param json    The JSON array to append the IDs to.
+	 */
+	private void writeRolesOfUser(final long forumId, final StringBuilder json) {
+		if (!forum.exists(forumId)) {
+			return;
+		}
+
+		final long roles = forum.getForumRoles(forumId);
+		for (int roleId = 1; roleId <= forum.getRoleCount(); roleId++) {
+			if ((roles & (1L << roleId)) != 0) {
+				appendId(json, roleId);
+			}
+		}
+	}
+
+	/**
+	 * Writes the forum IDs of all users with a role, including the users that join guilds later.
+	 *
+	 * @param roleId The forum ID of the role.
+	 * @param json   The JSON array to append the IDs to.
+	 */
+	private void writeMembersOfRole(final long roleId, final StringBuilder json) {
+		final int membersPerGuild = forum.getMembersPerGuild() + forum.getJoinsPerGuild();
+		for (int guildIndex = 0; guildIndex < forum.getGuilds(); guildIndex++) {
+			for (int memberIndex = 0; memberIndex < membersPerGuild; memberIndex++) {
+				final long forumId = SyntheticForum.getForumId(guildIndex, memberIndex);
+				if (forum.hasForumRole(forumId, roleId)) {
+					appendId(json, forumId);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Appends an ID to a JSON array.
+	 *
+	 * @param json The JSON array without the closing bracket.
+	 * @param id   The ID to append.
+	 */
+	private static void appendId(final StringBuilder json, final long id) {
+		if (json.length() > 1) {
+			json.append(',');
+		}
+
+		json.append(id);
+	}
+
+	/**
+	 * Creates the content of the JSON array of IDs for the ID in a request.
+	 */
+	@FunctionalInterface
+	private interface IdArrayWriter {
+
+		/**
+		 * Appends the IDs for the requested ID.
+		 *
+		 * @param id   The requested ID.
+		 * @param json The JSON array to append the IDs to.
+		 */
+		void write(long id, StringBuilder json);
+	}
+}
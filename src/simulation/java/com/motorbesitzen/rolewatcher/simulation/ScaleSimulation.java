@@ -0,0 +1,328 @@
+package com.motorbesitzen.rolewatcher.simulation;
+
+import com.motorbesitzen.rolewatcher.bot.event.GuildMemberJoinListener;
+import com.motorbesitzen.rolewatcher.bot.service.RoleUpdater;
+import com.motorbesitzen.rolewatcher.bot.service.SyncQueue;
+import com.motorbesitzen.rolewatcher.data.repo.DiscordActionRepo;
+import com.motorbesitzen.rolewatcher.data.repo.DiscordGuildRepo;
+import com.motorbesitzen.rolewatcher.data.repo.ForumRoleRepo;
+import com.motorbesitzen.rolewatcher.util.LogUtil;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import net.dv8tion.jda.api.entities.Member;
+import net.dv8tion.jda.api.events.guild.member.GuildMemberJoinEvent;
+import org.springframework.boot.Banner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContextInitializer;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs one role synchronisation cycle of the bot against the forum API stub and synthetic guilds, so changes to the
+ * synchronisation can be load tested without touching Discord or the forum. The real services of the bot run with an
+ * in-memory database, only the Discord connection gets replaced. While the cycle runs members join the guilds.
+ * The cycle counts as finished when neither the forum requests, the synchronised members nor the Discord actions
+ * changed for the quiet period. Reports the cycle time, the forum requests per second, the heap high-water mark and
+ * the Discord actions the bot recorded, and writes them to {@code build/reports/simulation/results.json}.
+ * <p>
+ * Run with {@code gradlew simulate --args='--members=100000 --guilds=2 --profile=flaky'}. Possible arguments:
+ * <ul>
+ *     <li>{@code --mode}: {@code members} requests the members of each forum role, {@code users} the roles of each
+ *     user which keeps the delay between users, so a cycle takes at least the member count times the delay.</li>
+ *     <li>{@code --shards}, {@code --guilds}, {@code --members} (per guild), {@code --joins}</li>
+ *     <li>{@code --linked}, {@code --drift}: percentages of linked members and of differing roles.</li>
+ *     <li>{@code --roles}: the amount of forum roles, at most 63.</li>
+ *     <li>{@code --profile}: {@code fast}, {@code slow}, {@code flaky} or {@code throttled}; {@code --latency},
+ *     {@code --errors} and {@code --throttle} override the values of the profile.</li>
+ *     <li>{@code --delay}, {@code --quiet-seconds}, {@code --timeout-minutes}</li>
+ * </ul>
+ */
+public final class ScaleSimulation {
+
+	private static final long POLL_MS = 500;
+	private static final Path RESULTS_FILE = Path.of("build", "reports", "simulation", "results.json");
+
+	private ScaleSimulation() {
+	}
+
+	/**
+	 * Runs the simulation.
+	 *
+	 * @param args The arguments of the simulation in the form {@code --key=value}.
+	 * @throws IOException          if the forum API stub can not be started or the results can not be written.
+	 * @throws InterruptedException if the simulation gets interrupted.
+	 */
+	public static void main(final String[] args) throws IOException, InterruptedException {
+		final SimulationSettings settings = SimulationSettings.parse(args);
+		final SyntheticForum forum = new SyntheticForum(settings);
+		LogUtil.logInfo("Creating {} guilds with {} members each...", settings.getGuilds(), settings.getMembersPerGuild());
+		final SyntheticGuilds guilds = new SyntheticGuilds(forum, settings.getShards());
+		if (!settings.usesRoleMembers()) {
+			final long minCycleSeconds = (long) settings.getGuilds() * settings.getMembersPerGuild() * settings.getDelayMs() / 1000;
+			LogUtil.logWarning("Requesting the roles user by user keeps a delay between users, the cycle takes at least {} seconds.", minCycleSeconds);
+		}
+
+		final SimulationReport report;
+		try (ForumApiStub stub = ForumApiStub.start(forum, settings);
+			 ConfigurableApplicationContext context = startApplication(settings, stub, guilds)) {
+			report = run(settings, forum, guilds, stub, context);
+		}
+
+		report.log();
+		report.write(RESULTS_FILE);
+		LogUtil.logInfo("Results written to {}.", RESULTS_FILE.toAbsolutePath());
+		// the executors of the bot do not stop with the context
+		System.exit(0);
+	}
+
+	/**
+	 * Starts the bot with an in-memory database and the synthetic guilds instead of a connection to Discord. The
+	 * settings get passed as command line arguments, so they take precedence over any environment variable.
+	 *
+	 * @param settings The settings of the simulation.
+	 * @param stub     The running forum API stub.
+	 * @param guilds   The synthetic guilds.
+	 * @return The context of the running bot.
+	 */
+	private static ConfigurableApplicationContext startApplication(final SimulationSettings settings,
+																   final ForumApiStub stub,
+																   final SyntheticGuilds guilds) {
+		final ApplicationContextInitializer<ConfigurableApplicationContext> shardManagerRegistration =
+				context -> context.getBeanFactory().registerSingleton("shardManager", guilds.getShardManager());
+		final SpringApplication application = new SpringApplication(SimulationApplication.class);
+		application.addInitializers(shardManagerRegistration);
+		application.setBannerMode(Banner.Mode.OFF);
+		return application.run(
+				"--DC_TOKEN=simulation",
+				"--FORUM_USER_ADD_API_KEY=" + generateApiKey(),
+				"--FORUM_ROLE_SOURCE=http",
+				"--FORUM_ROLE_API_URL=" + stub.getRoleApiUrl(),
+				"--FORUM_ROLE_MEMBERS_API_URL=" + (settings.usesRoleMembers() ? stub.getRoleMembersApiUrl() : ""),
+				"--FORUM_ROLE_SNAPSHOT_PATH=",
+				"--FORUM_ROLE_API_DELAY_MS=" + settings.getDelayMs(),
+				"--FORUM_ROLE_MAX_STALENESS_HOURS=0",
+				"--FORUM_ROLE_ACTIVITY_REFRESH_MINUTES=0",
+				"--FORUM_BANNED_ROLE_ID=",
+				"--PARTITION_COUNT=1",
+				"--TRACE_FILE=",
+				"--DB_URL=jdbc:h2:mem:simulation;DB_CLOSE_DELAY=-1",
+				"--DB_USER=sa",
+				"--DB_PASSWORD=",
+				"--spring.jpa.hibernate.ddl-auto=create-drop",
+				"--server.port=0",
+				"--management.server.port=0",
+				"--logging.file.name=build/simulation/RwLog"
+		);
+	}
+
+	/**
+	 * @return A random API key that passes the checks on startup.
+	 */
+	private static String generateApiKey() {
+		return UUID.randomUUID().toString().replace("-", "") + UUID.randomUUID().toString().replace("-", "");
+	}
+
+	/**
+	 * Seeds the database, runs one synchronisation cycle and collects the results.
+	 *
+	 * @param settings The settings of the simulation.
+	 * @param forum    The synthetic community.
+	 * @param guilds   The synthetic guilds.
+	 * @param stub     The running forum API stub.
+	 * @param context  The context of the running bot.
+	 * @return The results.
+	 * @throws InterruptedException if the simulation gets interrupted.
+	 */
+	private static SimulationReport run(final SimulationSettings settings, final SyntheticForum forum,
+										final SyntheticGuilds guilds, final ForumApiStub stub,
+										final ConfigurableApplicationContext context) throws InterruptedException {
+		final JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+		LogUtil.logInfo("Seeding the database...");
+		final SimulationSeeder seeder = new SimulationSeeder(
+				forum, context.getBean(DiscordGuildRepo.class), context.getBean(ForumRoleRepo.class), jdbcTemplate
+		);
+		final long linkedUsers = seeder.seed();
+
+		final MeterRegistry registry = context.getBean(MeterRegistry.class);
+		final SyncQueue syncQueue = context.getBean(SyncQueue.class);
+		final DiscordActionRepo actionRepo = context.getBean(DiscordActionRepo.class);
+		final GuildMemberJoinListener joinListener = context.getBean(GuildMemberJoinListener.class);
+		System.gc();
+		final long baselineHeap = getUsedHeap();
+		resetHeapPeaks();
+
+		LogUtil.logInfo("Starting the synchronisation cycle...");
+		final long startedAt = System.currentTimeMillis();
+		context.getBean(RoleUpdater.class).start();
+		for (int i = 0; i < settings.getJoins(); i++) {
+			final Member member = guilds.getJoiningMember(i);
+			joinListener.onGuildMemberJoin(new GuildMemberJoinEvent(member.getGuild().getJDA(), 0, member));
+		}
+
+		final long quietMs = TimeUnit.SECONDS.toMillis(settings.getQuietSeconds());
+		final long deadline = startedAt + TimeUnit.MINUTES.toMillis(settings.getTimeoutMinutes());
+		long lastProgress = -1;
+		long lastProgressAt = startedAt;
+		boolean progressedInLastPoll = true;
+		String outcome = "finished";
+		while (true) {
+			Thread.sleep(POLL_MS);
+			final long now = System.currentTimeMillis();
+			if (getCycleCount(registry) > 0) {
+				// the next cycle started, the last one either finished before or is still running
+				if (progressedInLastPoll) {
+					outcome = "overran the next cycle";
+					lastProgressAt = now;
+				}
+
+				break;
+			}
+
+			final long progress = stub.getRequests() + getMembersSynced(registry) + actionRepo.count();
+			progressedInLastPoll = progress != lastProgress;
+			if (progressedInLastPoll) {
+				lastProgress = progress;
+				lastProgressAt = now;
+			}
+
+			if (syncQueue.size() == 0 && stub.getRequests() > 0 && now - lastProgressAt >= quietMs) {
+				break;
+			}
+
+			if (now >= deadline) {
+				outcome = "timed out";
+				lastProgressAt = now;
+				break;
+			}
+		}
+
+		final long peakHeap = getPeakHeap();
+		final long cycleMs = Math.max(1, lastProgressAt - startedAt);
+		final SimulationReport report = new SimulationReport();
+		report.put("mode", settings.getMode());
+		report.put("profile", settings.getProfile().name().toLowerCase());
+		report.put("latencyMs", settings.getLatencyMs());
+		report.put("errorPercent", settings.getErrorPercent());
+		report.put("throttlePercent", settings.getThrottlePercent());
+		report.put("shards", settings.getShards());
+		report.put("guilds", settings.getGuilds());
+		report.put("membersPerGuild", settings.getMembersPerGuild());
+		report.put("linkedUsers", linkedUsers);
+		report.put("joins", settings.getJoins());
+		report.put("forumRoles", settings.getForumRoles());
+		report.put("outcome", outcome);
+		report.put("cycleMs", cycleMs);
+		report.put("membersSynced", getMembersSynced(registry));
+		report.put("forumRequests", stub.getRequests());
+		report.put("forumRequestsFailed", stub.getErrors());
+		report.put("forumRequestsThrottled", stub.getThrottled());
+		report.put("forumRequestsPerSecond", stub.getRequests() * 1000.0 / cycleMs);
+		report.put("heapBaselineMb", toMegabytes(baselineHeap));
+		report.put("heapHighWaterMb", toMegabytes(peakHeap));
+		report.put("heapMaxMb", toMegabytes(Runtime.getRuntime().maxMemory()));
+		report.put("discordActions", actionRepo.count());
+		report.put("discordActionsByType", countActionsByType(jdbcTemplate));
+		return report;
+	}
+
+	/**
+	 * @param registry The meter registry of the bot.
+	 * @return The amount of finished synchronisation cycles, the first one finishes when the second one starts.
+	 */
+	private static long getCycleCount(final MeterRegistry registry) {
+		final Timer cycleTimer = registry.find("rolewatcher.sync.cycle").timer();
+		return cycleTimer == null ? 0 : cycleTimer.count();
+	}
+
+	/**
+	 * @param registry The meter registry of the bot.
+	 * @return The amount of members whose roles got synchronised.
+	 */
+	private static long getMembersSynced(final MeterRegistry registry) {
+		final Counter counter = registry.find("rolewatcher.sync.members").counter();
+		return counter == null ? 0 : (long) counter.count();
+	}
+
+	/**
+	 * Counts the recorded Discord actions by their type.
+	 *
+	 * @param jdbcTemplate The JDBC access to the database of the bot.
+	 * @return The amount of actions by type.
+	 */
+	private static Map<String, Long> countActionsByType(final JdbcTemplate jdbcTemplate) {
+		final Map<String, Long> counts = new TreeMap<>();
+		jdbcTemplate.query(
+				"SELECT type, COUNT(*) FROM discord_action GROUP BY type",
+				row -> {
+					counts.put(row.getString(1), row.getLong(2));
+				}
+		);
+		return counts;
+	}
+
+	/**
+	 * @return The heap memory in use.
+	 */
+	private static long getUsedHeap() {
+		return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+	}
+
+	/**
+	 * Resets the peak usage of the heap memory pools, so the high-water mark only covers the cycle.
+	 */
+	private static void resetHeapPeaks() {
+		for (MemoryPoolMXBean pool : getHeapPools()) {
+			pool.resetPeakUsage();
+		}
+	}
+
+	/**
+	 * Gets the high-water mark of the heap since the peaks got reset. The pools peak at different times, so the sum
+	 * of their peaks is an upper bound of the heap that was in use at once.
+	 *
+	 * @return The sum of the peak usages of the heap memory pools.
+	 */
+	private static long getPeakHeap() {
+		long peak = 0;
+		for (MemoryPoolMXBean pool : getHeapPools()) {
+			peak += pool.getPeakUsage().getUsed();
+		}
+
+		return peak;
+	}
+
+	/**
+	 * @return The memory pools of the heap.
+	 */
+	private static List<MemoryPoolMXBean> getHeapPools() {
+		final List<MemoryPoolMXBean> heapPools = new ArrayList<>();
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			if (pool.getType() == MemoryType.HEAP) {
+				heapPools.add(pool);
+			}
+		}
+
+		return heapPools;
+	}
+
+	/**
+	 * @param bytes An amount of bytes.
+	 * @return The amount in megabytes.
+	 */
+	private static long toMegabytes(final long bytes) {
+		return bytes / (1024 * 1024);
+	}
+}
@@ -0,0 +1,35 @@
+package com.motorbesitzen.rolewatcher.simulation;
+
+import com.motorbesitzen.rolewatcher.RoleWatcherApplication;
+import com.motorbesitzen.rolewatcher.bot.service.BotBuilder;
+import com.motorbesitzen.rolewatcher.config.JdaBeanConfig;
+import org.springframework.boot.autoconfigure.AutoConfigurationExcludeFilter;
+import org.springframework.boot.autoconfigure.AutoConfigurationPackage;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.context.TypeExcludeFilter;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.FilterType;
+
+/**
+ * The application of the bot without the parts that connect to Discord. The shard manager does not get built from
+ * the token but gets registered by the simulation with the synthetic guilds, and the bot builder does not start the
+ * role updater and the Discord action worker on startup. Without the worker the Discord actions stay in the outbox
+ * instead of getting sent to Discord.
+ */
+@Configuration
+@EnableAutoConfiguration
+@AutoConfigurationPackage(basePackageClasses = RoleWatcherApplication.class)
+@ComponentScan(
+		basePackageClasses = RoleWatcherApplication.class,
+		excludeFilters = {
+				@ComponentScan.Filter(type = FilterType.CUSTOM, classes = TypeExcludeFilter.class),
+				@ComponentScan.Filter(type = FilterType.CUSTOM, classes = AutoConfigurationExcludeFilter.class),
+				@ComponentScan.Filter(
+						type = FilterType.ASSIGNABLE_TYPE,
+						classes = {RoleWatcherApplication.class, JdaBeanConfig.class, BotBuilder.class}
+				)
+		}
+)
+class SimulationApplication {
+}
@@ -0,0 +1,57 @@
+package com.motorbesitzen.rolewatcher.simulation;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.motorbesitzen.rolewatcher.util.LogUtil;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The results of a simulation run in the order they got added. Gets logged and written as JSON, so runs before and
+ * after a change can be compared.
+ */
+final class SimulationReport {
+
+	private final Map<String, Object> results;
+
+	SimulationReport() {
+		this.results = new LinkedHashMap<>();
+	}
+
+	/**
+	 * Adds a result.
+	 *
+	 * @param name  The name of the result.
+	 * @param value The value of the result.
+	 */
+	void put(final String name, final Object value) {
+		results.put(name, value);
+	}
+
+	/**
+	 * Logs all results, one per line.
+	 */
+	void log() {
+		LogUtil.logInfo("Simulation results:");
+		results.forEach((name, value) -> LogUtil.logInfo("  {}: {}", name, value));
+	}
+
+	/**
+	 * Writes the results as a JSON object.
+	 *
+	 * @param file The file to write to, missing parent directories get created.
+	 * @throws IOException if the file can not be written.
+	 */
+	void write(final Path file) throws IOException {
+		final Path parent = file.toAbsolutePath().getParent();
+		if (parent != null) {
+			Files.createDirectories(parent);
+		}
+
+		new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(file.toFile(), results);
+	}
+}
@@ -0,0 +1,103 @@
+package com.motorbesitzen.rolewatcher.simulation;
+
+import com.motorbesitzen.rolewatcher.data.dao.DiscordGuild;
+import com.motorbesitzen.rolewatcher.data.dao.ForumRole;
+import com.motorbesitzen.rolewatcher.data.repo.DiscordGuildRepo;
+import com.motorbesitzen.rolewatcher.data.repo.ForumRoleRepo;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Fills the database of the simulation with the guilds, forum roles and linked users of the {@link SyntheticForum}.
+ * The users get inserted in JDBC batches as saving hundreds of thousands of entities one by one takes longer than
+ * most simulated cycles.
+ */
+final class SimulationSeeder {
+
+	private static final int BATCH_SIZE = 10000;
+
+	private final SyntheticForum forum;
+	private final DiscordGuildRepo guildRepo;
+	private final ForumRoleRepo forumRoleRepo;
+	private final JdbcTemplate jdbcTemplate;
+
+	SimulationSeeder(final SyntheticForum forum, final DiscordGuildRepo guildRepo, final ForumRoleRepo forumRoleRepo,
+					 final JdbcTemplate jdbcTemplate) {
+		this.forum = forum;
+		this.guildRepo = guildRepo;
+		this.forumRoleRepo = forumRoleRepo;
+		this.jdbcTemplate = jdbcTemplate;
+	}
+
+	/**
+	 * Saves the guilds with the role sync permission, the forum roles and the linked users including the ones that
+	 * join during the simulation.
+	 *
+	 * @return The amount of linked users.
+	 */
+	long seed() {
+		for (int guildIndex = 0; guildIndex < forum.getGuilds(); guildIndex++) {
+			final DiscordGuild dcGuild = DiscordGuild.createDefault(SyntheticForum.getGuildId(guildIndex));
+			dcGuild.setRoleSyncPerm(true);
+			guildRepo.save(dcGuild);
+		}
+
+		final List<ForumRole> forumRoles = new ArrayList<>();
+		for (int roleId = 1; roleId <= forum.getRoleCount(); roleId++) {
+			forumRoles.add(ForumRole.of(roleId, SyntheticForum.getRoleName(roleId)));
+		}
+
+		forumRoleRepo.saveAll(forumRoles);
+		return seedLinkedUsers();
+	}
+
+	/**
+	 * Inserts the linked Discord and forum users in batches.
+	 *
+	 * @return The amount of linked users.
+	 */
+	private long seedLinkedUsers() {
+		final int membersPerGuild = forum.getMembersPerGuild() + forum.getJoinsPerGuild();
+		final List<Object[]> discordUsers = new ArrayList<>(BATCH_SIZE);
+		final List<Object[]> forumUsers = new ArrayList<>(BATCH_SIZE);
+		long linkedUsers = 0;
+		for (int guildIndex = 0; guildIndex < forum.getGuilds(); guildIndex++) {
+			for (int memberIndex = 0; memberIndex < membersPerGuild; memberIndex++) {
+				final long forumId = SyntheticForum.getForumId(guildIndex, memberIndex);
+				if (!forum.isLinked(forumId)) {
+					continue;
+				}
+
+				final long discordId = SyntheticForum.getDiscordId(forumId);
+				discordUsers.add(new Object[]{discordId});
+				forumUsers.add(new Object[]{forumId, "User " + forumId, discordId});
+				linkedUsers++;
+				if (discordUsers.size() == BATCH_SIZE) {
+					insertLinkedUsers(discordUsers, forumUsers);
+				}
+			}
+		}
+
+		insertLinkedUsers(discordUsers, forumUsers);
+		return linkedUsers;
+	}
+
+	/**
+	 * Inserts a batch of linked users and clears the batch.
+	 *
+	 * @param discordUsers The Discord IDs of the users.
+	 * @param forumUsers   The forum ID, forum name and Discord ID of the users.
+	 */
+	private void insertLinkedUsers(final List<Object[]> discordUsers, final List<Object[]> forumUsers) {
+		if (discordUsers.isEmpty()) {
+			return;
+		}
+
+		jdbcTemplate.batchUpdate("INSERT INTO discord_user (discord_id, whitelisted) VALUES (?, FALSE)", discordUsers);
+		jdbcTemplate.batchUpdate("INSERT INTO forum_user (forum_id, forum_username, discord_id) VALUES (?, ?, ?)", forumUsers);
+		discordUsers.clear();
+		forumUsers.clear();
+	}
+}
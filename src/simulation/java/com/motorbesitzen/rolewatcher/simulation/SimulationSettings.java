@@ -0,0 +1,165 @@
+package com.motorbesitzen.rolewatcher.simulation;
+
+import com.motorbesitzen.rolewatcher.util.ParseUtil;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * The settings of a simulation run, parsed from arguments like {@code --members=100000}. Arguments that are not
+ * given use the defaults, the latency and failure rates default to the chosen forum API profile.
+ */
+final class SimulationSettings {
+
+	private final String mode;
+	private final int shards;
+	private final int guilds;
+	private final int membersPerGuild;
+	private final int linkedPercent;
+	private final int driftPercent;
+	private final int forumRoles;
+	private final int joins;
+	private final ForumApiProfile profile;
+	private final int latencyMs;
+	private final int errorPercent;
+	private final int throttlePercent;
+	private final int delayMs;
+	private final int quietSeconds;
+	private final int timeoutMinutes;
+
+	private SimulationSettings(final Map<String, String> args) {
+		this.mode = args.getOrDefault("mode", "members").toLowerCase(Locale.ROOT);
+		this.shards = getInt(args, "shards", 1, 1);
+		this.guilds = getInt(args, "guilds", 1, 1);
+		this.membersPerGuild = Math.min(SyntheticForum.MEMBER_STRIDE - 1, getInt(args, "members", 10000, 1));
+		this.linkedPercent = Math.min(100, getInt(args, "linked", 80, 0));
+		this.driftPercent = Math.min(100, getInt(args, "drift", 10, 0));
+		this.forumRoles = Math.min(SyntheticForum.MAX_ROLES, getInt(args, "roles", 20, 1));
+		this.joins = getInt(args, "joins", 100, 0);
+		this.profile = ForumApiProfile.valueOf(args.getOrDefault("profile", "fast").toUpperCase(Locale.ROOT));
+		this.latencyMs = getInt(args, "latency", profile.getLatencyMs(), 0);
+		this.errorPercent = Math.min(100, getInt(args, "errors", profile.getErrorPercent(), 0));
+		this.throttlePercent = Math.min(100 - errorPercent, getInt(args, "throttle", profile.getThrottlePercent(), 0));
+		this.delayMs = getInt(args, "delay", 100, 100);
+		this.quietSeconds = getInt(args, "quiet-seconds", 30, 1);
+		this.timeoutMinutes = getInt(args, "timeout-minutes", 30, 1);
+	}
+
+	/**
+	 * Parses the arguments of the simulation.
+	 *
+	 * @param args The arguments in the form {@code --key=value}.
+	 * @return The settings.
+	 * @throws IllegalArgumentException if an argument is malformed or the profile does not exist.
+	 */
+	static SimulationSettings parse(final String[] args) {
+		final Map<String, String> parsedArgs = new HashMap<>();
+		for (String arg : args) {
+			final int separator = arg.indexOf('=');
+			if (!arg.startsWith("--") || separator == -1) {
+				throw new IllegalArgumentException("Invalid argument \"" + arg + "\", use --key=value.");
+			}
+
+			parsedArgs.put(arg.substring(2, separator).toLowerCase(Locale.ROOT), arg.substring(separator + 1));
+		}
+
+		final SimulationSettings settings = new SimulationSettings(parsedArgs);
+		if (!settings.mode.equals("members") && !settings.mode.equals("users")) {
+			throw new IllegalArgumentException("Unknown mode \"" + settings.mode + "\", use members or users.");
+		}
+
+		return settings;
+	}
+
+	/**
+	 * Gets an integer argument.
+	 *
+	 * @param args         The parsed arguments.
+	 * @param key          The key of the argument.
+	 * @param defaultValue The value if the argument is not given.
+	 * @param min          The lowest allowed value.
+	 * @return The value of the argument, at least {@code min}.
+	 */
+	private static int getInt(final Map<String, String> args, final String key, final int defaultValue, final int min) {
+		final String value = args.get(key);
+		if (value == null) {
+			return Math.max(min, defaultValue);
+		}
+
+		final int parsed = ParseUtil.safelyParseStringToInt(value);
+		if (parsed == -1 && !value.equals("-1")) {
+			throw new IllegalArgumentException("Argument --" + key + " needs a number, got \"" + value + "\".");
+		}
+
+		return Math.max(min, parsed);
+	}
+
+	/**
+	 * @return {@code true} if the roles get requested role by role from the forum role members API,
+	 * {@code false} if they get requested user by user.
+	 */
+	boolean usesRoleMembers() {
+		return mode.equals("members");
+	}
+
+	String getMode() {
+		return mode;
+	}
+
+	int getShards() {
+		return shards;
+	}
+
+	int getGuilds() {
+		return guilds;
+	}
+
+	int getMembersPerGuild() {
+		return membersPerGuild;
+	}
+
+	int getLinkedPercent() {
+		return linkedPercent;
+	}
+
+	int getDriftPercent() {
+		return driftPercent;
+	}
+
+	int getForumRoles() {
+		return forumRoles;
+	}
+
+	int getJoins() {
+		return joins;
+	}
+
+	ForumApiProfile getProfile() {
+		return profile;
+	}
+
+	int getLatencyMs() {
+		return latencyMs;
+	}
+
+	int getErrorPercent() {
+		return errorPercent;
+	}
+
+	int getThrottlePercent() {
+		return throttlePercent;
+	}
+
+	int getDelayMs() {
+		return delayMs;
+	}
+
+	int getQuietSeconds() {
+		return quietSeconds;
+	}
+
+	int getTimeoutMinutes() {
+		return timeoutMinutes;
+	}
+}
@@ -0,0 +1,174 @@
+package com.motorbesitzen.rolewatcher.simulation;
+
+/**
+ * The synthetic community the simulation runs against. Everything gets derived from the IDs, so the forum API stub,
+ * the database and the synthetic guilds agree on the users and their roles without sharing any state. Each guild has
+ * a range of {@link #MEMBER_STRIDE} forum IDs, the members that join during the simulation come after the initial
+ * members of the guild. The Discord roles of a member match the forum roles except for the drifted ones, which the
+ * synchronisation has to fix.
+ */
+final class SyntheticForum {
+
+	static final int MEMBER_STRIDE = 1000000;
+	static final int MAX_ROLES = 63;
+	static final long DISCORD_ID_BASE = 100000000000000000L;
+	static final long GUILD_ID_BASE = 200000000000000000L;
+	static final long ROLE_ID_BASE = 300000000000000000L;
+
+	private static final int ROLE_PERCENT = 15;
+	private static final long LINK_SALT = 0x5DEECE66DL;
+	private static final long DRIFT_SALT = 0x2545F4914F6CDD1DL;
+
+	private final int guilds;
+	private final int membersPerGuild;
+	private final int joinsPerGuild;
+	private final int linkedPercent;
+	private final int driftPercent;
+	private final int roleCount;
+
+	SyntheticForum(final SimulationSettings settings) {
+		this.guilds = settings.getGuilds();
+		this.membersPerGuild = settings.getMembersPerGuild();
+		this.joinsPerGuild = (settings.getJoins() + settings.getGuilds() - 1) / settings.getGuilds();
+		this.linkedPercent = settings.getLinkedPercent();
+		this.driftPercent = settings.getDriftPercent();
+		this.roleCount = settings.getForumRoles();
+	}
+
+	/**
+	 * Gets the forum ID of a member of a guild.
+	 *
+	 * @param guildIndex  The index of the guild.
+	 * @param memberIndex The index of the member in the guild, members that join later come after the initial ones.
+	 * @return The forum ID.
+	 */
+	static long getForumId(final int guildIndex, final int memberIndex) {
+		return (long) guildIndex * MEMBER_STRIDE + memberIndex + 1;
+	}
+
+	/**
+	 * Gets the Discord ID of the user with a forum ID. Unlinked users have the same Discord ID they would have if
+	 * they were linked.
+	 *
+	 * @param forumId The forum ID.
+	 * @return The Discord ID.
+	 */
+	static long getDiscordId(final long forumId) {
+		return DISCORD_ID_BASE + forumId;
+	}
+
+	/**
+	 * @param guildIndex The index of the guild.
+	 * @return The Discord ID of the guild.
+	 */
+	static long getGuildId(final int guildIndex) {
+		return GUILD_ID_BASE + guildIndex;
+	}
+
+	/**
+	 * @param roleId The forum ID of the role, starting at 1.
+	 * @return The name of the role on the forum and on Discord.
+	 */
+	static String getRoleName(final long roleId) {
+		return "Forum Role " + roleId;
+	}
+
+	/**
+	 * Checks if the forum user is linked to a Discord user.
+	 *
+	 * @param forumId The forum ID.
+	 * @return {@code true} if the user is linked.
+	 */
+	boolean isLinked(final long forumId) {
+		return percentile(forumId, LINK_SALT) < linkedPercent;
+	}
+
+	/**
+	 * Gets the forum roles of a user. Each user has each role with the same chance.
+	 *
+	 * @param forumId The forum ID.
+	 * @return A bit mask of the forum roles, bit {@code n} stands for the role with the ID {@code n}.
+	 */
+	long getForumRoles(final long forumId) {
+		long roles = 0;
+		for (int roleId = 1; roleId <= roleCount; roleId++) {
+			if (percentile(forumId, roleId) < ROLE_PERCENT) {
+				roles |= 1L << roleId;
+			}
+		}
+
+		return roles;
+	}
+
+	/**
+	 * Gets the roles a member has on Discord before the synchronisation. Each forum role differs between forum and
+	 * Discord with the chance of the drift.
+	 *
+	 * @param forumId The forum ID.
+	 * @return A bit mask of the Discord roles, bit {@code n} stands for the role of the forum role {@code n}.
+	 */
+	long getDiscordRoles(final long forumId) {
+		long roles = getForumRoles(forumId);
+		for (int roleId = 1; roleId <= roleCount; roleId++) {
+			if (percentile(forumId, DRIFT_SALT + roleId) < driftPercent) {
+				roles ^= 1L << roleId;
+			}
+		}
+
+		return roles;
+	}
+
+	/**
+	 * Checks if the user has a role on the forum.
+	 *
+	 * @param forumId The forum ID.
+	 * @param roleId  The forum ID of the role.
+	 * @return {@code true} if the user has the role.
+	 */
+	boolean hasForumRole(final long forumId, final long roleId) {
+		return roleId >= 1 && roleId <= roleCount && percentile(forumId, roleId) < ROLE_PERCENT;
+	}
+
+	/**
+	 * Checks if a forum ID belongs to a member of a guild, either an initial one or one that joins later.
+	 *
+	 * @param forumId The forum ID.
+	 * @return {@code true} if the user exists.
+	 */
+	boolean exists(final long forumId) {
+		final long guildIndex = (forumId - 1) / MEMBER_STRIDE;
+		final long memberIndex = (forumId - 1) % MEMBER_STRIDE;
+		return forumId >= 1 && guildIndex < guilds && memberIndex < membersPerGuild + joinsPerGuild;
+	}
+
+	int getGuilds() {
+		return guilds;
+	}
+
+	int getMembersPerGuild() {
+		return membersPerGuild;
+	}
+
+	int getJoinsPerGuild() {
+		return joinsPerGuild;
+	}
+
+	int getRoleCount() {
+		return roleCount;
+	}
+
+	/**
+	 * Maps an ID and a salt to a pseudo random number between 0 and 99 that is always the same for the same input.
+	 *
+	 * @param id   The ID.
+	 * @param salt The salt, so the same ID gives independent numbers for different purposes.
+	 * @return The number between 0 and 99.
+	 */
+	private static int percentile(final long id, final long salt) {
+		long z = id * 0x9E3779B97F4A7C15L + salt;
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		z = z ^ (z >>> 31);
+		return (int) Math.floorMod(z, 100L);
+	}
+}
@@ -0,0 +1,475 @@
+package com.motorbesitzen.rolewatcher.simulation;
+
+import net.dv8tion.jda.api.JDA;
+import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.entities.Member;
+import net.dv8tion.jda.api.entities.Role;
+import net.dv8tion.jda.api.entities.User;
+import net.dv8tion.jda.api.sharding.ShardManager;
+import net.dv8tion.jda.api.utils.concurrent.Task;
+
+import java.lang.reflect.Method;
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * The synthetic Discord side of the simulation: connected shards with guilds of the {@link SyntheticForum}. Each
+ * guild has a role for each forum role and a few unrelated roles, the members have the Discord roles of the
+ * synthetic forum. The members that join during the simulation are not part of the member list of their guild.
+ * Nothing the bot does changes the guilds, the role changes only get recorded in the outbox.
+ */
+final class SyntheticGuilds {
+
+	private static final int OTHER_ROLES = 5;
+
+	private final ShardManager shardManager;
+	private final List<JDA> shards;
+	private final List<Guild> guilds;
+	private final List<List<Member>> joiningMembers;
+
+	SyntheticGuilds(final SyntheticForum forum, final int shardCount) {
+		this.shards = new ArrayList<>();
+		this.guilds = new ArrayList<>();
+		this.joiningMembers = new ArrayList<>();
+		final List<List<Guild>> shardGuilds = new ArrayList<>();
+		for (int shardId = 0; shardId < shardCount; shardId++) {
+			final List<Guild> guildsOfShard = new ArrayList<>();
+			shardGuilds.add(guildsOfShard);
+			shards.add(FakeEntity.proxy(JDA.class, new ShardEntity(shardId, shardCount, guildsOfShard)));
+		}
+
+		for (int guildIndex = 0; guildIndex < forum.getGuilds(); guildIndex++) {
+			final JDA shard = shards.get(guildIndex % shardCount);
+			final GuildEntity guildEntity = new GuildEntity(forum, guildIndex, shard);
+			final Guild guild = FakeEntity.proxy(Guild.class, guildEntity);
+			guildEntity.populate(guild);
+			guilds.add(guild);
+			shardGuilds.get(guildIndex % shardCount).add(guild);
+			joiningMembers.add(guildEntity.joiningMembers);
+		}
+
+		this.shardManager = FakeEntity.proxy(ShardManager.class, new ShardManagerEntity());
+	}
+
+	/**
+	 * @return The shard manager with the synthetic shards.
+	 */
+	ShardManager getShardManager() {
+		return shardManager;
+	}
+
+	/**
+	 * Gets a member that joins a guild during the simulation. The joining members get spread over the guilds.
+	 *
+	 * @param joinIndex The index of the join, starting at 0.
+	 * @return The joining member.
+	 */
+	Member getJoiningMember(final int joinIndex) {
+		return joiningMembers.get(joinIndex % guilds.size()).get(joinIndex / guilds.size());
+	}
+
+	/**
+	 * The shard manager with all shards connected.
+	 */
+	private final class ShardManagerEntity extends FakeEntity {
+
+		@Override
+		public String toString() {
+			return "ShardManager";
+		}
+
+		@Override
+		Object answer(final String method, final Object[] args) {
+			switch (method) {
+				case "getShards":
+					return shards;
+				case "getShardsTotal":
+				case "getShardsRunning":
+					return shards.size();
+				case "getShardById":
+					return shards.get(Integer.parseInt(String.valueOf(args[0])));
+				case "getGuilds":
+					return guilds;
+				case "getGuildById":
+					return findGuild(guilds, Long.parseLong(String.valueOf(args[0])));
+				default:
+					return null;
+			}
+		}
+	}
+
+	/**
+	 * A connected shard.
+	 */
+	private final class ShardEntity extends FakeEntity {
+
+		private final JDA.ShardInfo shardInfo;
+		private final List<Guild> guildsOfShard;
+
+		private ShardEntity(final int shardId, final int shardTotal, final List<Guild> guildsOfShard) {
+			this.shardInfo = new JDA.ShardInfo(shardId, shardTotal);
+			this.guildsOfShard = guildsOfShard;
+		}
+
+		@Override
+		public String toString() {
+			return "Shard " + shardInfo.getShardId();
+		}
+
+		@Override
+		Object answer(final String method, final Object[] args) {
+			switch (method) {
+				case "getStatus":
+					return JDA.Status.CONNECTED;
+				case "getShardInfo":
+					return shardInfo;
+				case "getShardManager":
+					return shardManager;
+				case "getGuilds":
+					return guildsOfShard;
+				case "getGuildById":
+					return findGuild(guildsOfShard, Long.parseLong(String.valueOf(args[0])));
+				default:
+					return null;
+			}
+		}
+	}
+
+	/**
+	 * Finds a guild by its ID.
+	 *
+	 * @param guilds  The guilds to search.
+	 * @param guildId The ID of the guild.
+	 * @return The guild or {@code null} if none of the guilds has the ID.
+	 */
+	private static Guild findGuild(final List<Guild> guilds, final long guildId) {
+		for (Guild guild : guilds) {
+			if (guild.getIdLong() == guildId) {
+				return guild;
+			}
+		}
+
+		return null;
+	}
+
+	/**
+	 * A guild with its roles and members. Loading the members succeeds right away.
+	 */
+	private static final class GuildEntity extends FakeEntity {
+
+		private final SyntheticForum forum;
+		private final int guildIndex;
+		private final long guildId;
+		private final JDA shard;
+		private final Role[] forumRoles;
+		private final List<Role> roles;
+		private final Map<String, List<Role>> rolesByName;
+		private final List<Member> members;
+		private final List<Member> joiningMembers;
+		private Member selfMember;
+
+		private GuildEntity(final SyntheticForum forum, final int guildIndex, final JDA shard) {
+			this.forum = forum;
+			this.guildIndex = guildIndex;
+			this.guildId = SyntheticForum.getGuildId(guildIndex);
+			this.shard = shard;
+			this.forumRoles = new Role[forum.getRoleCount() + 1];
+			this.roles = new ArrayList<>();
+			this.rolesByName = new HashMap<>();
+			this.members = new ArrayList<>(forum.getMembersPerGuild());
+			this.joiningMembers = new ArrayList<>(forum.getJoinsPerGuild());
+		}
+
+		/**
+		 * Creates the roles and members of the guild. Needs the proxy of the guild as they refer to it.
+		 *
+		 * @param guild The proxy of this guild.
+		 */
+		private void populate(final Guild guild) {
+			final long roleIdBase = SyntheticForum.ROLE_ID_BASE + (long) guildIndex * (SyntheticForum.MAX_ROLES + OTHER_ROLES + 1);
+			for (int roleId = 1; roleId <= forum.getRoleCount(); roleId++) {
+				forumRoles[roleId] = addRole(guild, roleIdBase + roleId, SyntheticForum.getRoleName(roleId));
+			}
+
+			for (int i = 1; i <= OTHER_ROLES; i++) {
+				addRole(guild, roleIdBase + SyntheticForum.MAX_ROLES + i, "Discord Role " + i);
+			}
+
+			selfMember = FakeEntity.proxy(Member.class, new SelfMemberEntity(guild));
+			for (int memberIndex = 0; memberIndex < forum.getMembersPerGuild(); memberIndex++) {
+				members.add(createMember(guild, memberIndex));
+			}
+
+			for (int joinIndex = 0; joinIndex < forum.getJoinsPerGuild(); joinIndex++) {
+				joiningMembers.add(createMember(guild, forum.getMembersPerGuild() + joinIndex));
+			}
+		}
+
+		/**
+		 * Creates a role of the guild.
+		 *
+		 * @param guild  The proxy of this guild.
+		 * @param roleId The ID of the role.
+		 * @param name   The name of the role.
+		 * @return The role.
+		 */
+		private Role addRole(final Guild guild, final long roleId, final String name) {
+			final Role role = FakeEntity.proxy(Role.class, new RoleEntity(guild, roleId, name));
+			roles.add(role);
+			rolesByName.computeIfAbsent(name.toLowerCase(), key -> new ArrayList<>()).add(role);
+			return role;
+		}
+
+		/**
+		 * Creates a member of the guild with the Discord roles of the synthetic forum.
+		 *
+		 * @param guild       The proxy of this guild.
+		 * @param memberIndex The index of the member in the guild.
+		 * @return The member.
+		 */
+		private Member createMember(final Guild guild, final int memberIndex) {
+			final long forumId = SyntheticForum.getForumId(guildIndex, memberIndex);
+			return FakeEntity.proxy(Member.class, new MemberEntity(guild, this, SyntheticForum.getDiscordId(forumId), forum.getDiscordRoles(forumId)));
+		}
+
+		@Override
+		public String toString() {
+			return "Guild " + guildIndex;
+		}
+
+		@Override
+		Object answer(final String method, final Object[] args) {
+			switch (method) {
+				case "getIdLong":
+					return guildId;
+				case "getId":
+					return String.valueOf(guildId);
+				case "getName":
+					return toString();
+				case "getJDA":
+					return shard;
+				case "getMemberCount":
+					return members.size();
+				case "getSelfMember":
+					return selfMember;
+				case "getRoles":
+					return roles;
+				case "getRolesByName":
+					final String name = (String) args[0];
+					return rolesByName.getOrDefault(name.toLowerCase(), List.of());
+				case "loadMembers":
+					return FakeEntity.proxy(Task.class, new LoadedMembersEntity(members));
+				default:
+					return null;
+			}
+		}
+
+		/**
+		 * Gets the Discord roles of a member.
+		 *
+		 * @param roleMask The bit mask of the roles of the member.
+		 * @return A new list of the roles like JDA returns it.
+		 */
+		private List<Role> getRoles(final long roleMask) {
+			final List<Role> memberRoles = new ArrayList<>(Long.bitCount(roleMask));
+			for (int roleId = 1; roleId < forumRoles.length; roleId++) {
+				if ((roleMask & (1L << roleId)) != 0) {
+					memberRoles.add(forumRoles[roleId]);
+				}
+			}
+
+			return memberRoles;
+		}
+	}
+
+	/**
+	 * The finished task of loading the members of a guild.
+	 */
+	private static final class LoadedMembersEntity extends FakeEntity {
+
+		private final List<Member> members;
+
+		private LoadedMembersEntity(final List<Member> members) {
+			this.members = members;
+		}
+
+		@Override
+		public String toString() {
+			return "Task of " + members.size() + " members";
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		Object answer(final String method, final Object[] args) {
+			switch (method) {
+				case "onSuccess":
+					((Consumer<List<Member>>) args[0]).accept(members);
+					return null;
+				case "get":
+					return members;
+				case "isStarted":
+					return true;
+				default:
+					return null;
+			}
+		}
+
+		@Override
+		public Object invoke(final Object proxy, final Method method, final Object[] args) {
+			final Object answer = super.invoke(proxy, method, args);
+			// the callbacks get chained
+			return answer == null && method.getReturnType() == Task.class ? proxy : answer;
+		}
+	}
+
+	/**
+	 * A role of a guild.
+	 */
+	private static final class RoleEntity extends FakeEntity {
+
+		private final Guild guild;
+		private final long roleId;
+		private final String name;
+
+		private RoleEntity(final Guild guild, final long roleId, final String name) {
+			this.guild = guild;
+			this.roleId = roleId;
+			this.name = name;
+		}
+
+		@Override
+		public String toString() {
+			return name;
+		}
+
+		@Override
+		Object answer(final String method, final Object[] args) {
+			switch (method) {
+				case "getIdLong":
+					return roleId;
+				case "getId":
+					return String.valueOf(roleId);
+				case "getName":
+					return toString();
+				case "getGuild":
+					return guild;
+				default:
+					return null;
+			}
+		}
+	}
+
+	/**
+	 * A member of a guild. Keeps its roles as a bit mask.
+	 */
+	private static final class MemberEntity extends FakeEntity {
+
+		private final Guild guild;
+		private final GuildEntity guildEntity;
+		private final long discordId;
+		private final long roleMask;
+
+		private MemberEntity(final Guild guild, final GuildEntity guildEntity, final long discordId, final long roleMask) {
+			this.guild = guild;
+			this.guildEntity = guildEntity;
+			this.discordId = discordId;
+			this.roleMask = roleMask;
+		}
+
+		@Override
+		public String toString() {
+			return "Member " + discordId;
+		}
+
+		@Override
+		Object answer(final String method, final Object[] args) {
+			switch (method) {
+				case "getIdLong":
+					return discordId;
+				case "getId":
+					return String.valueOf(discordId);
+				case "getGuild":
+					return guild;
+				case "getJDA":
+					return guild.getJDA();
+				case "getUser":
+					return FakeEntity.proxy(User.class, new UserEntity(discordId));
+				case "getEffectiveName":
+					return toString();
+				case "getRoles":
+					return guildEntity.getRoles(roleMask);
+				default:
+					return null;
+			}
+		}
+	}
+
+	/**
+	 * The member of the bot in a guild. Its role is above all roles of the guild.
+	 */
+	private static final class SelfMemberEntity extends FakeEntity {
+
+		private final Guild guild;
+
+		private SelfMemberEntity(final Guild guild) {
+			this.guild = guild;
+		}
+
+		@Override
+		public String toString() {
+			return "RoleWatcher";
+		}
+
+		@Override
+		Object answer(final String method, final Object[] args) {
+			switch (method) {
+				case "getIdLong":
+					return 1L;
+				case "getId":
+					return "1";
+				case "getGuild":
+					return guild;
+				case "canInteract":
+				case "hasPermission":
+					return true;
+				default:
+					return null;
+			}
+		}
+	}
+
+	/**
+	 * The user of a member.
+	 */
+	private static final class UserEntity extends FakeEntity {
+
+		private final long discordId;
+
+		private UserEntity(final long discordId) {
+			this.discordId = discordId;
+		}
+
+		@Override
+		public String toString() {
+			return "User " + discordId;
+		}
+
+		@Override
+		Object answer(final String method, final Object[] args) {
+			switch (method) {
+				case "getIdLong":
+					return discordId;
+				case "getId":
+					return String.valueOf(discordId);
+				case "getName":
+					return toString();
+				case "getDiscriminator":
+					return "0001";
+				case "getAsTag":
+					return this + "#0001";
+				default:
+					return null;
+			}
+		}
+	}
+}
@@ -0,0 +1,77 @@
+package com.motorbesitzen.rolewatcher.bot.command.impl;
+
+import com.motorbesitzen.rolewatcher.bot.event.AutokickSweeper;
+import com.motorbesitzen.rolewatcher.data.dao.DiscordUser;
+import com.motorbesitzen.rolewatcher.data.dao.ForumUser;
+import com.motorbesitzen.rolewatcher.data.repo.DiscordUserRepo;
+import com.motorbesitzen.rolewatcher.util.JdaFakes;
+import net.dv8tion.jda.api.JDA;
+import net.dv8tion.jda.api.entities.Message;
+import net.dv8tion.jda.api.entities.TextChannel;
+import net.dv8tion.jda.api.entities.User;
+import net.dv8tion.jda.api.events.message.guild.GuildMessageReceivedEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+public class RemoveWhitelistTest {
+
+	private static final long USER_ID = 200000000000000001L;
+
+	private DiscordUserRepo dcUserRepo;
+	private AutokickSweeper autokickSweeper;
+	private RemoveWhitelist command;
+	private GuildMessageReceivedEvent event;
+
+	@BeforeEach
+	void createCommand() {
+		dcUserRepo = mock(DiscordUserRepo.class);
+		autokickSweeper = mock(AutokickSweeper.class);
+		command = JdaFakes.construct(RemoveWhitelist.class, dcUserRepo, autokickSweeper);
+
+		final User author = JdaFakes.fake(User.class, "author", Map.of("getId", "1", "getAsTag", "Admin#0001"));
+		final TextChannel channel = JdaFakes.fake(TextChannel.class, "channel", Map.of("canTalk", false));
+		final String content = "?removewhitelist " + USER_ID;
+		final Message message = JdaFakes.fake(Message.class, content, Map.of(
+				"getContentRaw", content,
+				"getMentionedMembers", List.of(),
+				"getTextChannel", channel,
+				"getChannel", channel,
+				"getAuthor", author
+		));
+		event = new GuildMessageReceivedEvent(JdaFakes.fake(JDA.class, "jda", Map.of()), 0, message);
+	}
+
+	@Test
+	@DisplayName("should track an unlinked user for the autokick again once it got removed from the whitelist")
+	void testTrackUnlinkedUser() {
+		final DiscordUser dcUser = DiscordUser.createWhitelistedDiscordUser(USER_ID);
+		when(dcUserRepo.findById(USER_ID)).thenReturn(Optional.of(dcUser));
+
+		command.execute(event);
+
+		assertThat(dcUser.isWhitelisted()).isFalse();
+		verify(dcUserRepo).save(dcUser);
+		verify(autokickSweeper).track(USER_ID);
+	}
+
+	@Test
+	@DisplayName("should not track a linked user that got removed from the whitelist")
+	void testKeepLinkedUser() {
+		final DiscordUser dcUser = DiscordUser.createLinkedDiscordUser(USER_ID, ForumUser.create(1, "Linked"));
+		dcUser.setWhitelisted(true);
+		when(dcUserRepo.findById(USER_ID)).thenReturn(Optional.of(dcUser));
+
+		command.execute(event);
+
+		verify(autokickSweeper, never()).track(anyLong());
+	}
+}
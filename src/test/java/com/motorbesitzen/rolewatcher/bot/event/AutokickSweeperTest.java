@@ -0,0 +1,185 @@
+package com.motorbesitzen.rolewatcher.bot.event;
+
+import com.motorbesitzen.rolewatcher.bot.service.DiscordActionOutbox;
+import com.motorbesitzen.rolewatcher.bot.service.PartitionLeaseManager;
+import com.motorbesitzen.rolewatcher.data.dao.DiscordGuild;
+import com.motorbesitzen.rolewatcher.data.dao.DiscordUser;
+import com.motorbesitzen.rolewatcher.data.dao.ForumUser;
+import com.motorbesitzen.rolewatcher.data.repo.DiscordGuildRepo;
+import com.motorbesitzen.rolewatcher.data.repo.DiscordUserRepo;
+import com.motorbesitzen.rolewatcher.data.repo.ForumUserRepo;
+import com.motorbesitzen.rolewatcher.util.JdaFakes;
+import net.dv8tion.jda.api.JDA;
+import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.entities.Member;
+import net.dv8tion.jda.api.entities.User;
+import net.dv8tion.jda.api.events.guild.member.GuildMemberRemoveEvent;
+import net.dv8tion.jda.api.requests.RestAction;
+import net.dv8tion.jda.api.sharding.ShardManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+public class AutokickSweeperTest {
+
+	private static final long GUILD_ID = 100000000000000001L;
+	private static final long FIRST_MEMBER_ID = 200000000000000001L;
+	private static final long SECOND_MEMBER_ID = 200000000000000002L;
+
+	private DiscordUserRepo discordUserRepo;
+	private ForumUserRepo forumUserRepo;
+	private DiscordActionOutbox actionOutbox;
+	private Guild guild;
+	private AutokickSweeper sweeper;
+
+	@BeforeEach
+	void createSweeper() {
+		final DiscordGuild dcGuild = DiscordGuild.createDefault(GUILD_ID);
+		dcGuild.setAutokick(true);
+		dcGuild.setAutokickHourDelay(1);
+		final DiscordGuildRepo guildRepo = mock(DiscordGuildRepo.class);
+		when(guildRepo.findAll()).thenReturn(List.of(dcGuild));
+		discordUserRepo = mock(DiscordUserRepo.class);
+		when(discordUserRepo.findById(anyLong())).thenAnswer(invocation -> Optional.of(DiscordUser.createDiscordUser(invocation.getArgument(0))));
+		forumUserRepo = mock(ForumUserRepo.class);
+		actionOutbox = mock(DiscordActionOutbox.class);
+		final PartitionLeaseManager leaseManager = mock(PartitionLeaseManager.class);
+		when(leaseManager.ownsGuild(anyLong())).thenReturn(true);
+		sweeper = new AutokickSweeper(guildRepo, discordUserRepo, forumUserRepo, actionOutbox, leaseManager);
+
+		guild = JdaFakes.fake(Guild.class, "guild", Map.of(
+				"getIdLong", GUILD_ID,
+				"getName", "Guild",
+				"retrieveMemberById", (Function<Object[], Object>) args -> retrieveMember((long) args[0])
+		));
+		final ShardManager shardManager = JdaFakes.fake(ShardManager.class, "shardManager", Map.of("getGuildById", guild));
+		ReflectionTestUtils.setField(sweeper, "shardManager", shardManager);
+	}
+
+	@Test
+	@DisplayName("should kick an unlinked member once its autokick delay ended")
+	void testKickUnlinkedMember() {
+		sweeper.track(createMember(FIRST_MEMBER_ID, 2));
+
+		sweeper.sweep();
+
+		verify(actionOutbox).kick(argThat(member -> member.getIdLong() == FIRST_MEMBER_ID), anyString());
+	}
+
+	@Test
+	@DisplayName("should not kick an unlinked member before its autokick delay ended")
+	void testKeepNewMember() {
+		sweeper.track(createMember(FIRST_MEMBER_ID, 0));
+
+		sweeper.sweep();
+
+		verifyNoInteractions(discordUserRepo, actionOutbox);
+	}
+
+	@Test
+	@DisplayName("should kick one member per guild and sweep in the order the members joined")
+	void testKickInJoinOrder() {
+		sweeper.track(createMember(SECOND_MEMBER_ID, 2));
+		sweeper.track(createMember(FIRST_MEMBER_ID, 3));
+
+		sweeper.sweep();
+
+		verify(actionOutbox).kick(argThat(member -> member.getIdLong() == FIRST_MEMBER_ID), anyString());
+		verify(actionOutbox, never()).kick(argThat(member -> member.getIdLong() == SECOND_MEMBER_ID), anyString());
+
+		sweeper.sweep();
+
+		verify(actionOutbox).kick(argThat(member -> member.getIdLong() == SECOND_MEMBER_ID), anyString());
+	}
+
+	@Test
+	@DisplayName("should not kick a member that left the guild")
+	void testForgetRemovedMember() {
+		final Member member = createMember(FIRST_MEMBER_ID, 2);
+		sweeper.track(member);
+		sweeper.track(member);
+
+		sweeper.onGuildMemberRemove(new GuildMemberRemoveEvent(JdaFakes.fake(JDA.class, "jda", Map.of()), 0, guild, member.getUser(), member));
+		sweeper.sweep();
+
+		verifyNoInteractions(discordUserRepo, actionOutbox);
+	}
+
+	@Test
+	@DisplayName("should not kick a member that got linked with a single database lookup")
+	void testKeepLinkedMember() {
+		final DiscordUser linkedUser = DiscordUser.createLinkedDiscordUser(FIRST_MEMBER_ID, ForumUser.create(1, "Linked"));
+		when(discordUserRepo.findById(FIRST_MEMBER_ID)).thenReturn(Optional.of(linkedUser));
+		sweeper.track(createMember(FIRST_MEMBER_ID, 2));
+
+		sweeper.sweep();
+
+		verify(discordUserRepo).findById(FIRST_MEMBER_ID);
+		verifyNoInteractions(forumUserRepo, actionOutbox);
+	}
+
+	@Test
+	@DisplayName("should not kick a whitelisted member")
+	void testKeepWhitelistedMember() {
+		when(discordUserRepo.findById(FIRST_MEMBER_ID)).thenReturn(Optional.of(DiscordUser.createWhitelistedDiscordUser(FIRST_MEMBER_ID)));
+		sweeper.track(createMember(FIRST_MEMBER_ID, 2));
+
+		sweeper.sweep();
+
+		verify(actionOutbox, never()).kick(any(), anyString());
+	}
+
+	@Test
+	@DisplayName("should kick a skipped whitelisted member once it got removed from the whitelist")
+	void testKickFormerlyWhitelistedMember() {
+		when(discordUserRepo.findById(FIRST_MEMBER_ID)).thenReturn(Optional.of(DiscordUser.createWhitelistedDiscordUser(FIRST_MEMBER_ID)));
+		sweeper.track(createMember(FIRST_MEMBER_ID, 2));
+		sweeper.sweep();
+
+		// the skipped member waits for its recheck, tracking it again makes it due right away
+		when(discordUserRepo.findById(FIRST_MEMBER_ID)).thenReturn(Optional.of(DiscordUser.createDiscordUser(FIRST_MEMBER_ID)));
+		sweeper.sweep();
+		verify(actionOutbox, never()).kick(any(), anyString());
+
+		sweeper.track(FIRST_MEMBER_ID);
+		sweeper.sweep();
+
+		verify(actionOutbox).kick(argThat(member -> member.getIdLong() == FIRST_MEMBER_ID), anyString());
+	}
+
+	private Member createMember(final long memberId, final int hoursSinceJoin) {
+		final User user = JdaFakes.fake(User.class, "user " + memberId, Map.of("getIdLong", memberId, "getAsTag", "User#0001"));
+		return JdaFakes.fake(Member.class, "member " + memberId, Map.of(
+				"getIdLong", memberId,
+				"getId", String.valueOf(memberId),
+				"getUser", user,
+				"getGuild", guild,
+				"hasTimeJoined", true,
+				"getTimeJoined", OffsetDateTime.now().minusHours(hoursSinceJoin).minusMinutes(1)
+		));
+	}
+
+	@SuppressWarnings("unchecked")
+	private RestAction<Member> retrieveMember(final long memberId) {
+		final Member member = createMember(memberId, 2);
+		return JdaFakes.fake(RestAction.class, "retrieveMember", Map.of(
+				"queue", (Function<Object[], Object>) args -> {
+					((Consumer<Member>) args[0]).accept(member);
+					return null;
+				}
+		));
+	}
+}
@@ -0,0 +1,170 @@
+package com.motorbesitzen.rolewatcher.bot.event;
+
+import com.motorbesitzen.rolewatcher.bot.service.ActivityRefresher;
+import com.motorbesitzen.rolewatcher.bot.service.DiscordActionOutbox;
+import com.motorbesitzen.rolewatcher.bot.service.EnvSettings;
+import com.motorbesitzen.rolewatcher.bot.service.ForumRoleSource;
+import com.motorbesitzen.rolewatcher.bot.service.PartitionLeaseManager;
+import com.motorbesitzen.rolewatcher.bot.service.SyncMetrics;
+import com.motorbesitzen.rolewatcher.bot.service.SyncPriority;
+import com.motorbesitzen.rolewatcher.bot.service.SyncQueue;
+import com.motorbesitzen.rolewatcher.bot.service.SyncStateTracker;
+import com.motorbesitzen.rolewatcher.data.dao.DiscordGuild;
+import com.motorbesitzen.rolewatcher.data.repo.AuthedChannelRepo;
+import com.motorbesitzen.rolewatcher.data.repo.AuthedRoleRepo;
+import com.motorbesitzen.rolewatcher.data.repo.DiscordGuildRepo;
+import com.motorbesitzen.rolewatcher.data.repo.ForumRoleRepo;
+import com.motorbesitzen.rolewatcher.data.repo.ForumUserRepo;
+import com.motorbesitzen.rolewatcher.util.HotPathBudget;
+import com.motorbesitzen.rolewatcher.util.JdaFakes;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import net.dv8tion.jda.api.JDA;
+import net.dv8tion.jda.api.entities.*;
+import net.dv8tion.jda.api.events.message.guild.GuildMessageReceivedEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+public class CommandListenerBudgetTest {
+
+	private static final long GUILD_ID = 100000000000000001L;
+	private static final long CHANNEL_ID = 100000000000000002L;
+
+	private final AtomicInteger dbCalls = new AtomicInteger();
+	private EnvSettings envSettings;
+	private Guild guild;
+	private GuildMessageReceivedEvent plainMessage;
+
+	@BeforeEach
+	void createMessage() {
+		final StandardEnvironment environment = new StandardEnvironment();
+		environment.getPropertySources().addFirst(new MapPropertySource("test", Map.of(
+				"CMD_PREFIX", "rw!",
+				"FORUM_ROLE_ACTIVITY_REFRESH_MINUTES", "10",
+				"FORUM_ROLE_MAX_STALENESS_HOURS", "24"
+		)));
+		envSettings = JdaFakes.construct(EnvSettings.class, environment);
+
+		final JDA jda = JdaFakes.fake(JDA.class, "jda", Map.of());
+		final Member self = JdaFakes.fake(Member.class, "self", Map.of("getIdLong", 1L));
+		final User author = JdaFakes.fake(User.class, "author", Map.of("getIdLong", 2L));
+		final Member member = JdaFakes.fake(Member.class, "member", Map.of(
+				"getIdLong", 2L,
+				"getUser", author,
+				"getGuild", (Function<Object[], Object>) args -> guild
+		));
+		guild = JdaFakes.fake(Guild.class, "guild", Map.of(
+				"getIdLong", GUILD_ID,
+				"getSelfMember", self,
+				"getMember", member
+		));
+		final TextChannel channel = JdaFakes.fake(TextChannel.class, "channel", Map.of(
+				"getIdLong", CHANNEL_ID,
+				"getGuild", guild,
+				"canTalk", true
+		));
+		final String content = "Has anyone seen the new forum update?";
+		final Message message = JdaFakes.fake(Message.class, content, Map.of(
+				"getIdLong", 3L,
+				"getContentRaw", content,
+				"getTextChannel", channel,
+				"getChannel", channel,
+				"getGuild", guild,
+				"getAuthor", author,
+				"getMember", member
+		));
+		plainMessage = new GuildMessageReceivedEvent(jda, 0, message);
+	}
+
+	@Test
+	@DisplayName("should reject a message without the command prefix with a single database call")
+	void testPlainMessageDatabaseCalls() {
+		final CommandListener commandListener = createListener(DiscordGuild.createDefault(GUILD_ID), null);
+
+		commandListener.onGuildMessageReceived(plainMessage);
+
+		assertThat(dbCalls.get()).isEqualTo(1);
+	}
+
+	@Test
+	@DisplayName("should reject a message without the command prefix within the budget")
+	void testPlainMessageBudget() throws Exception {
+		final CommandListener commandListener = createListener(DiscordGuild.createDefault(GUILD_ID), null);
+
+		HotPathBudget.of("command.plainMessage", 256, 20000).assertWithin(() -> {
+			commandListener.onGuildMessageReceived(plainMessage);
+			return dbCalls.get();
+		});
+	}
+
+	@Test
+	@DisplayName("should refresh an active member of a role sync guild once without further database calls")
+	void testRoleSyncMessageDatabaseCalls() {
+		final SyncQueue syncQueue = mock(SyncQueue.class);
+		final CommandListener commandListener = createListener(createRoleSyncGuild(), createActivityRefresher(syncQueue));
+
+		commandListener.onGuildMessageReceived(plainMessage);
+		commandListener.onGuildMessageReceived(plainMessage);
+
+		assertThat(dbCalls.get()).isEqualTo(2);
+		verify(syncQueue).submit(eq(SyncPriority.ACTIVITY), any());
+	}
+
+	@Test
+	@DisplayName("should reject a message without the command prefix in a role sync guild within the budget")
+	void testRoleSyncMessageBudget() throws Exception {
+		final CommandListener commandListener = createListener(createRoleSyncGuild(), createActivityRefresher(mock(SyncQueue.class)));
+
+		HotPathBudget.of("command.plainMessage.roleSync", 512, 20000).assertWithin(() -> {
+			commandListener.onGuildMessageReceived(plainMessage);
+			return dbCalls.get();
+		});
+	}
+
+	private CommandListener createListener(final DiscordGuild dcGuild, final ActivityRefresher activityRefresher) {
+		final DiscordGuildRepo guildRepo = JdaFakes.fake(DiscordGuildRepo.class, "guildRepo", Map.of("findById", Optional.of(dcGuild)), dbCalls);
+		final AuthedChannelRepo channelRepo = JdaFakes.fake(AuthedChannelRepo.class, "channelRepo", Map.of(), dbCalls);
+		final AuthedRoleRepo roleRepo = JdaFakes.fake(AuthedRoleRepo.class, "roleRepo", Map.of(), dbCalls);
+		final SyncMetrics syncMetrics = JdaFakes.construct(SyncMetrics.class, new SimpleMeterRegistry(), null, null, null, null);
+		return JdaFakes.construct(
+				CommandListener.class, Map.of(), envSettings, guildRepo, channelRepo, roleRepo, activityRefresher, syncMetrics
+		);
+	}
+
+	private static DiscordGuild createRoleSyncGuild() {
+		final DiscordGuild dcGuild = DiscordGuild.createDefault(GUILD_ID);
+		dcGuild.setRoleSyncPerm(true);
+		return dcGuild;
+	}
+
+	private ActivityRefresher createActivityRefresher(final SyncQueue syncQueue) {
+		final SyncStateTracker syncTracker = JdaFakes.construct(SyncStateTracker.class, envSettings);
+		return JdaFakes.construct(
+				ActivityRefresher.class, envSettings, JdaFakes.fake(ForumUserRepo.class, "forumUserRepo", Map.of(), dbCalls),
+				JdaFakes.fake(ForumRoleRepo.class, "forumRoleRepo", Map.of(), dbCalls), mock(ForumRoleSource.class),
+				syncTracker, syncQueue, mock(DiscordActionOutbox.class), createLeaseManager()
+		);
+	}
+
+	@SuppressWarnings("unchecked")
+	private PartitionLeaseManager createLeaseManager() {
+		// a real manager that holds the lease of the only partition, a mock would add its own allocations to the budget
+		final PartitionLeaseManager leaseManager = JdaFakes.construct(PartitionLeaseManager.class, null, null, envSettings);
+		((Map<Integer, Long>) ReflectionTestUtils.getField(leaseManager, "ownedUntil")).put(0, Long.MAX_VALUE);
+		return leaseManager;
+	}
+}
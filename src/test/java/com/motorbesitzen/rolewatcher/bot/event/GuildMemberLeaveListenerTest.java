@@ -0,0 +1,104 @@
+package com.motorbesitzen.rolewatcher.bot.event;
+
+import com.motorbesitzen.rolewatcher.bot.service.ActivityRefresher;
+import com.motorbesitzen.rolewatcher.bot.service.DiscordActionOutbox;
+import com.motorbesitzen.rolewatcher.bot.service.EnvSettings;
+import com.motorbesitzen.rolewatcher.bot.service.ForumRoleSource;
+import com.motorbesitzen.rolewatcher.bot.service.PartitionLeaseManager;
+import com.motorbesitzen.rolewatcher.bot.service.SyncQueue;
+import com.motorbesitzen.rolewatcher.bot.service.SyncStateTracker;
+import com.motorbesitzen.rolewatcher.data.dao.ForumRole;
+import com.motorbesitzen.rolewatcher.data.repo.ForumRoleRepo;
+import com.motorbesitzen.rolewatcher.data.repo.ForumUserRepo;
+import com.motorbesitzen.rolewatcher.util.JdaFakes;
+import net.dv8tion.jda.api.JDA;
+import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.entities.Member;
+import net.dv8tion.jda.api.entities.User;
+import net.dv8tion.jda.api.events.guild.GuildLeaveEvent;
+import net.dv8tion.jda.api.events.guild.member.GuildMemberRemoveEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class GuildMemberLeaveListenerTest {
+
+	private static final long GUILD_ID = 100000000000000001L;
+	private static final long OTHER_GUILD_ID = 100000000000000002L;
+	private static final long MEMBER_ID = 200000000000000001L;
+
+	private final JDA jda = JdaFakes.fake(JDA.class, "jda", Map.of());
+	private SyncStateTracker syncTracker;
+	private ActivityRefresher activityRefresher;
+	private GuildMemberLeaveListener listener;
+	private Guild guild;
+	private Member member;
+	private Member otherMember;
+
+	@BeforeEach
+	void createListener() {
+		final EnvSettings envSettings = mock(EnvSettings.class);
+		when(envSettings.getForumRoleMaxStalenessHours()).thenReturn("24");
+		when(envSettings.getActivityRefreshMinutes()).thenReturn("10");
+		final PartitionLeaseManager leaseManager = mock(PartitionLeaseManager.class);
+		when(leaseManager.ownsGuild(anyLong())).thenReturn(true);
+		syncTracker = JdaFakes.construct(SyncStateTracker.class, envSettings);
+		activityRefresher = JdaFakes.construct(ActivityRefresher.class, envSettings, mock(ForumUserRepo.class),
+				mock(ForumRoleRepo.class), mock(ForumRoleSource.class), syncTracker, mock(SyncQueue.class), mock(DiscordActionOutbox.class),
+				leaseManager);
+		listener = JdaFakes.construct(GuildMemberLeaveListener.class, syncTracker, activityRefresher);
+
+		guild = JdaFakes.fake(Guild.class, "guild", Map.of("getIdLong", GUILD_ID));
+		final Guild otherGuild = JdaFakes.fake(Guild.class, "other guild", Map.of("getIdLong", OTHER_GUILD_ID));
+		member = createMember(guild);
+		otherMember = createMember(otherGuild);
+		activityRefresher.onActivity(member);
+		activityRefresher.onActivity(otherMember);
+		syncTracker.recordSync(member, List.of(ForumRole.of(1, "Member")));
+		syncTracker.recordSync(otherMember, List.of(ForumRole.of(1, "Member")));
+	}
+
+	@Test
+	@DisplayName("should forget the sync state and the activity check of a member that left the guild")
+	void testForgetRemovedMember() {
+		listener.onGuildMemberRemove(new GuildMemberRemoveEvent(jda, 0, guild, member.getUser(), null));
+
+		assertThat(syncTracker.getLastSync(member)).isZero();
+		assertThat(syncTracker.getLastSync(otherMember)).isPositive();
+		assertThat(getLastChecks().get(GUILD_ID)).doesNotContainKey(MEMBER_ID);
+		assertThat(getLastChecks().get(OTHER_GUILD_ID)).containsKey(MEMBER_ID);
+	}
+
+	@Test
+	@DisplayName("should forget the sync states and the activity checks of all members of a guild the bot left")
+	void testForgetLeftGuild() {
+		listener.onGuildLeave(new GuildLeaveEvent(jda, 0, guild));
+
+		assertThat(syncTracker.getLastSync(member)).isZero();
+		assertThat(syncTracker.getLastSync(otherMember)).isPositive();
+		assertThat(getLastChecks()).doesNotContainKey(GUILD_ID).containsKey(OTHER_GUILD_ID);
+	}
+
+	@SuppressWarnings("unchecked")
+	private Map<Long, Map<Long, Long>> getLastChecks() {
+		return (Map<Long, Map<Long, Long>>) ReflectionTestUtils.getField(activityRefresher, "lastChecks");
+	}
+
+	private Member createMember(final Guild memberGuild) {
+		final User user = JdaFakes.fake(User.class, "user", Map.of("getIdLong", MEMBER_ID));
+		return JdaFakes.fake(Member.class, "member", Map.of(
+				"getIdLong", MEMBER_ID,
+				"getUser", user,
+				"getGuild", memberGuild
+		));
+	}
+}
@@ -0,0 +1,172 @@
+package com.motorbesitzen.rolewatcher.bot.service;
+
+import com.motorbesitzen.rolewatcher.data.dao.ForumRole;
+import com.motorbesitzen.rolewatcher.data.repo.ForumRoleRepo;
+import com.motorbesitzen.rolewatcher.data.repo.ForumUserRepo;
+import com.motorbesitzen.rolewatcher.util.JdaFakes;
+import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.entities.Member;
+import net.dv8tion.jda.api.entities.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+public class ActivityRefresherTest {
+
+	private static final long GUILD_ID = 100000000000000001L;
+	private static final long THRESHOLD_MS = 10 * 60 * 1000;
+	private static final int MAX_PENDING_REFRESHES = 100;
+
+	private SyncStateTracker syncTracker;
+	private SyncQueue syncQueue;
+	private PartitionLeaseManager leaseManager;
+	private ActivityRefresher activityRefresher;
+	private Guild guild;
+
+	@BeforeEach
+	void createRefresher() {
+		final EnvSettings envSettings = mock(EnvSettings.class);
+		when(envSettings.getForumRoleMaxStalenessHours()).thenReturn("0");
+		when(envSettings.getActivityRefreshMinutes()).thenReturn("10");
+		syncTracker = JdaFakes.construct(SyncStateTracker.class, envSettings);
+		syncQueue = mock(SyncQueue.class);
+		leaseManager = mock(PartitionLeaseManager.class);
+		when(leaseManager.ownsGuild(GUILD_ID)).thenReturn(true);
+		activityRefresher = new ActivityRefresher(envSettings, mock(ForumUserRepo.class), mock(ForumRoleRepo.class),
+				mock(ForumRoleSource.class), syncTracker, syncQueue, mock(DiscordActionOutbox.class), leaseManager);
+		guild = JdaFakes.fake(Guild.class, "guild", Map.of("getIdLong", GUILD_ID));
+	}
+
+	@Test
+	@DisplayName("should queue a refresh of an active member whose last synchronisation is older than the threshold")
+	void testRefreshStaleMember() {
+		activityRefresher.onActivity(createMember(1));
+
+		verify(syncQueue).submit(eq(SyncPriority.ACTIVITY), any(Runnable.class));
+	}
+
+	@Test
+	@DisplayName("should not queue a refresh of an active member that got synchronised within the threshold")
+	void testSkipFreshMember() {
+		final Member member = createMember(1);
+		syncTracker.recordSync(member, List.of(ForumRole.of(1, "Member")));
+
+		activityRefresher.onActivity(member);
+
+		verifyNoInteractions(syncQueue);
+	}
+
+	@Test
+	@DisplayName("should not queue a refresh of a member of a guild whose partition another instance owns")
+	void testSkipForeignPartition() {
+		when(leaseManager.ownsGuild(GUILD_ID)).thenReturn(false);
+
+		activityRefresher.onActivity(createMember(1));
+
+		verifyNoInteractions(syncQueue);
+	}
+
+	@Test
+	@DisplayName("should queue a single refresh for concurrent activity of the same member")
+	void testDedupeConcurrentActivity() throws Exception {
+		final Member member = createMember(1);
+		final int threads = 8;
+		final ExecutorService executor = Executors.newFixedThreadPool(threads);
+		final CountDownLatch start = new CountDownLatch(1);
+		final List<Future<?>> activities = new ArrayList<>();
+		try {
+			for (int i = 0; i < threads * 10; i++) {
+				activities.add(executor.submit(() -> {
+					start.await();
+					activityRefresher.onActivity(member);
+					return null;
+				}));
+			}
+
+			start.countDown();
+			for (Future<?> activity : activities) {
+				activity.get(5, TimeUnit.SECONDS);
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+
+		verify(syncQueue, times(1)).submit(eq(SyncPriority.ACTIVITY), any(Runnable.class));
+	}
+
+	@Test
+	@DisplayName("should stop queuing refreshes while the maximum of refreshes is pending")
+	void testLimitPendingRefreshes() {
+		for (int i = 1; i <= MAX_PENDING_REFRESHES + 20; i++) {
+			activityRefresher.onActivity(createMember(i));
+		}
+
+		final ArgumentCaptor<Runnable> refreshes = ArgumentCaptor.forClass(Runnable.class);
+		verify(syncQueue, times(MAX_PENDING_REFRESHES)).submit(eq(SyncPriority.ACTIVITY), refreshes.capture());
+
+		// a dropped member gets queued again once a pending refresh finished
+		refreshes.getValue().run();
+		activityRefresher.onActivity(createMember(MAX_PENDING_REFRESHES + 1));
+
+		verify(syncQueue, times(MAX_PENDING_REFRESHES + 1)).submit(eq(SyncPriority.ACTIVITY), any(Runnable.class));
+	}
+
+	@Test
+	@DisplayName("should queue a refresh again after the activity check of a member got forgotten")
+	void testForgetMember() {
+		final Member member = createMember(1);
+		activityRefresher.onActivity(member);
+		activityRefresher.onActivity(member);
+
+		activityRefresher.forgetMember(GUILD_ID, 1);
+		activityRefresher.onActivity(member);
+
+		verify(syncQueue, times(2)).submit(eq(SyncPriority.ACTIVITY), any(Runnable.class));
+	}
+
+	@Test
+	@DisplayName("should prune activity checks older than the threshold once per threshold")
+	void testPruneExpiredChecks() {
+		final long now = System.currentTimeMillis();
+		final Map<Long, Long> guildChecks = getLastChecks();
+		guildChecks.put(1L, now - THRESHOLD_MS - 1);
+		guildChecks.put(2L, now - THRESHOLD_MS / 2);
+
+		activityRefresher.onActivity(createMember(3));
+
+		assertThat(guildChecks).containsOnlyKeys(1L, 2L, 3L);
+
+		ReflectionTestUtils.setField(activityRefresher, "lastPruneAt", new AtomicLong(now - THRESHOLD_MS));
+		activityRefresher.onActivity(createMember(4));
+
+		assertThat(guildChecks).containsOnlyKeys(2L, 3L, 4L);
+	}
+
+	@SuppressWarnings("unchecked")
+	private Map<Long, Long> getLastChecks() {
+		final Map<Long, Map<Long, Long>> lastChecks = (Map<Long, Map<Long, Long>>) ReflectionTestUtils.getField(activityRefresher, "lastChecks");
+		return lastChecks.computeIfAbsent(GUILD_ID, id -> new ConcurrentHashMap<>());
+	}
+
+	private Member createMember(final long memberId) {
+		final User user = JdaFakes.fake(User.class, "user " + memberId, Map.of("getIdLong", memberId));
+		return JdaFakes.fake(Member.class, "member " + memberId, Map.of(
+				"getIdLong", memberId,
+				"getUser", user,
+				"getGuild", guild
+		));
+	}
+}
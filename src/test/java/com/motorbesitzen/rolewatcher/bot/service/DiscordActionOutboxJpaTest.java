@@ -0,0 +1,56 @@
+package com.motorbesitzen.rolewatcher.bot.service;
+
+import com.motorbesitzen.rolewatcher.data.dao.DiscordAction;
+import com.motorbesitzen.rolewatcher.data.dao.DiscordActionType;
+import com.motorbesitzen.rolewatcher.data.repo.DiscordActionRepo;
+import io.opentelemetry.api.OpenTelemetry;
+import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.entities.Member;
+import net.dv8tion.jda.api.entities.Role;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@DataJpaTest
+public class DiscordActionOutboxJpaTest {
+
+	private static final long GUILD_ID = 100000000000000001L;
+	private static final long MEMBER_ID = 200000000000000002L;
+	private static final int MAX_GUILD_ROLES = 250;
+
+	@Autowired
+	private DiscordActionRepo actionRepo;
+
+	@Test
+	@DisplayName("should store the changes of all roles a guild can have in one action")
+	void testStoreAllGuildRoles() {
+		final DiscordActionOutbox actionOutbox = new DiscordActionOutbox(actionRepo, new SyncTracer(OpenTelemetry.noop()));
+		final Guild guild = mock(Guild.class);
+		when(guild.getIdLong()).thenReturn(GUILD_ID);
+		final Member member = mock(Member.class);
+		when(member.getGuild()).thenReturn(guild);
+		when(member.getIdLong()).thenReturn(MEMBER_ID);
+
+		for (int i = 0; i < MAX_GUILD_ROLES; i++) {
+			final Role role = mock(Role.class);
+			when(role.getIdLong()).thenReturn(900000000000000000L + i);
+			if (i % 2 == 0) {
+				actionOutbox.addRole(member, role);
+			} else {
+				actionOutbox.removeRole(member, role);
+			}
+		}
+
+		final Optional<DiscordAction> action = actionRepo.findByActionKey(DiscordAction.buildActionKey(DiscordActionType.ROLES, GUILD_ID, MEMBER_ID));
+		assertThat(action).isPresent();
+		assertThat(DiscordActionOutbox.parseRoleIds(action.get().getRolesToAdd())).hasSize(MAX_GUILD_ROLES / 2);
+		assertThat(DiscordActionOutbox.parseRoleIds(action.get().getRolesToRemove())).hasSize(MAX_GUILD_ROLES / 2);
+	}
+}
@@ -0,0 +1,142 @@
+package com.motorbesitzen.rolewatcher.bot.service;
+
+import com.motorbesitzen.rolewatcher.data.dao.DiscordAction;
+import com.motorbesitzen.rolewatcher.data.dao.DiscordActionType;
+import com.motorbesitzen.rolewatcher.data.dao.ForumRole;
+import com.motorbesitzen.rolewatcher.data.repo.DiscordActionRepo;
+import io.opentelemetry.api.OpenTelemetry;
+import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.entities.Member;
+import net.dv8tion.jda.api.entities.Role;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class DiscordActionOutboxTest {
+
+	private static final long GUILD_ID = 100000000000000001L;
+	private static final long MEMBER_ID = 200000000000000002L;
+
+	private final Map<String, DiscordAction> actions = new HashMap<>();
+	private DiscordActionOutbox actionOutbox;
+	private Guild guild;
+	private Member member;
+
+	@BeforeEach
+	void createOutbox() {
+		final DiscordActionRepo actionRepo = mock(DiscordActionRepo.class);
+		when(actionRepo.findByActionKey(anyString())).thenAnswer(invocation -> Optional.ofNullable(actions.get(invocation.<String>getArgument(0))));
+		when(actionRepo.save(any(DiscordAction.class))).thenAnswer(invocation -> {
+			final DiscordAction action = invocation.getArgument(0);
+			actions.put(action.getActionKey(), action);
+			return action;
+		});
+		when(actionRepo.deleteByActionKeyIn(anyList())).thenAnswer(invocation -> {
+			final List<String> actionKeys = invocation.getArgument(0);
+			return actionKeys.stream().filter(key -> actions.remove(key) != null).count();
+		});
+		when(actionRepo.deleteByActionIdAndVersion(anyLong(), anyInt())).thenAnswer(invocation -> {
+			final long actionId = invocation.getArgument(0);
+			final int version = invocation.getArgument(1);
+			return actions.values().removeIf(action -> action.getActionId() == actionId && action.getVersion() == version) ? 1L : 0L;
+		});
+		actionOutbox = new DiscordActionOutbox(actionRepo, new SyncTracer(OpenTelemetry.noop()));
+
+		guild = mock(Guild.class);
+		when(guild.getIdLong()).thenReturn(GUILD_ID);
+		member = mock(Member.class);
+		when(member.getGuild()).thenReturn(guild);
+		when(member.getIdLong()).thenReturn(MEMBER_ID);
+	}
+
+	@Test
+	@DisplayName("should merge role changes of the same member into one action")
+	void testMergeRoleChanges() {
+		actionOutbox.addRole(member, role(1));
+		actionOutbox.addRole(member, role(2));
+		actionOutbox.removeRole(member, role(3));
+		actionOutbox.removeRole(member, role(1));
+
+		assertThat(actions).hasSize(1);
+		final DiscordAction action = actions.get(DiscordAction.buildActionKey(DiscordActionType.ROLES, GUILD_ID, MEMBER_ID));
+		assertThat(action.getRolesToAdd()).isEqualTo("2");
+		assertThat(action.getRolesToRemove()).isEqualTo("3,1");
+	}
+
+	@Test
+	@DisplayName("should drop pending role changes and kicks of a banned member")
+	void testBanDropsPendingActions() {
+		actionOutbox.addRole(member, role(1));
+		actionOutbox.kick(member, "unlinked");
+		actionOutbox.ban(member, "banned");
+		actionOutbox.ban(member, "banned again");
+
+		assertThat(actions).hasSize(1);
+		final DiscordAction action = actions.get(DiscordAction.buildActionKey(DiscordActionType.BAN, GUILD_ID, MEMBER_ID));
+		assertThat(action.getReason()).isEqualTo("banned");
+	}
+
+	@Test
+	@DisplayName("should drop a pending role change that contradicts the forum roles even if the roles match")
+	void testDropContradictingRoles() {
+		final Role vipRole = mockForumRole(1, "VIP");
+		final Role memberRole = mockForumRole(2, "Member");
+		when(member.getRoles()).thenAnswer(invocation -> new ArrayList<>(List.of(memberRole)));
+		actionOutbox.addRole(member, vipRole);
+		actionOutbox.removeRole(member, memberRole);
+
+		actionOutbox.updateRoles(member, new ArrayList<>(List.of(ForumRole.of(2, "Member"))), List.of(ForumRole.of(1, "VIP"), ForumRole.of(2, "Member")));
+
+		assertThat(actions).isEmpty();
+	}
+
+	@Test
+	@DisplayName("should drop a pending role change that contradicts the forum roles when merging new changes")
+	void testMergeDropsContradictingRoles() {
+		final Role vipRole = mockForumRole(1, "VIP");
+		final Role memberRole = mockForumRole(2, "Member");
+		when(member.getRoles()).thenAnswer(invocation -> new ArrayList<>());
+		actionOutbox.addRole(member, vipRole);
+
+		actionOutbox.updateRoles(member, new ArrayList<>(List.of(ForumRole.of(2, "Member"))), List.of(ForumRole.of(1, "VIP"), ForumRole.of(2, "Member")));
+
+		final DiscordAction action = actions.get(DiscordAction.buildActionKey(DiscordActionType.ROLES, GUILD_ID, MEMBER_ID));
+		assertThat(action.getRolesToAdd()).isEqualTo(String.valueOf(memberRole.getIdLong()));
+		assertThat(action.getRolesToRemove()).isEmpty();
+	}
+
+	private Role mockForumRole(final long roleId, final String name) {
+		final Role role = role(roleId * 10);
+		when(guild.getRolesByName(eq(name), anyBoolean())).thenReturn(List.of(role));
+		if (guild.getSelfMember() == null) {
+			final Member self = mock(Member.class);
+			when(self.canInteract(any(Role.class))).thenReturn(true);
+			when(guild.getSelfMember()).thenReturn(self);
+		}
+
+		return role;
+	}
+
+	private Role role(final long roleId) {
+		final Role role = mock(Role.class);
+		when(role.getIdLong()).thenReturn(roleId);
+		return role;
+	}
+}
@@ -0,0 +1,113 @@
+package com.motorbesitzen.rolewatcher.bot.service;
+
+import com.motorbesitzen.rolewatcher.data.dao.DiscordAction;
+import com.motorbesitzen.rolewatcher.data.repo.DiscordActionRepo;
+import io.opentelemetry.api.OpenTelemetry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class DiscordActionWorkerTest {
+
+	private static final long BUSY_GUILD_ID = 100000000000000001L;
+	private static final long QUIET_GUILD_ID = 100000000000000002L;
+	private static final long FOREIGN_GUILD_ID = 100000000000000003L;
+
+	private final List<DiscordAction> actions = new CopyOnWriteArrayList<>();
+	private final AtomicLong nextActionId = new AtomicLong(1);
+	private DiscordRestDispatcher dispatcher;
+	private DiscordActionWorker actionWorker;
+
+	@BeforeEach
+	void createWorker() throws IOException {
+		final DiscordActionRepo actionRepo = mock(DiscordActionRepo.class);
+		when(actionRepo.findGuildIdsWithDueActions(anyLong())).thenAnswer(invocation -> {
+			final long time = invocation.getArgument(0);
+			return actions.stream().filter(action -> action.getNextAttemptAt() <= time)
+					.map(DiscordAction::getGuildId).distinct().collect(Collectors.toList());
+		});
+		when(actionRepo.findTop10ByGuildIdAndNextAttemptAtLessThanEqualOrderByNextAttemptAtAsc(anyLong(), anyLong())).thenAnswer(invocation -> {
+			final long guildId = invocation.getArgument(0);
+			final long time = invocation.getArgument(1);
+			return actions.stream().filter(action -> action.getGuildId() == guildId && action.getNextAttemptAt() <= time)
+					.sorted(Comparator.comparingLong(DiscordAction::getNextAttemptAt)).limit(10).collect(Collectors.toList());
+		});
+		when(actionRepo.save(any(DiscordAction.class))).thenAnswer(invocation -> {
+			final DiscordAction action = invocation.getArgument(0);
+			if (action.getActionId() == 0) {
+				ReflectionTestUtils.setField(action, "actionId", nextActionId.getAndIncrement());
+				actions.add(action);
+			}
+
+			return action;
+		});
+		when(actionRepo.deleteByActionIdAndVersion(anyLong(), anyInt())).thenAnswer(invocation -> {
+			final long actionId = invocation.getArgument(0);
+			return actions.removeIf(action -> action.getActionId() == actionId) ? 1L : 0L;
+		});
+
+		final EnvSettings envSettings = mock(EnvSettings.class);
+		when(envSettings.getGuildActionsPerMinute()).thenReturn("60");
+		final PartitionLeaseManager leaseManager = mock(PartitionLeaseManager.class);
+		when(leaseManager.ownsGuild(anyLong())).thenAnswer(invocation -> invocation.<Long>getArgument(0) != FOREIGN_GUILD_ID);
+		dispatcher = mock(DiscordRestDispatcher.class);
+		when(dispatcher.send(any(), anyLong(), anyLong(), anyLong(), any())).thenReturn(new DispatchResult(204, 0, ""));
+		actionWorker = new DiscordActionWorker(
+				dispatcher, envSettings, actionRepo, leaseManager, mock(SyncMetrics.class), new SyncTracer(OpenTelemetry.noop())
+		);
+	}
+
+	@Test
+	@DisplayName("should send the actions of other guilds while one guild has a backlog")
+	void testDrainGuildsIndependently() throws IOException {
+		addKicks(BUSY_GUILD_ID, 150);
+		addKicks(QUIET_GUILD_ID, 1);
+
+		actionWorker.drain();
+
+		verify(dispatcher, timeout(5000)).send(eq(DiscordRoute.KICK), eq(QUIET_GUILD_ID), anyLong(), anyLong(), any());
+	}
+
+	@Test
+	@DisplayName("should keep sending the actions of a guild until its budget is used up")
+	void testDrainGuildUntilBudgetIsUsedUp() throws IOException {
+		addKicks(BUSY_GUILD_ID, 50);
+
+		actionWorker.drain();
+
+		// 60 actions per minute allow bursts of 10 actions
+		verify(dispatcher, after(1000).times(10)).send(eq(DiscordRoute.KICK), eq(BUSY_GUILD_ID), anyLong(), anyLong(), any());
+	}
+
+	@Test
+	@DisplayName("should not send the actions of guilds this instance does not own")
+	void testSkipForeignGuilds() throws IOException {
+		addKicks(FOREIGN_GUILD_ID, 150);
+		addKicks(QUIET_GUILD_ID, 1);
+
+		actionWorker.drain();
+
+		verify(dispatcher, timeout(5000)).send(eq(DiscordRoute.KICK), eq(QUIET_GUILD_ID), anyLong(), anyLong(), any());
+		verify(dispatcher, after(500).never()).send(any(), eq(FOREIGN_GUILD_ID), anyLong(), anyLong(), any());
+	}
+
+	private void addKicks(final long guildId, final int count) {
+		final long dueAt = System.currentTimeMillis() - 1000;
+		for (int i = 0; i < count; i++) {
+			final DiscordAction action = DiscordAction.createKickAction(guildId, 200000000000000000L + i, "Test", dueAt);
+			ReflectionTestUtils.setField(action, "actionId", nextActionId.getAndIncrement());
+			actions.add(action);
+		}
+	}
+}
@@ -0,0 +1,189 @@
+package com.motorbesitzen.rolewatcher.bot.service;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class DiscordRestDispatcherTest {
+
+	private static final long GUILD_ID = 100000000000000001L;
+	private static final long OTHER_GUILD_ID = 100000000000000002L;
+	private static final long MEMBER_ID = 200000000000000001L;
+	private static final long ROLE_ID = 300000000000000001L;
+
+	private final Queue<StubResponse> responses = new ConcurrentLinkedQueue<>();
+	private final List<String> requestedPaths = new CopyOnWriteArrayList<>();
+	private HttpServer server;
+	private DiscordRestDispatcher dispatcher;
+
+	@BeforeEach
+	void startDiscord() throws IOException {
+		server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		server.createContext("/", this::answer);
+		server.start();
+
+		final EnvSettings envSettings = mock(EnvSettings.class);
+		when(envSettings.getToken()).thenReturn("token");
+		dispatcher = new DiscordRestDispatcher(envSettings, "http://localhost:" + server.getAddress().getPort());
+	}
+
+	@AfterEach
+	void stopDiscord() {
+		server.stop(0);
+	}
+
+	@Test
+	@DisplayName("should send requests until the learned bucket is exhausted")
+	void testLearnBucket() throws IOException {
+		respond(204, rateLimitHeaders("roles", "5", "1", "60"));
+		respond(204, rateLimitHeaders("roles", "5", "0", "60"));
+
+		assertThat(addRole(GUILD_ID).isSuccess()).isTrue();
+		assertThat(addRole(GUILD_ID).isSuccess()).isTrue();
+		final DispatchResult result = addRole(GUILD_ID);
+
+		assertThat(result.isDeferred()).isTrue();
+		assertThat(result.isRateLimited()).isFalse();
+		assertThat(result.getRetryAfterMs()).isBetween(1L, 60000L);
+		assertThat(requestedPaths).hasSize(2);
+	}
+
+	@Test
+	@DisplayName("should not send requests to an exhausted bucket of a route with the same bucket hash")
+	void testSharedBucket() throws IOException {
+		respond(204, rateLimitHeaders("roles", "5", "1", "60"));
+		respond(204, rateLimitHeaders("roles", "5", "0", "60"));
+
+		addRole(GUILD_ID);
+		dispatcher.send(DiscordRoute.REMOVE_ROLE, GUILD_ID, MEMBER_ID, ROLE_ID, null);
+		final DispatchResult result = addRole(GUILD_ID);
+
+		assertThat(result.isDeferred()).isTrue();
+		assertThat(requestedPaths).hasSize(2);
+	}
+
+	@Test
+	@DisplayName("should send requests to an exhausted bucket in another guild")
+	void testBucketPerGuild() throws IOException {
+		respond(204, rateLimitHeaders("roles", "5", "0", "60"));
+		respond(204, Map.of());
+
+		addRole(GUILD_ID);
+
+		assertThat(addRole(OTHER_GUILD_ID).isSuccess()).isTrue();
+		assertThat(requestedPaths).hasSize(2);
+	}
+
+	@Test
+	@DisplayName("should send requests again after the bucket reset")
+	void testBucketReset() throws IOException, InterruptedException {
+		respond(204, rateLimitHeaders("roles", "5", "0", "0.05"));
+		respond(204, Map.of());
+
+		addRole(GUILD_ID);
+		Thread.sleep(100);
+
+		assertThat(addRole(GUILD_ID).isSuccess()).isTrue();
+		assertThat(requestedPaths).hasSize(2);
+	}
+
+	@Test
+	@DisplayName("should ignore invalid rate limit headers")
+	void testInvalidRateLimitHeaders() throws IOException {
+		respond(204, rateLimitHeaders("roles", "five", "0", "60"));
+		respond(204, rateLimitHeaders("roles", "5", "0", "soon"));
+		respond(204, Map.of());
+
+		assertThat(addRole(GUILD_ID).isSuccess()).isTrue();
+		assertThat(addRole(GUILD_ID).isSuccess()).isTrue();
+		assertThat(addRole(GUILD_ID).isSuccess()).isTrue();
+		assertThat(requestedPaths).hasSize(3);
+	}
+
+	@Test
+	@DisplayName("should not send any request until a global rate limit ends")
+	void testGlobalRateLimit() throws IOException {
+		respond(429, Map.of("Retry-After", "5", "X-RateLimit-Global", "true"));
+
+		final DispatchResult rateLimited = addRole(GUILD_ID);
+		final DispatchResult otherGuild = addRole(OTHER_GUILD_ID);
+
+		assertThat(rateLimited.isRateLimited()).isTrue();
+		assertThat(rateLimited.getRetryAfterMs()).isEqualTo(5000L);
+		assertThat(otherGuild.isDeferred()).isTrue();
+		assertThat(requestedPaths).hasSize(1);
+		assertThat(dispatcher.getWaitTimes().get(DiscordRoute.ADD_ROLE)).isEqualTo(5000L);
+		assertThat(dispatcher.getDeferTimes().get(DiscordRoute.ADD_ROLE)).isBetween(1L, 5000L);
+	}
+
+	@Test
+	@DisplayName("should wait for the Retry-After time of a 429 response")
+	void testRetryAfter() throws IOException {
+		respond(429, Map.of("Retry-After", "0.25"));
+		respond(429, Map.of("Retry-After", "later"));
+		respond(204, Map.of());
+
+		assertThat(addRole(GUILD_ID).getRetryAfterMs()).isEqualTo(250L);
+		assertThat(addRole(GUILD_ID).getRetryAfterMs()).isEqualTo(1000L);
+		assertThat(addRole(OTHER_GUILD_ID).isSuccess()).isTrue();
+		assertThat(requestedPaths).hasSize(3);
+	}
+
+	private DispatchResult addRole(final long guildId) throws IOException {
+		return dispatcher.send(DiscordRoute.ADD_ROLE, guildId, MEMBER_ID, ROLE_ID, null);
+	}
+
+	private void respond(final int status, final Map<String, String> headers) {
+		responses.add(new StubResponse(status, headers));
+	}
+
+	private static Map<String, String> rateLimitHeaders(final String bucket, final String limit, final String remaining,
+														final String resetAfter) {
+		return Map.of(
+				"X-RateLimit-Bucket", bucket,
+				"X-RateLimit-Limit", limit,
+				"X-RateLimit-Remaining", remaining,
+				"X-RateLimit-Reset-After", resetAfter
+		);
+	}
+
+	private void answer(final HttpExchange exchange) throws IOException {
+		requestedPaths.add(exchange.getRequestURI().getPath());
+		final StubResponse response = responses.poll();
+		if (response == null) {
+			exchange.sendResponseHeaders(500, -1);
+			exchange.close();
+			return;
+		}
+
+		response.headers.forEach(exchange.getResponseHeaders()::add);
+		exchange.sendResponseHeaders(response.status, -1);
+		exchange.close();
+	}
+
+	private static class StubResponse {
+
+		private final int status;
+		private final Map<String, String> headers;
+
+		private StubResponse(final int status, final Map<String, String> headers) {
+			this.status = status;
+			this.headers = headers;
+		}
+	}
+}
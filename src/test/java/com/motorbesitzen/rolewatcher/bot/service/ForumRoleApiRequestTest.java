@@ -0,0 +1,161 @@
+package com.motorbesitzen.rolewatcher.bot.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.msgpack.jackson.dataformat.MessagePackFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class ForumRoleApiRequestTest {
+
+	private IdBuffer roleIds;
+
+	@BeforeEach
+	void createBuffer() {
+		roleIds = new IdBuffer();
+	}
+
+	@Test
+	@DisplayName("should read all role IDs of a JSON array")
+	void testReadRoleIds() throws IOException {
+		ForumRoleApiRequest.readIds(toStream("[\n  1,\n  4,\n  9\n]"), roleIds);
+
+		assertThat(roleIds.size()).isEqualTo(3);
+		assertThat(roleIds.get(0)).isEqualTo(1L);
+		assertThat(roleIds.get(1)).isEqualTo(4L);
+		assertThat(roleIds.get(2)).isEqualTo(9L);
+	}
+
+	@Test
+	@DisplayName("should read role IDs given as strings")
+	void testReadRoleIdsAsStrings() throws IOException {
+		ForumRoleApiRequest.readIds(toStream("[\"3\", \"5\"]"), roleIds);
+
+		assertThat(roleIds.size()).isEqualTo(2);
+		assertThat(roleIds.get(0)).isEqualTo(3L);
+		assertThat(roleIds.get(1)).isEqualTo(5L);
+	}
+
+	@Test
+	@DisplayName("should read more role IDs than the initial buffer capacity")
+	void testReadManyRoleIds() throws IOException {
+		final StringBuilder json = new StringBuilder("[1");
+		for (int i = 2; i <= 100; i++) {
+			json.append(',').append(i);
+		}
+		json.append(']');
+
+		ForumRoleApiRequest.readIds(toStream(json.toString()), roleIds);
+
+		assertThat(roleIds.size()).isEqualTo(100);
+		assertThat(roleIds.get(99)).isEqualTo(100L);
+	}
+
+	@Test
+	@DisplayName("should clear the buffer before reading")
+	void testReuseBuffer() throws IOException {
+		ForumRoleApiRequest.readIds(toStream("[1, 2, 3]"), roleIds);
+		ForumRoleApiRequest.readIds(toStream("[7]"), roleIds);
+
+		assertThat(roleIds.size()).isEqualTo(1);
+		assertThat(roleIds.get(0)).isEqualTo(7L);
+	}
+
+	@Test
+	@DisplayName("should read an empty array")
+	void testReadEmptyArray() throws IOException {
+		ForumRoleApiRequest.readIds(toStream("[]"), roleIds);
+
+		assertThat(roleIds.size()).isEqualTo(0);
+	}
+
+	@Test
+	@DisplayName("should throw on blank response")
+	void testBlankResponse() {
+		assertThatThrownBy(() -> ForumRoleApiRequest.readIds(toStream("  "), roleIds))
+				.isInstanceOf(IllegalArgumentException.class);
+	}
+
+	@Test
+	@DisplayName("should throw on HTML response")
+	void testHtmlResponse() {
+		assertThatThrownBy(() -> ForumRoleApiRequest.readIds(toStream("<html><body>502</body></html>"), roleIds))
+				.isInstanceOf(IllegalArgumentException.class);
+	}
+
+	@Test
+	@DisplayName("should throw on non numeric role ID")
+	void testInvalidRoleId() {
+		assertThatThrownBy(() -> ForumRoleApiRequest.readIds(toStream("[1, \"abc\"]"), roleIds))
+				.isInstanceOf(IllegalArgumentException.class);
+	}
+
+	@Test
+	@DisplayName("should throw on unclosed array")
+	void testUnclosedArray() {
+		assertThatThrownBy(() -> ForumRoleApiRequest.readIds(toStream("[1, 2"), roleIds))
+				.isInstanceOf(IllegalArgumentException.class);
+	}
+
+	@Test
+	@DisplayName("should read role IDs encoded as CBOR")
+	void testReadRoleIdsCbor() throws IOException {
+		final CBORFactory cborFactory = new CBORFactory();
+
+		ForumRoleApiRequest.readIds(encode(cborFactory, 2, 4, 9), cborFactory, roleIds);
+
+		assertThat(roleIds.toArray()).containsExactly(2L, 4L, 9L);
+	}
+
+	@Test
+	@DisplayName("should read role IDs encoded as MessagePack")
+	void testReadRoleIdsMessagePack() throws IOException {
+		final MessagePackFactory msgpackFactory = new MessagePackFactory();
+
+		ForumRoleApiRequest.readIds(encode(msgpackFactory, 1, 300, 70000), msgpackFactory, roleIds);
+
+		assertThat(roleIds.toArray()).containsExactly(1L, 300L, 70000L);
+	}
+
+	@Test
+	@DisplayName("should name the format of an invalid response")
+	void testInvalidCborRoleId() throws IOException {
+		final CBORFactory cborFactory = new CBORFactory();
+		final ByteArrayOutputStream output = new ByteArrayOutputStream();
+		try (JsonGenerator generator = cborFactory.createGenerator(output)) {
+			generator.writeStartArray();
+			generator.writeNumber(1);
+			generator.writeString("abc");
+			generator.writeEndArray();
+		}
+
+		assertThatThrownBy(() -> ForumRoleApiRequest.readIds(new ByteArrayInputStream(output.toByteArray()), cborFactory, roleIds))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessageContaining("CBOR")
+				.hasMessageNotContaining("JSON");
+	}
+
+	private InputStream encode(final JsonFactory factory, final long... ids) throws IOException {
+		final ByteArrayOutputStream output = new ByteArrayOutputStream();
+		try (JsonGenerator generator = factory.createGenerator(output)) {
+			generator.writeArray(ids, 0, ids.length);
+		}
+
+		return new ByteArrayInputStream(output.toByteArray());
+	}
+
+	private InputStream toStream(final String content) {
+		return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+	}
+}
@@ -0,0 +1,148 @@
+package com.motorbesitzen.rolewatcher.bot.service;
+
+import com.motorbesitzen.rolewatcher.data.dao.DiscordUser;
+import com.motorbesitzen.rolewatcher.data.dao.ForumRole;
+import com.motorbesitzen.rolewatcher.data.dao.ForumUser;
+import com.motorbesitzen.rolewatcher.data.repo.ForumRoleRepo;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.opentelemetry.api.OpenTelemetry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ForumRoleApiRequestValidatorTest {
+
+	private static final long GUILD_ID = 100000000000000001L;
+	private static final long OTHER_GUILD_ID = 100000000000000002L;
+
+	private final List<String> sentETags = new CopyOnWriteArrayList<>();
+	private volatile String eTag = "\"v1\"";
+	private volatile String roleIds = "[1, 2]";
+	private HttpServer server;
+	private ForumUser forumUser;
+	private ForumRoleApiRequest apiRequest;
+
+	@BeforeEach
+	void startForum() throws IOException {
+		server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		server.createContext("/roles", this::answer);
+		server.start();
+
+		final EnvSettings envSettings = mock(EnvSettings.class);
+		when(envSettings.getForumRoleApiUrl()).thenReturn("http://localhost:" + server.getAddress().getPort() + "/roles?uid");
+		final ForumRoleRepo forumRoleRepo = mock(ForumRoleRepo.class);
+		when(forumRoleRepo.findById(anyLong())).thenAnswer(invocation -> {
+			final long roleId = invocation.getArgument(0);
+			return Optional.of(ForumRole.of(roleId, "Role " + roleId));
+		});
+		forumUser = ForumUser.withLinkedDiscordUser(42, "Test", DiscordUser.createDiscordUser(200000000000000001L));
+		apiRequest = new ForumRoleApiRequest(envSettings, forumRoleRepo, new SyncTracer(OpenTelemetry.noop()));
+	}
+
+	@AfterEach
+	void stopForum() {
+		server.stop(0);
+	}
+
+	@Test
+	@DisplayName("should return no roles if the applied roles did not change")
+	void testNotModified() throws IOException {
+		assertThat(apiRequest.getRolesOfForumUserIfChanged(forumUser, GUILD_ID)).hasValueSatisfying(this::assertRoles12);
+		apiRequest.confirmRolesApplied(forumUser, GUILD_ID);
+
+		assertThat(apiRequest.getRolesOfForumUserIfChanged(forumUser, GUILD_ID)).isEmpty();
+		assertThat(sentETags).containsExactly("", "\"v1\"");
+	}
+
+	@Test
+	@DisplayName("should return the roles if they changed on the forum")
+	void testModified() throws IOException {
+		apiRequest.getRolesOfForumUserIfChanged(forumUser, GUILD_ID);
+		apiRequest.confirmRolesApplied(forumUser, GUILD_ID);
+		eTag = "\"v2\"";
+		roleIds = "[3]";
+
+		final Optional<List<ForumRole>> forumRolesOpt = apiRequest.getRolesOfForumUserIfChanged(forumUser, GUILD_ID);
+
+		assertThat(forumRolesOpt).hasValueSatisfying(forumRoles -> assertThat(forumRoles).extracting(ForumRole::getRoleId).containsExactly(3L));
+		assertThat(sentETags).containsExactly("", "\"v1\"");
+	}
+
+	@Test
+	@DisplayName("should return the roles again if they did not get applied")
+	void testNotApplied() throws IOException {
+		apiRequest.getRolesOfForumUserIfChanged(forumUser, GUILD_ID);
+
+		assertThat(apiRequest.getRolesOfForumUserIfChanged(forumUser, GUILD_ID)).hasValueSatisfying(this::assertRoles12);
+		assertThat(sentETags).containsExactly("", "");
+	}
+
+	@Test
+	@DisplayName("should return the roles again in another guild")
+	void testOtherScope() throws IOException {
+		apiRequest.getRolesOfForumUserIfChanged(forumUser, GUILD_ID);
+		apiRequest.confirmRolesApplied(forumUser, GUILD_ID);
+
+		assertThat(apiRequest.getRolesOfForumUserIfChanged(forumUser, OTHER_GUILD_ID)).hasValueSatisfying(this::assertRoles12);
+		assertThat(sentETags).containsExactly("", "");
+	}
+
+	@Test
+	@DisplayName("should return the roles again after the applied roles got forgotten")
+	void testForgetAppliedRoles() throws IOException {
+		apiRequest.getRolesOfForumUserIfChanged(forumUser, GUILD_ID);
+		apiRequest.confirmRolesApplied(forumUser, GUILD_ID);
+		apiRequest.forgetAppliedRoles();
+
+		assertThat(apiRequest.getRolesOfForumUserIfChanged(forumUser, GUILD_ID)).hasValueSatisfying(this::assertRoles12);
+		assertThat(sentETags).containsExactly("", "");
+	}
+
+	@Test
+	@DisplayName("should not apply roles that got requested before the applied roles got forgotten")
+	void testForgetPendingRoles() throws IOException {
+		apiRequest.getRolesOfForumUserIfChanged(forumUser, GUILD_ID);
+		apiRequest.forgetAppliedRoles();
+		apiRequest.confirmRolesApplied(forumUser, GUILD_ID);
+
+		assertThat(apiRequest.getRolesOfForumUserIfChanged(forumUser, GUILD_ID)).hasValueSatisfying(this::assertRoles12);
+		assertThat(sentETags).containsExactly("", "");
+	}
+
+	private void assertRoles12(final List<ForumRole> forumRoles) {
+		assertThat(forumRoles).extracting(ForumRole::getRoleId).containsExactly(1L, 2L);
+	}
+
+	private void answer(final HttpExchange exchange) throws IOException {
+		final String sentETag = exchange.getRequestHeaders().getFirst("If-None-Match");
+		sentETags.add(sentETag == null ? "" : sentETag);
+		exchange.getResponseHeaders().add("ETag", eTag);
+		if (eTag.equals(sentETag)) {
+			exchange.sendResponseHeaders(304, -1);
+			exchange.close();
+			return;
+		}
+
+		final byte[] body = roleIds.getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().add("Content-Type", "application/json");
+		exchange.sendResponseHeaders(200, body.length);
+		try (OutputStream output = exchange.getResponseBody()) {
+			output.write(body);
+		}
+	}
+}
@@ -0,0 +1,76 @@
+package com.motorbesitzen.rolewatcher.bot.service;
+
+import com.motorbesitzen.rolewatcher.data.dao.ForumRole;
+import com.motorbesitzen.rolewatcher.data.repo.ForumRoleRepo;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ForumRoleJdbcSourceTest {
+
+	private static final String ROLE_QUERY = "SELECT user_id, group_id FROM user_group WHERE user_id IN (:ids)";
+	private static final String ROLE_MEMBERS_QUERY = "SELECT user_id FROM user_group WHERE group_id = :roleId";
+
+	private JdbcTemplate forumDb;
+	private ForumRoleJdbcSource roleSource;
+
+	@BeforeEach
+	void createForumDatabase() {
+		final DriverManagerDataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:forum;DB_CLOSE_DELAY=-1", "sa", "");
+		forumDb = new JdbcTemplate(dataSource);
+		forumDb.execute("CREATE TABLE user_group (user_id BIGINT, group_id BIGINT)");
+		forumDb.update("INSERT INTO user_group VALUES (1, 10), (1, 20), (2, 20), (3, 99), (700, 10)");
+
+		final ForumRoleRepo forumRoleRepo = mock(ForumRoleRepo.class);
+		when(forumRoleRepo.findAll()).thenReturn(List.of(ForumRole.of(10, "Member"), ForumRole.of(20, "Moderator")));
+		roleSource = new ForumRoleJdbcSource(dataSource, ROLE_QUERY, ROLE_MEMBERS_QUERY, forumRoleRepo);
+	}
+
+	@AfterEach
+	void dropForumDatabase() {
+		forumDb.execute("DROP TABLE user_group");
+	}
+
+	@Test
+	@DisplayName("should read the known roles of all users")
+	void testGetRolesOfForumUsers() throws IOException {
+		final Map<Long, List<ForumRole>> roles = roleSource.getRolesOfForumUsers(List.of(1L, 2L, 3L, 4L));
+
+		assertThat(roles).hasSize(4);
+		assertThat(roles.get(1L)).extracting(ForumRole::getRoleId).containsExactlyInAnyOrder(10L, 20L);
+		assertThat(roles.get(2L)).extracting(ForumRole::getRoleId).containsExactly(20L);
+		assertThat(roles.get(3L)).isEmpty();
+		assertThat(roles.get(4L)).isEmpty();
+	}
+
+	@Test
+	@DisplayName("should read users of multiple batches")
+	void testGetRolesOfForumUsersInBatches() throws IOException {
+		final List<Long> forumIds = LongStream.rangeClosed(1, 1200).boxed().collect(Collectors.toList());
+
+		final Map<Long, List<ForumRole>> roles = roleSource.getRolesOfForumUsers(forumIds);
+
+		assertThat(roles).hasSize(1200);
+		assertThat(roles.get(700L)).extracting(ForumRole::getRoleId).containsExactly(10L);
+	}
+
+	@Test
+	@DisplayName("should read the sorted members of a role")
+	void testGetForumIdsWithRole() throws IOException {
+		assertThat(roleSource.getForumIdsWithRole(10)).containsExactly(1L, 700L);
+		assertThat(roleSource.getForumIdsWithRole(30)).isEmpty();
+	}
+}
@@ -0,0 +1,131 @@
+package com.motorbesitzen.rolewatcher.bot.service;
+
+import com.motorbesitzen.rolewatcher.data.dao.DiscordUser;
+import com.motorbesitzen.rolewatcher.data.dao.ForumRole;
+import com.motorbesitzen.rolewatcher.data.dao.ForumUser;
+import com.motorbesitzen.rolewatcher.data.repo.ForumRoleRepo;
+import com.motorbesitzen.rolewatcher.data.repo.ForumUserRepo;
+import com.motorbesitzen.rolewatcher.util.JdaFakes;
+import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.entities.Member;
+import net.dv8tion.jda.api.entities.Role;
+import net.dv8tion.jda.api.entities.User;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+public class ForumRoleMemberSyncTest {
+
+	private final HashedTimingWheel timingWheel = new HashedTimingWheel(10, 8);
+	private ForumRoleRepo forumRoleRepo;
+	private ForumRoleSource roleSource;
+	private DiscordActionOutbox actionOutbox;
+	private ForumRoleMemberSync roleMemberSync;
+	private Role memberRole;
+	private Role vipRole;
+	private Guild guild;
+
+	@BeforeEach
+	void createSync() {
+		final EnvSettings envSettings = mock(EnvSettings.class);
+		when(envSettings.getForumBannedRoleId()).thenReturn("9");
+		forumRoleRepo = mock(ForumRoleRepo.class);
+		roleSource = mock(ForumRoleSource.class);
+		actionOutbox = mock(DiscordActionOutbox.class);
+		roleMemberSync = new ForumRoleMemberSync(envSettings, mock(ForumUserRepo.class), forumRoleRepo, roleSource, actionOutbox, timingWheel);
+
+		memberRole = JdaFakes.fake(Role.class, "Member", Map.of("getIdLong", 1L, "getName", "Member"));
+		vipRole = JdaFakes.fake(Role.class, "VIP", Map.of("getIdLong", 2L, "getName", "VIP"));
+		final Map<String, List<Role>> rolesByName = Map.of("member", List.of(memberRole), "vip", List.of(vipRole));
+		final Member self = JdaFakes.fake(Member.class, "self", Map.of("canInteract", true));
+		guild = JdaFakes.fake(Guild.class, "guild", Map.of(
+				"getName", "Guild",
+				"getSelfMember", self,
+				"getRolesByName", (Function<Object[], Object>) args -> rolesByName.getOrDefault((String) args[0], List.of())
+		));
+	}
+
+	@AfterEach
+	void stopWheel() {
+		timingWheel.stop();
+	}
+
+	@Test
+	@DisplayName("should request the members of each role without blocking between the requests")
+	void testRequestRoleMembers() throws Exception {
+		when(forumRoleRepo.findAll()).thenReturn(List.of(ForumRole.of(1, "Member"), ForumRole.of(2, "VIP"), ForumRole.of(3, "Broken")));
+		when(roleSource.getForumIdsWithRole(1)).thenReturn(new long[]{10, 20});
+		when(roleSource.getForumIdsWithRole(2)).thenReturn(new long[]{20});
+		when(roleSource.getForumIdsWithRole(3)).thenThrow(new IOException("Forum unavailable."));
+		when(roleSource.getForumIdsWithRole(9)).thenReturn(new long[]{30});
+
+		final CompletableFuture<ForumRoleMembers> request = roleMemberSync.requestRoleMembers(200, Runnable::run);
+
+		// the first request runs on the executor right away, the others wait on the timing wheel
+		assertThat(request).isNotDone();
+		verify(roleSource).getForumIdsWithRole(1);
+		final ForumRoleMembers roleMembers = request.get(5, TimeUnit.SECONDS);
+		assertThat(roleMembers.getRoleNames()).containsOnly("member", "vip");
+		assertThat(roleMembers.hasRole("member", 10)).isTrue();
+		assertThat(roleMembers.hasRole("vip", 10)).isFalse();
+		assertThat(roleMembers.hasRole("vip", 20)).isTrue();
+		assertThat(roleMembers.isBanned(30)).isTrue();
+	}
+
+	@Test
+	@DisplayName("should add and remove the Discord roles of linked members role by role")
+	void testSyncGuild() {
+		final ForumRoleMembers roleMembers = new ForumRoleMembers(
+				Map.of("member", List.of(new long[]{10, 20}), "vip", List.of(new long[]{20})),
+				new long[]{30}
+		);
+		final Member newMember = createMember(1, vipRole);
+		final Member vipMember = createMember(2, memberRole);
+		final Member bannedMember = createMember(3);
+		final Member whitelistedMember = createMember(4);
+		final Member unlinkedMember = createMember(5);
+		final Map<Long, ForumUser> linkedUsers = Map.of(
+				1L, ForumUser.withLinkedDiscordUser(10, "New", DiscordUser.createDiscordUser(1)),
+				2L, ForumUser.withLinkedDiscordUser(20, "VIP", DiscordUser.createDiscordUser(2)),
+				3L, ForumUser.withLinkedDiscordUser(30, "Banned", DiscordUser.createDiscordUser(3)),
+				4L, ForumUser.withLinkedDiscordUser(40, "Whitelisted", DiscordUser.createWhitelistedDiscordUser(4))
+		);
+
+		final List<Member> unlinkedMembers = roleMemberSync.syncGuild(
+				guild, List.of(newMember, vipMember, bannedMember, whitelistedMember, unlinkedMember), roleMembers, linkedUsers
+		);
+
+		assertThat(unlinkedMembers).containsExactly(unlinkedMember);
+		verify(actionOutbox).addRole(newMember, memberRole);
+		verify(actionOutbox).removeRole(newMember, vipRole);
+		verify(actionOutbox).addRole(vipMember, vipRole);
+		verify(actionOutbox).ban(eq(bannedMember), anyString());
+		verify(actionOutbox, never()).addRole(eq(whitelistedMember), any());
+		verify(actionOutbox, never()).removeRole(eq(whitelistedMember), any());
+		verifyNoMoreInteractions(actionOutbox);
+	}
+
+	private Member createMember(final long memberId, final Role... roles) {
+		final User user = JdaFakes.fake(User.class, "user " + memberId, Map.of("getAsTag", "User#0001"));
+		return JdaFakes.fake(Member.class, "member " + memberId, Map.of(
+				"getIdLong", memberId,
+				"getId", String.valueOf(memberId),
+				"getUser", user,
+				"getGuild", guild,
+				"getRoles", (Function<Object[], Object>) args -> List.of(roles)
+		));
+	}
+}
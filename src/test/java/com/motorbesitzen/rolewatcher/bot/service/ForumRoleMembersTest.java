@@ -0,0 +1,57 @@
+package com.motorbesitzen.rolewatcher.bot.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ForumRoleMembersTest {
+
+	private ForumRoleMembers roleMembers;
+
+	@BeforeEach
+	void createRoleMembers() {
+		roleMembers = new ForumRoleMembers(
+				Map.of(
+						"member", List.of(new long[]{1, 5, 9}),
+						// two forum roles with the same name get merged
+						"vip", List.of(new long[]{2, 4}, new long[]{7, 8})
+				),
+				new long[]{3, 6}
+		);
+	}
+
+	@Test
+	@DisplayName("should find a user in the members of a role")
+	void testHasRole() {
+		assertThat(roleMembers.hasRole("member", 1)).isTrue();
+		assertThat(roleMembers.hasRole("member", 9)).isTrue();
+		assertThat(roleMembers.hasRole("member", 4)).isFalse();
+	}
+
+	@Test
+	@DisplayName("should find a user in any role with the same name")
+	void testHasMergedRole() {
+		assertThat(roleMembers.hasRole("vip", 4)).isTrue();
+		assertThat(roleMembers.hasRole("vip", 7)).isTrue();
+		assertThat(roleMembers.hasRole("vip", 5)).isFalse();
+	}
+
+	@Test
+	@DisplayName("should not find a user in an unknown role")
+	void testUnknownRole() {
+		assertThat(roleMembers.hasRole("admin", 1)).isFalse();
+	}
+
+	@Test
+	@DisplayName("should find the banned users")
+	void testIsBanned() {
+		assertThat(roleMembers.isBanned(3)).isTrue();
+		assertThat(roleMembers.isBanned(6)).isTrue();
+		assertThat(roleMembers.isBanned(1)).isFalse();
+	}
+}
@@ -0,0 +1,59 @@
+package com.motorbesitzen.rolewatcher.bot.service;
+
+import com.motorbesitzen.rolewatcher.util.HotPathBudget;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ForumRoleParsingBudgetTest {
+
+	private IdBuffer ids;
+
+	@BeforeEach
+	void createBuffer() {
+		ids = new IdBuffer();
+	}
+
+	@Test
+	@DisplayName("should parse the roles of a user within the budget")
+	void testUserRolesBudget() throws Exception {
+		final byte[] response = createResponse(8);
+
+		HotPathBudget.of("parsing.userRoles", 2048, 20000).assertWithin(() -> {
+			ForumRoleApiRequest.readIds(new ByteArrayInputStream(response), ids);
+			return ids.size();
+		});
+		assertThat(ids.size()).isEqualTo(8);
+	}
+
+	@Test
+	@DisplayName("should parse the members of a role without allocating per ID")
+	void testRoleMembersBudget() throws Exception {
+		final byte[] response = createResponse(5000);
+
+		// same allocation budget as the roles of a user, the IDs do not get boxed and the buffer gets reused
+		HotPathBudget.of("parsing.roleMembers", 2048, 1000000).assertWithin(() -> {
+			ForumRoleApiRequest.readIds(new ByteArrayInputStream(response), ids);
+			return ids.size();
+		});
+		assertThat(ids.size()).isEqualTo(5000);
+	}
+
+	private static byte[] createResponse(final int idCount) {
+		final StringBuilder response = new StringBuilder("[");
+		for (int i = 0; i < idCount; i++) {
+			if (i > 0) {
+				response.append(',');
+			}
+
+			response.append(1000L + i * 7L);
+		}
+
+		return response.append(']').toString().getBytes(StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,139 @@
+package com.motorbesitzen.rolewatcher.bot.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+public class ForumRoleSnapshotImporterTest {
+
+	private final List<RoleSnapshotEntry> changes = new ArrayList<>();
+	private final ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+	@TempDir
+	Path dataDir;
+
+	@Test
+	@DisplayName("should report every user as changed without previous snapshot")
+	void testDiffWithoutPreviousSnapshot() throws IOException {
+		final RoleSnapshotDiff diff = diff("", "{\"uid\": 1, \"roleids\": [4, 2]}\n{\"uid\": 3, \"roleids\": []}");
+
+		assertThat(diff.getUserCount()).isEqualTo(2);
+		assertThat(diff.getChangedCount()).isEqualTo(2);
+		assertThat(changes.get(0).getRoleIds()).containsExactly(2L, 4L);
+		assertThat(changes.get(1).getUid()).isEqualTo(3L);
+	}
+
+	@Test
+	@DisplayName("should only report users whose roles changed")
+	void testDiffChangedRoles() throws IOException {
+		final RoleSnapshotDiff diff = diff(
+				"{\"uid\": 1, \"roleids\": [2, 4]}\n{\"uid\": 2, \"roleids\": [1]}\n{\"uid\": 5, \"roleids\": [3]}",
+				"{\"uid\": 1, \"roleids\": [4, 2]}\n{\"uid\": 2, \"roleids\": [1, 3]}\n{\"uid\": 4, \"roleids\": [3]}"
+		);
+
+		assertThat(diff.getUserCount()).isEqualTo(3);
+		assertThat(diff.getChangedCount()).isEqualTo(3);
+		assertThat(changes).extracting(RoleSnapshotEntry::getUid).containsExactly(2L, 4L, 5L);
+		assertThat(changes.get(2).getRoleIds()).isEmpty();
+	}
+
+	@Test
+	@DisplayName("should write the current snapshot with sorted role IDs")
+	void testDiffWritesSnapshot() throws IOException {
+		diff("", "{\"uid\": 1, \"roleids\": [4, 2], \"name\": \"abc\"}\n{\"uid\": 7, \"roleids\": [\"3\"]}");
+
+		assertThat(output.toString(StandardCharsets.UTF_8)).isEqualTo(
+				"{\"uid\":1,\"roleids\":[2,4]}\n{\"uid\":7,\"roleids\":[3]}"
+		);
+	}
+
+	@Test
+	@DisplayName("should throw on unsorted snapshot")
+	void testDiffUnsortedSnapshot() {
+		assertThatThrownBy(() -> diff("", "{\"uid\": 5, \"roleids\": []}\n{\"uid\": 3, \"roleids\": []}"))
+				.isInstanceOf(IllegalArgumentException.class);
+	}
+
+	@Test
+	@DisplayName("should throw on entry without role IDs")
+	void testDiffMissingRoleIds() {
+		assertThatThrownBy(() -> diff("", "{\"uid\": 5}"))
+				.isInstanceOf(IllegalArgumentException.class);
+	}
+
+	@Test
+	@DisplayName("should update the roles of changed users after importing a valid snapshot")
+	void testImportValidSnapshot() throws IOException {
+		final ForumRoleChangeHandler changeHandler = mock(ForumRoleChangeHandler.class);
+		final Path previousSnapshot = dataDir.resolve("role_snapshot.ndjson.gz");
+		final ForumRoleSnapshotImporter importer = new ForumRoleSnapshotImporter(previousSnapshot, mock(EnvSettings.class), changeHandler);
+
+		final RoleSnapshotDiff diff = importer.importSnapshot(gzip("{\"uid\": 1, \"roleids\": [4, 2]}\n{\"uid\": 3, \"roleids\": []}"));
+
+		assertThat(diff.getChangedCount()).isEqualTo(2);
+		assertThat(previousSnapshot).exists();
+		verify(changeHandler, timeout(5000)).applyRoleChange(1L, List.of(2L, 4L));
+		verify(changeHandler, timeout(5000)).applyRoleChange(eq(3L), anyList());
+	}
+
+	@Test
+	@DisplayName("should not update any roles for an invalid snapshot")
+	void testImportInvalidSnapshot() throws IOException {
+		final ForumRoleChangeHandler changeHandler = mock(ForumRoleChangeHandler.class);
+		final Path previousSnapshot = dataDir.resolve("role_snapshot.ndjson.gz");
+		final ForumRoleSnapshotImporter importer = new ForumRoleSnapshotImporter(previousSnapshot, mock(EnvSettings.class), changeHandler);
+		final String unsortedSnapshot = "{\"uid\": 1, \"roleids\": [2]}\n{\"uid\": 5, \"roleids\": []}\n{\"uid\": 3, \"roleids\": []}";
+
+		assertThatThrownBy(() -> importer.importSnapshot(gzip(unsortedSnapshot)))
+				.isInstanceOf(IllegalArgumentException.class);
+
+		verify(changeHandler, after(500).never()).applyRoleChange(anyLong(), anyList());
+		assertThat(previousSnapshot).doesNotExist();
+		try (Stream<Path> files = Files.list(dataDir)) {
+			assertThat(files).isEmpty();
+		}
+	}
+
+	private RoleSnapshotDiff diff(final String previousSnapshot, final String currentSnapshot) throws IOException {
+		try (RoleSnapshotReader previous = toReader(previousSnapshot);
+			 RoleSnapshotReader current = toReader(currentSnapshot);
+			 JsonGenerator generator = new JsonFactory().createGenerator(output)) {
+			generator.setRootValueSeparator(new SerializedString("\n"));
+			return ForumRoleSnapshotImporter.diffSnapshots(previous, current, generator, changes::add);
+		}
+	}
+
+	private static ByteArrayInputStream gzip(final String snapshot) throws IOException {
+		final ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+		try (GZIPOutputStream out = new GZIPOutputStream(compressed)) {
+			out.write(snapshot.getBytes(StandardCharsets.UTF_8));
+		}
+
+		return new ByteArrayInputStream(compressed.toByteArray());
+	}
+
+	private RoleSnapshotReader toReader(final String snapshot) throws IOException {
+		return new RoleSnapshotReader(new ByteArrayInputStream(snapshot.getBytes(StandardCharsets.UTF_8)));
+	}
+}
@@ -0,0 +1,68 @@
+package com.motorbesitzen.rolewatcher.bot.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class HashedTimingWheelTest {
+
+	private final HashedTimingWheel timingWheel = new HashedTimingWheel(10, 8);
+
+	@AfterEach
+	void stopWheel() {
+		timingWheel.stop();
+	}
+
+	@Test
+	@DisplayName("should run actions in the order of their delay")
+	void testScheduleOrder() throws InterruptedException {
+		final List<Integer> ran = new CopyOnWriteArrayList<>();
+		final CountDownLatch latch = new CountDownLatch(4);
+		for (int delay : new int[]{150, 20, 90, 40}) {
+			timingWheel.schedule(() -> {
+				ran.add(delay);
+				latch.countDown();
+			}, delay, TimeUnit.MILLISECONDS);
+		}
+
+		assertThat(latch.await(2, TimeUnit.SECONDS)).isTrue();
+		assertThat(ran).containsExactly(20, 40, 90, 150);
+		assertThat(timingWheel.getPendingCount()).isZero();
+	}
+
+	@Test
+	@DisplayName("should not run actions before their delay ended")
+	void testScheduleDelay() throws InterruptedException {
+		final CountDownLatch latch = new CountDownLatch(1);
+		final long start = System.nanoTime();
+		final long[] ranAfterMs = new long[1];
+		timingWheel.schedule(() -> {
+			ranAfterMs[0] = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+			latch.countDown();
+		}, 120, TimeUnit.MILLISECONDS);
+
+		assertThat(latch.await(2, TimeUnit.SECONDS)).isTrue();
+		assertThat(ranAfterMs[0]).isGreaterThanOrEqualTo(120);
+	}
+
+	@Test
+	@DisplayName("should not run cancelled actions")
+	void testCancel() throws InterruptedException {
+		final List<String> ran = new CopyOnWriteArrayList<>();
+		final CountDownLatch latch = new CountDownLatch(1);
+		final HashedTimingWheel.Timeout cancelled = timingWheel.schedule(() -> ran.add("cancelled"), 30, TimeUnit.MILLISECONDS);
+		timingWheel.schedule(latch::countDown, 60, TimeUnit.MILLISECONDS);
+
+		assertThat(cancelled.cancel()).isTrue();
+		assertThat(cancelled.cancel()).isFalse();
+		assertThat(latch.await(2, TimeUnit.SECONDS)).isTrue();
+		assertThat(ran).isEmpty();
+	}
+}
@@ -0,0 +1,115 @@
+package com.motorbesitzen.rolewatcher.bot.service;
+
+import com.motorbesitzen.rolewatcher.data.dao.PartitionLease;
+import com.motorbesitzen.rolewatcher.data.repo.BotInstanceRepo;
+import com.motorbesitzen.rolewatcher.data.repo.PartitionLeaseRepo;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.AdditionalAnswers.delegatesTo;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Runs several lease managers against the same H2 database. Each repository call runs in its own transaction like
+ * in production, so each manager works on its own copies of the leases and concurrent claims conflict on the version.
+ */
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class PartitionLeaseManagerJpaTest {
+
+	@Autowired
+	private PartitionLeaseRepo leaseRepo;
+
+	@Autowired
+	private BotInstanceRepo instanceRepo;
+
+	@AfterEach
+	void clearDatabase() {
+		leaseRepo.deleteAll();
+		instanceRepo.deleteAll();
+	}
+
+	@Test
+	@DisplayName("should split the partitions between two instances")
+	void testSplitPartitions() {
+		final PartitionLeaseManager first = createManager("first", leaseRepo, null);
+		final PartitionLeaseManager second = createManager("second", leaseRepo, null);
+
+		first.heartbeat();
+		second.heartbeat();
+		first.heartbeat();
+		second.heartbeat();
+
+		assertThat(first.getOwnedPartitions()).containsExactly(0, 1);
+		assertThat(second.getOwnedPartitions()).containsExactly(2, 3);
+		assertOwners("first", "first", "second", "second");
+	}
+
+	@Test
+	@DisplayName("should not claim a partition another instance claimed since the leases got loaded")
+	void testConcurrentClaim() {
+		final List<PartitionLease> expiredLeases = new ArrayList<>();
+		for (int partitionId = 0; partitionId < 4; partitionId++) {
+			expiredLeases.add(PartitionLease.createPartitionLease(partitionId));
+		}
+
+		leaseRepo.saveAll(expiredLeases);
+		final PartitionLeaseManager second = createManager("second", leaseRepo, null);
+		// the second instance claims its partitions after the first one loaded the leases but before it saves them
+		final PartitionLeaseRepo racingRepo = mock(PartitionLeaseRepo.class, delegatesTo(leaseRepo));
+		doAnswer(invocation -> {
+			final Iterable<PartitionLease> leases = leaseRepo.findAll();
+			second.heartbeat();
+			return leases;
+		}).when(racingRepo).findAll();
+		final PartitionLeaseManager first = createManager("first", racingRepo, null);
+
+		first.heartbeat();
+
+		assertThat(second.getOwnedPartitions()).containsExactly(0, 1);
+		assertThat(first.getOwnedPartitions()).containsExactly(2, 3);
+		assertOwners("second", "second", "first", "first");
+	}
+
+	@Test
+	@DisplayName("should only claim the partitions of the shards of an instance")
+	void testClaimLocalPartitions() {
+		final PartitionLeaseManager first = createManager("first", leaseRepo, "2-3");
+		final PartitionLeaseManager second = createManager("second", leaseRepo, "0-1");
+
+		first.heartbeat();
+		second.heartbeat();
+		first.heartbeat();
+
+		assertThat(first.getOwnedPartitions()).containsExactly(2, 3);
+		assertThat(second.getOwnedPartitions()).containsExactly(0, 1);
+		assertOwners("second", "second", "first", "first");
+	}
+
+	private PartitionLeaseManager createManager(final String instanceId, final PartitionLeaseRepo repo, final String shardRange) {
+		final EnvSettings envSettings = mock(EnvSettings.class);
+		when(envSettings.getInstanceId()).thenReturn(instanceId);
+		when(envSettings.getPartitionCount()).thenReturn("4");
+		when(envSettings.getShardTotal()).thenReturn(shardRange == null ? "-1" : "4");
+		when(envSettings.getShardRange()).thenReturn(shardRange);
+		return new PartitionLeaseManager(repo, instanceRepo, envSettings);
+	}
+
+	private void assertOwners(final String... owners) {
+		for (int i = 0; i < owners.length; i++) {
+			final int partitionId = i;
+			assertThat(leaseRepo.findById(partitionId)).hasValueSatisfying(lease -> assertThat(lease.isOwnedBy(owners[partitionId])).isTrue());
+		}
+	}
+}
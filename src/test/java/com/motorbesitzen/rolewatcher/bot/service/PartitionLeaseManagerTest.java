@@ -0,0 +1,121 @@
+package com.motorbesitzen.rolewatcher.bot.service;
+
+import com.motorbesitzen.rolewatcher.data.dao.BotInstance;
+import com.motorbesitzen.rolewatcher.data.dao.PartitionLease;
+import com.motorbesitzen.rolewatcher.data.repo.BotInstanceRepo;
+import com.motorbesitzen.rolewatcher.data.repo.PartitionLeaseRepo;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class PartitionLeaseManagerTest {
+
+	private final Map<Integer, PartitionLease> leases = new TreeMap<>();
+	private final Map<String, BotInstance> instances = new TreeMap<>();
+	private PartitionLeaseRepo leaseRepo;
+	private BotInstanceRepo instanceRepo;
+
+	@BeforeEach
+	void createRepos() {
+		leaseRepo = mock(PartitionLeaseRepo.class);
+		when(leaseRepo.findAll()).thenAnswer(invocation -> leases.values());
+		when(leaseRepo.save(any(PartitionLease.class))).thenAnswer(invocation -> {
+			final PartitionLease lease = invocation.getArgument(0);
+			leases.put(lease.getPartitionId(), lease);
+			return lease;
+		});
+
+		instanceRepo = mock(BotInstanceRepo.class);
+		when(instanceRepo.save(any(BotInstance.class))).thenAnswer(invocation -> {
+			final BotInstance instance = invocation.getArgument(0);
+			instances.put(instance.getInstanceId(), instance);
+			return instance;
+		});
+		when(instanceRepo.findAllByHeartbeatAtGreaterThan(anyLong())).thenAnswer(invocation ->
+				instances.values().stream()
+						.filter(instance -> instance.getHeartbeatAt() > invocation.<Long>getArgument(0))
+						.collect(Collectors.toList())
+		);
+		doAnswer(invocation -> instances.remove(invocation.<String>getArgument(0))).when(instanceRepo).deleteById(anyString());
+	}
+
+	private PartitionLeaseManager createManager(final String instanceId) {
+		final EnvSettings envSettings = mock(EnvSettings.class);
+		when(envSettings.getInstanceId()).thenReturn(instanceId);
+		when(envSettings.getPartitionCount()).thenReturn("4");
+		return new PartitionLeaseManager(leaseRepo, instanceRepo, envSettings);
+	}
+
+	@Test
+	@DisplayName("should split the partitions between the running instances")
+	void testSplitPartitions() {
+		final PartitionLeaseManager first = createManager("first");
+		final PartitionLeaseManager second = createManager("second");
+
+		first.heartbeat();
+		assertThat(first.getOwnedPartitions()).containsExactly(0, 1, 2, 3);
+
+		second.heartbeat();
+		first.heartbeat();
+		second.heartbeat();
+
+		assertThat(first.getOwnedPartitions()).containsExactly(0, 1);
+		assertThat(second.getOwnedPartitions()).containsExactly(2, 3);
+		assertThat(first.ownsGuild(1L << 22)).isTrue();
+		assertThat(second.ownsGuild(1L << 22)).isFalse();
+		assertThat(second.ownsGuild(3L << 22)).isTrue();
+	}
+
+	@Test
+	@DisplayName("should take over the partitions of a stopped instance")
+	void testTakeOverPartitions() {
+		final PartitionLeaseManager first = createManager("first");
+		final PartitionLeaseManager second = createManager("second");
+		first.heartbeat();
+		second.heartbeat();
+		first.heartbeat();
+		second.heartbeat();
+
+		first.shutdown();
+		second.heartbeat();
+
+		assertThat(first.getOwnedPartitions()).isEmpty();
+		assertThat(second.getOwnedPartitions()).containsExactly(0, 1, 2, 3);
+	}
+
+	@Test
+	@DisplayName("should only handle the partitions of the shards of an instance")
+	void testLocalPartitions() {
+		final EnvSettings envSettings = mock(EnvSettings.class);
+		when(envSettings.getShardTotal()).thenReturn("4");
+		when(envSettings.getShardRange()).thenReturn("2-3");
+
+		assertThat(PartitionLeaseManager.getLocalPartitions(envSettings, 8)).containsExactly(2, 3, 6, 7);
+		assertThat(PartitionLeaseManager.getLocalPartitions(envSettings, 2)).isNull();
+	}
+
+	@Test
+	@DisplayName("should refuse to start if no partition is on the shards of an instance")
+	void testNoLocalPartitions() {
+		final EnvSettings envSettings = mock(EnvSettings.class);
+		when(envSettings.getShardTotal()).thenReturn("4");
+		when(envSettings.getShardRange()).thenReturn("0-1");
+		when(envSettings.getPartitionCount()).thenReturn("3");
+
+		assertThatThrownBy(() -> new PartitionLeaseManager(leaseRepo, instanceRepo, envSettings))
+				.isInstanceOf(IllegalStateException.class);
+	}
+}
@@ -0,0 +1,121 @@
+package com.motorbesitzen.rolewatcher.bot.service;
+
+import com.motorbesitzen.rolewatcher.data.dao.ForumRole;
+import com.motorbesitzen.rolewatcher.data.repo.DiscordActionRepo;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class SyncMetricsTest {
+
+	private SimpleMeterRegistry registry;
+	private SyncMetrics syncMetrics;
+
+	@BeforeEach
+	void createMetrics() {
+		registry = new SimpleMeterRegistry();
+		syncMetrics = new SyncMetrics(registry, mock(SyncQueue.class), null, null, null);
+	}
+
+	@Test
+	@DisplayName("should time a cycle once its last guild finished")
+	void testCycleEndsWithLastGuild() throws InterruptedException {
+		final SyncMetrics.Cycle cycle = syncMetrics.recordCycleStart(2);
+		cycle.finishGuild();
+
+		assertThat(getCycleTimer().count()).isZero();
+
+		Thread.sleep(50);
+		cycle.finishGuild();
+
+		assertThat(getCycleTimer().count()).isEqualTo(1);
+		assertThat(getCycleTimer().totalTime(TimeUnit.MILLISECONDS)).isGreaterThanOrEqualTo(50);
+	}
+
+	@Test
+	@DisplayName("should not time a cycle that got aborted or has no guilds")
+	void testUntimedCycles() {
+		syncMetrics.recordCycleStart(0);
+		final SyncMetrics.Cycle cycle = syncMetrics.recordCycleStart(1);
+		cycle.abort();
+		cycle.finishGuild();
+
+		assertThat(getCycleTimer().count()).isZero();
+	}
+
+	@Test
+	@DisplayName("should not count the outbox on every scrape")
+	void testCachedOutboxSize() {
+		final DiscordActionRepo actionRepo = mock(DiscordActionRepo.class);
+		when(actionRepo.count()).thenReturn(5L, 7L);
+		registry = new SimpleMeterRegistry();
+		syncMetrics = new SyncMetrics(registry, mock(SyncQueue.class), actionRepo, null, null);
+		final Gauge outboxSize = registry.get("rolewatcher.discord.outbox.size").gauge();
+
+		assertThat(outboxSize.value()).isEqualTo(5);
+		assertThat(outboxSize.value()).isEqualTo(5);
+		verify(actionRepo, times(1)).count();
+	}
+
+	@Test
+	@DisplayName("should count requests held back for a rate limit apart from 429 responses")
+	void testDeferredDiscordActions() {
+		syncMetrics.recordDiscordAction(DiscordRoute.ADD_ROLE, DispatchResult.deferred(1000));
+		syncMetrics.recordDiscordAction(DiscordRoute.ADD_ROLE, DispatchResult.deferred(1000));
+		syncMetrics.recordDiscordAction(DiscordRoute.ADD_ROLE, new DispatchResult(429, 1000, ""));
+
+		assertThat(getDiscordActions("deferred").count()).isEqualTo(2);
+		assertThat(getDiscordActions("rate_limited").count()).isEqualTo(1);
+	}
+
+	@Test
+	@DisplayName("should not count the time of the consumer towards the latency of a streamed forum request")
+	void testStreamedRequestLatency() throws Exception {
+		final ForumRoleSource source = mock(ForumRoleSource.class);
+		doAnswer(invocation -> {
+			Thread.sleep(20);
+			invocation.<BiConsumer<Long, List<ForumRole>>>getArgument(1).accept(1L, List.of());
+			return null;
+		}).when(source).streamRolesOfForumUsers(anyList(), any());
+		final MeteredForumRoleSource meteredSource = new MeteredForumRoleSource(source, syncMetrics);
+
+		meteredSource.streamRolesOfForumUsers(List.of(1L), (forumId, forumRoles) -> sleep(500));
+
+		final Timer requestTimer = registry.get("rolewatcher.forum.requests").tag("operation", "users").timer();
+		assertThat(requestTimer.count()).isEqualTo(1);
+		assertThat(requestTimer.totalTime(TimeUnit.MILLISECONDS)).isBetween(20.0, 400.0);
+	}
+
+	private Counter getDiscordActions(final String outcome) {
+		return registry.get("rolewatcher.discord.actions").tag("route", DiscordRoute.ADD_ROLE.name()).tag("outcome", outcome).counter();
+	}
+
+	private Timer getCycleTimer() {
+		return registry.get("rolewatcher.sync.cycle").timer();
+	}
+
+	private static void sleep(final long millis) {
+		try {
+			Thread.sleep(millis);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
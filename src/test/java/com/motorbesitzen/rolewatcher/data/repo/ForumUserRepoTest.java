@@ -0,0 +1,46 @@
+package com.motorbesitzen.rolewatcher.data.repo;
+
+import com.motorbesitzen.rolewatcher.data.dao.DiscordUser;
+import com.motorbesitzen.rolewatcher.data.dao.ForumUser;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+public class ForumUserRepoTest {
+
+	private static final long FIRST_DISCORD_ID = 100000000000000000L;
+
+	@Autowired
+	private DiscordUserRepo discordUserRepo;
+
+	@Autowired
+	private ForumUserRepo forumUserRepo;
+
+	@Test
+	@DisplayName("should find the linked users of more Discord IDs than fit in a single query")
+	void testFindAllLinkedTo() {
+		final int userCount = ForumUserRepo.DISCORD_ID_BATCH_SIZE * 2 + 1;
+		final List<Long> discordIds = new ArrayList<>();
+		for (int i = 0; i < userCount; i++) {
+			final DiscordUser discordUser = discordUserRepo.save(DiscordUser.createDiscordUser(FIRST_DISCORD_ID + i));
+			// only every second Discord user is linked
+			if (i % 2 == 0) {
+				forumUserRepo.save(ForumUser.withLinkedDiscordUser(i + 1, "User " + i, discordUser));
+			}
+
+			discordIds.add(discordUser.getDiscordId());
+		}
+
+		final List<ForumUser> linkedUsers = forumUserRepo.findAllLinkedTo(discordIds);
+
+		assertThat(linkedUsers).hasSize(userCount / 2 + 1);
+		assertThat(linkedUsers).extracting(ForumUser::getForumId).doesNotHaveDuplicates();
+	}
+}
@@ -0,0 +1,101 @@
+package com.motorbesitzen.rolewatcher.util;
+
+import java.lang.management.ManagementFactory;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Checks that an operation on a hot path (per message or per member) stays within a budget of allocated bytes and
+ * wall time per operation. The operation runs on the current thread until it is compiled, then gets measured in
+ * several rounds of which the best one counts, so a garbage collection or a busy machine in one round does not fail
+ * the test. The budgets can be overridden with the system properties {@code budget.<name>.bytes} and
+ * {@code budget.<name>.nanos}, {@code budget.time=false} only checks the allocations.
+ */
+public final class HotPathBudget {
+
+	private static final int WARMUP_OPERATIONS = 20000;
+	private static final int ROUNDS = 5;
+	private static final int OPERATIONS_PER_ROUND = 10000;
+
+	private final String name;
+	private final long bytesPerOperation;
+	private final long nanosPerOperation;
+
+	private HotPathBudget(final String name, final long bytesPerOperation, final long nanosPerOperation) {
+		this.name = name;
+		this.bytesPerOperation = Long.getLong("budget." + name + ".bytes", bytesPerOperation);
+		this.nanosPerOperation = Long.getLong("budget." + name + ".nanos", nanosPerOperation);
+	}
+
+	/**
+	 * Creates a budget.
+	 *
+	 * @param name              The name of the budget in the system properties and the failure message.
+	 * @param bytesPerOperation The default maximum of allocated bytes per operation.
+	 * @param nanosPerOperation The default maximum of nanoseconds per operation.
+	 * @return The budget.
+	 */
+	public static HotPathBudget of(final String name, final long bytesPerOperation, final long nanosPerOperation) {
+		return new HotPathBudget(name, bytesPerOperation, nanosPerOperation);
+	}
+
+	/**
+	 * Measures the operation and fails if it allocates more bytes or takes longer per operation than the budget
+	 * allows. Gets skipped if the JVM can not measure the allocations of a thread.
+	 *
+	 * @param operation The operation to measure, should return something that depends on its work so it does not
+	 *                  get optimized away.
+	 * @throws Exception if the operation fails.
+	 */
+	public void assertWithin(final Operation operation) throws Exception {
+		final com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		assumeTrue(threadBean.isThreadAllocatedMemorySupported(), "JVM can not measure allocated bytes of a thread");
+		threadBean.setThreadAllocatedMemoryEnabled(true);
+
+		long sink = 0;
+		for (int i = 0; i < WARMUP_OPERATIONS; i++) {
+			sink += operation.run();
+		}
+
+		final long threadId = Thread.currentThread().getId();
+		long bestBytes = Long.MAX_VALUE;
+		long bestNanos = Long.MAX_VALUE;
+		for (int round = 0; round < ROUNDS; round++) {
+			final long bytesBefore = threadBean.getThreadAllocatedBytes(threadId);
+			final long startedAt = System.nanoTime();
+			for (int i = 0; i < OPERATIONS_PER_ROUND; i++) {
+				sink += operation.run();
+			}
+
+			final long nanos = System.nanoTime() - startedAt;
+			final long bytes = threadBean.getThreadAllocatedBytes(threadId) - bytesBefore;
+			bestBytes = Math.min(bestBytes, bytes);
+			bestNanos = Math.min(bestNanos, nanos);
+		}
+
+		final double bytesPerOp = (double) bestBytes / OPERATIONS_PER_ROUND;
+		final double nanosPerOp = (double) bestNanos / OPERATIONS_PER_ROUND;
+		LogUtil.logInfo("Budget \"{}\": {} bytes/op (max {}), {} ns/op (max {}), result {}.",
+				name, bytesPerOp, bytesPerOperation, nanosPerOp, nanosPerOperation, sink);
+		assertThat(bytesPerOp).as("allocated bytes per operation of \"%s\"", name).isLessThanOrEqualTo(bytesPerOperation);
+		if (Boolean.parseBoolean(System.getProperty("budget.time", "true"))) {
+			assertThat(nanosPerOp).as("nanoseconds per operation of \"%s\"", name).isLessThanOrEqualTo(nanosPerOperation);
+		}
+	}
+
+	/**
+	 * An operation of a hot path.
+	 */
+	@FunctionalInterface
+	public interface Operation {
+
+		/**
+		 * Runs the operation once.
+		 *
+		 * @return Any value that depends on the work of the operation.
+		 * @throws Exception if the operation fails.
+		 */
+		long run() throws Exception;
+	}
+}
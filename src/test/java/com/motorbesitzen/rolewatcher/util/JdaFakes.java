@@ -0,0 +1,209 @@
+package com.motorbesitzen.rolewatcher.util;
+
+import com.motorbesitzen.rolewatcher.data.dao.ForumRole;
+import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.entities.Member;
+import net.dv8tion.jda.api.entities.Role;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.IntPredicate;
+
+/**
+ * Creates lightweight fakes of JDA and repository interfaces for the benchmarks and the hot path budget tests. Unlike
+ * mocks they do not record their invocations, so they add little to the measured time and allocations. Each answer is
+ * either a fixed value or a {@code Function} of the call arguments. Methods without an answer return {@code null},
+ * {@code 0} or {@code false}, {@code equals} and {@code hashCode} use the identity of the fake.
+ */
+public final class JdaFakes {
+
+	private JdaFakes() {
+	}
+
+	/**
+	 * Creates a fake of an interface.
+	 *
+	 * @param type    The interface to fake.
+	 * @param name    The name {@code toString()} returns.
+	 * @param answers The answers by method name.
+	 * @param <T>     The type of the interface.
+	 * @return The fake.
+	 */
+	public static <T> T fake(final Class<T> type, final String name, final Map<String, Object> answers) {
+		return fake(type, name, answers, new AtomicInteger());
+	}
+
+	/**
+	 * Creates a fake of an interface that counts the calls of its methods, e.g. to count the database calls of a
+	 * repository. Calls of {@code equals}, {@code hashCode} and {@code toString} do not get counted.
+	 *
+	 * @param type    The interface to fake.
+	 * @param name    The name {@code toString()} returns.
+	 * @param answers The answers by method name.
+	 * @param calls   The counter to increment on each call.
+	 * @param <T>     The type of the interface.
+	 * @return The fake.
+	 */
+	@SuppressWarnings("unchecked")
+	public static <T> T fake(final Class<T> type, final String name, final Map<String, Object> answers, final AtomicInteger calls) {
+		return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+			switch (method.getName()) {
+				case "equals":
+					return proxy == args[0];
+				case "hashCode":
+					return System.identityHashCode(proxy);
+				case "toString":
+					return name;
+				default:
+					break;
+			}
+
+			calls.incrementAndGet();
+			final Object answer = answers.get(method.getName());
+			if (answer instanceof Function) {
+				return ((Function<Object[], Object>) answer).apply(args);
+			}
+
+			if (answer != null) {
+				return answer;
+			}
+
+			return getDefault(method.getReturnType());
+		});
+	}
+
+	/**
+	 * Creates forum roles with the IDs 1 to the given amount named "Forum Role" and their ID.
+	 *
+	 * @param count The amount of forum roles.
+	 * @return The forum roles.
+	 */
+	public static List<ForumRole> createForumRoles(final int count) {
+		final List<ForumRole> forumRoles = new ArrayList<>();
+		for (int i = 1; i <= count; i++) {
+			forumRoles.add(ForumRole.of(i, "Forum Role " + i));
+		}
+
+		return forumRoles;
+	}
+
+	/**
+	 * Creates a member of a guild that has a Discord role for each forum role and unrelated roles named "Discord Role"
+	 * and their number. Besides the selected Discord roles of the forum roles the member has the first two unrelated
+	 * roles. The bot can interact with all roles.
+	 *
+	 * @param forumRoles      The forum roles, each gets a Discord role with the same ID and name.
+	 * @param otherGuildRoles The amount of unrelated roles of the guild, at least two.
+	 * @param hasDiscordRole  Selects by their index the forum roles the member already has on Discord.
+	 * @return The member.
+	 */
+	public static Member createMemberWithRoles(final List<ForumRole> forumRoles, final int otherGuildRoles,
+											   final IntPredicate hasDiscordRole) {
+		final Map<String, List<Role>> rolesByName = new HashMap<>();
+		final List<Role> currentRoles = new ArrayList<>();
+		for (int i = 0; i < forumRoles.size(); i++) {
+			final ForumRole forumRole = forumRoles.get(i);
+			final Role role = createRole(forumRole.getRoleId(), forumRole.getRoleName());
+			rolesByName.put(forumRole.getRoleName().toLowerCase(), List.of(role));
+			if (hasDiscordRole.test(i)) {
+				currentRoles.add(role);
+			}
+		}
+
+		for (int i = 1; i <= otherGuildRoles; i++) {
+			final Role role = createRole(100000 + i, "Discord Role " + i);
+			rolesByName.put(role.getName().toLowerCase(), List.of(role));
+			if (i <= 2) {
+				currentRoles.add(role);
+			}
+		}
+
+		final Member self = fake(Member.class, "self", Map.of("canInteract", true));
+		final Guild guild = fake(Guild.class, "guild", Map.of(
+				"getSelfMember", self,
+				"getRolesByName", (Function<Object[], Object>) args -> rolesByName.getOrDefault(((String) args[0]).toLowerCase(), List.of())
+		));
+		final List<Role> unmodifiableRoles = Collections.unmodifiableList(currentRoles);
+		return fake(Member.class, "member", Map.of(
+				"getGuild", guild,
+				// JDA copies the roles on each call
+				"getRoles", (Function<Object[], Object>) args -> new ArrayList<>(unmodifiableRoles)
+		));
+	}
+
+	/**
+	 * Creates a role.
+	 *
+	 * @param id   The ID of the role.
+	 * @param name The name of the role.
+	 * @return The role.
+	 */
+	private static Role createRole(final long id, final String name) {
+		return fake(Role.class, name, Map.of("getIdLong", id, "getName", name));
+	}
+
+	/**
+	 * Creates an instance of a class through its only constructor, even if it is not public.
+	 *
+	 * @param type The class to create an instance of.
+	 * @param args The arguments of the constructor.
+	 * @param <T>  The type of the class.
+	 * @return The instance.
+	 */
+	@SuppressWarnings("unchecked")
+	public static <T> T construct(final Class<T> type, final Object... args) {
+		final Constructor<T> constructor = (Constructor<T>) type.getDeclaredConstructors()[0];
+		constructor.setAccessible(true);
+		try {
+			return constructor.newInstance(args);
+		} catch (InstantiationException | IllegalAccessException | InvocationTargetException e) {
+			throw new IllegalStateException("Could not create " + type.getSimpleName() + ".", e);
+		}
+	}
+
+	/**
+	 * Gets the default value of a return type.
+	 *
+	 * @param returnType The return type of a method.
+	 * @return {@code null} for objects, {@code 0} or {@code false} for primitives.
+	 */
+	private static Object getDefault(final Class<?> returnType) {
+		if (!returnType.isPrimitive() || returnType == void.class) {
+			return null;
+		}
+
+		if (returnType == boolean.class) {
+			return false;
+		}
+
+		if (returnType == long.class) {
+			return 0L;
+		}
+
+		if (returnType == int.class) {
+			return 0;
+		}
+
+		if (returnType == double.class) {
+			return 0.0;
+		}
+
+		if (returnType == float.class) {
+			return 0f;
+		}
+
+		if (returnType == short.class) {
+			return (short) 0;
+		}
+
+		if (returnType == byte.class) {
+			return (byte) 0;
+		}
+
+		return (char) 0;
+	}
+}
@@ -174,4 +174,37 @@ public class ParseUtilTest {
 
 		assertThat(result).isEqualTo(-1L);
 	}
+
+	@Test
+	@DisplayName("should parse a shard range inside the shards")
+	void testParseShardRange() {
+		int[] result = ParseUtil.safelyParseShardRange("2-3", 4);
+
+		assertThat(result).containsExactly(2, 3);
+	}
+
+	@Test
+	@DisplayName("should not parse a shard range outside the shards")
+	void testParseShardRangeOutsideShards() {
+		int[] result = ParseUtil.safelyParseShardRange("2-4", 4);
+
+		assertThat(result).isNull();
+	}
+
+	@Test
+	@DisplayName("should parse seconds with a fraction to milliseconds")
+	void testParseSecondsToMillis() {
+		long result = ParseUtil.safelyParseSecondsToMillis("1.2345");
+
+		assertThat(result).isEqualTo(1235L);
+	}
+
+	@Test
+	@DisplayName("should return -1 on negative or infinite seconds")
+	void testParseInvalidSecondsToMillis() {
+		assertThat(ParseUtil.safelyParseSecondsToMillis("-1")).isEqualTo(-1L);
+		assertThat(ParseUtil.safelyParseSecondsToMillis("Infinity")).isEqualTo(-1L);
+		assertThat(ParseUtil.safelyParseSecondsToMillis("NaN")).isEqualTo(-1L);
+		assertThat(ParseUtil.safelyParseSecondsToMillis("1e300")).isEqualTo(-1L);
+	}
 }
@@ -0,0 +1,49 @@
+package com.motorbesitzen.rolewatcher.util;
+
+import com.motorbesitzen.rolewatcher.data.dao.ForumRole;
+import net.dv8tion.jda.api.entities.Member;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RoleUtilBudgetTest {
+
+	private static final int FORUM_ROLES = 20;
+	private static final int MEMBER_FORUM_ROLES = 5;
+	private static final int OTHER_GUILD_ROLES = 20;
+
+	private Member member;
+	private List<ForumRole> memberForumRoles;
+	private List<ForumRole> allForumRoles;
+
+	@BeforeEach
+	void createMember() {
+		allForumRoles = JdaFakes.createForumRoles(FORUM_ROLES);
+		// the member already has all of their forum roles and two other roles on Discord
+		memberForumRoles = new ArrayList<>(allForumRoles.subList(0, MEMBER_FORUM_ROLES));
+		member = JdaFakes.createMemberWithRoles(allForumRoles, OTHER_GUILD_ROLES, i -> i < MEMBER_FORUM_ROLES);
+	}
+
+	@Test
+	@DisplayName("should find no changes if the member already has their forum roles")
+	void testNoChangeDiff() {
+		final RoleDiff roleDiff = RoleUtil.getRoleDiff(member, memberForumRoles, allForumRoles);
+
+		assertThat(roleDiff.getRolesToAdd()).isEmpty();
+		assertThat(roleDiff.getRolesToRemove()).isEmpty();
+	}
+
+	@Test
+	@DisplayName("should find no changes within the budget")
+	void testNoChangeDiffBudget() throws Exception {
+		HotPathBudget.of("roleDiff.noChange", 4096, 50000).assertWithin(() -> {
+			final RoleDiff roleDiff = RoleUtil.getRoleDiff(member, memberForumRoles, allForumRoles);
+			return roleDiff.getRolesToAdd().size() + roleDiff.getRolesToRemove().size();
+		});
+	}
+}
@@ -0,0 +1,42 @@
+package com.motorbesitzen.rolewatcher.util;
+
+import com.motorbesitzen.rolewatcher.data.dao.ForumRole;
+import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.entities.Member;
+import net.dv8tion.jda.api.entities.Role;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RoleUtilTest {
+
+	@Test
+	@DisplayName("should keep a duplicate named role without modifying the roles of the member")
+	void testDuplicateNamedRoles() {
+		final ForumRole vip = ForumRole.of(1, "VIP");
+		final ForumRole oldVip = ForumRole.of(2, "vip");
+		final Role vipRole = JdaFakes.fake(Role.class, "VIP", Map.of("getIdLong", 10L, "getName", "VIP"));
+		final Member self = JdaFakes.fake(Member.class, "self", Map.of("canInteract", true));
+		final Guild guild = JdaFakes.fake(Guild.class, "guild", Map.of(
+				"getSelfMember", self,
+				"getRolesByName", (Function<Object[], Object>) args -> List.of(vipRole)
+		));
+		final Member member = JdaFakes.fake(Member.class, "member", Map.of(
+				"getGuild", guild,
+				"getRoles", (Function<Object[], Object>) args -> new ArrayList<>()
+		));
+		final List<ForumRole> memberForumRoles = new ArrayList<>(List.of(vip));
+
+		final RoleDiff roleDiff = RoleUtil.getRoleDiff(member, memberForumRoles, List.of(vip, oldVip));
+
+		assertThat(roleDiff.getRolesToAdd()).containsOnly(vipRole);
+		assertThat(roleDiff.getRolesToRemove()).isEmpty();
+		assertThat(memberForumRoles).containsExactly(vip);
+	}
+}
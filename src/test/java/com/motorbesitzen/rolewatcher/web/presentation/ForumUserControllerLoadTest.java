@@ -0,0 +1,330 @@
+package com.motorbesitzen.rolewatcher.web.presentation;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.motorbesitzen.rolewatcher.bot.service.BotBuilder;
+import com.motorbesitzen.rolewatcher.data.dao.DiscordUser;
+import com.motorbesitzen.rolewatcher.data.dao.ForumUser;
+import com.motorbesitzen.rolewatcher.data.repo.DiscordUserRepo;
+import com.motorbesitzen.rolewatcher.data.repo.ForumUserRepo;
+import com.motorbesitzen.rolewatcher.util.LogUtil;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import net.dv8tion.jda.api.sharding.ShardManager;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.web.server.LocalServerPort;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Sends mixed link, info and unlink requests of concurrent workers to a local server and reports the latency
+ * percentiles and status codes per endpoint and how often simultaneous link requests of the same user conflicted.
+ * Only runs with {@code gradlew loadTest}, the load can be set with {@code -Pload.workers=64 -Pload.requests=100000},
+ * {@code -Pload.mix=post,get,delete} (weights), {@code -Pload.postDuplicates} (concurrent link requests per user),
+ * {@code -Pload.seedUsers} and {@code -Pload.warmup}. The results get written to
+ * {@code build/reports/load/users.json}.
+ */
+@Tag("load")
+@SpringBootTest(
+		webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+		properties = {
+				"FORUM_USER_ADD_API_KEY=" + ForumUserControllerLoadTest.API_KEY,
+				"DB_URL=jdbc:h2:mem:loadtest;DB_CLOSE_DELAY=-1",
+				"DB_USER=sa",
+				"DB_PASSWORD=",
+				"spring.jpa.hibernate.ddl-auto=create-drop",
+				"management.server.port=0",
+				"logging.file.name=build/load/RwLog"
+		}
+)
+public class ForumUserControllerLoadTest {
+
+	static final String API_KEY = "LoadTestKey0123456789abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ";
+
+	private static final long SEED_FORUM_ID_BASE = 1000000;
+	private static final long POST_FORUM_ID_BASE = 5000000;
+	private static final long DISCORD_ID_BASE = 100000000000000000L;
+	private static final Path RESULTS_FILE = Path.of("build", "reports", "load", "users.json");
+	private static final double[] PERCENTILES = {0.5, 0.99, 0.999};
+
+	private final int workers = Integer.getInteger("load.workers", 16);
+	private final int requests = Integer.getInteger("load.requests", 20000);
+	private final int warmup = Integer.getInteger("load.warmup", 1000);
+	private final int postDuplicates = Math.max(1, Integer.getInteger("load.postDuplicates", 2));
+	private final int seedUsers = Integer.getInteger("load.seedUsers", 5000);
+	private final int[] mix = parseMix(System.getProperty("load.mix", "60,30,10"));
+
+	@LocalServerPort
+	private int port;
+
+	@MockBean
+	private ShardManager shardManager;
+
+	@MockBean
+	private BotBuilder botBuilder;
+
+	@Autowired
+	private ForumUserRepo forumUserRepo;
+
+	@Autowired
+	private DiscordUserRepo discordUserRepo;
+
+	@Autowired
+	private MeterRegistry registry;
+
+	private final HttpClient httpClient = HttpClient.newBuilder()
+			.connectTimeout(Duration.ofSeconds(10))
+			.build();
+	private final AtomicInteger postIndex = new AtomicInteger();
+
+	@Test
+	@DisplayName("should answer every request of concurrent link, info and unlink traffic")
+	void testMixedUserTraffic() throws InterruptedException, IOException {
+		seedLinkedUsers();
+		final double conflictsBefore = getLinkConflicts();
+
+		final int total = warmup + requests;
+		final Operation[] operations = new Operation[total];
+		final int[] statuses = new int[total];
+		final long[] latencies = new long[total];
+		final AtomicInteger nextRequest = new AtomicInteger();
+		final ExecutorService executor = Executors.newFixedThreadPool(workers);
+		final long startedAt = System.nanoTime();
+		for (int i = 0; i < workers; i++) {
+			executor.execute(() -> {
+				int request;
+				while ((request = nextRequest.getAndIncrement()) < total) {
+					final Operation operation = pickOperation();
+					final long sentAt = System.nanoTime();
+					operations[request] = operation;
+					statuses[request] = send(operation);
+					latencies[request] = System.nanoTime() - sentAt;
+				}
+			});
+		}
+
+		executor.shutdown();
+		assertThat(executor.awaitTermination(30, TimeUnit.MINUTES)).isTrue();
+		final long durationNs = System.nanoTime() - startedAt;
+
+		final Map<String, Object> results = new LinkedHashMap<>();
+		results.put("workers", workers);
+		results.put("requests", requests);
+		results.put("requestsPerSecond", total * 1e9 / durationNs);
+		results.put("linkConflicts", getLinkConflicts() - conflictsBefore);
+		for (Operation operation : Operation.values()) {
+			results.put(operation.name(), summarize(operation, operations, statuses, latencies));
+		}
+
+		report(results);
+		for (int request = warmup; request < total; request++) {
+			assertThat(statuses[request]).as("status of request %d", request).isNotEqualTo(-1);
+		}
+	}
+
+	/**
+	 * Links forum users to Discord users, so info and unlink requests find users.
+	 */
+	private void seedLinkedUsers() {
+		final List<DiscordUser> discordUsers = new ArrayList<>();
+		final List<ForumUser> forumUsers = new ArrayList<>();
+		for (long i = 0; i < seedUsers; i++) {
+			final DiscordUser discordUser = DiscordUser.createDiscordUser(DISCORD_ID_BASE + i);
+			discordUsers.add(discordUser);
+			forumUsers.add(ForumUser.withLinkedDiscordUser(SEED_FORUM_ID_BASE + i, "User " + i, discordUser));
+		}
+
+		discordUserRepo.saveAll(discordUsers);
+		forumUserRepo.saveAll(forumUsers);
+	}
+
+	/**
+	 * @return The amount of conflicting link requests the controller handled so far.
+	 */
+	private double getLinkConflicts() {
+		return registry.find("rolewatcher.web.link.conflicts").counters().stream().mapToDouble(Counter::count).sum();
+	}
+
+	/**
+	 * Picks an operation by the weights of the mix.
+	 *
+	 * @return The operation of the next request.
+	 */
+	private Operation pickOperation() {
+		int pick = ThreadLocalRandom.current().nextInt(mix[0] + mix[1] + mix[2]);
+		for (Operation operation : Operation.values()) {
+			pick -= mix[operation.ordinal()];
+			if (pick < 0) {
+				return operation;
+			}
+		}
+
+		return Operation.POST;
+	}
+
+	/**
+	 * Sends a request. Link requests come in groups of the same user with different verification codes, so the
+	 * requests of a group race each other. Info and unlink requests ask for random seeded users, unlinked users
+	 * stay unlinked.
+	 *
+	 * @param operation The operation to send.
+	 * @return The status code of the response or -1 if the request failed.
+	 */
+	private int send(final Operation operation) {
+		final HttpRequest.Builder request;
+		switch (operation) {
+			case POST:
+				final int index = postIndex.getAndIncrement();
+				final long uid = POST_FORUM_ID_BASE + index / postDuplicates;
+				final String body = "{\"uid\": " + uid + ", \"username\": \"User " + uid + "\", " +
+						"\"verificationcode\": \"c" + uid + "-" + index % postDuplicates + "\"}";
+				request = HttpRequest.newBuilder(getUri("/users"))
+						.header("Content-Type", "application/json")
+						.POST(HttpRequest.BodyPublishers.ofString(body));
+				break;
+			case GET:
+				request = HttpRequest.newBuilder(getUri("/users/" + getRandomSeededId())).GET();
+				break;
+			default:
+				request = HttpRequest.newBuilder(getUri("/users/" + getRandomSeededId())).DELETE();
+				break;
+		}
+
+		try {
+			return httpClient.send(request.timeout(Duration.ofSeconds(30)).build(), HttpResponse.BodyHandlers.discarding()).statusCode();
+		} catch (IOException e) {
+			return -1;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return -1;
+		}
+	}
+
+	/**
+	 * @param path The path of the endpoint.
+	 * @return The URI of the endpoint with the API key.
+	 */
+	private URI getUri(final String path) {
+		return URI.create("http://localhost:" + port + path + "?key=" + API_KEY);
+	}
+
+	/**
+	 * @return The forum ID of a random seeded user.
+	 */
+	private long getRandomSeededId() {
+		return SEED_FORUM_ID_BASE + ThreadLocalRandom.current().nextInt(Math.max(1, seedUsers));
+	}
+
+	/**
+	 * Summarises the measured requests of an operation after the warmup.
+	 *
+	 * @param operation  The operation.
+	 * @param operations The operation of each request.
+	 * @param statuses   The status code of each request.
+	 * @param latencies  The latency of each request in nanoseconds.
+	 * @return The count, the latency percentiles in milliseconds and the count per status code.
+	 */
+	private Map<String, Object> summarize(final Operation operation, final Operation[] operations,
+										  final int[] statuses, final long[] latencies) {
+		final Map<Integer, Integer> statusCounts = new TreeMap<>();
+		final long[] operationLatencies = new long[operations.length];
+		int count = 0;
+		for (int request = warmup; request < operations.length; request++) {
+			if (operations[request] != operation) {
+				continue;
+			}
+
+			operationLatencies[count++] = latencies[request];
+			statusCounts.merge(statuses[request], 1, Integer::sum);
+		}
+
+		final long[] sortedLatencies = Arrays.copyOf(operationLatencies, count);
+		Arrays.sort(sortedLatencies);
+		final Map<String, Object> summary = new LinkedHashMap<>();
+		summary.put("count", count);
+		for (double percentile : PERCENTILES) {
+			final String name = "p" + String.valueOf(percentile * 100).replace(".0", "").replace(".", "");
+			summary.put(name + "Ms", count == 0 ? 0 : getPercentile(sortedLatencies, percentile) / 1e6);
+		}
+
+		summary.put("statuses", statusCounts);
+		return summary;
+	}
+
+	/**
+	 * Gets a percentile by the nearest rank.
+	 *
+	 * @param sortedValues The sorted values, at least one.
+	 * @param percentile   The percentile between 0 and 1.
+	 * @return The value at the percentile.
+	 */
+	private static long getPercentile(final long[] sortedValues, final double percentile) {
+		final int rank = (int) Math.ceil(percentile * sortedValues.length);
+		return sortedValues[Math.max(0, rank - 1)];
+	}
+
+	/**
+	 * Logs the results and writes them as JSON.
+	 *
+	 * @param results The results.
+	 * @throws IOException if the results can not be written.
+	 */
+	private void report(final Map<String, Object> results) throws IOException {
+		final ObjectMapper mapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+		final String json = mapper.writeValueAsString(results);
+		LogUtil.logInfo("Load test results of the user endpoints:\n{}", json);
+		Files.createDirectories(RESULTS_FILE.toAbsolutePath().getParent());
+		Files.writeString(RESULTS_FILE, json);
+	}
+
+	/**
+	 * Parses the weights of the operations.
+	 *
+	 * @param mix The weights of link, info and unlink requests like {@code 60,30,10}.
+	 * @return The weights in the order of {@link Operation}.
+	 */
+	private static int[] parseMix(final String mix) {
+		final String[] parts = mix.split(",");
+		if (parts.length != 3) {
+			throw new IllegalArgumentException("load.mix needs three weights like 60,30,10, got \"" + mix + "\".");
+		}
+
+		final int[] weights = new int[3];
+		for (int i = 0; i < 3; i++) {
+			weights[i] = Math.max(0, Integer.parseInt(parts[i].trim()));
+		}
+
+		if (weights[0] + weights[1] + weights[2] == 0) {
+			throw new IllegalArgumentException("load.mix needs at least one weight above 0.");
+		}
+
+		return weights;
+	}
+
+	/**
+	 * The requests of the load test.
+	 */
+	private enum Operation {
+		POST, GET, DELETE
+	}
+}
@@ -0,0 +1,67 @@
+package com.motorbesitzen.rolewatcher.web.presentation;
+
+import com.motorbesitzen.rolewatcher.bot.event.AutokickSweeper;
+import com.motorbesitzen.rolewatcher.bot.service.DiscordActionOutbox;
+import com.motorbesitzen.rolewatcher.bot.service.SyncMetrics;
+import com.motorbesitzen.rolewatcher.data.dao.DiscordUser;
+import com.motorbesitzen.rolewatcher.data.dao.ForumUser;
+import com.motorbesitzen.rolewatcher.data.repo.*;
+import net.dv8tion.jda.api.sharding.ShardManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+public class ForumUserControllerTest {
+
+	private static final long FORUM_ID = 10;
+	private static final long DISCORD_ID = 200000000000000001L;
+
+	private ForumUserRepo forumUserRepo;
+	private AutokickSweeper autokickSweeper;
+	private ForumUserController controller;
+
+	@BeforeEach
+	void createController() {
+		forumUserRepo = mock(ForumUserRepo.class);
+		final DiscordGuildRepo guildRepo = mock(DiscordGuildRepo.class);
+		when(guildRepo.findAll()).thenReturn(List.of());
+		autokickSweeper = mock(AutokickSweeper.class);
+		controller = new ForumUserController(forumUserRepo, mock(LinkingInformationRepo.class), mock(DiscordBanRepo.class),
+				guildRepo, mock(ForumRoleRepo.class), mock(ShardManager.class), mock(DiscordActionOutbox.class),
+				mock(SyncMetrics.class), autokickSweeper);
+	}
+
+	@Test
+	@DisplayName("should track a user that got unlinked through the API for the autokick")
+	void testTrackUnlinkedUser() {
+		final ForumUser forumUser = ForumUser.withLinkedDiscordUser(FORUM_ID, "User", DiscordUser.createDiscordUser(DISCORD_ID));
+		when(forumUserRepo.findByForumIdOrLinkedDiscordUser_DiscordId(FORUM_ID, FORUM_ID)).thenReturn(Optional.of(forumUser));
+
+		final ResponseEntity<?> response = controller.delMember("key", FORUM_ID, null);
+
+		assertThat(response.getStatusCode()).isEqualTo(HttpStatus.NO_CONTENT);
+		verify(forumUserRepo).delete(forumUser);
+		verify(autokickSweeper).track(DISCORD_ID);
+	}
+
+	@Test
+	@DisplayName("should not track a whitelisted user that got unlinked through the API")
+	void testKeepWhitelistedUser() {
+		final ForumUser forumUser = ForumUser.withLinkedDiscordUser(FORUM_ID, "User", DiscordUser.createWhitelistedDiscordUser(DISCORD_ID));
+		when(forumUserRepo.findByForumIdOrLinkedDiscordUser_DiscordId(FORUM_ID, FORUM_ID)).thenReturn(Optional.of(forumUser));
+
+		final ResponseEntity<?> response = controller.delMember("key", FORUM_ID, null);
+
+		assertThat(response.getStatusCode()).isEqualTo(HttpStatus.NO_CONTENT);
+		verify(autokickSweeper, never()).track(anyLong());
+	}
+}